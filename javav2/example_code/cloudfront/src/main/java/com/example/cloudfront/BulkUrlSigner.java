@@ -0,0 +1,368 @@
+//snippet-sourcedescription:[BulkUrlSigner.java demonstrates how to sign large numbers of URLs and cookies for Amazon CloudFront with one private key.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon CloudFront]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.cloudfront;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signs CloudFront URLs and cookies at a high rate with a single key pair.
+ *
+ * CloudFrontUtilities takes the private key with every request and signs every URL
+ * separately. This class parses the key once and keeps one Signature object per thread,
+ * so any number of threads can share an instance. Custom policies can name a resource
+ * pattern such as https://d111111abcdef8.cloudfront.net/videos/*, and one signed policy
+ * then authorizes every URL that matches it. Signed custom policies are cached by their
+ * resource pattern and time window, so URLs that share both need only one RSA signature.
+ * Use alignedExpiration to round expiration times to a shared window.
+ *
+ * Signed URLs are bearer credentials, so this class never logs them.
+ */
+public class BulkUrlSigner {
+
+    /**
+     * The three cookies that grant access with a custom policy.
+     */
+    public static class SignedCookies {
+        private final String policy;
+        private final String signature;
+        private final String keyPairId;
+
+        SignedCookies(String policy, String signature, String keyPairId) {
+            this.policy = policy;
+            this.signature = signature;
+            this.keyPairId = keyPairId;
+        }
+
+        public String policyHeaderValue() {
+            return "CloudFront-Policy=" + policy;
+        }
+
+        public String signatureHeaderValue() {
+            return "CloudFront-Signature=" + signature;
+        }
+
+        public String keyPairIdHeaderValue() {
+            return "CloudFront-Key-Pair-Id=" + keyPairId;
+        }
+    }
+
+    private static final int DEFAULT_MAX_CACHED_POLICIES = 10_000;
+
+    private final String keyPairId;
+    private final ThreadLocal<Signature> signatures;
+    private final int maxCachedPolicies;
+    private final ConcurrentMap<PolicyKey, SignedPolicy> policies = new ConcurrentHashMap<>();
+    private final LongAdder signatureCount = new LongAdder();
+    private final LongAdder policyCacheHits = new LongAdder();
+
+    public BulkUrlSigner(String keyPairId, PrivateKey privateKey) {
+        this(keyPairId, privateKey, DEFAULT_MAX_CACHED_POLICIES);
+    }
+
+    /**
+     * @param maxCachedPolicies the most signed custom policies to keep. Expired policies are
+     *                          removed when the cache is full.
+     */
+    public BulkUrlSigner(String keyPairId, PrivateKey privateKey, int maxCachedPolicies) {
+        this.keyPairId = keyPairId;
+        this.maxCachedPolicies = maxCachedPolicies;
+        this.signatures = ThreadLocal.withInitial(() -> {
+            try {
+                Signature signature = Signature.getInstance("SHA1withRSA");
+                signature.initSign(privateKey);
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot sign with the private key", e);
+            }
+        });
+        // Fail now rather than on the first request if the key can't be used.
+        signatures.get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String usage = "\n" +
+                "Usage:\n" +
+                "    <privateKeyPath> <keyPairId> <resourcePattern> <count>\n\n" +
+                "Where:\n" +
+                "    privateKeyPath - The path of the PEM file that holds the private key of the key pair.\n" +
+                "    keyPairId - The ID of the public key in the key group of the distribution.\n" +
+                "    resourcePattern - The URL pattern that the policy allows (for example, https://d111111abcdef8.cloudfront.net/videos/*).\n" +
+                "    count - The number of URLs to sign.\n";
+
+        if (args.length != 4) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String privateKeyPath = args[0];
+        String keyPairId = args[1];
+        String resourcePattern = args[2];
+        int count = Integer.parseInt(args[3]);
+
+        BulkUrlSigner signer = new BulkUrlSigner(keyPairId, readPrivateKey(Paths.get(privateKeyPath)));
+        Instant expiration = alignedExpiration(Instant.now(), Duration.ofHours(1), Duration.ofMinutes(5));
+        String prefix = resourcePattern.endsWith("*") ? resourcePattern.substring(0, resourcePattern.length() - 1) : resourcePattern;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            signer.signUrlWithCustomPolicy(prefix + "segment-" + i + ".ts", resourcePattern, null, expiration, null);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Signed %d URLs in %.3f s (%.0f URLs/s) with %d RSA signatures%n",
+                count, seconds, count / seconds, signer.getSignatureCount());
+    }
+
+    /**
+     * Reads an RSA private key from a PEM file in either PKCS #8 (BEGIN PRIVATE KEY) or
+     * PKCS #1 (BEGIN RSA PRIVATE KEY) format.
+     */
+    public static PrivateKey readPrivateKey(Path pemFile) throws IOException, GeneralSecurityException {
+        String pem = new String(Files.readAllBytes(pemFile), StandardCharsets.US_ASCII);
+        boolean pkcs1 = pem.contains("BEGIN RSA PRIVATE KEY");
+        String base64 = pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+        byte[] der = Base64.getDecoder().decode(base64);
+        if (pkcs1) {
+            der = wrapPkcs1(der);
+        }
+        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(der));
+    }
+
+    /**
+     * Returns now + timeToLive rounded up to a multiple of window. URLs issued within the same
+     * window get the same expiration time and can share one signed policy; each URL stays
+     * valid for between timeToLive and timeToLive + window.
+     *
+     * @throws IllegalArgumentException if window is shorter than one second.
+     */
+    public static Instant alignedExpiration(Instant now, Duration timeToLive, Duration window) {
+        // Policies hold whole seconds, so a shorter window can't be aligned to.
+        long windowSeconds = window.getSeconds();
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("The window must be at least one second: " + window);
+        }
+        long expiresSeconds = now.plus(timeToLive).getEpochSecond();
+        long aligned = (expiresSeconds + windowSeconds - 1) / windowSeconds * windowSeconds;
+        return Instant.ofEpochSecond(aligned);
+    }
+
+    /**
+     * Signs a URL with a canned policy. A canned policy names the exact URL, so each call
+     * needs its own signature.
+     */
+    public String signUrlWithCannedPolicy(String resourceUrl, Instant expiration) {
+        long expires = expiration.getEpochSecond();
+        String policy = "{\"Statement\":[{\"Resource\":" + jsonString(resourceUrl)
+                + ",\"Condition\":{\"DateLessThan\":{\"AWS:EpochTime\":" + expires + "}}}]}";
+        String signature = sign(policy);
+        return resourceUrl + (resourceUrl.indexOf('?') >= 0 ? '&' : '?')
+                + "Expires=" + expires
+                + "&Signature=" + signature
+                + "&Key-Pair-Id=" + keyPairId;
+    }
+
+    /**
+     * Signs a URL with a custom policy that allows resourcePattern, which must match
+     * resourceUrl. The signed policy is reused for every URL with the same pattern, times,
+     * and IP range.
+     *
+     * @param activeFrom the time the URL becomes valid, or null for no start time.
+     * @param ipRange    the CIDR range of allowed clients, or null for any client.
+     */
+    public String signUrlWithCustomPolicy(String resourceUrl, String resourcePattern, Instant activeFrom,
+                                          Instant expiration, String ipRange) {
+        SignedPolicy signed = signedPolicy(resourcePattern, activeFrom, expiration, ipRange);
+        return resourceUrl + (resourceUrl.indexOf('?') >= 0 ? '&' : '?')
+                + "Policy=" + signed.encodedPolicy
+                + "&Signature=" + signed.signature
+                + "&Key-Pair-Id=" + keyPairId;
+    }
+
+    /**
+     * Returns signed cookies for a custom policy that allows resourcePattern.
+     */
+    public SignedCookies getCookiesForCustomPolicy(String resourcePattern, Instant activeFrom,
+                                                   Instant expiration, String ipRange) {
+        SignedPolicy signed = signedPolicy(resourcePattern, activeFrom, expiration, ipRange);
+        return new SignedCookies(signed.encodedPolicy, signed.signature, keyPairId);
+    }
+
+    /**
+     * Returns the number of RSA signatures computed so far.
+     */
+    public long getSignatureCount() {
+        return signatureCount.sum();
+    }
+
+    /**
+     * Returns the number of custom policy requests that reused a cached signature.
+     */
+    public long getPolicyCacheHits() {
+        return policyCacheHits.sum();
+    }
+
+    private SignedPolicy signedPolicy(String resourcePattern, Instant activeFrom, Instant expiration, String ipRange) {
+        PolicyKey key = new PolicyKey(resourcePattern,
+                activeFrom == null ? -1 : activeFrom.getEpochSecond(), expiration.getEpochSecond(), ipRange);
+        SignedPolicy signed = policies.get(key);
+        if (signed != null) {
+            policyCacheHits.increment();
+            return signed;
+        }
+
+        if (policies.size() >= maxCachedPolicies) {
+            long now = Instant.now().getEpochSecond();
+            policies.values().removeIf(p -> p.expires <= now);
+            if (policies.size() >= maxCachedPolicies) {
+                return createSignedPolicy(key);
+            }
+        }
+        // Threads that ask for the same policy at once wait for a single signature.
+        return policies.computeIfAbsent(key, this::createSignedPolicy);
+    }
+
+    private SignedPolicy createSignedPolicy(PolicyKey key) {
+        StringBuilder condition = new StringBuilder()
+                .append("{\"DateLessThan\":{\"AWS:EpochTime\":").append(key.expires).append('}');
+        if (key.ipRange != null) {
+            condition.append(",\"IpAddress\":{\"AWS:SourceIp\":").append(jsonString(key.ipRange)).append('}');
+        }
+        if (key.activeFrom >= 0) {
+            condition.append(",\"DateGreaterThan\":{\"AWS:EpochTime\":").append(key.activeFrom).append('}');
+        }
+        condition.append('}');
+        String policy = "{\"Statement\":[{\"Resource\":" + jsonString(key.resourcePattern)
+                + ",\"Condition\":" + condition + "}]}";
+
+        String encodedPolicy = toUrlSafe(Base64.getEncoder().encodeToString(policy.getBytes(StandardCharsets.UTF_8)));
+        return new SignedPolicy(encodedPolicy, sign(policy), key.expires);
+    }
+
+    private String sign(String policy) {
+        Signature signature = signatures.get();
+        try {
+            signature.update(policy.getBytes(StandardCharsets.UTF_8));
+            byte[] signed = signature.sign();
+            signatureCount.increment();
+            return toUrlSafe(Base64.getEncoder().encodeToString(signed));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Signing the policy failed", e);
+        }
+    }
+
+    // Quotes a value for the policy document, so that a quote or backslash in it can't change the policy.
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    // CloudFront expects base64 with the characters that are not valid in a query string replaced.
+    private static String toUrlSafe(String base64) {
+        return base64.replace('+', '-').replace('=', '_').replace('/', '~');
+    }
+
+    // Wraps a PKCS #1 RSAPrivateKey in the PKCS #8 PrivateKeyInfo structure that KeyFactory reads.
+    private static byte[] wrapPkcs1(byte[] pkcs1) {
+        byte[] algorithm = {
+            0x02, 0x01, 0x00,
+            0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00
+        };
+        byte[] octetHeader = derHeader(0x04, pkcs1.length);
+        int bodyLength = algorithm.length + octetHeader.length + pkcs1.length;
+        byte[] sequenceHeader = derHeader(0x30, bodyLength);
+
+        byte[] der = new byte[sequenceHeader.length + bodyLength];
+        int offset = 0;
+        for (byte[] part : new byte[][]{sequenceHeader, algorithm, octetHeader, pkcs1}) {
+            System.arraycopy(part, 0, der, offset, part.length);
+            offset += part.length;
+        }
+        return der;
+    }
+
+    private static byte[] derHeader(int tag, int length) {
+        if (length < 0x80) {
+            return new byte[]{(byte) tag, (byte) length};
+        }
+        int lengthBytes = length > 0xffff ? 3 : length > 0xff ? 2 : 1;
+        byte[] header = new byte[2 + lengthBytes];
+        header[0] = (byte) tag;
+        header[1] = (byte) (0x80 | lengthBytes);
+        for (int i = 0; i < lengthBytes; i++) {
+            header[2 + i] = (byte) (length >>> (8 * (lengthBytes - 1 - i)));
+        }
+        return header;
+    }
+
+    private static final class PolicyKey {
+        private final String resourcePattern;
+        private final long activeFrom;
+        private final long expires;
+        private final String ipRange;
+
+        PolicyKey(String resourcePattern, long activeFrom, long expires, String ipRange) {
+            this.resourcePattern = resourcePattern;
+            this.activeFrom = activeFrom;
+            this.expires = expires;
+            this.ipRange = ipRange;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PolicyKey)) {
+                return false;
+            }
+            PolicyKey other = (PolicyKey) o;
+            return activeFrom == other.activeFrom && expires == other.expires
+                    && resourcePattern.equals(other.resourcePattern) && Objects.equals(ipRange, other.ipRange);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourcePattern, activeFrom, expires, ipRange);
+        }
+    }
+
+    private static final class SignedPolicy {
+        private final String encodedPolicy;
+        private final String signature;
+        private final long expires;
+
+        SignedPolicy(String encodedPolicy, String signature, long expires) {
+            this.encodedPolicy = encodedPolicy;
+            this.signature = signature;
+            this.expires = expires;
+        }
+    }
+}
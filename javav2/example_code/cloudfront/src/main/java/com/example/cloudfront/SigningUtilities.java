@@ -26,29 +26,28 @@ public class SigningUtilities {
 
     public static SignedUrl signUrlForCannedPolicy(CannedSignerRequest cannedSignerRequest){
         SignedUrl signedUrl = cloudFrontUtilities.getSignedUrlWithCannedPolicy(cannedSignerRequest);
-        logger.info("Signed URL: [{}]", signedUrl.url());
+        // A signed URL grants access to whoever holds it, so log only the resource.
+        logger.debug("Signed URL for [{}]", cannedSignerRequest.resourceUrl());
         return signedUrl;
     }
 
     public static SignedUrl signUrlForCustomPolicy(CustomSignerRequest customSignerRequest){
         SignedUrl signedUrl = cloudFrontUtilities.getSignedUrlWithCustomPolicy(customSignerRequest);
-        logger.info("Signed URL: [{}]", signedUrl.url());
+        logger.debug("Signed URL for [{}]", customSignerRequest.resourceUrl());
         return signedUrl;
     }
 
     public static CookiesForCannedPolicy getCookiesForCannedPolicy(CannedSignerRequest cannedSignerRequest){
         CookiesForCannedPolicy cookiesForCannedPolicy = cloudFrontUtilities.getCookiesForCannedPolicy(cannedSignerRequest);
-        logger.info("Cookie EXPIRES header [{}]", cookiesForCannedPolicy.expiresHeaderValue());
-        logger.info("Cookie KEYPAIR header [{}]", cookiesForCannedPolicy.keyPairIdHeaderValue());
-        logger.info("Cookie SIGNATURE header [{}]", cookiesForCannedPolicy.signatureHeaderValue());
+        logger.debug("Cookie EXPIRES header [{}]", cookiesForCannedPolicy.expiresHeaderValue());
+        logger.debug("Cookie KEYPAIR header [{}]", cookiesForCannedPolicy.keyPairIdHeaderValue());
         return cookiesForCannedPolicy;
     }
 
     public static CookiesForCustomPolicy getCookiesForCustomPolicy(CustomSignerRequest customSignerRequest) {
         CookiesForCustomPolicy cookiesForCustomPolicy = cloudFrontUtilities.getCookiesForCustomPolicy(customSignerRequest);
-        logger.info("Cookie POLICY header [{}]", cookiesForCustomPolicy.policyHeaderValue());
-        logger.info("Cookie KEYPAIR header [{}]", cookiesForCustomPolicy.keyPairIdHeaderValue());
-        logger.info("Cookie SIGNATURE header [{}]", cookiesForCustomPolicy.signatureHeaderValue());
+        logger.debug("Cookie POLICY header [{}]", cookiesForCustomPolicy.policyHeaderValue());
+        logger.debug("Cookie KEYPAIR header [{}]", cookiesForCustomPolicy.keyPairIdHeaderValue());
         return cookiesForCustomPolicy;
     }
 }
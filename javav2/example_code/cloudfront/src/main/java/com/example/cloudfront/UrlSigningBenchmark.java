@@ -0,0 +1,110 @@
+//snippet-sourcedescription:[UrlSigningBenchmark.java measures how many Amazon CloudFront URLs per second can be signed with CloudFrontUtilities and with BulkUrlSigner.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon CloudFront]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.cloudfront;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import software.amazon.awssdk.services.cloudfront.CloudFrontUtilities;
+import software.amazon.awssdk.services.cloudfront.model.CannedSignerRequest;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures signed URLs per second for a 2048-bit RSA key:
+ *
+ * - sdkCannedPolicy signs each URL with CloudFrontUtilities.
+ * - cannedPolicy signs each URL with BulkUrlSigner, which reuses the parsed key and a
+ *   per-thread Signature. Each URL still needs one RSA signature.
+ * - customPolicySharedWindow signs URLs under one resource pattern and expiration window,
+ *   so almost every URL reuses a cached signature.
+ *
+ * Run the main method to execute the benchmark on one thread, which gives the rate per
+ * core, and then on one thread per core. The key is generated for the run, so no AWS
+ * resources are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlSigningBenchmark {
+    private static final String DISTRIBUTION = "https://d111111abcdef8.cloudfront.net";
+    private static final String KEY_PAIR_ID = "K2JCJMDEHXQW5F";
+
+    private final CloudFrontUtilities cloudFrontUtilities = CloudFrontUtilities.create();
+    private PrivateKey privateKey;
+    private BulkUrlSigner signer;
+    private Instant expiration;
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[]{1, cores}) {
+            Options options = new OptionsBuilder()
+                    .include(UrlSigningBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = keyPair.getPrivate();
+        signer = new BulkUrlSigner(KEY_PAIR_ID, privateKey);
+        expiration = BulkUrlSigner.alignedExpiration(Instant.now(), Duration.ofHours(1), Duration.ofMinutes(5));
+    }
+
+    @Benchmark
+    public String sdkCannedPolicy() {
+        CannedSignerRequest request = CannedSignerRequest.builder()
+                .resourceUrl(nextUrl())
+                .privateKey(privateKey)
+                .keyPairId(KEY_PAIR_ID)
+                .expirationDate(expiration)
+                .build();
+        return cloudFrontUtilities.getSignedUrlWithCannedPolicy(request).url();
+    }
+
+    @Benchmark
+    public String cannedPolicy() {
+        return signer.signUrlWithCannedPolicy(nextUrl(), expiration);
+    }
+
+    @Benchmark
+    public String customPolicySharedWindow() {
+        return signer.signUrlWithCustomPolicy(nextUrl(), DISTRIBUTION + "/videos/*", null, expiration, null);
+    }
+
+    private static String nextUrl() {
+        return DISTRIBUTION + "/videos/segment-" + ThreadLocalRandom.current().nextInt(1_000_000) + ".ts";
+    }
+}
@@ -5,9 +5,18 @@
 import com.google.gson.Gson;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.services.cloudfront.CloudFrontClient;
+import software.amazon.awssdk.services.cloudfront.model.CannedSignerRequest;
 import org.junit.jupiter.api.*;
 import software.amazon.awssdk.regions.Region;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
 import com.example.cloudfront.*;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
@@ -117,6 +126,86 @@ public class CloudFrontTest {
        System.out.println("Test 6 passed");
     }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(7)
+    public void BulkUrlSigner() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        BulkUrlSigner signer = new BulkUrlSigner("K2JCJMDEHXQW5F", keyPair.getPrivate());
+        String resourceUrl = "https://d111111abcdef8.cloudfront.net/videos/intro.mp4";
+        Instant expiration = BulkUrlSigner.alignedExpiration(Instant.now(), Duration.ofHours(1), Duration.ofMinutes(5));
+        assertEquals(0, expiration.getEpochSecond() % 300);
+
+        // A canned policy signed by BulkUrlSigner matches the one signed by the SDK.
+        CannedSignerRequest cannedRequest = CannedSignerRequest.builder()
+            .resourceUrl(resourceUrl)
+            .privateKey(keyPair.getPrivate())
+            .keyPairId("K2JCJMDEHXQW5F")
+            .expirationDate(expiration)
+            .build();
+        assertEquals(SigningUtilities.signUrlForCannedPolicy(cannedRequest).url(),
+            signer.signUrlWithCannedPolicy(resourceUrl, expiration));
+
+        // URLs under the same pattern and window share one signed policy.
+        String pattern = "https://d111111abcdef8.cloudfront.net/videos/*";
+        String first = signer.signUrlWithCustomPolicy(resourceUrl, pattern, null, expiration, null);
+        String second = signer.signUrlWithCustomPolicy(resourceUrl.replace("intro", "outro"), pattern, null, expiration, null);
+        String query = first.substring(first.indexOf('?'));
+        assertEquals(query, second.substring(second.indexOf('?')));
+        assertEquals(2, signer.getSignatureCount());
+        assertEquals(1, signer.getPolicyCacheHits());
+
+        String policy = query.replaceAll(".*Policy=([^&]+).*", "$1");
+        String signature = query.replaceAll(".*Signature=([^&]+).*", "$1");
+        Signature verifier = Signature.getInstance("SHA1withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(Base64.getDecoder().decode(policy.replace('-', '+').replace('_', '=').replace('~', '/')));
+        assertTrue(verifier.verify(Base64.getDecoder().decode(signature.replace('-', '+').replace('_', '=').replace('~', '/'))));
+        System.out.println("Test 7 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(8)
+    public void BulkUrlSignerEscapesPolicyValues() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        BulkUrlSigner signer = new BulkUrlSigner("K2JCJMDEHXQW5F", generator.generateKeyPair().getPrivate());
+        Instant expiration = Instant.ofEpochSecond(1_900_000_000L);
+
+        // A quote in the pattern or IP range stays inside its value instead of adding to the policy.
+        String pattern = "https://d111111abcdef8.cloudfront.net/videos/\"},{\"Resource\":\"*";
+        String ipRange = "192.0.2.0/24\\\"";
+        BulkUrlSigner.SignedCookies cookies = signer.getCookiesForCustomPolicy(pattern, null, expiration, ipRange);
+        String encoded = cookies.policyHeaderValue().substring("CloudFront-Policy=".length());
+        String json = new String(Base64.getDecoder().decode(encoded.replace('-', '+').replace('_', '=').replace('~', '/')),
+            StandardCharsets.UTF_8);
+        Policy policy = new Gson().fromJson(json, Policy.class);
+        assertEquals(1, policy.Statement.length);
+        assertEquals(pattern, policy.Statement[0].Resource);
+        assertEquals(ipRange, policy.Statement[0].Condition.IpAddress.get("AWS:SourceIp"));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> BulkUrlSigner.alignedExpiration(Instant.now(), Duration.ofHours(1), Duration.ofMillis(500)));
+        System.out.println("Test 8 passed");
+    }
+
+    // The parts of a custom policy that the signer fills in.
+    static class Policy {
+        Statement[] Statement;
+
+        static class Statement {
+            String Resource;
+            Condition Condition;
+        }
+
+        static class Condition {
+            Map<String, String> IpAddress;
+        }
+    }
+
    private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
             .region(Region.US_EAST_1)
@@ -0,0 +1,107 @@
+/* Copyright 2010-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.example.cognito.srp;
+
+import com.example.cognito.srp.utils.SRPUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import software.amazon.awssdk.utils.Pair;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side of an SRP handshake, in handshakes per second: generating the
+ * ephemeral key pair and computing the password claim signature against a fixed server
+ * challenge. It also compares computing g^a with BigInteger.modPow and with the fixed-base
+ * table that SRPUtils uses.
+ *
+ * Run the main method to execute the benchmark on one thread, which gives the throughput
+ * per core, and then on one thread per core. No AWS resources are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SrpHandshakeBenchmark {
+    private static final String USER = "pool-iduser-id";
+    private static final String PASSWORD = "changeme-0okm9IJN~";
+
+    private BigInteger salt;
+    private BigInteger serverB;
+    private byte[] secretBlock;
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[]{1, cores}) {
+            Options options = new OptionsBuilder()
+                    .include(SrpHandshakeBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SecureRandom random = new SecureRandom();
+        salt = SRPUtils.generateSalt();
+        BigInteger verifier = SRPUtils.generatePasswordVerifier(USER, PASSWORD, salt);
+
+        // The server's challenge: B = k * v + g^b mod N.
+        BigInteger b = new BigInteger(1024, random).mod(SRPUtils.N);
+        serverB = SRPUtils.k.multiply(verifier).add(SRPUtils.g.modPow(b, SRPUtils.N)).mod(SRPUtils.N);
+        secretBlock = new byte[1024];
+        random.nextBytes(secretBlock);
+    }
+
+    @Benchmark
+    public byte[] handshake() {
+        Pair<BigInteger, BigInteger> clientKeys = SRPUtils.generateSrpClientKeys();
+        String timestamp = SRPUtils.getCurrentTimestamp();
+        return SRPUtils.calculatePasswordClaimSignature(USER, PASSWORD, timestamp,
+                clientKeys.left(), clientKeys.right(), serverB, salt, secretBlock);
+    }
+
+    @Benchmark
+    public BigInteger ephemeralKeyModPow() {
+        return SRPUtils.g.modPow(randomExponent(), SRPUtils.N);
+    }
+
+    @Benchmark
+    public BigInteger ephemeralKeyFixedBase() {
+        return SRPUtils.powerOfG(randomExponent());
+    }
+
+    // The exponent doesn't need to be secure here, only different each time.
+    private static BigInteger randomExponent() {
+        return new BigInteger(1024, ThreadLocalRandom.current());
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright 2010-2023 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.example.cognito.srp.utils;
+
+import java.math.BigInteger;
+
+/**
+ * Computes base^e mod m for a fixed base and modulus faster than BigInteger.modPow.
+ *
+ * The exponent is split into windows of a few bits, and base^(d * 2^(w * i)) mod m is
+ * precomputed for every window i and digit d. A power is then the product of one table
+ * entry per window, with no squarings. Each product is reduced with Barrett reduction,
+ * which replaces the division in BigInteger.mod with two multiplications. Instances are
+ * immutable and can be shared by any number of threads.
+ */
+public final class FixedBaseModPow {
+    private final BigInteger base;
+    private final BigInteger modulus;
+    private final int windowBits;
+    private final int maxExponentBits;
+    private final BigInteger[][] table;
+    private final int modulusBits;
+    private final BigInteger barrettFactor;
+
+    /**
+     * @param maxExponentBits the largest exponent the table covers; larger exponents fall back to modPow.
+     * @param windowBits      the bits per window; the table holds (maxExponentBits / windowBits) * 2^windowBits entries.
+     */
+    public FixedBaseModPow(BigInteger base, BigInteger modulus, int maxExponentBits, int windowBits) {
+        this.base = base;
+        this.modulus = modulus;
+        this.windowBits = windowBits;
+        this.maxExponentBits = maxExponentBits;
+        this.modulusBits = modulus.bitLength();
+        this.barrettFactor = BigInteger.ONE.shiftLeft(2 * modulusBits).divide(modulus);
+
+        int windows = (maxExponentBits + windowBits - 1) / windowBits;
+        int digits = 1 << windowBits;
+        table = new BigInteger[windows][digits];
+        // windowBase is base^(2^(w * i)), the value of digit 1 in window i.
+        BigInteger windowBase = base.mod(modulus);
+        for (int i = 0; i < windows; i++) {
+            table[i][0] = BigInteger.ONE;
+            for (int d = 1; d < digits; d++) {
+                table[i][d] = reduce(table[i][d - 1].multiply(windowBase));
+            }
+            windowBase = reduce(table[i][digits - 1].multiply(windowBase));
+        }
+    }
+
+    /**
+     * Returns base^exponent mod modulus for a non-negative exponent.
+     */
+    public BigInteger pow(BigInteger exponent) {
+        if (exponent.signum() < 0 || exponent.bitLength() > maxExponentBits) {
+            return base.modPow(exponent, modulus);
+        }
+
+        BigInteger result = null;
+        int windows = (exponent.bitLength() + windowBits - 1) / windowBits;
+        for (int i = 0; i < windows; i++) {
+            int digit = 0;
+            for (int bit = windowBits - 1; bit >= 0; bit--) {
+                digit = (digit << 1) | (exponent.testBit(i * windowBits + bit) ? 1 : 0);
+            }
+            if (digit != 0) {
+                result = result == null ? table[i][digit] : reduce(result.multiply(table[i][digit]));
+            }
+        }
+        return result == null ? BigInteger.ONE.mod(modulus) : result;
+    }
+
+    // Reduces a value below modulus^2 to a value below modulus.
+    private BigInteger reduce(BigInteger value) {
+        BigInteger quotient = value.shiftRight(modulusBits - 1).multiply(barrettFactor).shiftRight(modulusBits + 1);
+        BigInteger remainder = value.subtract(quotient.multiply(modulus));
+        while (remainder.compareTo(modulus) >= 0) {
+            remainder = remainder.subtract(modulus);
+        }
+        return remainder;
+    }
+}
@@ -25,6 +25,22 @@ import java.util.Base64;
 public class HashUtils {
     private static final String HMAC_ALGORITHM = "HmacSHA256";
     private static final String HASH_ALGORITHM = "SHA-256";
+    // Getting a Mac or MessageDigest looks up its provider each time, so each thread keeps one to reuse.
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
     public static String computeSecretHash(String clientId, String clientSecret, String username) {
         byte[] output = hmac(clientSecret.getBytes(StandardCharsets.UTF_8), username.getBytes(StandardCharsets.UTF_8), clientId.getBytes(StandardCharsets.UTF_8));
         return Base64.getEncoder().encodeToString(output);
@@ -32,12 +48,9 @@ public class HashUtils {
 
     public static byte[] hmac(byte[] key, byte[]... inputs) {
         SecretKeySpec signingKey = new SecretKeySpec(key, HMAC_ALGORITHM);
-        Mac mac = null;
+        Mac mac = MAC.get();
         try {
-            mac = Mac.getInstance(HMAC_ALGORITHM);
             mac.init(signingKey);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
         } catch (InvalidKeyException e) {
             throw new RuntimeException(e);
         }
@@ -48,12 +61,7 @@ public class HashUtils {
     }
 
     public static byte[] sha256(byte[]... contents) {
-        MessageDigest md = null;
-        try {
-            md = MessageDigest.getInstance(HASH_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+        MessageDigest md = DIGEST.get();
         md.reset();
         for (byte[] content : contents) {
             md.update(content);
@@ -62,12 +70,8 @@ public class HashUtils {
     }
 
     public static BigInteger sha256(BigInteger... contents) {
-        MessageDigest md = null;
-        try {
-            md = MessageDigest.getInstance(HASH_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
+        MessageDigest md = DIGEST.get();
+        md.reset();
         for (BigInteger content : contents) {
             md.update(content.toByteArray());
         }
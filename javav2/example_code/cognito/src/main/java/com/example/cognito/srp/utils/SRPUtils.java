@@ -19,11 +19,12 @@ import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 public class SRPUtils {
-    private static final String RNG_ALGORIGHM = "SHA1PRNG";
     private static final String HEX_N = "FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD1"
                                       + "29024E088A67CC74020BBEA63B139B22514A08798E3404DD"
                                       + "EF9519B3CD3A431B302B0A6DF25F14374FE1356D6D51C245"
@@ -47,28 +48,48 @@ public class SRPUtils {
     private static final int EPHEMERAL_KEY_LENGTH = 1024;
     private static final int DERIVED_KEY_SIZE = 16;
     private static final String DERIVED_KEY_INFO = "Caldera Derived Key";
-    private static final SecureRandom SECURE_RANDOM;
-    private static final SimpleDateFormat DATE_TIME_FORMATTER = new SimpleDateFormat("EEE MMM d HH:mm:ss z yyyy", Locale.US);
-
-    static {
+    private static final int SEED_LENGTH = 32;
+    // The default SecureRandom on Linux is NativePRNG, whose instances all share one lock. Each thread
+    // instead keeps a SHA1PRNG, which has no shared state, seeded once from the platform generator.
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+    private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(() -> {
         try {
-            SECURE_RANDOM = SecureRandom.getInstance(RNG_ALGORIGHM);
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            byte[] seed = new byte[SEED_LENGTH];
+            SEED_SOURCE.nextBytes(seed);
+            random.setSeed(seed);
+            return random;
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
+    });
+    // DateTimeFormatter is immutable and thread-safe, unlike SimpleDateFormat.
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("EEE MMM d HH:mm:ss 'UTC' yyyy", Locale.US).withZone(ZoneOffset.UTC);
 
+    static {
         k = HashUtils.sha256(N, g);
-        DATE_TIME_FORMATTER.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    // Powers of g are computed from a table of about 12 MB, built on first use.
+    private static final class PowersOfG {
+        static final FixedBaseModPow TABLE = new FixedBaseModPow(g, N, EPHEMERAL_KEY_LENGTH, 8);
+    }
+
+    /**
+     * Returns g^exponent mod N.
+     */
+    public static BigInteger powerOfG(BigInteger exponent) {
+        return PowersOfG.TABLE.pow(exponent);
     }
 
     public static BigInteger generateSalt() {
-        BigInteger salt = new BigInteger(SALT_KEY_LENGTH, SECURE_RANDOM);
+        BigInteger salt = new BigInteger(SALT_KEY_LENGTH, SECURE_RANDOM.get());
         return salt;
     }
 
     public static String getCurrentTimestamp() {
-        Date currentTimestamp = new Date();
-        return DATE_TIME_FORMATTER.format(currentTimestamp);
+        return DATE_TIME_FORMATTER.format(Instant.now());
     }
 
     private static BigInteger calculateX(String name, String password, BigInteger salt) {
@@ -81,7 +102,7 @@ public class SRPUtils {
 
     public static BigInteger generatePasswordVerifier(String name, String password, BigInteger salt) {
         BigInteger x = calculateX(name, password, salt);
-        return g.modPow(x, N);
+        return powerOfG(x);
     }
 
     public static byte[] calculatePasswordClaimSignature(String name, String password, String timestamp,
@@ -91,7 +112,7 @@ public class SRPUtils {
         // u = H(A, B)
         BigInteger u = HashUtils.sha256(A, B);
         // S = ((B-kg^x)^(a+ux))%N
-        BigInteger S = (B.subtract(k.multiply(g.modPow(x, N))).modPow(a.add(u.multiply(x)), N)).mod(N);
+        BigInteger S = (B.subtract(k.multiply(powerOfG(x))).modPow(a.add(u.multiply(x)), N)).mod(N);
         byte[] key = hkdf(S.toByteArray(), u.toByteArray());
         byte[] passwordClaimSignature = HashUtils.hmac(key,
                 name.getBytes(StandardCharsets.UTF_8), secretBlock, timestamp.getBytes(StandardCharsets.UTF_8));
@@ -108,8 +129,8 @@ public class SRPUtils {
     public static Pair<BigInteger, BigInteger> generateSrpClientKeys() {
         BigInteger a, A;
         do {
-            a = new BigInteger(EPHEMERAL_KEY_LENGTH, SECURE_RANDOM).mod(N);
-            A = g.modPow(a, N);
+            a = new BigInteger(EPHEMERAL_KEY_LENGTH, SECURE_RANDOM.get()).mod(N);
+            A = powerOfG(a);
         } while (A.mod(N).equals(BigInteger.ZERO));
         return Pair.of(a, A);
     }
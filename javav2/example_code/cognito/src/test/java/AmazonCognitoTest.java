@@ -3,6 +3,7 @@
    SPDX-License-Identifier: Apache-2.0
 */
 import com.example.cognito.*;
+import com.example.cognito.srp.utils.SRPUtils;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.*;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
@@ -12,7 +13,18 @@ import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityPr
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import software.amazon.awssdk.utils.Pair;
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -253,6 +265,43 @@ public class AmazonCognitoTest {
         System.out.println("Test 15 passed");
     }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(16)
+    public void SRPUtils() throws Exception {
+        // The fixed-base table gives the same powers of g as modPow.
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < 50; i++) {
+            BigInteger exponent = new BigInteger(1 + random.nextInt(1024), random);
+            assertEquals(SRPUtils.g.modPow(exponent, SRPUtils.N), SRPUtils.powerOfG(exponent));
+        }
+
+        // The timestamp is in the format that Cognito expects.
+        SimpleDateFormat format = new SimpleDateFormat("EEE MMM d HH:mm:ss z yyyy", Locale.US);
+        long millis = format.parse(SRPUtils.getCurrentTimestamp()).getTime();
+        assertTrue(Math.abs(System.currentTimeMillis() - millis) < 5_000);
+
+        // Signatures computed on many threads at once match the one computed alone.
+        BigInteger salt = SRPUtils.generateSalt();
+        Pair<BigInteger, BigInteger> keys = SRPUtils.generateSrpClientKeys();
+        BigInteger serverB = SRPUtils.powerOfG(new BigInteger(1024, random));
+        byte[] secretBlock = "secret-block".getBytes(StandardCharsets.UTF_8);
+        byte[] expected = SRPUtils.calculatePasswordClaimSignature("user", "password", "timestamp",
+            keys.left(), keys.right(), serverB, salt, secretBlock);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<byte[]>> signatures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            signatures.add(pool.submit(() -> SRPUtils.calculatePasswordClaimSignature("user", "password", "timestamp",
+                keys.left(), keys.right(), serverB, salt, secretBlock)));
+        }
+        for (Future<byte[]> signature : signatures) {
+            assertArrayEquals(expected, signature.get());
+        }
+        pool.shutdown();
+        System.out.println("Test 16 passed");
+    }
+
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
             .region(Region.US_EAST_1)
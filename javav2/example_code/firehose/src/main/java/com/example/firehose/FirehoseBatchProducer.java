@@ -0,0 +1,349 @@
+//snippet-sourcedescription:[FirehoseBatchProducer.java demonstrates how to pack stock trades into records and send them to a delivery stream in full batches, re-sending only the records that failed.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Kinesis Data Firehose]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.firehose;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.firehose.FirehoseClient;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchRequest;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponse;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponseEntry;
+import software.amazon.awssdk.services.firehose.model.Record;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends stock trades to a Kinesis Data Firehose delivery stream.
+ *
+ * Several small JSON trades are packed into one Firehose record, separated by newlines,
+ * and records are sent with PutRecordBatch once a batch reaches 500 records or 4 MiB,
+ * or when the linger timeout expires. Only the entries that come back with an error
+ * code are re-sent; if the whole call fails, every record in it is re-sent. A record that
+ * still hasn't been sent after the last attempt is counted as failed. Each calling thread
+ * serializes into its own reusable buffer, so no byte array is allocated per trade.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class FirehoseBatchProducer implements AutoCloseable {
+
+    // Service limits for PutRecordBatch.
+    private static final int MAX_BATCH_RECORDS = 500;
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_RECORD_BYTES = 1000 * 1024;
+
+    private static final ThreadLocal<ReusableBuffer> SCRATCH = ThreadLocal.withInitial(() -> new ReusableBuffer(256));
+
+    private final FirehoseClient firehoseClient;
+    private final String streamName;
+    private final int packBytes;
+    private final long lingerMillis;
+    private final int maxAttempts;
+    private final Semaphore inFlightBatches;
+    private final ExecutorService senderPool;
+    private final ScheduledExecutorService lingerTimer;
+
+    // Guarded by this.
+    private final ReusableBuffer pack;
+    private List<Record> batch = new ArrayList<>();
+    private int batchBytes;
+    private ScheduledFuture<?> lingerTask;
+
+    private final LongAdder recordsSent = new LongAdder();
+    private final LongAdder recordsFailed = new LongAdder();
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+
+        final String usage = "\n" +
+            "Usage:\n" +
+            "    <streamName> <count>\n\n" +
+            "Where:\n" +
+            "    streamName - The data stream name. \n" +
+            "    count - The number of trades to send. \n";
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String streamName = args[0];
+        int count = Integer.parseInt(args[1]);
+        FirehoseClient firehoseClient = FirehoseClient.builder()
+            .region(Region.US_WEST_2)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        StockTradeGenerator stockTradeGenerator = new StockTradeGenerator();
+        FirehoseBatchProducer producer = new FirehoseBatchProducer(firehoseClient, streamName, 64 * 1024, 200, 4, 3);
+        try {
+            for (int x = 0; x < count; x++) {
+                producer.add(stockTradeGenerator.getRandomTrade());
+            }
+        } finally {
+            producer.close();
+        }
+        System.out.println("Records sent: " + producer.getRecordsSent() + ", failed: " + producer.getRecordsFailed());
+        firehoseClient.close();
+    }
+
+    /**
+     * Creates a producer.
+     *
+     * @param firehoseClient     the client used for all calls; it is not closed by this producer.
+     * @param streamName         the delivery stream name.
+     * @param packBytes          the size at which a record of newline-delimited trades is closed (at most 1000 KiB).
+     * @param lingerMillis       how long a partially filled batch waits for more trades.
+     * @param maxInFlightBatches the maximum number of PutRecordBatch calls running at once.
+     * @param maxAttempts        how many times a record is sent before it is counted as failed.
+     */
+    public FirehoseBatchProducer(FirehoseClient firehoseClient, String streamName, int packBytes, long lingerMillis,
+                                 int maxInFlightBatches, int maxAttempts) {
+        this.firehoseClient = firehoseClient;
+        this.streamName = streamName;
+        this.packBytes = Math.min(packBytes, MAX_RECORD_BYTES);
+        this.lingerMillis = lingerMillis;
+        this.maxAttempts = maxAttempts;
+        this.pack = new ReusableBuffer(this.packBytes);
+        this.inFlightBatches = new Semaphore(maxInFlightBatches);
+        this.senderPool = Executors.newFixedThreadPool(maxInFlightBatches);
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "firehose-producer-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Serializes the trade and adds it to the current record.
+     */
+    public void add(StockTrade trade) throws IOException, InterruptedException {
+        ReusableBuffer scratch = SCRATCH.get();
+        scratch.reset();
+        trade.writeJsonTo(scratch);
+        if (scratch.size() + 1 > packBytes) {
+            throw new IllegalArgumentException("Trade " + trade.getId() + " does not fit in a record");
+        }
+
+        List<Record> ready = null;
+        synchronized (this) {
+            if (pack.size() + scratch.size() + 1 > packBytes) {
+                ready = sealPack();
+            }
+            scratch.writeTo(pack);
+            pack.write('\n');
+            if (lingerTask == null) {
+                lingerTask = lingerTimer.schedule(this::onLinger, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (ready != null) {
+            dispatch(ready);
+        }
+    }
+
+    /**
+     * Sends the current record and batch without waiting for the linger timeout.
+     */
+    public void flush() throws InterruptedException {
+        List<List<Record>> ready;
+        synchronized (this) {
+            ready = drain();
+        }
+        for (List<Record> records : ready) {
+            dispatch(records);
+        }
+    }
+
+    public long getRecordsSent() {
+        return recordsSent.sum();
+    }
+
+    public long getRecordsFailed() {
+        return recordsFailed.sum();
+    }
+
+    /**
+     * Flushes buffered trades and waits for all batches in flight to finish.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        // Stop the timer first, so that no linger flush hands a batch to the closed sender pool.
+        lingerTimer.shutdownNow();
+        lingerTimer.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+        senderPool.shutdown();
+        senderPool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    // Closes the current record and returns the batch if it is now full. Must hold the lock.
+    private List<Record> sealPack() {
+        if (pack.size() == 0) {
+            return null;
+        }
+
+        Record record = Record.builder()
+            .data(SdkBytes.fromByteArrayUnsafe(pack.toByteArray()))
+            .build();
+        int size = pack.size();
+        pack.reset();
+
+        List<Record> ready = null;
+        if (batchBytes + size > MAX_BATCH_BYTES) {
+            ready = takeBatch();
+        }
+        batch.add(record);
+        batchBytes += size;
+        if (batch.size() == MAX_BATCH_RECORDS) {
+            // A batch taken above holds only this record, so ready is still null here.
+            ready = takeBatch();
+        }
+        return ready;
+    }
+
+    // Closes the current record and returns every buffered batch. Must hold the lock.
+    private List<List<Record>> drain() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        List<List<Record>> ready = new ArrayList<>(2);
+        List<Record> full = sealPack();
+        if (full != null) {
+            ready.add(full);
+        }
+        if (!batch.isEmpty()) {
+            ready.add(takeBatch());
+        }
+        return ready;
+    }
+
+    private List<Record> takeBatch() {
+        List<Record> taken = batch;
+        batch = new ArrayList<>();
+        batchBytes = 0;
+        return taken;
+    }
+
+    private void onLinger() {
+        List<List<Record>> ready;
+        synchronized (this) {
+            // Clear the task first so that drain() does not cancel the running timer.
+            lingerTask = null;
+            ready = drain();
+        }
+        // The timer thread must not wait for an in-flight permit.
+        for (List<Record> records : ready) {
+            dispatchLater(records);
+        }
+    }
+
+    private void dispatch(List<Record> records) throws InterruptedException {
+        inFlightBatches.acquire();
+        try {
+            senderPool.execute(() -> {
+                try {
+                    sendWithRetry(records);
+                } finally {
+                    inFlightBatches.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightBatches.release();
+            throw e;
+        }
+    }
+
+    // Hands a batch to the sender pool without waiting for an in-flight permit. The pool has one
+    // thread per permit, so the batch still waits its turn there, but the caller isn't blocked.
+    private void dispatchLater(List<Record> records) {
+        try {
+            senderPool.execute(() -> sendWithRetry(records));
+        } catch (RejectedExecutionException e) {
+            recordsFailed.add(records.size());
+        }
+    }
+
+    private void sendWithRetry(List<Record> records) {
+        List<Record> remaining = records;
+        long backoffMillis = 100;
+        for (int attempt = 1; !remaining.isEmpty(); attempt++) {
+            List<Record> retry = new ArrayList<>();
+            try {
+                PutRecordBatchResponse response = firehoseClient.putRecordBatch(PutRecordBatchRequest.builder()
+                    .deliveryStreamName(streamName)
+                    .records(remaining)
+                    .build());
+
+                // Responses are in the same order as the request records.
+                List<PutRecordBatchResponseEntry> results = response.requestResponses();
+                for (int i = 0; i < results.size(); i++) {
+                    if (results.get(i).errorCode() == null) {
+                        recordsSent.increment();
+                    } else {
+                        retry.add(remaining.get(i));
+                    }
+                }
+
+            } catch (SdkException e) {
+                // Service errors, and client errors such as timeouts, may succeed on a later attempt.
+                System.err.println(e.getLocalizedMessage());
+                retry = remaining;
+
+            } catch (RuntimeException e) {
+                // Anything else is a bug or a bad request, which another attempt won't fix.
+                System.err.println("Sending " + remaining.size() + " records failed: " + e);
+                recordsFailed.add(remaining.size());
+                return;
+            }
+
+            remaining = retry;
+            if (!remaining.isEmpty()) {
+                if (attempt >= maxAttempts) {
+                    recordsFailed.add(remaining.size());
+                    return;
+                }
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    recordsFailed.add(remaining.size());
+                    return;
+                }
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    // A ByteArrayOutputStream that can be refilled without reallocating its buffer.
+    private static class ReusableBuffer extends ByteArrayOutputStream {
+        private ReusableBuffer(int size) {
+            super(size);
+        }
+
+        private void writeTo(ReusableBuffer target) {
+            target.write(buf, 0, count);
+        }
+    }
+}
@@ -9,6 +9,7 @@
 package com.example.firehose;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -77,6 +78,13 @@ public class StockTrade {
         }
     }
 
+    /**
+     * Writes this trade as JSON to the stream without allocating an intermediate byte array.
+     */
+    public void writeJsonTo(OutputStream out) throws IOException {
+        JSON.writeValue(out, this);
+    }
+
     public static StockTrade fromJsonAsBytes(byte[] bytes) {
         try {
             return JSON.readValue(bytes, StockTrade.class);
@@ -0,0 +1,154 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.firehose.FirehoseBatchProducer;
+import com.example.firehose.StockTrade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.firehose.FirehoseClient;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchRequest;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponse;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponseEntry;
+import software.amazon.awssdk.services.firehose.model.Record;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Timeout(30)
+public class FirehoseBatchProducerTest {
+
+    // Small enough that each record holds one trade.
+    private static final int PACK_BYTES = 100;
+
+    @Test
+    public void failedEntriesAreResentAlone() throws Exception {
+        RecordingFirehose firehose = new RecordingFirehose();
+        firehose.failOnce.add(1);
+        FirehoseBatchProducer producer = new FirehoseBatchProducer(firehose.client, "stream", PACK_BYTES, 60_000, 1, 3);
+        addTrades(producer, 3);
+        producer.close();
+
+        assertEquals(Arrays.asList(3, 1), firehose.batchSizes);
+        assertEquals(3, producer.getRecordsSent());
+        assertEquals(0, producer.getRecordsFailed());
+    }
+
+    @Test
+    public void clientErrorsAreRetriedAndThenCountedAsFailed() throws Exception {
+        RecordingFirehose firehose = new RecordingFirehose();
+        firehose.failure = SdkClientException.builder().message("Unable to execute HTTP request").build();
+        FirehoseBatchProducer producer = new FirehoseBatchProducer(firehose.client, "stream", PACK_BYTES, 60_000, 1, 3);
+        addTrades(producer, 3);
+        producer.close();
+
+        assertEquals(Arrays.asList(3, 3, 3), firehose.batchSizes);
+        assertEquals(0, producer.getRecordsSent());
+        assertEquals(3, producer.getRecordsFailed());
+    }
+
+    @Test
+    public void unexpectedErrorsAreCountedAsFailedWithoutRetrying() throws Exception {
+        RecordingFirehose firehose = new RecordingFirehose();
+        firehose.failure = new IllegalStateException("Unexpected");
+        FirehoseBatchProducer producer = new FirehoseBatchProducer(firehose.client, "stream", PACK_BYTES, 60_000, 1, 3);
+        addTrades(producer, 3);
+        producer.close();
+
+        assertEquals(Arrays.asList(3), firehose.batchSizes);
+        assertEquals(0, producer.getRecordsSent());
+        assertEquals(3, producer.getRecordsFailed());
+    }
+
+    @Test
+    public void closeSendsBatchesThatLingerFlushedWhileWaitingForAPermit() throws Exception {
+        // One batch in flight at a time, and the first call doesn't return until the test allows it.
+        RecordingFirehose firehose = new RecordingFirehose();
+        firehose.firstCallReleased = new CountDownLatch(1);
+        FirehoseBatchProducer producer = new FirehoseBatchProducer(firehose.client, "stream", PACK_BYTES, 50, 1, 3);
+        addTrades(producer, 1);
+        producer.flush();
+
+        // The linger timeout flushes a second batch while the first still holds the only permit.
+        addTrades(producer, 1);
+        Thread.sleep(500);
+
+        Thread closer = new Thread(() -> {
+            try {
+                producer.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        closer.start();
+        Thread.sleep(200);
+        firehose.firstCallReleased.countDown();
+        closer.join();
+
+        assertEquals(Arrays.asList(1, 1), firehose.batchSizes);
+        assertEquals(2, producer.getRecordsSent());
+        assertEquals(0, producer.getRecordsFailed());
+    }
+
+    private static void addTrades(FirehoseBatchProducer producer, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            producer.add(new StockTrade("AMZN", StockTrade.TradeType.BUY, 100.0, 10, i));
+        }
+    }
+
+    // A FirehoseClient that records the size of each batch and accepts every record, unless told otherwise.
+    private static class RecordingFirehose implements InvocationHandler {
+        private final FirehoseClient client = (FirehoseClient) Proxy.newProxyInstance(
+            FirehoseClient.class.getClassLoader(), new Class<?>[]{FirehoseClient.class}, this);
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        // The positions in the first batch whose entries fail once.
+        private final Set<Integer> failOnce = new HashSet<>();
+        private volatile RuntimeException failure;
+        // When set, the first call waits for this latch.
+        private volatile CountDownLatch firstCallReleased;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!method.getName().equals("putRecordBatch")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            List<Record> records = ((PutRecordBatchRequest) args[0]).records();
+            batchSizes.add(records.size());
+            if (firstCallReleased != null && batchSizes.size() == 1) {
+                try {
+                    firstCallReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            List<PutRecordBatchResponseEntry> entries = new ArrayList<>();
+            int failed = 0;
+            for (int i = 0; i < records.size(); i++) {
+                if (batchSizes.size() == 1 && failOnce.contains(i)) {
+                    entries.add(PutRecordBatchResponseEntry.builder()
+                        .errorCode("ServiceUnavailableException")
+                        .errorMessage("Slow down")
+                        .build());
+                    failed++;
+                } else {
+                    entries.add(PutRecordBatchResponseEntry.builder().recordId("record-" + i).build());
+                }
+            }
+            return PutRecordBatchResponse.builder().requestResponses(entries).failedPutCount(failed).build();
+        }
+    }
+}
@@ -97,17 +97,32 @@ public class FirehoseTest {
     @Test
     @Tag("IntegrationTest")
     @Order(4)
-    public void ListDeliveryStreams() {
-        assertDoesNotThrow(() ->ListDeliveryStreams.listStreams(firehoseClient));
+    public void FirehoseBatchProducer() {
+        assertDoesNotThrow(() -> {
+            StockTradeGenerator stockTradeGenerator = new StockTradeGenerator();
+            try (FirehoseBatchProducer producer = new FirehoseBatchProducer(firehoseClient, newStream, 64 * 1024, 200, 2, 3)) {
+                for (int x = 0; x < 1000; x++) {
+                    producer.add(stockTradeGenerator.getRandomTrade());
+                }
+            }
+        });
         System.out.println("Test 4 passed");
     }
 
     @Test
     @Tag("IntegrationTest")
     @Order(5)
+    public void ListDeliveryStreams() {
+        assertDoesNotThrow(() ->ListDeliveryStreams.listStreams(firehoseClient));
+        System.out.println("Test 5 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(6)
     public void DeleteStream() {
         assertDoesNotThrow(() ->DeleteStream.delStream(firehoseClient, newStream));
-        System.out.println("Test 5 passed");
+        System.out.println("Test 6 passed");
     }
 
     private static String getSecretValues() {
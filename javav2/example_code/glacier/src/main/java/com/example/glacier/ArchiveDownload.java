@@ -11,7 +11,7 @@ package com.example.glacier;
 
 // snippet-start:[glacier.java2.download.import]
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
-import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.glacier.GlacierClient;
 import software.amazon.awssdk.services.glacier.model.JobParameters;
@@ -20,12 +20,12 @@ import software.amazon.awssdk.services.glacier.model.GlacierException;
 import software.amazon.awssdk.services.glacier.model.InitiateJobRequest;
 import software.amazon.awssdk.services.glacier.model.DescribeJobRequest;
 import software.amazon.awssdk.services.glacier.model.DescribeJobResponse;
-import software.amazon.awssdk.services.glacier.model.GetJobOutputRequest;
-import software.amazon.awssdk.services.glacier.model.GetJobOutputResponse;
-import java.io.File;
-import java.io.FileOutputStream;
+import software.amazon.awssdk.services.glacier.model.StatusCode;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.file.Paths;
 // snippet-end:[glacier.java2.download.import]
 
 /**
@@ -41,13 +41,15 @@ public class ArchiveDownload {
 
         final String usage = "\n" +
             "Usage: " +
-            "   <vaultName> <accountId> <path>\n\n" +
+            "   <vaultName> <accountId> <path> [<topicArn> <queueUrl>]\n\n" +
             "Where:\n" +
             "   vaultName - The name of the vault.\n" +
             "   accountId - The account ID value.\n\n"+
-            "   path - The path where the file is written to.\n\n";
+            "   path - The path where the file is written to.\n\n" +
+            "   topicArn - The ARN of an Amazon SNS topic that receives the job completion (optional).\n\n" +
+            "   queueUrl - The URL of an Amazon SQS queue subscribed to the topic (optional).\n\n";
 
-        if (args.length != 3) {
+        if (args.length != 3 && args.length != 5) {
             System.out.println(usage);
             System.exit(1);
         }
@@ -60,18 +62,36 @@ public class ArchiveDownload {
             .credentialsProvider(ProfileCredentialsProvider.create())
             .build();
 
-        String jobNum = createJob(glacier, vaultName, accountId) ;
-        checkJob(glacier, jobNum,vaultName,accountId, path);
+        if (args.length == 3) {
+            String jobNum = createJob(glacier, vaultName, accountId) ;
+            checkJob(glacier, jobNum,vaultName,accountId, path);
+
+        } else {
+            SqsClient sqs = SqsClient.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(ProfileCredentialsProvider.create())
+                .build();
+
+            String jobNum = createJob(glacier, vaultName, accountId, args[3]);
+            checkJob(glacier, sqs, args[4], jobNum, vaultName, accountId, path);
+            sqs.close();
+        }
         glacier.close();
     }
 
     // snippet-start:[glacier.java2.download.main]
     public static String createJob(GlacierClient glacier, String vaultName, String accountId) {
+        return createJob(glacier, vaultName, accountId, null);
+    }
+
+    // Starts the job. When snsTopic isn't null, Glacier publishes the job completion to that topic.
+    public static String createJob(GlacierClient glacier, String vaultName, String accountId, String snsTopic) {
 
         try {
 
             JobParameters job = JobParameters.builder()
                 .type("inventory-retrieval")
+                .snsTopic(snsTopic)
                 .build();
 
             InitiateJobRequest initJob = InitiateJobRequest.builder()
@@ -93,54 +113,64 @@ public class ArchiveDownload {
         return "";
     }
 
-    //  Poll S3 Glacier = Polling a Job may take 4-6 hours according to the Documentation.
+    //  A job may take 4-6 hours according to the documentation, so it is polled at a growing interval.
     public static void checkJob(GlacierClient glacier, String jobId, String name, String account, String path) {
+        checkJob(glacier, null, null, jobId, name, account, path);
+    }
+
+    // Waits for the job's Amazon SNS notification in the queue, polling DescribeJob only as a fallback.
+    public static void checkJob(GlacierClient glacier, SqsClient sqs, String queueUrl, String jobId, String name,
+                                String account, String path) {
 
-       try{
-           boolean finished = false;
-           String jobStatus;
-           int yy=0;
-
-           while (!finished) {
-               DescribeJobRequest jobRequest = DescribeJobRequest.builder()
-                   .jobId(jobId)
-                   .accountId(account)
-                   .vaultName(name)
-                   .build();
-
-                DescribeJobResponse response = glacier.describeJob(jobRequest);
-                jobStatus = response.statusCodeAsString();
-
-               if (jobStatus.compareTo("Succeeded") == 0)
-                   finished = true;
-               else {
-                   System.out.println(yy + " status is: " + jobStatus);
-                   Thread.sleep(1000);
-               }
-               yy++;
+       long initialPollDelay = sqs == null ? 60_000 : 15 * 60_000;
+       try (AsyncJobTracker tracker = new AsyncJobTracker(sqs, queueUrl, ArchiveDownload::parseNotification,
+               id -> getJobStatus(glacier, id, name, account), initialPollDelay, 30 * 60_000)) {
+
+           String jobStatus = tracker.waitFor(jobId);
+           if (jobStatus.compareTo("Succeeded") != 0) {
+               System.out.println("The job status is: " + jobStatus);
+               return;
            }
 
            System.out.println("Job has Succeeded");
-           GetJobOutputRequest jobOutputRequest = GetJobOutputRequest.builder()
-               .jobId(jobId)
-               .vaultName(name)
-               .accountId(account)
-               .build();
-
-           ResponseBytes<GetJobOutputResponse> objectBytes = glacier.getJobOutputAsBytes(jobOutputRequest);
-           // Write the data to a local file.
-           byte[] data = objectBytes.asByteArray();
-           File myFile = new File(path);
-           OutputStream os = new FileOutputStream(myFile);
-           os.write(data);
-           System.out.println("Successfully obtained bytes from a Glacier vault");
-           os.close();
-
-       } catch(GlacierException | InterruptedException | IOException e) {
+
+           // Stream the output to the file in 64 MB ranges, four at a time.
+           long size = JobOutputDownload.download(glacier, name, account, jobId, Paths.get(path),
+               64L * 1024 * 1024, 4, Paths.get(path + ".download-journal"));
+           System.out.println("Successfully obtained " + size + " bytes from a Glacier vault");
+
+       } catch(SdkException | InterruptedException | IOException e) {
            System.out.println(e.getMessage());
            System.exit(1);
 
        }
     }
+
+    // Gets the status and job ID from an Amazon SNS notification delivered by Amazon SQS.
+    public static AsyncJobTracker.JobNotification parseNotification(String notification) {
+        JsonObject envelope = JsonParser.parseString(notification).getAsJsonObject();
+        if (!envelope.has("Message")) {
+            return null;
+        }
+
+        JsonObject message = JsonParser.parseString(envelope.get("Message").getAsString()).getAsJsonObject();
+        if (!message.has("JobId") || !message.has("StatusCode")) {
+            return null;
+        }
+        return new AsyncJobTracker.JobNotification(message.get("JobId").getAsString(),
+            message.get("StatusCode").getAsString());
+    }
+
+    // Returns the final status of the job, or null while it is still running.
+    private static String getJobStatus(GlacierClient glacier, String jobId, String name, String account) {
+        DescribeJobRequest jobRequest = DescribeJobRequest.builder()
+            .jobId(jobId)
+            .accountId(account)
+            .vaultName(name)
+            .build();
+
+        DescribeJobResponse response = glacier.describeJob(jobRequest);
+        return response.statusCode() == StatusCode.IN_PROGRESS ? null : response.statusCodeAsString();
+    }
     // snippet-end:[glacier.java2.download.main]
 }
\ No newline at end of file
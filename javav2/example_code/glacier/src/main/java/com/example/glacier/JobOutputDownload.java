@@ -0,0 +1,286 @@
+//snippet-sourcedescription:[JobOutputDownload.java demonstrates how to download the output of an Amazon Glacier job in concurrent byte ranges, verify each range, and resume an interrupted download.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Glacier]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.glacier;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.glacier.GlacierClient;
+import software.amazon.awssdk.services.glacier.model.DescribeJobRequest;
+import software.amazon.awssdk.services.glacier.model.DescribeJobResponse;
+import software.amazon.awssdk.services.glacier.model.GetJobOutputRequest;
+import software.amazon.awssdk.services.glacier.model.GetJobOutputResponse;
+import software.amazon.awssdk.services.glacier.model.GlacierException;
+import software.amazon.awssdk.services.glacier.model.StatusCode;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the output of a completed Glacier job to a file.
+ *
+ * The output is fetched with GetJobOutput in byte ranges of a power-of-two number of
+ * megabytes, several at once, and each range is written to its place in the file as it
+ * arrives, so the output never has to fit in memory. Each range is hashed while it is
+ * written and checked against the tree hash that Glacier returns for it, and a range that
+ * doesn't match is fetched again. Verified ranges are recorded in a journal; if the
+ * download is interrupted, running it again hashes the ranges that the journal lists
+ * from the file and fetches only the ones that are missing or don't match.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class JobOutputDownload {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+
+    public static void main(String[] args) {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <vaultName> <accountId> <jobId> <path> <rangeSizeMb> <threads>\n\n" +
+            "Where:\n" +
+            "   vaultName - The name of the vault.\n" +
+            "   accountId - The account ID value.\n" +
+            "   jobId - The ID of a completed archive or inventory retrieval job.\n" +
+            "   path - The path where the file is written to.\n" +
+            "   rangeSizeMb - The range size in megabytes, a power of two (for example, 64).\n" +
+            "   threads - The number of ranges to download at once (for example, 8).\n\n";
+
+        if (args.length != 6) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String vaultName = args[0];
+        String accountId = args[1];
+        String jobId = args[2];
+        Path path = Paths.get(args[3]);
+        long rangeSize = Long.parseLong(args[4]) * TreeHash.CHUNK_SIZE;
+        int threads = Integer.parseInt(args[5]);
+        GlacierClient glacier = GlacierClient.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        try {
+            Path journal = Paths.get(path + ".download-journal");
+            long size = download(glacier, vaultName, accountId, jobId, path, rangeSize, threads, journal);
+            System.out.println("Successfully obtained " + size + " bytes from a Glacier vault");
+
+        } catch (GlacierException e) {
+            System.err.println(e.awsErrorDetails().errorMessage());
+            System.exit(1);
+
+        } catch (IOException | InterruptedException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        glacier.close();
+    }
+
+    /**
+     * Downloads the output of a job that has succeeded, resuming the download recorded in the journal if there is one.
+     *
+     * @param rangeSize the range size in bytes; a power-of-two number of megabytes.
+     * @param threads   the number of ranges to download at once.
+     * @param journal   where progress is recorded; it is deleted once the download is complete.
+     * @return the size of the output in bytes.
+     */
+    public static long download(GlacierClient glacier, String vaultName, String accountId, String jobId, Path path,
+                                long rangeSize, int threads, Path journal) throws IOException, InterruptedException {
+
+        long rangeMb = rangeSize / TreeHash.CHUNK_SIZE;
+        if (rangeSize % TreeHash.CHUNK_SIZE != 0 || Long.bitCount(rangeMb) != 1) {
+            // Glacier returns a tree hash only for ranges that are aligned this way.
+            throw new IllegalArgumentException("The range size must be a power-of-two number of megabytes");
+        }
+
+        DescribeJobRequest jobRequest = DescribeJobRequest.builder()
+            .jobId(jobId)
+            .accountId(accountId)
+            .vaultName(vaultName)
+            .build();
+
+        DescribeJobResponse job = glacier.describeJob(jobRequest);
+        if (job.statusCode() != StatusCode.SUCCEEDED) {
+            throw new IllegalStateException("Job " + jobId + " is " + job.statusCodeAsString());
+        }
+
+        long size = job.archiveSizeInBytes() != null ? job.archiveSizeInBytes() : job.inventorySizeInBytes();
+        int numRanges = (int) ((size + rangeSize - 1) / rangeSize);
+
+        Map<String, String> transfer = new LinkedHashMap<>();
+        transfer.put("jobId", jobId);
+        transfer.put("size", Long.toString(size));
+        transfer.put("rangeSize", Long.toString(rangeSize));
+
+        try (TransferJournal progress = TransferJournal.open(journal);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+            if (!progress.matches(transfer)) {
+                progress.reset(transfer);
+                channel.truncate(0);
+            }
+
+            // The hashes of the ranges that the file holds, checked against the data itself.
+            Map<Integer, String> rangeHashes = new ConcurrentHashMap<>(
+                verifiedRanges(progress.getPartHashes(), path, size, rangeSize));
+            System.out.println("Downloading " + (numRanges - rangeHashes.size()) + " of " + numRanges + " ranges");
+
+            ExecutorService downloaders = Executors.newFixedThreadPool(threads);
+            List<Future<?>> downloads = new ArrayList<>();
+            try {
+                for (int i = 0; i < numRanges; i++) {
+                    if (rangeHashes.containsKey(i)) {
+                        continue;
+                    }
+                    long start = i * rangeSize;
+                    long length = Math.min(rangeSize, size - start);
+                    int index = i;
+                    downloads.add(downloaders.submit(() -> {
+                        String hash = downloadRange(glacier, jobRequest, channel, start, length);
+                        // Make sure the range is on disk before the journal says so.
+                        channel.force(false);
+                        progress.recordPart(index, hash);
+                        rangeHashes.put(index, hash);
+                        return null;
+                    }));
+                }
+                for (Future<?> download : downloads) {
+                    download.get();
+                }
+
+            } catch (ExecutionException e) {
+                throw MultipartUploadArchive.rethrow(e.getCause());
+
+            } finally {
+                // Don't interrupt running downloads; an interrupt would close the shared file channel. They
+                // still write to the channel, though, so wait for them to finish before it's closed.
+                for (Future<?> download : downloads) {
+                    download.cancel(false);
+                }
+                downloaders.shutdown();
+                awaitTermination(downloaders);
+            }
+
+            // Archive retrievals carry the tree hash of the whole archive, which the range hashes combine into.
+            if (job.sha256TreeHash() != null && numRanges > 0) {
+                List<byte[]> hashes = new ArrayList<>(numRanges);
+                for (int i = 0; i < numRanges; i++) {
+                    hashes.add(MultipartUploadArchive.fromHex(rangeHashes.get(i)));
+                }
+                String treeHash = TreeHash.toHex(TreeHash.combine(hashes));
+                if (!treeHash.equals(job.sha256TreeHash())) {
+                    progress.reset(transfer);
+                    throw new IOException("The archive tree hash " + treeHash + " does not match " + job.sha256TreeHash());
+                }
+            }
+
+            progress.delete();
+            return size;
+        }
+    }
+
+    // Hashes each range that the journal lists from the file, and keeps only the ones that match. A range
+    // can be missing or different if the file was changed, or if it wasn't flushed before a crash.
+    private static Map<Integer, String> verifiedRanges(Map<Integer, String> journalHashes, Path path, long size,
+                                                       long rangeSize) throws IOException {
+
+        Map<Integer, String> verified = new LinkedHashMap<>();
+        long fileSize = Files.size(path);
+        for (Map.Entry<Integer, String> entry : journalHashes.entrySet()) {
+            long start = entry.getKey() * rangeSize;
+            long length = Math.min(rangeSize, size - start);
+            if (length <= 0 || start + length > fileSize) {
+                continue;
+            }
+            if (TreeHash.toHex(TreeHash.compute(path, start, length)).equals(entry.getValue())) {
+                verified.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return verified;
+    }
+
+    // Waits for the running tasks to finish, even if this thread is interrupted.
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes one range to the file, fetching it again if its tree hash doesn't match. Returns the tree hash.
+    private static String downloadRange(GlacierClient glacier, DescribeJobRequest job, FileChannel channel,
+                                        long start, long length) throws IOException {
+
+        GetJobOutputRequest outputRequest = GetJobOutputRequest.builder()
+            .jobId(job.jobId())
+            .vaultName(job.vaultName())
+            .accountId(job.accountId())
+            .range("bytes=" + start + "-" + (start + length - 1))
+            .build();
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int attempt = 1; ; attempt++) {
+            TreeHash.Hasher hasher = new TreeHash.Hasher();
+            long position = start;
+            String expected;
+            try (ResponseInputStream<GetJobOutputResponse> output = glacier.getJobOutput(outputRequest)) {
+                int n;
+                while ((n = output.read(buffer)) > 0) {
+                    hasher.update(buffer, 0, n);
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, n);
+                    while (data.hasRemaining()) {
+                        position += channel.write(data, position);
+                    }
+                }
+                expected = output.response().checksum();
+            }
+
+            String hash = TreeHash.toHex(hasher.digest());
+            if (position == start + length && (expected == null || expected.equals(hash))) {
+                return hash;
+            }
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new IOException("Range " + start + "-" + (start + length - 1) + " failed verification after "
+                    + attempt + " attempts");
+            }
+            System.err.println("Range " + start + "-" + (start + length - 1) + " failed verification; fetching it again");
+        }
+    }
+}
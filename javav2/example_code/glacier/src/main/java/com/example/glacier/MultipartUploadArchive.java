@@ -0,0 +1,288 @@
+//snippet-sourcedescription:[MultipartUploadArchive.java demonstrates how to upload a large archive to an Amazon Glacier vault in parallel parts, and how to resume an interrupted upload.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Glacier]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.glacier;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.glacier.GlacierClient;
+import software.amazon.awssdk.services.glacier.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.glacier.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.glacier.model.GlacierException;
+import software.amazon.awssdk.services.glacier.model.InitiateMultipartUploadRequest;
+import software.amazon.awssdk.services.glacier.model.InitiateMultipartUploadResponse;
+import software.amazon.awssdk.services.glacier.model.UploadMultipartPartRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads an archive with the Glacier multipart upload API.
+ *
+ * The file is split into parts of a power-of-two number of megabytes, and several parts
+ * are uploaded at once with UploadMultipartPart, each with its own tree hash. The tree
+ * hash of the whole archive is combined from the part hashes, so the file is read only
+ * once. Completed parts are recorded in a journal next to the file; if the upload is
+ * interrupted, running it again uploads only the parts that are missing.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class MultipartUploadArchive {
+
+    private static final long MAX_PART_SIZE = 4L * 1024 * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    public static void main(String[] args) {
+
+        final String usage = "\n" +
+            "Usage:" +
+            "   <strPath> <vaultName> <partSizeMb> <threads>\n\n" +
+            "Where:\n" +
+            "   strPath - The path to the archive to upload (for example, C:\\AWS\\test.pdf).\n" +
+            "   vaultName - The name of the vault.\n" +
+            "   partSizeMb - The part size in megabytes, a power of two from 1 to 4096 (for example, 64).\n" +
+            "   threads - The number of parts to upload at once (for example, 8).\n\n";
+
+        if (args.length != 4) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        Path path = Paths.get(args[0]);
+        String vaultName = args[1];
+        long partSize = Long.parseLong(args[2]) * TreeHash.CHUNK_SIZE;
+        int threads = Integer.parseInt(args[3]);
+        GlacierClient glacier = GlacierClient.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        try {
+            Path journal = Paths.get(path + ".upload-journal");
+            String archiveId = uploadMultipart(glacier, path, vaultName, partSize, threads, journal);
+            System.out.println("The ID of the archived item is " + archiveId);
+
+        } catch (GlacierException e) {
+            System.err.println(e.awsErrorDetails().errorMessage());
+            System.exit(1);
+
+        } catch (IOException | InterruptedException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        glacier.close();
+    }
+
+    /**
+     * Uploads a file as a multipart archive, resuming the upload recorded in the journal if there is one.
+     *
+     * @param partSize the part size in bytes; a power-of-two number of megabytes, up to 4 GB.
+     * @param threads  the number of parts to upload at once.
+     * @param journal  where progress is recorded; it is deleted once the archive is complete.
+     * @return the archive ID.
+     */
+    public static String uploadMultipart(GlacierClient glacier, Path path, String vaultName, long partSize,
+                                         int threads, Path journal) throws IOException, InterruptedException {
+
+        long partMb = partSize / TreeHash.CHUNK_SIZE;
+        if (partSize % TreeHash.CHUNK_SIZE != 0 || Long.bitCount(partMb) != 1 || partSize > MAX_PART_SIZE) {
+            throw new IllegalArgumentException("The part size must be a power-of-two number of megabytes, up to 4 GB");
+        }
+
+        long fileSize = Files.size(path);
+        if (fileSize == 0) {
+            throw new IllegalArgumentException("An empty file can't be uploaded in parts; use UploadArchive");
+        }
+        int numParts = (int) ((fileSize + partSize - 1) / partSize);
+        if (numParts > MAX_PARTS) {
+            throw new IllegalArgumentException("The file needs " + numParts + " parts; use a larger part size");
+        }
+
+        Map<String, String> transfer = new LinkedHashMap<>();
+        transfer.put("vaultName", vaultName);
+        transfer.put("fileSize", Long.toString(fileSize));
+        transfer.put("lastModified", Long.toString(Files.getLastModifiedTime(path).toMillis()));
+        transfer.put("partSize", Long.toString(partSize));
+
+        try (TransferJournal progress = TransferJournal.open(journal);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            String uploadId = progress.get("uploadId");
+            if (uploadId == null || !progress.matches(transfer)) {
+                uploadId = initiateUpload(glacier, vaultName, partSize, path);
+                transfer.put("uploadId", uploadId);
+                progress.reset(transfer);
+            }
+
+            Map<Integer, String> partHashes = progress.getPartHashes();
+            System.out.println("Uploading " + (numParts - partHashes.size()) + " of " + numParts + " parts");
+
+            ExecutorService uploaders = Executors.newFixedThreadPool(threads);
+            List<Future<?>> uploads = new ArrayList<>();
+            try {
+                for (int i = 0; i < numParts; i++) {
+                    if (partHashes.containsKey(i)) {
+                        continue;
+                    }
+                    int index = i;
+                    String id = uploadId;
+                    uploads.add(uploaders.submit(() -> {
+                        String hash = uploadPart(glacier, channel, vaultName, id, index, partSize, fileSize);
+                        progress.recordPart(index, hash);
+                        return null;
+                    }));
+                }
+                for (Future<?> upload : uploads) {
+                    upload.get();
+                }
+
+            } catch (ExecutionException e) {
+                // Don't interrupt running uploads; an interrupt would close the shared file channel.
+                for (Future<?> upload : uploads) {
+                    upload.cancel(false);
+                }
+                throw rethrow(e.getCause());
+
+            } finally {
+                uploaders.shutdown();
+            }
+
+            // Every part but the last is the same power-of-two size, so the part hashes combine.
+            Map<Integer, String> completed = progress.getPartHashes();
+            List<byte[]> hashes = new ArrayList<>(numParts);
+            for (int i = 0; i < numParts; i++) {
+                hashes.add(fromHex(completed.get(i)));
+            }
+
+            CompleteMultipartUploadRequest completeRequest = CompleteMultipartUploadRequest.builder()
+                .vaultName(vaultName)
+                .uploadId(uploadId)
+                .archiveSize(Long.toString(fileSize))
+                .checksum(TreeHash.toHex(TreeHash.combine(hashes)))
+                .build();
+
+            CompleteMultipartUploadResponse response = glacier.completeMultipartUpload(completeRequest);
+            progress.delete();
+            return response.archiveId();
+        }
+    }
+
+    private static String initiateUpload(GlacierClient glacier, String vaultName, long partSize, Path path) {
+        InitiateMultipartUploadRequest initiateRequest = InitiateMultipartUploadRequest.builder()
+            .vaultName(vaultName)
+            .archiveDescription(path.getFileName().toString())
+            .partSize(Long.toString(partSize))
+            .build();
+
+        InitiateMultipartUploadResponse response = glacier.initiateMultipartUpload(initiateRequest);
+        return response.uploadId();
+    }
+
+    // Uploads one part and returns its tree hash.
+    private static String uploadPart(GlacierClient glacier, FileChannel channel, String vaultName, String uploadId,
+                                     int index, long partSize, long fileSize) throws IOException {
+
+        long start = index * partSize;
+        long length = Math.min(partSize, fileSize - start);
+
+        // Hashing maps the part into memory, so the upload below reads it from the page cache.
+        byte[][] chunkHashes = TreeHash.chunkHashes(channel, start, length, ForkJoinPool.commonPool());
+        String hash = TreeHash.toHex(TreeHash.fromChunkHashes(chunkHashes));
+
+        UploadMultipartPartRequest partRequest = UploadMultipartPartRequest.builder()
+            .vaultName(vaultName)
+            .uploadId(uploadId)
+            .range("bytes " + start + "-" + (start + length - 1) + "/*")
+            .checksum(hash)
+            .build();
+
+        RequestBody body = RequestBody.fromContentProvider(() -> new FileRangeInputStream(channel, start, length),
+            length, "application/octet-stream");
+        glacier.uploadMultipartPart(partRequest, body);
+        return hash;
+    }
+
+    static byte[] fromHex(String hex) {
+        byte[] data = new byte[hex.length() / 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return data;
+    }
+
+    static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    // Reads a range of a file with positional reads, so that several ranges can be read at once.
+    private static class FileRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private FileRangeInputStream(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.position = start;
+            this.end = start + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                return -1;
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+//snippet-sourcedescription:[TransferJournal.java is a helper that records the progress of an Amazon Glacier transfer so that it can be resumed.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Glacier]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.glacier;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Records the progress of a multipart upload or a ranged download in a local file.
+ *
+ * The journal starts with header entries that identify the transfer (such as the upload
+ * ID and the part size), followed by one entry for each part that has been transferred,
+ * holding the part's tree hash. Entries are appended and flushed to disk one at a time,
+ * so recording a part costs one small write no matter how many parts there are. A later
+ * entry for the same key replaces an earlier one, and a line left incomplete by a crash
+ * is ignored when the journal is read back.
+ */
+public class TransferJournal implements AutoCloseable {
+
+    private static final String PART_PREFIX = "part.";
+
+    private final Path path;
+    private final Map<String, String> header = new HashMap<>();
+    private final Map<Integer, String> partHashes = new HashMap<>();
+    private FileChannel channel;
+
+    private TransferJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the journal at the given path, reading any entries already in it.
+     */
+    public static TransferJournal open(Path path) throws IOException {
+        TransferJournal journal = new TransferJournal(path);
+        boolean endsMidLine = false;
+        if (Files.exists(path)) {
+            byte[] contents = Files.readAllBytes(path);
+            endsMidLine = contents.length > 0 && contents[contents.length - 1] != '\n';
+            Properties entries = new Properties();
+            entries.load(new StringReader(new String(contents, StandardCharsets.UTF_8)));
+            for (String key : entries.stringPropertyNames()) {
+                String value = entries.getProperty(key);
+                if (!key.startsWith(PART_PREFIX)) {
+                    journal.header.put(key, value);
+                } else if (isTreeHash(value)) {
+                    journal.partHashes.put(Integer.parseInt(key.substring(PART_PREFIX.length())), value);
+                }
+            }
+        }
+        journal.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        if (endsMidLine) {
+            // Keep the next entry off the incomplete line.
+            journal.append("\n");
+        }
+        return journal;
+    }
+
+    /**
+     * Returns true if the journal describes the transfer identified by the given header entries.
+     */
+    public synchronized boolean matches(Map<String, String> expected) {
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(header.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized String get(String key) {
+        return header.get(key);
+    }
+
+    /**
+     * Discards all entries and starts a new transfer with the given header entries.
+     */
+    public synchronized void reset(Map<String, String> newHeader) throws IOException {
+        header.clear();
+        partHashes.clear();
+        channel.truncate(0);
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> entry : newHeader.entrySet()) {
+            header.put(entry.getKey(), entry.getValue());
+            lines.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        append(lines.toString());
+    }
+
+    /**
+     * Returns the tree hashes of the parts that have been transferred, keyed by part index.
+     */
+    public synchronized Map<Integer, String> getPartHashes() {
+        return new HashMap<>(partHashes);
+    }
+
+    /**
+     * Records that a part has been transferred.
+     */
+    public synchronized void recordPart(int index, String treeHash) throws IOException {
+        partHashes.put(index, treeHash);
+        append(PART_PREFIX + index + "=" + treeHash + "\n");
+    }
+
+    /**
+     * Closes and removes the journal once the transfer is complete.
+     */
+    public synchronized void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(String lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private static boolean isTreeHash(String value) {
+        return value.length() == 64 && value.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+}
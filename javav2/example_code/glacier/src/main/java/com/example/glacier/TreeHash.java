@@ -0,0 +1,299 @@
+//snippet-sourcedescription:[TreeHash.java is a helper that computes Amazon Glacier SHA-256 tree hashes for files, file ranges, and streamed data.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Glacier]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.glacier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the SHA-256 tree hashes that Amazon Glacier uses as checksums.
+ *
+ * A tree hash is built from the SHA-256 hashes of each 1 MB chunk of the data. File
+ * ranges are memory-mapped and their chunks are hashed in parallel on a fork-join pool.
+ * Because a multipart upload part is a power-of-two number of megabytes, the tree hash
+ * of a whole archive can be combined from its part hashes with combine(), so each byte
+ * is read only once. For data that arrives as a stream, use a Hasher.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/amazonglacier/latest/dev/checksum-calculations.html
+ */
+public final class TreeHash {
+
+    public static final int CHUNK_SIZE = 1024 * 1024;
+
+    // Each fork-join leaf maps and hashes this many chunks.
+    private static final int CHUNKS_PER_TASK = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(TreeHash::newDigest);
+
+    private TreeHash() {
+    }
+
+    /**
+     * Returns the tree hash of a whole file.
+     */
+    public static byte[] compute(Path file) throws IOException {
+        return fromChunkHashes(chunkHashes(file));
+    }
+
+    /**
+     * Returns the tree hash of part of a file, such as one part of a multipart upload.
+     */
+    public static byte[] compute(Path file, long offset, long length) throws IOException {
+        return fromChunkHashes(chunkHashes(file, offset, length));
+    }
+
+    /**
+     * Returns the SHA-256 hash of each 1 MB chunk of the file, including the last chunk
+     * even if it's smaller than 1 MB.
+     */
+    public static byte[][] chunkHashes(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return chunkHashes(channel, 0, channel.size(), ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of each 1 MB chunk of a range of the file.
+     */
+    public static byte[][] chunkHashes(Path file, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return chunkHashes(channel, offset, length, ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of each 1 MB chunk of a range of an open channel. The
+     * chunks are hashed in parallel on the given pool.
+     */
+    public static byte[][] chunkHashes(FileChannel channel, long offset, long length, ForkJoinPool pool)
+            throws IOException {
+
+        if (length == 0) {
+            return new byte[][] { SHA256.get().digest() };
+        }
+
+        long numChunks = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        byte[][] hashes = new byte[(int) numChunks][];
+        try {
+            pool.invoke(new ChunkTask(channel, offset, length, hashes, 0, hashes.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return hashes;
+    }
+
+    /**
+     * Returns the SHA-256 hash of the remaining bytes of the buffer (at most one chunk).
+     * The buffer's position is not changed.
+     */
+    public static byte[] chunkHash(ByteBuffer chunk) {
+        MessageDigest md = SHA256.get();
+        md.update(chunk.duplicate());
+        return md.digest();
+    }
+
+    /**
+     * Computes the tree hash for the passed array of 1 MB chunk hashes.
+     */
+    public static byte[] fromChunkHashes(byte[][] chunkHashes) {
+        MessageDigest md = SHA256.get();
+        byte[][] prevLvlHashes = chunkHashes;
+        while (prevLvlHashes.length > 1) {
+            byte[][] currLvlHashes = new byte[(prevLvlHashes.length + 1) / 2][];
+            for (int i = 0, j = 0; i < prevLvlHashes.length; i += 2, j++) {
+                if (i + 1 < prevLvlHashes.length) {
+                    md.update(prevLvlHashes[i]);
+                    md.update(prevLvlHashes[i + 1]);
+                    currLvlHashes[j] = md.digest();
+                } else {
+                    // An odd hash at the end moves up a level unchanged.
+                    currLvlHashes[j] = prevLvlHashes[i];
+                }
+            }
+            prevLvlHashes = currLvlHashes;
+        }
+        return prevLvlHashes[0];
+    }
+
+    /**
+     * Combines the tree hashes of consecutive parts into the tree hash of the whole
+     * archive. Every part except the last must be the same power-of-two number of
+     * megabytes, which is what Glacier requires of multipart upload parts.
+     */
+    public static byte[] combine(List<byte[]> partHashes) {
+        return fromChunkHashes(partHashes.toArray(new byte[0][]));
+    }
+
+    /**
+     * Returns the lowercase hexadecimal representation of a hash.
+     */
+    public static String toHex(byte[] data) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            hex[2 * i] = digits[(data[i] >> 4) & 0xF];
+            hex[2 * i + 1] = digits[data[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot locate MessageDigest algorithm for SHA-256", e);
+        }
+    }
+
+    /**
+     * Computes a tree hash in a single pass over data that arrives in pieces of any size,
+     * for example while it is being uploaded or downloaded. Only one chunk digest and
+     * one hash per tree level are kept, so memory use does not grow with the data size.
+     * A Hasher is not thread-safe.
+     */
+    public static class Hasher {
+        private final MessageDigest chunkDigest = newDigest();
+        private final MessageDigest nodeDigest = newDigest();
+
+        // Hashes of complete subtrees, largest first. levels.get(i) is the height of hashes.get(i).
+        private final List<byte[]> hashes = new ArrayList<>();
+        private final List<Integer> levels = new ArrayList<>();
+        private int chunkBytes;
+        private long totalBytes;
+
+        public Hasher update(byte[] data, int offset, int length) {
+            while (length > 0) {
+                int n = Math.min(length, CHUNK_SIZE - chunkBytes);
+                chunkDigest.update(data, offset, n);
+                offset += n;
+                length -= n;
+                advance(n);
+            }
+            return this;
+        }
+
+        public Hasher update(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                int n = Math.min(data.remaining(), CHUNK_SIZE - chunkBytes);
+                ByteBuffer slice = data.duplicate();
+                slice.limit(slice.position() + n);
+                chunkDigest.update(slice);
+                data.position(data.position() + n);
+                advance(n);
+            }
+            return this;
+        }
+
+        public long getBytesHashed() {
+            return totalBytes;
+        }
+
+        /**
+         * Returns the tree hash of everything passed to update(). The Hasher can't be used afterward.
+         */
+        public byte[] digest() {
+            if (chunkBytes > 0 || totalBytes == 0) {
+                push(chunkDigest.digest(), 0);
+            }
+
+            // The odd subtrees on the right are joined from the smallest up.
+            byte[] root = hashes.get(hashes.size() - 1);
+            for (int i = hashes.size() - 2; i >= 0; i--) {
+                root = join(hashes.get(i), root);
+            }
+            return root;
+        }
+
+        private void advance(int n) {
+            chunkBytes += n;
+            totalBytes += n;
+            if (chunkBytes == CHUNK_SIZE) {
+                push(chunkDigest.digest(), 0);
+                chunkBytes = 0;
+            }
+        }
+
+        private void push(byte[] hash, int level) {
+            // Two subtrees of the same height are always joined, as Glacier pairs them.
+            while (!levels.isEmpty() && levels.get(levels.size() - 1) == level) {
+                levels.remove(levels.size() - 1);
+                hash = join(hashes.remove(hashes.size() - 1), hash);
+                level++;
+            }
+            hashes.add(hash);
+            levels.add(level);
+        }
+
+        private byte[] join(byte[] left, byte[] right) {
+            nodeDigest.update(left);
+            nodeDigest.update(right);
+            return nodeDigest.digest();
+        }
+    }
+
+    // Hashes chunks [first, first + count) of the range, splitting until a task is small enough to map.
+    private static class ChunkTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final long offset;
+        private final long length;
+        private final byte[][] hashes;
+        private final int first;
+        private final int count;
+
+        private ChunkTask(FileChannel channel, long offset, long length, byte[][] hashes, int first, int count) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+            this.hashes = hashes;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (count > CHUNKS_PER_TASK) {
+                int half = count / 2;
+                invokeAll(new ChunkTask(channel, offset, length, hashes, first, half),
+                    new ChunkTask(channel, offset, length, hashes, first + half, count - half));
+                return;
+            }
+
+            long start = (long) first * CHUNK_SIZE;
+            long size = Math.min((long) count * CHUNK_SIZE, length - start);
+            MappedByteBuffer region;
+            try {
+                region = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            MessageDigest md = SHA256.get();
+            for (int i = 0; i < count; i++) {
+                region.limit((int) Math.min((long) (i + 1) * CHUNK_SIZE, size));
+                region.position(i * CHUNK_SIZE);
+                md.update(region);
+                hashes[first + i] = md.digest();
+            }
+        }
+    }
+}
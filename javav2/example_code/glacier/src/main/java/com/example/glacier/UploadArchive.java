@@ -18,9 +18,7 @@ import software.amazon.awssdk.services.glacier.model.GlacierException;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 // snippet-end:[glacier.java2.upload.import]
 
@@ -33,7 +31,7 @@ import java.security.NoSuchAlgorithmException;
  */
 public class UploadArchive {
 
-    static final int ONE_MB = 1024 * 1024;
+    static final int ONE_MB = TreeHash.CHUNK_SIZE;
     public static void main(String[] args) {
 
         final String usage = "\n" +
@@ -111,48 +109,12 @@ public class UploadArchive {
     /**
      * Computes an SHA256 checksum for each 1 MB chunk of the input file. This
      * includes the checksum for the last chunk, even if it's smaller than 1 MB.
+     * The file is memory-mapped and its chunks are hashed in parallel.
      */
     public static byte[][] getChunkSHA256Hashes(File file) throws IOException,
             NoSuchAlgorithmException {
 
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        long numChunks = file.length() / ONE_MB;
-        if (file.length() % ONE_MB > 0) {
-            numChunks++;
-        }
-
-        if (numChunks == 0) {
-            return new byte[][] { md.digest() };
-        }
-
-        byte[][] chunkSHA256Hashes = new byte[(int) numChunks][];
-        FileInputStream fileStream = null;
-
-        try {
-            fileStream = new FileInputStream(file);
-            byte[] buff = new byte[ONE_MB];
-
-            int bytesRead;
-            int idx = 0;
-
-            while ((bytesRead = fileStream.read(buff, 0, ONE_MB)) > 0) {
-                md.reset();
-                md.update(buff, 0, bytesRead);
-                chunkSHA256Hashes[idx++] = md.digest();
-            }
-
-            return chunkSHA256Hashes;
-
-        } finally {
-            if (fileStream != null) {
-                try {
-                    fileStream.close();
-                } catch (IOException ioe) {
-                    System.err.printf("Exception while closing %s.\n %s", file.getName(),
-                            ioe.getMessage());
-                }
-            }
-        }
+        return TreeHash.chunkHashes(file.toPath());
     }
 
     /**
@@ -162,53 +124,14 @@ public class UploadArchive {
     public static byte[] computeSHA256TreeHash(byte[][] chunkSHA256Hashes)
             throws NoSuchAlgorithmException {
 
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[][] prevLvlHashes = chunkSHA256Hashes;
-        while (prevLvlHashes.length > 1) {
-            int len = prevLvlHashes.length / 2;
-            if (prevLvlHashes.length % 2 != 0) {
-                len++;
-            }
-
-            byte[][] currLvlHashes = new byte[len][];
-            int j = 0;
-            for (int i = 0; i < prevLvlHashes.length; i = i + 2, j++) {
-
-                // If there are at least two elements remaining.
-                if (prevLvlHashes.length - i > 1) {
-
-                    // Calculate a digest of the concatenated nodes.
-                    md.reset();
-                    md.update(prevLvlHashes[i]);
-                    md.update(prevLvlHashes[i + 1]);
-                    currLvlHashes[j] = md.digest();
-
-                } else { // Take care of the remaining odd chunk
-                    currLvlHashes[j] = prevLvlHashes[i];
-                }
-            }
-
-            prevLvlHashes = currLvlHashes;
-        }
-
-        return prevLvlHashes[0];
+        return TreeHash.fromChunkHashes(chunkSHA256Hashes);
     }
 
     /**
      * Returns the hexadecimal representation of the input byte array
      */
     public static String toHex(byte[] data) {
-        StringBuilder sb = new StringBuilder(data.length * 2);
-        for (byte datum : data) {
-            String hex = Integer.toHexString(datum & 0xFF);
-
-            if (hex.length() == 1) {
-                // Append leading zero.
-                sb.append("0");
-            }
-            sb.append(hex);
-        }
-        return sb.toString().toLowerCase();
+        return TreeHash.toHex(data);
     }
     // snippet-end:[glacier.java2.upload.main]
 }
\ No newline at end of file
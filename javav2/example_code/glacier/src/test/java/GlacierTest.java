@@ -13,8 +13,18 @@ import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -131,6 +141,81 @@ public class GlacierTest {
        System.out.println("Test 7 passed");
      }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(8)
+    public void TreeHash() throws Exception {
+        // 5 MB plus a partial chunk is 6 chunks, so the level above the chunks has 3 nodes and
+        // the odd one is promoted. The 2 MB parts below are 3 parts, so combining them promotes one too.
+        byte[] data = new byte[5 * TreeHash.CHUNK_SIZE + 12345];
+        new Random(42).nextBytes(data);
+        Path file = Files.createTempFile("treehash", ".bin");
+        try {
+            Files.write(file, data);
+
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[][] chunkHashes = new byte[6][];
+            for (int i = 0; i < chunkHashes.length; i++) {
+                int offset = i * TreeHash.CHUNK_SIZE;
+                md.update(data, offset, Math.min(TreeHash.CHUNK_SIZE, data.length - offset));
+                chunkHashes[i] = md.digest();
+            }
+            String expected = UploadArchive.toHex(UploadArchive.computeSHA256TreeHash(chunkHashes));
+
+            assertEquals(expected, TreeHash.toHex(TreeHash.compute(file)));
+
+            TreeHash.Hasher hasher = new TreeHash.Hasher();
+            for (int offset = 0; offset < data.length; offset += 300_000) {
+                hasher.update(data, offset, Math.min(300_000, data.length - offset));
+            }
+            assertEquals(expected, TreeHash.toHex(hasher.digest()));
+
+            List<byte[]> partHashes = new ArrayList<>();
+            long partSize = 2L * TreeHash.CHUNK_SIZE;
+            for (long offset = 0; offset < data.length; offset += partSize) {
+                partHashes.add(TreeHash.compute(file, offset, Math.min(partSize, data.length - offset)));
+            }
+            assertEquals(3, partHashes.size());
+            assertEquals(expected, TreeHash.toHex(TreeHash.combine(partHashes)));
+        } finally {
+            Files.delete(file);
+        }
+        System.out.println("Test 8 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(9)
+    public void TransferJournal() throws Exception {
+        Path file = Files.createTempFile("transfer", ".journal");
+        Map<String, String> transfer = new LinkedHashMap<>();
+        transfer.put("uploadId", "test-upload");
+        transfer.put("partSize", Integer.toString(TreeHash.CHUNK_SIZE));
+        String hash = UploadArchive.toHex(new byte[32]);
+
+        try (TransferJournal journal = TransferJournal.open(file)) {
+            assertFalse(journal.matches(transfer));
+            journal.reset(transfer);
+            journal.recordPart(0, hash);
+            journal.recordPart(2, hash);
+        }
+
+        // Simulate a crash in the middle of writing an entry.
+        Files.write(file, "part.3=00".getBytes(), StandardOpenOption.APPEND);
+        try (TransferJournal journal = TransferJournal.open(file)) {
+            assertTrue(journal.matches(transfer));
+            assertEquals(new HashSet<>(Arrays.asList(0, 2)), journal.getPartHashes().keySet());
+            journal.recordPart(3, hash);
+        }
+
+        try (TransferJournal journal = TransferJournal.open(file)) {
+            assertEquals(new HashSet<>(Arrays.asList(0, 2, 3)), journal.getPartHashes().keySet());
+            journal.delete();
+        }
+        assertFalse(Files.exists(file));
+        System.out.println("Test 9 passed");
+    }
+
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
             .region(Region.US_EAST_1)
@@ -0,0 +1,77 @@
+//snippet-sourcedescription:[BinaryStockTradeCodec.java is a helper class that encodes stock trades in a compact binary layout.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes stock trades in a fixed binary layout without allocating:
+ *
+ * <pre>
+ *   id (8) | quantity (8) | price (8) | tradeType (1) | ticker length (1) | ticker (ASCII)
+ * </pre>
+ *
+ * Values are written in the buffer's byte order, so the reader must use the same order.
+ */
+public class BinaryStockTradeCodec implements StockTradeCodec {
+
+    public static final int HEADER_SIZE = 8 + 8 + 8 + 1 + 1;
+    public static final int MAX_TICKER_LENGTH = 255;
+
+    private static final StockTrade.TradeType[] TRADE_TYPES = StockTrade.TradeType.values();
+    private static final ThreadLocal<char[]> TICKER_CHARS = ThreadLocal.withInitial(() -> new char[MAX_TICKER_LENGTH]);
+
+    @Override
+    public void encode(StockTrade trade, ByteBuffer target) {
+        // Check every field before writing anything, so that a bad trade doesn't leave part of itself in the buffer.
+        String ticker = trade.getTickerSymbol();
+        if (ticker == null) {
+            throw new IllegalArgumentException("Trade " + trade.getId() + " has no ticker symbol");
+        }
+        if (trade.getTradeType() == null) {
+            throw new IllegalArgumentException("Trade " + trade.getId() + " has no trade type");
+        }
+        int length = ticker.length();
+        if (length > MAX_TICKER_LENGTH) {
+            throw new IllegalArgumentException("Ticker symbol is longer than " + MAX_TICKER_LENGTH + " characters");
+        }
+        for (int i = 0; i < length; i++) {
+            if (ticker.charAt(i) > 0x7F) {
+                throw new IllegalArgumentException("Ticker symbol must be ASCII: " + ticker);
+            }
+        }
+        if (target.remaining() < HEADER_SIZE + length) {
+            throw new BufferOverflowException();
+        }
+
+        target.putLong(trade.getId())
+            .putLong(trade.getQuantity())
+            .putDouble(trade.getPrice())
+            .put((byte) trade.getTradeType().ordinal())
+            .put((byte) length);
+        for (int i = 0; i < length; i++) {
+            target.put((byte) ticker.charAt(i));
+        }
+    }
+
+    @Override
+    public StockTrade decode(ByteBuffer source) {
+        long id = source.getLong();
+        long quantity = source.getLong();
+        double price = source.getDouble();
+        StockTrade.TradeType tradeType = TRADE_TYPES[source.get()];
+        int length = source.get() & 0xFF;
+        char[] chars = TICKER_CHARS.get();
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) source.get();
+        }
+        return new StockTrade(new String(chars, 0, length), tradeType, price, quantity, id);
+    }
+}
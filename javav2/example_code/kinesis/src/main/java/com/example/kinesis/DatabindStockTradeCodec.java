@@ -0,0 +1,35 @@
+//snippet-sourcedescription:[DatabindStockTradeCodec.java is a helper class that encodes stock trades with Jackson data binding.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes stock trades with {@link StockTrade#toJsonAsBytes()}, which allocates a new
+ * byte array for every trade. A trade must be the only content left in the buffer
+ * when it is decoded.
+ */
+public class DatabindStockTradeCodec implements StockTradeCodec {
+
+    @Override
+    public void encode(StockTrade trade, ByteBuffer target) {
+        byte[] bytes = trade.toJsonAsBytes();
+        if (bytes == null) {
+            throw new IllegalStateException("Could not get JSON bytes for stock trade " + trade.getId());
+        }
+        target.put(bytes);
+    }
+
+    @Override
+    public StockTrade decode(ByteBuffer source) {
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return StockTrade.fromJsonAsBytes(bytes);
+    }
+}
@@ -0,0 +1,30 @@
+//snippet-sourcedescription:[StockTradeCodec.java is a helper interface that converts stock trades to and from bytes.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts stock trades to and from bytes. Implementations write into and read from a
+ * caller-supplied buffer so that the caller decides how buffers are allocated and reused.
+ */
+public interface StockTradeCodec {
+
+    /**
+     * Writes the trade at the buffer's position and advances the position past it.
+     *
+     * @throws java.nio.BufferOverflowException if the trade does not fit in the remaining space.
+     */
+    void encode(StockTrade trade, ByteBuffer target);
+
+    /**
+     * Reads one trade from the buffer's position and advances the position past it.
+     */
+    StockTrade decode(ByteBuffer source);
+}
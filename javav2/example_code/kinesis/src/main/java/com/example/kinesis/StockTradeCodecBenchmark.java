@@ -0,0 +1,110 @@
+//snippet-sourcedescription:[StockTradeCodecBenchmark.java is a JMH benchmark that compares the stock trade codecs.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time per trade and allocation rate of the stock trade codecs.
+ *
+ * Run the main method to execute the benchmark with the JMH GC profiler. The encoded size of
+ * a trade is printed for each codec during setup. No AWS resources are used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockTradeCodecBenchmark {
+
+    private static final int TRADE_COUNT = 1024;
+
+    @Param({"databind", "streaming-json", "binary"})
+    private String codecName;
+
+    private StockTradeCodec codec;
+    private StockTrade[] trades;
+    private ByteBuffer[] encoded;
+    private ByteBuffer target;
+    private int index;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(StockTradeCodecBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setUp() {
+        codec = createCodec(codecName);
+        StockTradeGenerator stockTradeGenerator = new StockTradeGenerator();
+        trades = new StockTrade[TRADE_COUNT];
+        encoded = new ByteBuffer[TRADE_COUNT];
+        target = ByteBuffer.allocate(1024);
+
+        long totalBytes = 0;
+        for (int i = 0; i < TRADE_COUNT; i++) {
+            trades[i] = stockTradeGenerator.getRandomTrade();
+            target.clear();
+            codec.encode(trades[i], target);
+            target.flip();
+            encoded[i] = ByteBuffer.allocate(target.remaining()).put(target);
+            encoded[i].flip();
+            totalBytes += encoded[i].limit();
+        }
+        System.out.printf("%n%s: %.1f bytes/record%n", codecName, (double) totalBytes / TRADE_COUNT);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        target.clear();
+        codec.encode(trades[index++ & (TRADE_COUNT - 1)], target);
+        return target;
+    }
+
+    @Benchmark
+    public StockTrade decode() {
+        ByteBuffer source = encoded[index++ & (TRADE_COUNT - 1)];
+        source.rewind();
+        return codec.decode(source);
+    }
+
+    static StockTradeCodec createCodec(String name) {
+        switch (name) {
+            case "databind":
+                return new DatabindStockTradeCodec();
+            case "streaming-json":
+                return new StreamingJsonStockTradeCodec();
+            case "binary":
+                return new BinaryStockTradeCodec();
+            default:
+                throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+}
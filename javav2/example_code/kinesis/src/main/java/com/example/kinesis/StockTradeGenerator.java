@@ -12,6 +12,7 @@ package com.example.kinesis;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -90,6 +91,28 @@ public class StockTradeGenerator {
         return new StockTrade(stockPrice.tickerSymbol, tradeType, price, quantity, id.getAndIncrement());
     }
 
+    /**
+     * Return a random stock trade drawn from the caller's random source, which lets each
+     * thread use its own SplittableRandom instead of sharing one Random.
+     *
+     * @param random the random source; it is not thread-safe, so use one per thread.
+     * @param skew   0 picks stocks uniformly; larger values concentrate trades on the first
+     *               stocks in the list, which models hot partition keys.
+     */
+    public StockTrade getRandomTrade(SplittableRandom random, double skew) {
+        // raising a uniform value to a power above 1 pushes it toward 0, so low indexes become hot
+        int index = (int) (Math.pow(random.nextDouble(), 1.0 + skew) * STOCK_PRICES.size());
+        StockPrice stockPrice = STOCK_PRICES.get(index);
+        double deviation = (random.nextDouble() - 0.5) * 2.0 * MAX_DEVIATION;
+        double price = Math.round(stockPrice.price * (1 + deviation) * 100.0) / 100.0;
+        StockTrade.TradeType tradeType = random.nextDouble() < PROBABILITY_SELL
+            ? StockTrade.TradeType.SELL
+            : StockTrade.TradeType.BUY;
+        long quantity = random.nextInt(MAX_QUANTITY) + 1;
+
+        return new StockTrade(stockPrice.tickerSymbol, tradeType, price, quantity, id.getAndIncrement());
+    }
+
     private static class StockPrice {
         String tickerSymbol;
         double price;
@@ -0,0 +1,245 @@
+//snippet-sourcedescription:[StockTradeLoadGenerator.java demonstrates how to drive an Amazon Kinesis data stream with generated stock trades at a target rate and report latency percentiles.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kinesis.KinesisClient;
+import software.amazon.awssdk.services.kinesis.KinesisClientBuilder;
+import software.amazon.awssdk.services.kinesis.model.PutRecordRequest;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends generated stock trades to a Kinesis data stream at a target rate and reports
+ * latency percentiles and throughput, which helps size the number of shards.
+ *
+ * Trades are written through a TradeSink, which sends one trade and returns when the write
+ * is acknowledged. The built-in sink calls PutRecord; other writers can be measured by
+ * passing their own sink to runLoad. A failed write is counted as an error and the run goes on.
+ *
+ * Each thread draws trades from its own SplittableRandom and sends on a fixed schedule.
+ * In open-loop mode, latency is measured from the time a request was scheduled to start,
+ * so a slow endpoint shows up as queueing delay instead of silently lowering the rate.
+ * In closed-loop mode, latency is measured per call and the rate is only an upper bound.
+ *
+ * Pass an endpoint such as http://localhost:4566 to run against a local stand-in for
+ * Kinesis instead of the service.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class StockTradeLoadGenerator {
+
+    /**
+     * Writes one trade. It is called from every sending thread at once.
+     */
+    @FunctionalInterface
+    public interface TradeSink {
+        void send(StockTrade trade);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        final String usage = "\n" +
+            "Usage:\n" +
+            "    <streamName> <endpoint> <ratePerSecond> <seconds> <threads> <skew> <mode>\n\n" +
+            "Where:\n" +
+            "    streamName - The Amazon Kinesis data stream to which records are written (for example, StockTradeStream)\n" +
+            "    endpoint - The endpoint URL of a local stand-in, or - to use the service.\n" +
+            "    ratePerSecond - The total number of trades to send per second.\n" +
+            "    seconds - How long to run.\n" +
+            "    threads - The number of sending threads.\n" +
+            "    skew - 0 for uniform ticker symbols; larger values create hot partition keys (for example, 2).\n" +
+            "    mode - open or closed.\n\n";
+
+        if (args.length != 7) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String streamName = args[0];
+        String endpoint = args[1];
+        double rate = Double.parseDouble(args[2]);
+        int seconds = Integer.parseInt(args[3]);
+        int threads = Integer.parseInt(args[4]);
+        double skew = Double.parseDouble(args[5]);
+        boolean openLoop = "open".equals(args[6]);
+
+        KinesisClientBuilder builder = KinesisClient.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(ProfileCredentialsProvider.create());
+        if (!"-".equals(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        KinesisClient kinesisClient = builder.build();
+
+        Result result = runLoad(kinesisClient, streamName, rate, seconds, threads, skew, openLoop);
+        System.out.println(result);
+        kinesisClient.close();
+    }
+
+    /**
+     * Sends trades to the stream with PutRecord for the given duration and returns the combined latency histogram.
+     */
+    public static Result runLoad(KinesisClient kinesisClient, String streamName, double rate, int seconds,
+                                 int threads, double skew, boolean openLoop) throws Exception {
+        return runLoad(kinesisSink(kinesisClient, streamName), rate, seconds, threads, skew, openLoop);
+    }
+
+    /**
+     * Sends trades to the sink for the given duration and returns the combined latency histogram.
+     */
+    public static Result runLoad(TradeSink sink, double rate, int seconds, int threads, double skew,
+                                 boolean openLoop) throws Exception {
+        StockTradeGenerator stockTradeGenerator = new StockTradeGenerator();
+        SplittableRandom seed = new SplittableRandom();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate);
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long errors = 0;
+        try {
+            List<Future<Worker>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                // Stagger the threads so that their sends are spread across each interval.
+                long firstSend = startNanos + intervalNanos * i / threads;
+                Worker worker = new Worker(sink, stockTradeGenerator, seed.split(), skew, openLoop, firstSend,
+                    intervalNanos, endNanos);
+                futures.add(executor.submit(worker, worker));
+            }
+
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                histogram.add(worker.histogram);
+                errors += worker.errors;
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return new Result(histogram, errors, elapsedSeconds);
+    }
+
+    /**
+     * Returns a sink that writes each trade to the stream with PutRecord, keyed by its ticker symbol.
+     */
+    public static TradeSink kinesisSink(KinesisClient kinesisClient, String streamName) {
+        StockTradeCodec codec = new StreamingJsonStockTradeCodec();
+        ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+        return trade -> {
+            ByteBuffer buffer = buffers.get();
+            buffer.clear();
+            codec.encode(trade, buffer);
+            buffer.flip();
+            kinesisClient.putRecord(PutRecordRequest.builder()
+                .partitionKey(trade.getTickerSymbol())
+                .streamName(streamName)
+                .data(SdkBytes.fromByteBuffer(buffer))
+                .build());
+        };
+    }
+
+    private static class Worker implements Runnable {
+        private final TradeSink sink;
+        private final StockTradeGenerator stockTradeGenerator;
+        private final SplittableRandom random;
+        private final double skew;
+        private final boolean openLoop;
+        private final long firstSend;
+        private final long intervalNanos;
+        private final long endNanos;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long errors;
+
+        private Worker(TradeSink sink, StockTradeGenerator stockTradeGenerator, SplittableRandom random, double skew,
+                       boolean openLoop, long firstSend, long intervalNanos, long endNanos) {
+            this.sink = sink;
+            this.stockTradeGenerator = stockTradeGenerator;
+            this.random = random;
+            this.skew = skew;
+            this.openLoop = openLoop;
+            this.firstSend = firstSend;
+            this.intervalNanos = intervalNanos;
+            this.endNanos = endNanos;
+        }
+
+        @Override
+        public void run() {
+            for (long scheduled = firstSend; scheduled < endNanos; scheduled += intervalNanos) {
+                long now = System.nanoTime();
+                if (now < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                } else if (!openLoop) {
+                    // A closed loop doesn't try to catch up after a slow call.
+                    scheduled = now;
+                }
+
+                StockTrade trade = stockTradeGenerator.getRandomTrade(random, skew);
+                long start = openLoop ? scheduled : System.nanoTime();
+                try {
+                    sink.send(trade);
+                } catch (SdkException e) {
+                    // Service errors, and client errors such as a refused connection, are counted and the run goes on.
+                    errors++;
+                }
+                histogram.recordNanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * The outcome of a load run.
+     */
+    public static class Result {
+        private final LatencyHistogram histogram;
+        private final long errors;
+        private final double elapsedSeconds;
+
+        Result(LatencyHistogram histogram, long errors, double elapsedSeconds) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getThroughput() {
+            return histogram.getTotalCount() / elapsedSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("throughput=%.1f records/s errors=%d %s", getThroughput(), errors, histogram.summary());
+        }
+    }
+}
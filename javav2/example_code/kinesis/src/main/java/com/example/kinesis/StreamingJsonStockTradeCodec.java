@@ -0,0 +1,152 @@
+//snippet-sourcedescription:[StreamingJsonStockTradeCodec.java is a helper class that encodes stock trades as JSON with the Jackson streaming API.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Kinesis]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.kinesis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes stock trades as the same JSON that {@link StockTrade#toJsonAsBytes()} produces,
+ * but with the Jackson streaming API. Each thread keeps one {@link JsonGenerator} that is
+ * pointed at the caller's buffer for every trade, so no intermediate byte array is created.
+ */
+public class StreamingJsonStockTradeCodec implements StockTradeCodec {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    @Override
+    public void encode(StockTrade trade, ByteBuffer target) {
+        Encoder encoder = ENCODER.get();
+        encoder.out.target = target;
+        try {
+            JsonGenerator generator = encoder.generator;
+            generator.writeStartObject();
+            generator.writeStringField("tickerSymbol", trade.getTickerSymbol());
+            generator.writeStringField("tradeType", trade.getTradeType().name());
+            generator.writeNumberField("price", trade.getPrice());
+            generator.writeNumberField("quantity", trade.getQuantity());
+            generator.writeNumberField("id", trade.getId());
+            generator.writeEndObject();
+            generator.flush();
+        } catch (IOException | RuntimeException e) {
+            // The generator may hold a partial object, so start over with a new one.
+            ENCODER.remove();
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        } finally {
+            encoder.out.target = null;
+        }
+    }
+
+    @Override
+    public StockTrade decode(ByteBuffer source) {
+        String tickerSymbol = null;
+        StockTrade.TradeType tradeType = null;
+        double price = 0;
+        long quantity = 0;
+        long id = 0;
+        try (JsonParser parser = FACTORY.createParser(new ByteBufferInputStream(source.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "tickerSymbol":
+                        tickerSymbol = parser.getText();
+                        break;
+                    case "tradeType":
+                        tradeType = StockTrade.TradeType.valueOf(parser.getText());
+                        break;
+                    case "price":
+                        price = parser.getDoubleValue();
+                        break;
+                    case "quantity":
+                        quantity = parser.getLongValue();
+                        break;
+                    case "id":
+                        id = parser.getLongValue();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            // The parser reads ahead, so advance by what it consumed rather than by what it read.
+            source.position(source.position() + (int) parser.getCurrentLocation().getByteOffset());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new StockTrade(tickerSymbol, tradeType, price, quantity, id);
+    }
+
+    private static class Encoder {
+        private final ByteBufferOutputStream out = new ByteBufferOutputStream();
+        private final JsonGenerator generator;
+
+        private Encoder() {
+            try {
+                generator = FACTORY.createGenerator(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Trades are written as separate root values; don't put a space between them.
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    // Writes to whichever buffer the current encode call supplied.
+    private static class ByteBufferOutputStream extends OutputStream {
+        private ByteBuffer target;
+
+        @Override
+        public void write(int b) {
+            target.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.put(b, off, len);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer source;
+
+        private ByteBufferInputStream(ByteBuffer source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, source.remaining());
+            source.get(b, off, count);
+            return count;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import software.amazon.awssdk.services.kinesis.KinesisClient;
 import com.example.kinesis.*;
 import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @TestInstance(TestInstance.Lifecycle.PER_METHOD)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -78,8 +79,19 @@ public class KinTest {
     @Test
     @Tag("IntegrationTest")
     @Order(6)
+    public void StockTradeLoadGenerator() {
+        assertDoesNotThrow(() -> {
+            StockTradeLoadGenerator.Result result = StockTradeLoadGenerator.runLoad(kinesisClient, streamName, 20, 5, 2, 1.0, true);
+            assertEquals(0, result.getErrors());
+        });
+        System.out.println("Test 6 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(7)
     public void DeleteDataStreem() {
         assertDoesNotThrow(() ->DeleteDataStream.deleteStream(kinesisClient, streamName));
-        System.out.println("Test 6 passed");
+        System.out.println("Test 7 passed");
     }
 }
@@ -0,0 +1,50 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.kinesis.BinaryStockTradeCodec;
+import com.example.kinesis.DatabindStockTradeCodec;
+import com.example.kinesis.StockTrade;
+import com.example.kinesis.StockTradeCodec;
+import com.example.kinesis.StockTradeGenerator;
+import com.example.kinesis.StreamingJsonStockTradeCodec;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StockTradeCodecTest {
+
+    @Test
+    public void everyCodecRoundTripsATrade() {
+        StockTrade trade = new StockTradeGenerator().getRandomTrade();
+        for (StockTradeCodec codec : new StockTradeCodec[] {new DatabindStockTradeCodec(),
+            new StreamingJsonStockTradeCodec(), new BinaryStockTradeCodec()}) {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            codec.encode(trade, buffer);
+            buffer.flip();
+            assertEquals(trade.toString(), codec.decode(buffer).toString());
+        }
+    }
+
+    @Test
+    public void binaryCodecRejectsBadTradesWithoutWriting() {
+        BinaryStockTradeCodec codec = new BinaryStockTradeCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(new StockTrade("AMZN", StockTrade.TradeType.BUY, 100.0, 10, 1), buffer);
+        int position = buffer.position();
+
+        // A trade that can't be encoded leaves the buffer as it was.
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.encode(new StockTrade("AMZ\u00c9", StockTrade.TradeType.BUY, 100.0, 10, 2), buffer));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.encode(new StockTrade("AMZN", null, 100.0, 10, 3), buffer));
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.encode(new StockTrade(null, StockTrade.TradeType.SELL, 100.0, 10, 4), buffer));
+        assertEquals(position, buffer.position());
+
+        buffer.flip();
+        assertEquals(1, codec.decode(buffer).getId());
+        assertEquals(0, buffer.remaining());
+    }
+}
@@ -0,0 +1,34 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.kinesis.StockTradeLoadGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(30)
+public class StockTradeLoadGeneratorTest {
+
+    @Test
+    public void failedWritesAreCountedAndTheRunGoesOn() throws Exception {
+        // Every third write can't connect, as when a local stand-in is restarting.
+        AtomicInteger writes = new AtomicInteger();
+        StockTradeLoadGenerator.TradeSink sink = trade -> {
+            if (writes.incrementAndGet() % 3 == 0) {
+                throw SdkClientException.builder().message("Unable to execute HTTP request: Connection refused").build();
+            }
+        };
+
+        StockTradeLoadGenerator.Result result = StockTradeLoadGenerator.runLoad(sink, 200, 1, 2, 0, true);
+
+        // 200 trades a second for one second, spread over two threads.
+        assertEquals(200, writes.get());
+        assertEquals(writes.get(), result.getHistogram().getTotalCount());
+        assertEquals(writes.get() / 3, result.getErrors());
+        assertTrue(result.getThroughput() > 0);
+    }
+}
@@ -0,0 +1,326 @@
+// snippet-sourcedescription:[AsyncJobTracker.java is a helper that waits for many asynchronous jobs at once by using one Amazon SQS queue subscribed to the jobs' Amazon SNS topic, with polling as a fallback.]
+// snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.rekognition;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks asynchronous jobs, such as Amazon Rekognition Video, Amazon Textract, and
+ * Amazon Glacier jobs, and completes a CompletableFuture for each job when it finishes.
+ *
+ * Jobs publish their completion to an Amazon SNS topic. One thread long-polls an
+ * Amazon SQS queue subscribed to that topic and completes the future of each job that
+ * is named in a notification. Each job is also polled with its Get or Describe operation,
+ * at an exponentially growing interval, in case a notification is lost or arrives before
+ * the job is tracked. No thread waits for an individual job, so thousands of jobs can be
+ * tracked at once. The queue should be used only by this tracker, because messages for
+ * jobs that it doesn't know about are deleted.
+ *
+ * A poll that is throttled or fails with a server or client error is tried again at the next
+ * interval, up to a limit. Any other error, such as an unknown job ID or denied access, fails
+ * the job's future at once.
+ */
+public class AsyncJobTracker implements AutoCloseable {
+
+    /**
+     * Reads the job ID and status from the body of an SQS message, or returns null if
+     * the message isn't a job notification.
+     */
+    @FunctionalInterface
+    public interface NotificationParser {
+        JobNotification parse(String messageBody) throws Exception;
+    }
+
+    /**
+     * Returns the final status of a job, or null if the job is still running.
+     */
+    @FunctionalInterface
+    public interface StatusPoller {
+        String poll(String jobId) throws Exception;
+    }
+
+    public static class JobNotification {
+        private final String jobId;
+        private final String status;
+
+        public JobNotification(String jobId, String status) {
+            this.jobId = jobId;
+            this.status = status;
+        }
+
+        public String getJobId() {
+            return jobId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    // Notifications for jobs that finished before they were tracked.
+    private static final int MAX_EARLY_NOTIFICATIONS = 10_000;
+    // Consecutive retryable poll failures after which a job is failed.
+    private static final int MAX_FAILED_POLLS = 10;
+
+    private final SqsClient sqsClient;
+    private final String queueUrl;
+    private final NotificationParser parser;
+    private final StatusPoller poller;
+    private final long initialPollDelayMillis;
+    private final long maxPollDelayMillis;
+    private final Map<String, CompletableFuture<String>> jobs = new ConcurrentHashMap<>();
+    private final Map<String, String> earlyNotifications = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_EARLY_NOTIFICATIONS;
+        }
+    };
+    private final ScheduledExecutorService pollTimer;
+    private final Thread listener;
+    private volatile boolean closed;
+
+    /**
+     * Creates a tracker and starts reading notifications.
+     *
+     * @param sqsClient              the client used to read notifications, or null to rely on polling only.
+     * @param queueUrl               the URL of the queue subscribed to the jobs' SNS topic.
+     * @param parser                 reads notifications from SQS message bodies.
+     * @param poller                 gets the status of a job when it is polled.
+     * @param initialPollDelayMillis how long after a job is tracked it is first polled.
+     * @param maxPollDelayMillis     the longest interval between polls of the same job.
+     */
+    public AsyncJobTracker(SqsClient sqsClient, String queueUrl, NotificationParser parser, StatusPoller poller,
+                           long initialPollDelayMillis, long maxPollDelayMillis) {
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+        this.parser = parser;
+        this.poller = poller;
+        this.initialPollDelayMillis = initialPollDelayMillis;
+        this.maxPollDelayMillis = maxPollDelayMillis;
+        this.pollTimer = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "job-tracker-poll");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (sqsClient != null) {
+            listener = new Thread(this::listen, "job-tracker-notifications");
+            listener.setDaemon(true);
+            listener.start();
+        } else {
+            listener = null;
+        }
+    }
+
+    /**
+     * Starts tracking a job.
+     *
+     * @return a future that completes with the job's final status, such as SUCCEEDED or FAILED.
+     */
+    public CompletableFuture<String> track(String jobId) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> existing = jobs.putIfAbsent(jobId, result);
+        if (existing != null) {
+            return existing;
+        }
+
+        String status;
+        synchronized (earlyNotifications) {
+            status = earlyNotifications.remove(jobId);
+        }
+        if (status != null) {
+            complete(jobId, status);
+        } else {
+            schedulePoll(jobId, initialPollDelayMillis, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Tracks a job and waits for it to finish.
+     *
+     * @return the job's final status.
+     * @throws RuntimeException the error that stopped the job from being polled, such as an SdkException.
+     */
+    public String waitFor(String jobId) {
+        try {
+            return track(jobId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of jobs that haven't finished.
+     */
+    public int getPendingJobs() {
+        return jobs.size();
+    }
+
+    /**
+     * Stops reading notifications and polling, and cancels the futures of unfinished jobs.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        pollTimer.shutdownNow();
+        for (CompletableFuture<String> result : jobs.values()) {
+            result.cancel(false);
+        }
+        jobs.clear();
+    }
+
+    private void complete(String jobId, String status) {
+        CompletableFuture<String> result = jobs.remove(jobId);
+        if (result != null) {
+            result.complete(status);
+        }
+    }
+
+    private void fail(String jobId, Exception error) {
+        CompletableFuture<String> result = jobs.remove(jobId);
+        if (result != null) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    private void schedulePoll(String jobId, long delayMillis, int failedPolls) {
+        if (closed) {
+            return;
+        }
+        // Jitter keeps jobs that were started together from being polled together.
+        long jitteredMillis = delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+        pollTimer.schedule(() -> poll(jobId, delayMillis, failedPolls), jitteredMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(String jobId, long delayMillis, int failedPolls) {
+        CompletableFuture<String> result = jobs.get(jobId);
+        if (result == null) {
+            return;
+        }
+        if (result.isDone()) {
+            // The caller cancelled the future.
+            jobs.remove(jobId);
+            return;
+        }
+
+        int failures = 0;
+        try {
+            String status = poller.poll(jobId);
+            if (status != null) {
+                complete(jobId, status);
+                return;
+            }
+        } catch (Exception e) {
+            failures = failedPolls + 1;
+            if (!isRetryable(e) || failures >= MAX_FAILED_POLLS) {
+                fail(jobId, e);
+                return;
+            }
+            System.err.println("Polling job " + jobId + " failed, trying again: " + e.getMessage());
+        }
+        schedulePoll(jobId, Math.min(delayMillis * 2, maxPollDelayMillis), failures);
+    }
+
+    // Throttling, server errors, and client errors such as timeouts may pass; other errors won't.
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof SdkClientException) {
+            return true;
+        }
+        if (e instanceof SdkServiceException) {
+            SdkServiceException serviceException = (SdkServiceException) e;
+            return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+        }
+        return false;
+    }
+
+    private void listen() {
+        ReceiveMessageRequest receiveRequest = ReceiveMessageRequest.builder()
+            .queueUrl(queueUrl)
+            .maxNumberOfMessages(10)
+            .waitTimeSeconds(20)
+            .build();
+
+        while (!closed) {
+            try {
+                List<Message> messages = sqsClient.receiveMessage(receiveRequest).messages();
+                if (messages.isEmpty()) {
+                    continue;
+                }
+
+                List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+                for (int i = 0; i < messages.size(); i++) {
+                    Message message = messages.get(i);
+                    try {
+                        JobNotification notification = parser.parse(message.body());
+                        if (notification != null) {
+                            onNotification(notification);
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Ignoring message " + message.messageId() + ": " + e.getMessage());
+                    }
+                    entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(message.receiptHandle())
+                        .build());
+                }
+
+                sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                System.err.println("Receiving job notifications failed: " + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void onNotification(JobNotification notification) {
+        if (jobs.containsKey(notification.getJobId())) {
+            complete(notification.getJobId(), notification.getStatus());
+        } else {
+            synchronized (earlyNotifications) {
+                earlyNotifications.put(notification.getJobId(), notification.getStatus());
+            }
+        }
+    }
+}
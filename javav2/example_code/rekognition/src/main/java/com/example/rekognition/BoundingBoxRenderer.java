@@ -0,0 +1,358 @@
+// snippet-sourcedescription:[BoundingBoxRenderer.java demonstrates how to draw the bounding boxes detected by Amazon Rekognition onto many images in parallel without a display, and write the results to files or an Amazon S3 bucket.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.rekognition.model.BoundingBox;
+import software.amazon.awssdk.services.rekognition.model.DetectProtectiveEquipmentResponse;
+import software.amazon.awssdk.services.rekognition.model.EquipmentDetection;
+import software.amazon.awssdk.services.rekognition.model.FaceDetail;
+import software.amazon.awssdk.services.rekognition.model.ProtectiveEquipmentBodyPart;
+import software.amazon.awssdk.services.rekognition.model.ProtectiveEquipmentPerson;
+import software.amazon.awssdk.services.rekognition.model.ProtectiveEquipmentType;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws bounding boxes and labels onto images without a display, so it can run on
+ * headless servers.
+ *
+ * Images are rendered in parallel on a fixed pool of threads. Each thread keeps its own
+ * canvas, output buffer, and image writers and reuses them for every image, so rendering
+ * a batch of similar images allocates little beyond the decoded source image. The
+ * annotated images are written as JPEG or PNG to a directory or an Amazon S3 bucket.
+ */
+public class BoundingBoxRenderer implements AutoCloseable {
+
+    /**
+     * A box to draw, in the ratios of the image width and height that Amazon Rekognition returns.
+     */
+    public static class Annotation {
+        private final float left;
+        private final float top;
+        private final float width;
+        private final float height;
+        private final Color color;
+        private final String label;
+        private final int insetPixels;
+
+        public Annotation(float left, float top, float width, float height, Color color, String label) {
+            this(left, top, width, height, color, label, 0);
+        }
+
+        public Annotation(float left, float top, float width, float height, Color color, String label,
+                          int insetPixels) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.color = color;
+            this.label = label;
+            this.insetPixels = insetPixels;
+        }
+
+        static Annotation of(BoundingBox box, Color color, String label, int insetPixels) {
+            return new Annotation(box.left(), box.top(), box.width(), box.height(), color, label, insetPixels);
+        }
+    }
+
+    /**
+     * Receives each rendered image. The data is only valid until the method returns.
+     */
+    @FunctionalInterface
+    public interface Output {
+        void write(String name, String format, byte[] data, int length) throws IOException;
+
+        static Output toDirectory(Path directory) {
+            return (name, format, data, length) -> {
+                try (OutputStream out = Files.newOutputStream(directory.resolve(name + "." + format))) {
+                    out.write(data, 0, length);
+                }
+            };
+        }
+
+        static Output toS3(S3Client s3, String bucketName, String prefix) {
+            return (name, format, data, length) -> {
+                PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(prefix + name + "." + format)
+                    .contentType("image/" + (format.equals("jpg") ? "jpeg" : format))
+                    .build();
+                s3.putObject(request, RequestBody.fromInputStream(new ByteArrayInputStream(data, 0, length), length));
+            };
+        }
+    }
+
+    public static class RenderTask {
+        private final String name;
+        private final byte[] image;
+        private final List<Annotation> annotations;
+
+        public RenderTask(String name, byte[] image, List<Annotation> annotations) {
+            this.name = name;
+            this.image = image;
+            this.annotations = annotations;
+        }
+    }
+
+    private static final Color GREEN = new Color(0, 212, 0);
+    private static final Color RED = new Color(255, 0, 0);
+    private static final Color YELLOW = new Color(255, 255, 0);
+
+    private final String format;
+    private final int maxDimension;
+    private final int threads;
+    private final ExecutorService renderers;
+    private final ThreadLocal<Canvas> canvases = ThreadLocal.withInitial(Canvas::new);
+
+    /**
+     * Creates a renderer.
+     *
+     * @param format       jpg or png.
+     * @param maxDimension images whose width or height is larger are scaled down to fit, for example for thumbnails.
+     * @param threads      the number of images to render at once.
+     */
+    public BoundingBoxRenderer(String format, int maxDimension, int threads) {
+        if (!format.equals("jpg") && !format.equals("png")) {
+            throw new IllegalArgumentException("The format must be jpg or png");
+        }
+        this.format = format;
+        this.maxDimension = maxDimension;
+        this.threads = threads;
+        this.renderers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Returns a green box around each face, as DisplayFacesFrame draws them.
+     */
+    public static List<Annotation> faceAnnotations(List<FaceDetail> faces) {
+        List<Annotation> annotations = new ArrayList<>(faces.size());
+        for (FaceDetail face : faces) {
+            String label = face.ageRange() == null ? null
+                : face.ageRange().low() + "-" + face.ageRange().high();
+            annotations.add(Annotation.of(face.boundingBox(), GREEN, label, 0));
+        }
+        return annotations;
+    }
+
+    /**
+     * Returns a box around each face cover, as PPEBoundingBoxFrame draws them: green if it covers the
+     * face, red if it doesn't, with a yellow box inside if the confidence is below the given value.
+     */
+    public static List<Annotation> faceCoverAnnotations(DetectProtectiveEquipmentResponse result, float confidence) {
+        List<Annotation> annotations = new ArrayList<>();
+        for (ProtectiveEquipmentPerson person : result.persons()) {
+            for (ProtectiveEquipmentBodyPart bodyPart : person.bodyParts()) {
+                for (EquipmentDetection item : bodyPart.equipmentDetections()) {
+                    if (item.type() != ProtectiveEquipmentType.FACE_COVER) {
+                        continue;
+                    }
+                    boolean covers = Boolean.TRUE.equals(item.coversBodyPart().value());
+                    annotations.add(Annotation.of(item.boundingBox(), covers ? GREEN : RED, null, 0));
+                    if (item.coversBodyPart().confidence() < confidence) {
+                        annotations.add(Annotation.of(item.boundingBox(), YELLOW, null, 20));
+                    }
+                }
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * Renders one image on the calling thread and passes it to the output.
+     */
+    public void render(String name, byte[] image, List<Annotation> annotations, Output output) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(image));
+        if (source == null) {
+            throw new IOException(name + " is not in a supported image format");
+        }
+        render(name, source, annotations, output);
+    }
+
+    /**
+     * Renders a decoded image on the calling thread and passes it to the output.
+     */
+    public void render(String name, BufferedImage source, List<Annotation> annotations, Output output)
+            throws IOException {
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+
+        Canvas canvas = canvases.get();
+        BufferedImage target = canvas.acquire(width, height);
+        Graphics2D g2d = target.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(source, 0, 0, width, height, null);
+            drawAnnotations(g2d, annotations, width, height, factor);
+        } finally {
+            g2d.dispose();
+        }
+
+        ByteArrayBuffer out = canvas.encode(target, format);
+        output.write(name, format, out.array(), out.size());
+    }
+
+    /**
+     * Renders every task in parallel, and waits until all have been written.
+     *
+     * @return the number of images rendered.
+     * @throws IOException if an image can't be decoded or written; the remaining tasks are skipped.
+     */
+    public int renderAll(Iterator<RenderTask> tasks, Output output) throws IOException, InterruptedException {
+        // Enough tasks queued to keep every thread busy, without holding the whole batch in memory.
+        Semaphore queued = new Semaphore(threads * 2);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Future<?>> pending = new ArrayList<>();
+        int count = 0;
+
+        while (tasks.hasNext() && failure.get() == null) {
+            RenderTask task = tasks.next();
+            queued.acquire();
+            pending.add(renderers.submit(() -> {
+                try {
+                    if (failure.get() == null) {
+                        render(task.name, task.image, task.annotations, output);
+                    }
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    queued.release();
+                }
+            }));
+            count++;
+
+            // Forget finished tasks so that the list doesn't grow with the batch.
+            if (pending.size() >= threads * 64) {
+                pending.removeIf(Future::isDone);
+            }
+        }
+
+        for (Future<?> task : pending) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        renderers.shutdown();
+    }
+
+    private static void drawAnnotations(Graphics2D g2d, List<Annotation> annotations, int width, int height,
+                                        double factor) {
+        float lineWidth = Math.max(1f, Math.min(width, height) / 300f);
+        g2d.setStroke(new BasicStroke(lineWidth));
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(new Font(Font.SANS_SERIF, Font.BOLD, Math.max(10, Math.min(width, height) / 40)));
+        FontMetrics metrics = g2d.getFontMetrics();
+
+        for (Annotation annotation : annotations) {
+            int inset = (int) Math.round(annotation.insetPixels * factor);
+            int x = Math.round(width * annotation.left) + inset;
+            int y = Math.round(height * annotation.top) + inset;
+            int w = Math.round(width * annotation.width) - inset * 2;
+            int h = Math.round(height * annotation.height) - inset * 2;
+            g2d.setColor(annotation.color);
+            g2d.drawRect(x, y, w, h);
+
+            if (annotation.label != null) {
+                int labelWidth = metrics.stringWidth(annotation.label) + 4;
+                int labelHeight = metrics.getHeight();
+                int labelY = y >= labelHeight ? y - labelHeight : y;
+                g2d.fillRect(x, labelY, labelWidth, labelHeight);
+                g2d.setColor(Color.BLACK);
+                g2d.drawString(annotation.label, x + 2, labelY + metrics.getAscent());
+            }
+        }
+    }
+
+    // The buffers that one rendering thread reuses for every image.
+    private static class Canvas {
+        private BufferedImage image;
+        private final ByteArrayBuffer out = new ByteArrayBuffer();
+        private final Map<String, ImageWriter> writers = new HashMap<>();
+
+        // Returns a view of the shared canvas of the given size, growing the canvas if it is too small.
+        BufferedImage acquire(int width, int height) {
+            if (image == null || image.getWidth() < width || image.getHeight() < height) {
+                int canvasWidth = image == null ? width : Math.max(width, image.getWidth());
+                int canvasHeight = image == null ? height : Math.max(height, image.getHeight());
+                image = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+            }
+            return image.getSubimage(0, 0, width, height);
+        }
+
+        ByteArrayBuffer encode(BufferedImage target, String format) throws IOException {
+            ImageWriter writer = writers.computeIfAbsent(format,
+                name -> ImageIO.getImageWritersByFormatName(name.equals("jpg") ? "jpeg" : name).next());
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.85f);
+            }
+
+            out.reset();
+            // Encode in memory; ImageIO.createImageOutputStream may buffer through a temporary file.
+            try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+                writer.setOutput(stream);
+                writer.write(null, new IIOImage(target, null, null), param);
+            } finally {
+                writer.reset();
+            }
+            return out;
+        }
+    }
+
+    // A ByteArrayOutputStream whose array can be read without copying it.
+    private static class ByteArrayBuffer extends ByteArrayOutputStream {
+        ByteArrayBuffer() {
+            super(256 * 1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+// snippet-sourcedescription:[BoundingBoxRendererBenchmark.java measures how many images per second BoundingBoxRenderer annotates with different numbers of threads.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of BoundingBoxRenderer on synthetic images, in images per
+ * second and images per second per thread, from one thread up to the number of cores.
+ * No AWS calls are made, so the numbers are for decoding, drawing, and encoding only.
+ */
+public class BoundingBoxRendererBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <images> <width> <height> <format> <maxDimension>\n\n" +
+            "Where:\n" +
+            "   images - The number of images to render at each thread count (for example, 2000). \n\n" +
+            "   width - The width of the source images (for example, 1920). \n\n" +
+            "   height - The height of the source images (for example, 1080). \n\n" +
+            "   format - The output format, jpg or png. \n\n" +
+            "   maxDimension - The largest output width or height (for example, 320 for thumbnails). \n\n";
+
+        if (args.length != 5) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        int images = Integer.parseInt(args[0]);
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        String format = args[3];
+        int maxDimension = Integer.parseInt(args[4]);
+
+        byte[] source = createImage(width, height);
+        List<BoundingBoxRenderer.Annotation> annotations = createAnnotations(10);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d x %d source, %s output up to %d px, %d cores%n", width, height, format, maxDimension, cores);
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+            try (BoundingBoxRenderer renderer = new BoundingBoxRenderer(format, maxDimension, threads)) {
+                // Warm up so that the measured run uses compiled code and allocated canvases.
+                run(renderer, source, annotations, Math.max(threads * 10, images / 10));
+                long start = System.nanoTime();
+                long bytes = run(renderer, source, annotations, images);
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                double perSecond = images / seconds;
+                System.out.printf("%2d threads: %8.1f images/s, %7.1f images/s per thread, %6d bytes per image%n",
+                    threads, perSecond, perSecond / threads, bytes / images);
+            }
+        }
+    }
+
+    // Renders the same image the given number of times, discarding the output. Returns the bytes written.
+    private static long run(BoundingBoxRenderer renderer, byte[] source,
+                            List<BoundingBoxRenderer.Annotation> annotations, int count)
+            throws IOException, InterruptedException {
+        LongAdder bytes = new LongAdder();
+        Iterator<BoundingBoxRenderer.RenderTask> tasks = new Iterator<BoundingBoxRenderer.RenderTask>() {
+            private int next;
+
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            public BoundingBoxRenderer.RenderTask next() {
+                return new BoundingBoxRenderer.RenderTask("image-" + next++, source, annotations);
+            }
+        };
+        renderer.renderAll(tasks, (name, format, data, length) -> bytes.add(length));
+        return bytes.sum();
+    }
+
+    private static byte[] createImage(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    private static List<BoundingBoxRenderer.Annotation> createAnnotations(int count) {
+        Random random = new Random(42);
+        List<BoundingBoxRenderer.Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float left = random.nextFloat() * 0.8f;
+            float top = random.nextFloat() * 0.8f;
+            annotations.add(new BoundingBoxRenderer.Annotation(left, top, 0.1f + random.nextFloat() * 0.1f,
+                0.1f + random.nextFloat() * 0.1f, Color.GREEN, "Label " + i));
+        }
+        return annotations;
+    }
+}
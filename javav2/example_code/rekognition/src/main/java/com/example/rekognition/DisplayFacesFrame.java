@@ -16,6 +16,7 @@ import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.List;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -125,6 +126,17 @@ public class DisplayFacesFrame extends JPanel {
                 System.out.println();
             }
 
+            if (GraphicsEnvironment.isHeadless()) {
+                // Without a display, write the image with its bounding boxes to a file instead.
+                String name = Paths.get(sourceImage).getFileName() + "-faces";
+                try (BoundingBoxRenderer renderer = new BoundingBoxRenderer("png", Math.max(width, height), 1)) {
+                    renderer.render(name, image, BoundingBoxRenderer.faceAnnotations(faceDetails),
+                        BoundingBoxRenderer.Output.toDirectory(Paths.get(".")));
+                }
+                System.out.println("Wrote " + name + ".png");
+                return;
+            }
+
             // Create the frame and panel.
             JFrame frame = new JFrame("RotateImage");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
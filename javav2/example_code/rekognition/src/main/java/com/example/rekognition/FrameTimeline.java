@@ -0,0 +1,78 @@
+// snippet-sourcedescription:[FrameTimeline.java is a helper that remembers when recent video frames were sent, so that stream processor results can be matched to their frames.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+/**
+ * A bounded ring buffer of the most recent frames sent to a stream processor, holding
+ * each frame's producer timestamp and the System.nanoTime() at which it was sent.
+ *
+ * Frames are recorded in timestamp order, so the frame that a result refers to is found
+ * with a binary search. When the buffer is full, each new frame replaces the oldest one;
+ * results for frames that old can no longer be matched, which keeps memory fixed however
+ * long the stream runs.
+ */
+public class FrameTimeline {
+
+    private final long[] timestamps;
+    private final long[] sentNanos;
+    private final int mask;
+    private long count;
+
+    /**
+     * @param capacity the number of frames remembered, rounded up to a power of two.
+     */
+    public FrameTimeline(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.timestamps = new long[size];
+        this.sentNanos = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records that a frame was sent.
+     *
+     * @throws IllegalArgumentException if the timestamp is earlier than the last one recorded.
+     */
+    public synchronized void record(long timestampMillis, long sentNanoTime) {
+        if (count > 0 && timestampMillis < timestamps[(int) ((count - 1) & mask)]) {
+            throw new IllegalArgumentException("Frames must be recorded in timestamp order");
+        }
+        int slot = (int) (count & mask);
+        timestamps[slot] = timestampMillis;
+        sentNanos[slot] = sentNanoTime;
+        count++;
+    }
+
+    /**
+     * Returns when the frame at the given timestamp was sent, or -1 if that frame is no longer in
+     * the buffer. A timestamp between two frames is matched to the earlier one, because a stream
+     * processor reports times within a fragment that may not fall exactly on a sent frame.
+     */
+    public synchronized long sentNanosAt(long timestampMillis) {
+        long oldest = Math.max(0, count - timestamps.length);
+        long low = oldest;
+        long high = count;
+        // Find the first frame later than the timestamp; the one before it is the match.
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[(int) (mid & mask)] <= timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == oldest ? -1 : sentNanos[(int) ((low - 1) & mask)];
+    }
+
+    /**
+     * Returns the number of frames recorded since the timeline was created.
+     */
+    public synchronized long getFrameCount() {
+        return count;
+    }
+}
@@ -0,0 +1,527 @@
+// snippet-sourcedescription:[ImageBatchAnalyzer.java demonstrates how to detect faces and labels in many images concurrently by using Amazon Rekognition, within a request rate limit and without analyzing the same image twice.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.Attribute;
+import software.amazon.awssdk.services.rekognition.model.DetectFacesRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.FaceDetail;
+import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.Label;
+import software.amazon.awssdk.services.rekognition.model.RekognitionException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Detects faces and labels in a large batch of images, such as a local directory or an
+ * Amazon S3 prefix.
+ *
+ * Images are read, hashed, and if necessary downscaled on a pool of decoder threads, so
+ * the threads that call Amazon Rekognition only wait for the service. Calls run
+ * concurrently, but no faster than the configured number of transactions per second.
+ * Results are cached by the SHA-256 hash of the image content: an image that is identical
+ * to one already analyzed, or to one still being analyzed, shares its result instead of
+ * being sent again.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class ImageBatchAnalyzer implements AutoCloseable {
+
+    public enum Analysis { FACES, LABELS, FACES_AND_LABELS }
+
+    /**
+     * An image to analyze.
+     */
+    public interface ImageInput {
+        String getName();
+
+        byte[] read() throws IOException;
+
+        static ImageInput ofFile(Path path) {
+            return new ImageInput() {
+                public String getName() {
+                    return path.toString();
+                }
+
+                public byte[] read() throws IOException {
+                    return Files.readAllBytes(path);
+                }
+            };
+        }
+
+        static ImageInput ofS3(S3Client s3, String bucket, String key) {
+            return new ImageInput() {
+                public String getName() {
+                    return "s3://" + bucket + "/" + key;
+                }
+
+                public byte[] read() {
+                    return s3.getObjectAsBytes(GetObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build())
+                        .asByteArrayUnsafe();
+                }
+            };
+        }
+    }
+
+    /**
+     * Receives the result of each image. Exactly one of result and error is null.
+     */
+    @FunctionalInterface
+    public interface ResultHandler {
+        void handle(String name, AnalysisResult result, Throwable error);
+    }
+
+    public static class AnalysisResult {
+        private final String contentHash;
+        private final List<FaceDetail> faces;
+        private final List<Label> labels;
+
+        private AnalysisResult(String contentHash, List<FaceDetail> faces, List<Label> labels) {
+            this.contentHash = contentHash;
+            this.faces = faces;
+            this.labels = labels;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public List<FaceDetail> getFaces() {
+            return faces;
+        }
+
+        public List<Label> getLabels() {
+            return labels;
+        }
+    }
+
+    // Amazon Rekognition accepts image bytes of up to 5 MB.
+    private static final int MAX_IMAGE_BYTES = 5 * 1024 * 1024;
+
+    private final RekognitionClient rekClient;
+    private final Analysis analysis;
+    private final int maxDimension;
+    private final int maxPendingImages;
+    private final Semaphore pendingImages;
+    private final ExecutorService decodePool;
+    private final ExecutorService callPool;
+    private final TpsLimiter limiter;
+    private final Map<String, CompletableFuture<AnalysisResult>> cache;
+
+    private final LongAdder imagesSubmitted = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder apiCalls = new LongAdder();
+    private final LongAdder imagesDownscaled = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <source> <analysis> <tps> <threads>\n\n" +
+            "Where:\n" +
+            "   source - A directory of images or an S3 location (for example, s3://myBucket/photos/). \n\n" +
+            "   analysis - faces, labels, or faces_and_labels. \n\n" +
+            "   tps - The maximum number of Amazon Rekognition calls per second (for example, 20). \n\n" +
+            "   threads - The maximum number of calls to run at once (for example, 16). \n\n";
+
+        if (args.length != 4) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String source = args[0];
+        Analysis analysis = Analysis.valueOf(args[1].toUpperCase(Locale.ROOT));
+        double tps = Double.parseDouble(args[2]);
+        int threads = Integer.parseInt(args[3]);
+        Region region = Region.US_EAST_1;
+        RekognitionClient rekClient = RekognitionClient.builder()
+            .region(region)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        ResultHandler printer = (name, result, error) -> {
+            if (error != null) {
+                System.out.println(name + ": " + error.getMessage());
+            } else {
+                System.out.println(name + ": " + result.getFaces().size() + " faces, "
+                    + result.getLabels().size() + " labels");
+            }
+        };
+
+        long start = System.nanoTime();
+        try (ImageBatchAnalyzer analyzer = new ImageBatchAnalyzer(rekClient, analysis, tps, threads, 1920, 100_000)) {
+            if (source.startsWith("s3://")) {
+                String location = source.substring("s3://".length());
+                int slash = location.indexOf('/');
+                String bucket = slash < 0 ? location : location.substring(0, slash);
+                String prefix = slash < 0 ? "" : location.substring(slash + 1);
+                S3Client s3 = S3Client.builder()
+                    .region(region)
+                    .credentialsProvider(ProfileCredentialsProvider.create())
+                    .build();
+                analyzer.analyzeS3Prefix(s3, bucket, prefix, printer);
+                s3.close();
+            } else {
+                analyzer.analyzeDirectory(Paths.get(source), printer);
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s in %.1f s (%.1f images/s)%n", analyzer.getStats(), seconds,
+                analyzer.imagesSubmitted.sum() / seconds);
+
+        } catch (RekognitionException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        rekClient.close();
+    }
+
+    /**
+     * Creates an analyzer.
+     *
+     * @param rekClient        the client used for all calls; it is not closed by this analyzer.
+     * @param tps              the maximum number of Amazon Rekognition calls per second.
+     * @param maxConcurrency   the maximum number of calls running at once.
+     * @param maxDimension     images whose width or height is larger are scaled down to fit.
+     * @param maxCachedResults the number of results kept for duplicate images.
+     */
+    public ImageBatchAnalyzer(RekognitionClient rekClient, Analysis analysis, double tps, int maxConcurrency,
+                              int maxDimension, int maxCachedResults) {
+        this.rekClient = rekClient;
+        this.analysis = analysis;
+        this.maxDimension = maxDimension;
+        this.limiter = new TpsLimiter(tps);
+        this.callPool = Executors.newFixedThreadPool(maxConcurrency);
+        this.decodePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        // Enough images in progress to keep every call thread busy, without reading the whole batch ahead.
+        this.maxPendingImages = maxConcurrency * 4;
+        this.pendingImages = new Semaphore(maxPendingImages);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CompletableFuture<AnalysisResult>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<AnalysisResult>> eldest) {
+                return size() > maxCachedResults;
+            }
+        });
+    }
+
+    /**
+     * Analyzes every JPEG and PNG file under a directory, and waits until all results are handled.
+     */
+    public void analyzeDirectory(Path directory, ResultHandler handler) throws IOException, InterruptedException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> images = files
+                .filter(Files::isRegularFile)
+                .filter(path -> isImage(path.getFileName().toString()))
+                .iterator();
+            while (images.hasNext()) {
+                submit(ImageInput.ofFile(images.next()), handler);
+            }
+        }
+        awaitIdle();
+    }
+
+    /**
+     * Analyzes every JPEG and PNG object under an S3 prefix, and waits until all results are handled.
+     */
+    public void analyzeS3Prefix(S3Client s3, String bucket, String prefix, ResultHandler handler)
+            throws InterruptedException {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+            .bucket(bucket)
+            .prefix(prefix)
+            .build();
+
+        for (S3Object object : s3.listObjectsV2Paginator(listRequest).contents()) {
+            if (isImage(object.key())) {
+                submit(ImageInput.ofS3(s3, bucket, object.key()), handler);
+            }
+        }
+        awaitIdle();
+    }
+
+    /**
+     * Analyzes one image. Blocks while too many images are already in progress.
+     */
+    public CompletableFuture<AnalysisResult> analyze(ImageInput input) throws InterruptedException {
+        CompletableFuture<AnalysisResult> result = new CompletableFuture<>();
+        submit(input, (name, analysisResult, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(analysisResult);
+            }
+        });
+        return result;
+    }
+
+    public String getStats() {
+        return "Images: " + imagesSubmitted.sum()
+            + ", duplicates: " + cacheHits.sum()
+            + ", API calls: " + apiCalls.sum()
+            + ", downscaled: " + imagesDownscaled.sum();
+    }
+
+    /**
+     * Waits for images in progress and stops the worker threads.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        awaitIdle();
+        decodePool.shutdown();
+        callPool.shutdown();
+    }
+
+    private void submit(ImageInput input, ResultHandler handler) throws InterruptedException {
+        pendingImages.acquire();
+        imagesSubmitted.increment();
+        try {
+            decodePool.execute(() -> {
+                try {
+                    analyzeOnDecoder(input).whenComplete((result, error) -> {
+                        try {
+                            handler.handle(input.getName(), result, error);
+                        } finally {
+                            pendingImages.release();
+                        }
+                    });
+                } catch (Exception e) {
+                    try {
+                        handler.handle(input.getName(), null, e);
+                    } finally {
+                        pendingImages.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingImages.release();
+            throw e;
+        }
+    }
+
+    // Runs on a decoder thread: reads and hashes the image, and either joins an existing result or prepares a call.
+    private CompletableFuture<AnalysisResult> analyzeOnDecoder(ImageInput input) throws IOException {
+        byte[] bytes = input.read();
+        String hash = contentHash(bytes);
+
+        CompletableFuture<AnalysisResult> created = new CompletableFuture<>();
+        CompletableFuture<AnalysisResult> existing = cache.putIfAbsent(hash, created);
+        if (existing != null) {
+            cacheHits.increment();
+            return existing;
+        }
+
+        try {
+            SdkBytes image = prepare(bytes);
+            callPool.execute(() -> {
+                try {
+                    limiter.acquire();
+                    created.complete(call(hash, image));
+                } catch (Throwable t) {
+                    // Don't cache failures, so the image is sent again the next time it is seen.
+                    cache.remove(hash, created);
+                    created.completeExceptionally(t);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            cache.remove(hash, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private AnalysisResult call(String hash, SdkBytes bytes) throws InterruptedException {
+        Image image = Image.builder()
+            .bytes(bytes)
+            .build();
+
+        List<FaceDetail> faces = Collections.emptyList();
+        List<Label> labels = Collections.emptyList();
+        if (analysis != Analysis.LABELS) {
+            apiCalls.increment();
+            faces = rekClient.detectFaces(DetectFacesRequest.builder()
+                .attributes(Attribute.ALL)
+                .image(image)
+                .build())
+                .faceDetails();
+        }
+        if (analysis != Analysis.FACES) {
+            if (analysis == Analysis.FACES_AND_LABELS) {
+                limiter.acquire();
+            }
+            apiCalls.increment();
+            labels = rekClient.detectLabels(DetectLabelsRequest.builder()
+                .image(image)
+                .maxLabels(10)
+                .build())
+                .labels();
+        }
+        return new AnalysisResult(hash, faces, labels);
+    }
+
+    // Returns the image unchanged if it is within the limits, or a downscaled JPEG copy otherwise.
+    private SdkBytes prepare(byte[] bytes) throws IOException {
+        int[] size = readSize(bytes);
+        boolean tooLarge = size != null && Math.max(size[0], size[1]) > maxDimension;
+        if (bytes.length <= MAX_IMAGE_BYTES && !tooLarge) {
+            return SdkBytes.fromByteArrayUnsafe(bytes);
+        }
+
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (source == null) {
+            throw new IOException("Unsupported image format");
+        }
+
+        int dimension = Math.min(maxDimension, Math.max(source.getWidth(), source.getHeight()));
+        while (true) {
+            byte[] scaled = toJpeg(scale(source, dimension));
+            if (scaled.length <= MAX_IMAGE_BYTES) {
+                imagesDownscaled.increment();
+                return SdkBytes.fromByteArrayUnsafe(scaled);
+            }
+            dimension = dimension * 3 / 4;
+        }
+    }
+
+    // Reads the width and height from the image header without decoding the pixels.
+    private static int[] readSize(byte[] bytes) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                return new int[] {reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] toJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.9f);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        pendingImages.acquire(maxPendingImages);
+        pendingImages.release(maxPendingImages);
+    }
+
+    // Spaces calls evenly so that no more than the given number start in any second.
+    private static class TpsLimiter {
+        private final long intervalNanos;
+        private long nextSlot = System.nanoTime();
+
+        private TpsLimiter(double tps) {
+            this.intervalNanos = (long) (1_000_000_000L / tps);
+        }
+
+        private void acquire() throws InterruptedException {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextSlot);
+                nextSlot = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+// snippet-sourcedescription:[KinesisShardConsumer.java is a helper that reads new records from every shard of an Amazon Kinesis data stream in parallel, such as the output of an Amazon Rekognition stream processor.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import software.amazon.awssdk.services.kinesis.KinesisClient;
+import software.amazon.awssdk.services.kinesis.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the records written to a Kinesis data stream after it starts, with one thread
+ * per open shard.
+ *
+ * Each thread calls GetRecords in a loop and waits briefly only when a call returns no
+ * records, which stays within the limit of five reads per second per shard. When a shard
+ * is closed by resharding, the stream's shards are listed again and its child shards are
+ * read from their beginning, so no records are skipped.
+ *
+ * A failed call is retried after a short wait, and an expired iterator is replaced with one
+ * that starts after the last record read. A record whose handler throws is counted and
+ * logged, and reading goes on with the next record.
+ */
+public class KinesisShardConsumer implements AutoCloseable {
+
+    /**
+     * Receives each record. It is called from the thread of the record's shard.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(String shardId, Record record);
+    }
+
+    private static final long IDLE_DELAY_MILLIS = 200;
+    private static final long ERROR_DELAY_MILLIS = 1_000;
+
+    private final KinesisClient kinesisClient;
+    private final String streamName;
+    private final RecordHandler handler;
+    private final ExecutorService readers;
+    private final Set<String> startedShards = ConcurrentHashMap.newKeySet();
+    private final LongAdder handlerFailures = new LongAdder();
+    private volatile boolean closed;
+
+    public KinesisShardConsumer(KinesisClient kinesisClient, String streamName, RecordHandler handler) {
+        this.kinesisClient = kinesisClient;
+        this.streamName = streamName;
+        this.handler = handler;
+        this.readers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "kinesis-shard-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts reading new records from every open shard.
+     *
+     * @return the number of shards being read.
+     */
+    public int start() {
+        List<Shard> shards = listShards();
+        for (Shard shard : shards) {
+            if (isOpen(shard)) {
+                startShard(shard.shardId(), ShardIteratorType.LATEST);
+            }
+        }
+        return startedShards.size();
+    }
+
+    /**
+     * Returns the number of records whose handler threw an exception.
+     */
+    public long getHandlerFailures() {
+        return handlerFailures.sum();
+    }
+
+    /**
+     * Stops reading and waits up to a few seconds for the shard threads to finish.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        readers.shutdownNow();
+        readers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void startShard(String shardId, ShardIteratorType iteratorType) {
+        if (startedShards.add(shardId) && !closed) {
+            readers.execute(() -> read(shardId, iteratorType));
+        }
+    }
+
+    private void read(String shardId, ShardIteratorType iteratorType) {
+        // Null until the first iterator is fetched, and again after an iterator expires.
+        String iterator = null;
+        String lastSequenceNumber = null;
+
+        while (!closed) {
+            try {
+                if (iterator == null) {
+                    iterator = lastSequenceNumber == null ? getIterator(shardId, iteratorType, null)
+                        : getIterator(shardId, ShardIteratorType.AFTER_SEQUENCE_NUMBER, lastSequenceNumber);
+                }
+                GetRecordsResponse response = kinesisClient.getRecords(GetRecordsRequest.builder()
+                    .shardIterator(iterator)
+                    .limit(1000)
+                    .build());
+
+                for (Record record : response.records()) {
+                    handle(shardId, record);
+                    lastSequenceNumber = record.sequenceNumber();
+                }
+                iterator = response.nextShardIterator();
+                if (iterator == null) {
+                    break;
+                }
+                if (response.records().isEmpty()) {
+                    Thread.sleep(IDLE_DELAY_MILLIS);
+                }
+
+            } catch (ExpiredIteratorException e) {
+                iterator = null;
+
+            } catch (ProvisionedThroughputExceededException e) {
+                if (!sleep(ERROR_DELAY_MILLIS)) {
+                    return;
+                }
+
+            } catch (InterruptedException e) {
+                return;
+
+            } catch (RuntimeException e) {
+                // Includes client errors such as timeouts, as well as service errors.
+                if (closed) {
+                    return;
+                }
+                System.err.println("Reading shard " + shardId + " failed: " + e.getMessage());
+                if (!sleep(ERROR_DELAY_MILLIS)) {
+                    return;
+                }
+            }
+        }
+
+        // The shard was closed by resharding; start reading the shards that replaced it.
+        while (!closed) {
+            try {
+                for (Shard shard : listShards()) {
+                    if (shardId.equals(shard.parentShardId()) || shardId.equals(shard.adjacentParentShardId())) {
+                        startShard(shard.shardId(), ShardIteratorType.TRIM_HORIZON);
+                    }
+                }
+                return;
+
+            } catch (RuntimeException e) {
+                System.err.println("Listing the shards that replaced " + shardId + " failed: " + e.getMessage());
+                if (!sleep(ERROR_DELAY_MILLIS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Passes a record to the handler. A failure is counted and logged rather than stopping the shard.
+    private void handle(String shardId, Record record) {
+        try {
+            handler.handle(shardId, record);
+        } catch (RuntimeException e) {
+            handlerFailures.increment();
+            System.err.println("Handling record " + record.sequenceNumber() + " of shard " + shardId + " failed: " + e);
+        }
+    }
+
+    private String getIterator(String shardId, ShardIteratorType type, String sequenceNumber) {
+        return kinesisClient.getShardIterator(GetShardIteratorRequest.builder()
+            .streamName(streamName)
+            .shardId(shardId)
+            .shardIteratorType(type)
+            .startingSequenceNumber(sequenceNumber)
+            .build())
+            .shardIterator();
+    }
+
+    private List<Shard> listShards() {
+        List<Shard> shards = new ArrayList<>();
+        ListShardsRequest request = ListShardsRequest.builder()
+            .streamName(streamName)
+            .build();
+        while (true) {
+            ListShardsResponse response = kinesisClient.listShards(request);
+            shards.addAll(response.shards());
+            if (response.nextToken() == null) {
+                return shards;
+            }
+            // Requests with a next token must not name the stream.
+            request = ListShardsRequest.builder()
+                .nextToken(response.nextToken())
+                .build();
+        }
+    }
+
+    private static boolean isOpen(Shard shard) {
+        return shard.sequenceNumberRange() == null || shard.sequenceNumberRange().endingSequenceNumber() == null;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
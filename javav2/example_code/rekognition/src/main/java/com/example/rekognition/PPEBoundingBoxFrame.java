@@ -12,6 +12,7 @@ package com.example.rekognition;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.List;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -110,6 +111,18 @@ public class PPEBoundingBoxFrame extends JPanel {
                .build();
 
            DetectProtectiveEquipmentResponse result = rekClient.detectProtectiveEquipment(request);
+           if (GraphicsEnvironment.isHeadless()) {
+               // Without a display, write the image with its bounding boxes to a file instead.
+               String name = Paths.get(sourceImage).getFileName() + "-ppe";
+               try (BoundingBoxRenderer renderer = new BoundingBoxRenderer("png",
+                       Math.max(image.getWidth(), image.getHeight()), 1)) {
+                   renderer.render(name, image, BoundingBoxRenderer.faceCoverAnnotations(result, confidence),
+                       BoundingBoxRenderer.Output.toDirectory(Paths.get(".")));
+               }
+               System.out.println("Wrote " + name + ".png");
+               return;
+           }
+
            JFrame frame = new JFrame("Detect PPE");
            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
            PPEBoundingBoxFrame panel = new PPEBoundingBoxFrame(result, image, confidence);
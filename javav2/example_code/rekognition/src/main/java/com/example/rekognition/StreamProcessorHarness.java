@@ -0,0 +1,364 @@
+// snippet-sourcedescription:[StreamProcessorHarness.java demonstrates how to measure the end-to-end latency of face search on streaming video, by reading the Amazon Kinesis output of an Amazon Rekognition stream processor and matching each result to the frame it was produced from.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kinesis.KinesisClient;
+import software.amazon.awssdk.services.kinesis.model.KinesisException;
+import software.amazon.awssdk.services.kinesis.model.PutRecordRequest;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.FaceMatch;
+import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.InvalidParameterException;
+import software.amazon.awssdk.services.rekognition.model.RekognitionException;
+import software.amazon.awssdk.services.rekognition.model.SearchFacesByImageRequest;
+import software.amazon.awssdk.services.rekognition.model.SearchFacesByImageResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sends video frames to a face search stream processor, reads the processor's results
+ * from its Kinesis data stream, and reports the end-to-end latency from sending a frame
+ * to receiving its result.
+ *
+ * Frames come from a FrameSource and are sent by a FrameSender, so both ends can be
+ * replaced. Each frame is stamped with a producer timestamp, and the time it was sent is
+ * kept in a FrameTimeline. The results are read from every shard of the data stream, and
+ * each result is matched to its frame through the producer timestamp and frame offset
+ * that the stream processor reports. A sender that writes to Amazon Kinesis Video Streams,
+ * for example through the Kinesis Video Streams producer library, must use the frame's
+ * timestamp as the producer timestamp.
+ *
+ * The main method reads frames from a local directory and sends them to a stand-in for
+ * the stream processor, which searches each frame with SearchFacesByImage and writes a
+ * result in the stream processor's format to the data stream. This measures the harness
+ * and the data stream without a video stream; the latency of a real processor includes
+ * video ingestion and is usually higher.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class StreamProcessorHarness implements AutoCloseable {
+
+    public static class Frame {
+        private final long timestampMillis;
+        private final byte[] data;
+
+        public Frame(long timestampMillis, byte[] data) {
+            this.timestampMillis = timestampMillis;
+            this.data = data;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Supplies the encoded image of each frame, or null when there are no more frames.
+     */
+    @FunctionalInterface
+    public interface FrameSource {
+        byte[] next() throws IOException;
+
+        /**
+         * Returns the JPEG and PNG files in a directory in name order, repeating them without end.
+         */
+        static FrameSource fromDirectory(Path directory) throws IOException {
+            List<Path> files;
+            try (Stream<Path> paths = Files.list(directory)) {
+                files = paths
+                    .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(jpe?g|png)"))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+            if (files.isEmpty()) {
+                throw new IOException("No JPEG or PNG files in " + directory);
+            }
+            int[] next = {0};
+            return () -> Files.readAllBytes(files.get(next[0]++ % files.size()));
+        }
+    }
+
+    /**
+     * Sends a frame to the stream processor's input. It must not block for long, because frames are sent in real time.
+     */
+    @FunctionalInterface
+    public interface FrameSender {
+        void send(Frame frame) throws IOException;
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final FrameTimeline timeline;
+    private final KinesisShardConsumer consumer;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder results = new LongAdder();
+    private final LongAdder unmatchedResults = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <collectionId> <dataStreamName> <framesDirectory> <fps> <seconds>\n\n" +
+            "Where:\n" +
+            "   collectionId - The collection to search for faces.  \n\n" +
+            "   dataStreamName - The Kinesis data stream that results are written to and read from. \n\n" +
+            "   framesDirectory - A directory of JPEG or PNG frames, sent in name order. \n\n" +
+            "   fps - The number of frames to send per second (for example, 5). \n\n" +
+            "   seconds - How long to send frames for (for example, 60). \n\n";
+
+        if (args.length != 5) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String collectionId = args[0];
+        String dataStreamName = args[1];
+        Path framesDirectory = Paths.get(args[2]);
+        double fps = Double.parseDouble(args[3]);
+        int seconds = Integer.parseInt(args[4]);
+
+        Region region = Region.US_EAST_1;
+        RekognitionClient rekClient = RekognitionClient.builder()
+            .region(region)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        KinesisClient kinesisClient = KinesisClient.builder()
+            .region(region)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        try (StandInProcessor processor = new StandInProcessor(rekClient, kinesisClient, collectionId, dataStreamName, 8);
+             StreamProcessorHarness harness = new StreamProcessorHarness(kinesisClient, dataStreamName, 10_000)) {
+
+            System.out.println("Reading results from " + harness.getConsumer().start() + " shards");
+            harness.run(FrameSource.fromDirectory(framesDirectory), processor, fps, seconds * 1000L, 10_000);
+            System.out.println("Frames dropped by the stand-in processor: " + processor.getDroppedFrames());
+
+        } catch (RekognitionException | KinesisException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        rekClient.close();
+        kinesisClient.close();
+    }
+
+    /**
+     * Creates a harness that reads results from a data stream. Call start on the consumer before running.
+     *
+     * @param timelineCapacity the number of recent frames that results can be matched to.
+     */
+    public StreamProcessorHarness(KinesisClient kinesisClient, String dataStreamName, int timelineCapacity) {
+        this.timeline = new FrameTimeline(timelineCapacity);
+        this.consumer = new KinesisShardConsumer(kinesisClient, dataStreamName, this::onRecord);
+    }
+
+    public KinesisShardConsumer getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * Sends frames at the given rate for the given time, printing the latency every five seconds,
+     * then waits for the last results and prints the final latency.
+     */
+    public void run(FrameSource source, FrameSender sender, double fps, long durationMillis, long drainMillis)
+            throws IOException, InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / fps);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(5);
+        long lastTimestamp = 0;
+
+        for (long next = start; next < end; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            byte[] data = source.next();
+            if (data == null) {
+                break;
+            }
+            // Producer timestamps must increase even if the clock is adjusted.
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+            lastTimestamp = timestamp;
+            timeline.record(timestamp, System.nanoTime());
+            sender.send(new Frame(timestamp, data));
+
+            if (System.nanoTime() >= nextReport) {
+                System.out.println(getReport());
+                nextReport += TimeUnit.SECONDS.toNanos(5);
+            }
+        }
+
+        Thread.sleep(drainMillis);
+        System.out.println("Final: " + getReport());
+    }
+
+    public String getReport() {
+        synchronized (latencies) {
+            return "frames=" + timeline.getFrameCount() + " results=" + results.sum() + " unmatched="
+                + unmatchedResults.sum() + " " + latencies.summary();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        consumer.close();
+    }
+
+    // Matches a stream processor result to its frame and records the latency.
+    private void onRecord(String shardId, Record record) {
+        long receivedNanos = System.nanoTime();
+        results.increment();
+        try {
+            long timestamp = frameTimestampMillis(record.data().asUtf8String());
+            long sentNanos = timeline.sentNanosAt(timestamp);
+            if (sentNanos < 0) {
+                unmatchedResults.increment();
+                return;
+            }
+            synchronized (latencies) {
+                latencies.recordNanos(receivedNanos - sentNanos);
+            }
+        } catch (IOException e) {
+            unmatchedResults.increment();
+            System.err.println("Ignoring record " + record.sequenceNumber() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the timestamp of the frame that a stream processor result refers to, in milliseconds:
+     * the producer timestamp of the fragment plus the offset of the frame within it.
+     */
+    public static long frameTimestampMillis(String result) throws IOException {
+        JsonNode video = MAPPER.readTree(result).path("InputInformation").path("KinesisVideo");
+        if (!video.has("ProducerTimestamp")) {
+            throw new IOException("The result has no producer timestamp");
+        }
+        double seconds = video.get("ProducerTimestamp").asDouble() + video.path("FrameOffsetInSeconds").asDouble(0);
+        return Math.round(seconds * 1000);
+    }
+
+    /**
+     * Stands in for a face search stream processor: searches each frame in a collection and writes
+     * a result in the stream processor's output format to a Kinesis data stream. Frames that arrive
+     * while all workers are busy and the queue is full are dropped, as live video would be.
+     */
+    public static class StandInProcessor implements FrameSender, AutoCloseable {
+        private final RekognitionClient rekClient;
+        private final KinesisClient kinesisClient;
+        private final String collectionId;
+        private final String dataStreamName;
+        private final ThreadPoolExecutor workers;
+        private final LongAdder droppedFrames = new LongAdder();
+
+        public StandInProcessor(RekognitionClient rekClient, KinesisClient kinesisClient, String collectionId,
+                                String dataStreamName, int threads) {
+            this.rekClient = rekClient;
+            this.kinesisClient = kinesisClient;
+            this.collectionId = collectionId;
+            this.dataStreamName = dataStreamName;
+            this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), (task, executor) -> droppedFrames.increment());
+        }
+
+        @Override
+        public void send(Frame frame) {
+            workers.execute(() -> {
+                try {
+                    String result = search(frame);
+                    kinesisClient.putRecord(PutRecordRequest.builder()
+                        .streamName(dataStreamName)
+                        .partitionKey(Long.toString(frame.getTimestampMillis()))
+                        .data(SdkBytes.fromUtf8String(result))
+                        .build());
+                } catch (RekognitionException | KinesisException e) {
+                    System.err.println("Processing frame " + frame.getTimestampMillis() + " failed: " + e.getMessage());
+                }
+            });
+        }
+
+        public long getDroppedFrames() {
+            return droppedFrames.sum();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            workers.shutdown();
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        private String search(Frame frame) {
+            ObjectNode result = MAPPER.createObjectNode();
+            ObjectNode video = result.putObject("InputInformation").putObject("KinesisVideo");
+            video.put("ProducerTimestamp", frame.getTimestampMillis() / 1000.0);
+            video.put("ServerTimestamp", System.currentTimeMillis() / 1000.0);
+            video.put("FrameOffsetInSeconds", 0.0);
+            result.putObject("StreamProcessorInformation").put("Status", "RUNNING");
+            ArrayNode faces = result.putArray("FaceSearchResponse");
+
+            try {
+                SearchFacesByImageResponse response = rekClient.searchFacesByImage(SearchFacesByImageRequest.builder()
+                    .collectionId(collectionId)
+                    .image(Image.builder()
+                        .bytes(SdkBytes.fromByteArrayUnsafe(frame.getData()))
+                        .build())
+                    .faceMatchThreshold(75f)
+                    .maxFaces(5)
+                    .build());
+
+                ObjectNode face = faces.addObject();
+                ObjectNode detected = face.putObject("DetectedFace");
+                detected.put("Confidence", response.searchedFaceConfidence());
+                detected.putObject("BoundingBox")
+                    .put("Left", response.searchedFaceBoundingBox().left())
+                    .put("Top", response.searchedFaceBoundingBox().top())
+                    .put("Width", response.searchedFaceBoundingBox().width())
+                    .put("Height", response.searchedFaceBoundingBox().height());
+                ArrayNode matches = face.putArray("MatchedFaces");
+                for (FaceMatch match : response.faceMatches()) {
+                    matches.addObject()
+                        .put("Similarity", match.similarity())
+                        .putObject("Face")
+                        .put("FaceId", match.face().faceId())
+                        .put("ExternalImageId", match.face().externalImageId());
+                }
+            } catch (InvalidParameterException e) {
+                // The frame has no face; the stream processor reports an empty response.
+            }
+            return result.toString();
+        }
+    }
+}
@@ -16,13 +16,10 @@ import software.amazon.awssdk.services.rekognition.model.NotificationChannel;
 import software.amazon.awssdk.services.rekognition.model.Video;
 import software.amazon.awssdk.services.rekognition.model.StartCelebrityRecognitionResponse;
 import software.amazon.awssdk.services.rekognition.model.RekognitionException;
-import software.amazon.awssdk.services.rekognition.model.CelebrityRecognitionSortBy;
 import software.amazon.awssdk.services.rekognition.model.VideoMetadata;
 import software.amazon.awssdk.services.rekognition.model.CelebrityRecognition;
 import software.amazon.awssdk.services.rekognition.model.CelebrityDetail;
 import software.amazon.awssdk.services.rekognition.model.StartCelebrityRecognitionRequest;
-import software.amazon.awssdk.services.rekognition.model.GetCelebrityRecognitionRequest;
-import software.amazon.awssdk.services.rekognition.model.GetCelebrityRecognitionResponse;
 import java.util.List;
 // snippet-end:[rekognition.java2.recognize_video_celebrity.import]
 
@@ -110,61 +107,28 @@ public class VideoCelebrityDetection {
 
     public static void GetCelebrityDetectionResults(RekognitionClient rekClient) {
 
-        try {
-            String paginationToken=null;
-            GetCelebrityRecognitionResponse recognitionResponse = null;
-            boolean finished = false;
-            String status;
-            int yy=0 ;
-
-            do{
-                if (recognitionResponse !=null)
-                    paginationToken = recognitionResponse.nextToken();
-
-                GetCelebrityRecognitionRequest recognitionRequest = GetCelebrityRecognitionRequest.builder()
-                    .jobId(startJobId)
-                    .nextToken(paginationToken)
-                    .sortBy(CelebrityRecognitionSortBy.TIMESTAMP)
-                    .maxResults(10)
-                    .build();
-
-                // Wait until the job succeeds
-                while (!finished) {
-                    recognitionResponse = rekClient.getCelebrityRecognition(recognitionRequest);
-                    status = recognitionResponse.jobStatusAsString();
-
-                    if (status.compareTo("SUCCEEDED") == 0)
-                        finished = true;
-                    else {
-                        System.out.println(yy + " status is: " + status);
-                        Thread.sleep(1000);
-                    }
-                    yy++;
-                }
-
-                finished = false;
-
-                // Proceed when the job is done - otherwise VideoMetadata is null.
-                VideoMetadata videoMetaData=recognitionResponse.videoMetadata();
-                System.out.println("Format: " + videoMetaData.format());
-                System.out.println("Codec: " + videoMetaData.codec());
-                System.out.println("Duration: " + videoMetaData.durationMillis());
-                System.out.println("FrameRate: " + videoMetaData.frameRate());
-                System.out.println("Job");
-
-                List<CelebrityRecognition> celebs= recognitionResponse.celebrities();
-                for (CelebrityRecognition celeb: celebs) {
-                    long seconds=celeb.timestamp()/1000;
-                    System.out.print("Sec: " + seconds + " ");
-                    CelebrityDetail details=celeb.celebrity();
-                    System.out.println("Name: " + details.name());
-                    System.out.println("Id: " + details.id());
-                    System.out.println();
-                }
-
-            } while (recognitionResponse.nextToken() != null);
-
-        } catch(RekognitionException | InterruptedException e) {
+        // Waits for the job, then streams the celebrities. The next page is fetched while this one is printed.
+        try (VideoResultStream<CelebrityRecognition> results = VideoResultStream.celebrities(rekClient, startJobId)) {
+            List<VideoMetadata> videoMetaData = results.getVideoMetadata();
+            for (VideoMetadata metaData : videoMetaData) {
+                System.out.println("Format: " + metaData.format());
+                System.out.println("Codec: " + metaData.codec());
+                System.out.println("Duration: " + metaData.durationMillis());
+                System.out.println("FrameRate: " + metaData.frameRate());
+            }
+            System.out.println("Job");
+
+            while (results.hasNext()) {
+                CelebrityRecognition celeb = results.next();
+                long seconds=celeb.timestamp()/1000;
+                System.out.print("Sec: " + seconds + " ");
+                CelebrityDetail details=celeb.celebrity();
+                System.out.println("Name: " + details.name());
+                System.out.println("Id: " + details.id());
+                System.out.println();
+            }
+
+        } catch(RekognitionException | IllegalStateException e) {
             System.out.println(e.getMessage());
             System.exit(1);
         }
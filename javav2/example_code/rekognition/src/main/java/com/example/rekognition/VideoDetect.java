@@ -8,11 +8,10 @@
 package com.example.rekognition;
 
 // snippet-start:[rekognition.java2.recognize_video_detect.import]
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.StartLabelDetectionResponse;
@@ -23,16 +22,14 @@ import software.amazon.awssdk.services.rekognition.model.StartLabelDetectionRequ
 import software.amazon.awssdk.services.rekognition.model.GetLabelDetectionRequest;
 import software.amazon.awssdk.services.rekognition.model.GetLabelDetectionResponse;
 import software.amazon.awssdk.services.rekognition.model.RekognitionException;
-import software.amazon.awssdk.services.rekognition.model.LabelDetectionSortBy;
 import software.amazon.awssdk.services.rekognition.model.VideoMetadata;
 import software.amazon.awssdk.services.rekognition.model.LabelDetection;
 import software.amazon.awssdk.services.rekognition.model.Label;
 import software.amazon.awssdk.services.rekognition.model.Instance;
 import software.amazon.awssdk.services.rekognition.model.Parent;
+import software.amazon.awssdk.services.rekognition.model.VideoJobStatus;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.Message;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import java.io.IOException;
 import java.util.List;
 // snippet-end:[rekognition.java2.recognize_video_detect.import]
 
@@ -45,6 +42,7 @@ import java.util.List;
  */
 public class VideoDetect {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
     private static String startJobId ="";
     public static void main(String[] args) {
 
@@ -92,7 +90,7 @@ public class VideoDetect {
     }
 
     // snippet-start:[rekognition.java2.recognize_video_detect.main]
-    public static void startLabels(RekognitionClient rekClient,
+    public static String startLabels(RekognitionClient rekClient,
                                    NotificationChannel channel,
                                    String bucket,
                                    String video) {
@@ -115,160 +113,128 @@ public class VideoDetect {
 
             StartLabelDetectionResponse labelDetectionResponse = rekClient.startLabelDetection(labelDetectionRequest);
             startJobId = labelDetectionResponse.jobId();
+            System.out.println("Started job " + startJobId);
+            return startJobId;
 
-            boolean ans = true;
-            String status = "";
-            int yy = 0;
-            while (ans) {
-
-                GetLabelDetectionRequest detectionRequest = GetLabelDetectionRequest.builder()
-                    .jobId(startJobId)
-                    .maxResults(10)
-                    .build();
+        } catch(RekognitionException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+        return "";
+    }
 
-                GetLabelDetectionResponse result = rekClient.getLabelDetection(detectionRequest);
-                status = result.jobStatusAsString();
+    public static void getLabelJob(RekognitionClient rekClient, SqsClient sqs, String queueUrl) {
 
-                if (status.compareTo("SUCCEEDED") == 0)
-                    ans = false;
-                else
-                    System.out.println(yy +" status is: "+status);
+        // Wait for the job's Amazon SNS notification. GetLabelDetection is polled only as a fallback.
+        try (AsyncJobTracker tracker = new AsyncJobTracker(sqs, queueUrl, VideoDetect::parseNotification,
+                jobId -> getLabelJobStatus(rekClient, jobId), 30_000, 300_000)) {
 
-                Thread.sleep(1000);
-                yy++;
-            }
+            String status = tracker.waitFor(startJobId);
+            System.out.println("Job id: " + startJobId);
+            System.out.println("Status : " + status);
 
-            System.out.println(startJobId +" status is: "+status);
+            if (status.equals("SUCCEEDED"))
+                GetResultsLabels(rekClient);
+            else
+                System.out.println("Video analysis failed");
 
-        } catch(RekognitionException | InterruptedException e) {
-            e.getMessage();
+        } catch(SdkException e) {
+            System.out.println(e.getMessage());
             System.exit(1);
         }
     }
 
-    public static void getLabelJob(RekognitionClient rekClient, SqsClient sqs, String queueUrl) {
-
-        List<Message> messages;
-        ReceiveMessageRequest messageRequest = ReceiveMessageRequest.builder()
-            .queueUrl(queueUrl)
-            .build();
+    // Gets the status and job ID from an Amazon SNS notification delivered by Amazon SQS.
+    public static AsyncJobTracker.JobNotification parseNotification(String notification) throws IOException {
+        JsonNode jsonMessageTree = MAPPER.readTree(notification);
+        JsonNode messageBodyText = jsonMessageTree.get("Message");
+        if (messageBodyText == null) {
+            return null;
+        }
 
-        try {
-            messages = sqs.receiveMessage(messageRequest).messages();
-
-            if (!messages.isEmpty()) {
-                for (Message message: messages) {
-                    String notification = message.body();
-
-                    // Get the status and job id from the notification
-                    ObjectMapper mapper = new ObjectMapper();
-                    JsonNode jsonMessageTree = mapper.readTree(notification);
-                    JsonNode messageBodyText = jsonMessageTree.get("Message");
-                    ObjectMapper operationResultMapper = new ObjectMapper();
-                    JsonNode jsonResultTree = operationResultMapper.readTree(messageBodyText.textValue());
-                    JsonNode operationJobId = jsonResultTree.get("JobId");
-                    JsonNode operationStatus = jsonResultTree.get("Status");
-                    System.out.println("Job found in JSON is " + operationJobId);
-
-                    DeleteMessageRequest deleteMessageRequest = DeleteMessageRequest.builder()
-                        .queueUrl(queueUrl)
-                        .build();
-
-                    String jobId = operationJobId.textValue();
-                    if (startJobId.compareTo(jobId)==0) {
-                        System.out.println("Job id: " + operationJobId );
-                        System.out.println("Status : " + operationStatus.toString());
-
-                        if (operationStatus.asText().equals("SUCCEEDED"))
-                            GetResultsLabels(rekClient);
-                        else
-                            System.out.println("Video analysis failed");
-
-                        sqs.deleteMessage(deleteMessageRequest);
-                    }
+        JsonNode jsonResultTree = MAPPER.readTree(messageBodyText.textValue());
+        JsonNode operationJobId = jsonResultTree.get("JobId");
+        JsonNode operationStatus = jsonResultTree.get("Status");
+        if (operationJobId == null || operationStatus == null) {
+            return null;
+        }
+        return new AsyncJobTracker.JobNotification(operationJobId.textValue(), operationStatus.textValue());
+    }
 
-                    else{
-                        System.out.println("Job received was not job " +  startJobId);
-                        sqs.deleteMessage(deleteMessageRequest);
-                    }
-                }
-            }
+    // Returns the final status of the job, or null while it is still running.
+    private static String getLabelJobStatus(RekognitionClient rekClient, String jobId) {
+        GetLabelDetectionRequest statusRequest = GetLabelDetectionRequest.builder()
+            .jobId(jobId)
+            .maxResults(1)
+            .build();
 
-        } catch(RekognitionException e) {
-            e.getMessage();
-            System.exit(1);
-        } catch (JsonMappingException e) {
-            e.printStackTrace();
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-        }
+        GetLabelDetectionResponse response = rekClient.getLabelDetection(statusRequest);
+        return response.jobStatus() == VideoJobStatus.IN_PROGRESS ? null : response.jobStatusAsString();
     }
 
-    // Gets the job results by calling GetLabelDetection
+    // Gets the job results by calling GetLabelDetection. The next page is fetched while this one is printed.
     private static void GetResultsLabels(RekognitionClient rekClient) {
 
-        int maxResults=10;
-        String paginationToken=null;
-        GetLabelDetectionResponse labelDetectionResult=null;
+        VideoTimeIndex.Builder index = VideoTimeIndex.builder();
+        try (VideoResultStream<LabelDetection> results = VideoResultStream.labels(rekClient, startJobId)) {
+            List<VideoMetadata> videoMetaData = results.getVideoMetadata();
+            for (VideoMetadata metaData : videoMetaData) {
+                System.out.println("Format: " + metaData.format());
+                System.out.println("Codec: " + metaData.codec());
+                System.out.println("Duration: " + metaData.durationMillis());
+                System.out.println("FrameRate: " + metaData.frameRate());
+            }
 
-        try {
-            do {
-                if (labelDetectionResult !=null)
-                    paginationToken = labelDetectionResult.nextToken();
-
-
-                GetLabelDetectionRequest labelDetectionRequest= GetLabelDetectionRequest.builder()
-                    .jobId(startJobId)
-                    .sortBy(LabelDetectionSortBy.TIMESTAMP)
-                    .maxResults(maxResults)
-                    .nextToken(paginationToken)
-                    .build();
-
-                labelDetectionResult = rekClient.getLabelDetection(labelDetectionRequest);
-                VideoMetadata videoMetaData=labelDetectionResult.videoMetadata();
-                System.out.println("Format: " + videoMetaData.format());
-                System.out.println("Codec: " + videoMetaData.codec());
-                System.out.println("Duration: " + videoMetaData.durationMillis());
-                System.out.println("FrameRate: " + videoMetaData.frameRate());
-
-                List<LabelDetection> detectedLabels= labelDetectionResult.labels();
-                for (LabelDetection detectedLabel: detectedLabels) {
-                    long seconds=detectedLabel.timestamp();
-                    Label label=detectedLabel.label();
-                    System.out.println("Millisecond: " + seconds + " ");
-
-                    System.out.println("   Label:" + label.name());
-                    System.out.println("   Confidence:" + detectedLabel.label().confidence().toString());
-
-                    List<Instance> instances = label.instances();
-                    System.out.println("   Instances of " + label.name());
-
-                    if (instances.isEmpty()) {
-                        System.out.println("        " + "None");
-                    } else {
-                        for (Instance instance : instances) {
-                            System.out.println("        Confidence: " + instance.confidence().toString());
-                            System.out.println("        Bounding box: " + instance.boundingBox().toString());
-                        }
+            while (results.hasNext()) {
+                LabelDetection detectedLabel = results.next();
+                long seconds=detectedLabel.timestamp();
+                Label label=detectedLabel.label();
+                index.add(detectedLabel.timestamp(), label.name());
+                System.out.println("Millisecond: " + seconds + " ");
+
+                System.out.println("   Label:" + label.name());
+                System.out.println("   Confidence:" + detectedLabel.label().confidence().toString());
+
+                List<Instance> instances = label.instances();
+                System.out.println("   Instances of " + label.name());
+
+                if (instances.isEmpty()) {
+                    System.out.println("        " + "None");
+                } else {
+                    for (Instance instance : instances) {
+                        System.out.println("        Confidence: " + instance.confidence().toString());
+                        System.out.println("        Bounding box: " + instance.boundingBox().toString());
                     }
-                    System.out.println("   Parent labels for " + label.name() + ":");
-                    List<Parent> parents = label.parents();
-
-                    if (parents.isEmpty()) {
-                        System.out.println("        None");
-                    } else {
-                        for (Parent parent : parents) {
-                            System.out.println("   " + parent.name());
-                        }
+                }
+                System.out.println("   Parent labels for " + label.name() + ":");
+                List<Parent> parents = label.parents();
+
+                if (parents.isEmpty()) {
+                    System.out.println("        None");
+                } else {
+                    for (Parent parent : parents) {
+                        System.out.println("   " + parent.name());
                     }
-                    System.out.println();
                 }
-            } while (labelDetectionResult !=null && labelDetectionResult.nextToken() != null);
+                System.out.println();
+            }
 
-        } catch(RekognitionException e) {
-            e.getMessage();
+            VideoTimeIndex timeIndex = index.build();
+            System.out.println(timeIndex.size() + " detections of " + timeIndex.getLabels().size() + " labels");
+            System.out.println("Labels in the first minute: " + timeIndex.labelsBetween(0, 60_000));
+
+        } catch(RekognitionException | IllegalStateException e) {
+            System.out.println(e.getMessage());
             System.exit(1);
         }
     }
+
+    /**
+     * Returns a time index of the labels that the job detected, without keeping the result pages.
+     */
+    public static VideoTimeIndex indexLabels(RekognitionClient rekClient, String jobId) {
+        return VideoTimeIndex.of(VideoResultStream.labels(rekClient, jobId), LabelDetection::timestamp,
+            detection -> detection.label().name());
+    }
     // snippet-end:[rekognition.java2.recognize_video_detect.main]
 }
@@ -99,62 +99,28 @@ public class VideoDetectFaces {
 
     public static void GetFaceResults(RekognitionClient rekClient) {
 
-        try {
-            String paginationToken=null;
-            GetFaceDetectionResponse faceDetectionResponse=null;
-            boolean finished = false;
-            String status;
-            int yy=0 ;
-
-            do{
-                if (faceDetectionResponse !=null)
-                    paginationToken = faceDetectionResponse.nextToken();
-
-                GetFaceDetectionRequest recognitionRequest = GetFaceDetectionRequest.builder()
-                    .jobId(startJobId)
-                    .nextToken(paginationToken)
-                    .maxResults(10)
-                    .build();
-
-                // Wait until the job succeeds
-                while (!finished) {
-
-                    faceDetectionResponse = rekClient.getFaceDetection(recognitionRequest);
-                    status = faceDetectionResponse.jobStatusAsString();
-
-                    if (status.compareTo("SUCCEEDED") == 0)
-                        finished = true;
-                    else {
-                        System.out.println(yy + " status is: " + status);
-                        Thread.sleep(1000);
-                    }
-                    yy++;
-                }
-
-                finished = false;
-
-                // Proceed when the job is done - otherwise VideoMetadata is null
-                VideoMetadata videoMetaData=faceDetectionResponse.videoMetadata();
-                System.out.println("Format: " + videoMetaData.format());
-                System.out.println("Codec: " + videoMetaData.codec());
-                System.out.println("Duration: " + videoMetaData.durationMillis());
-                System.out.println("FrameRate: " + videoMetaData.frameRate());
-                System.out.println("Job");
-
-                // Show face information
-                List<FaceDetection> faces= faceDetectionResponse.faces();
-
-                for (FaceDetection face: faces) {
-                    String age = face.face().ageRange().toString();
-                    String smile = face.face().smile().toString();
-                    System.out.println("The detected face is estimated to be"
-                                + age + " years old.");
-                    System.out.println("There is a smile : "+smile);
-                }
-
-            } while (faceDetectionResponse !=null && faceDetectionResponse.nextToken() != null);
-
-        } catch(RekognitionException | InterruptedException e) {
+        // Waits for the job, then streams the faces. The next page is fetched while this one is printed.
+        try (VideoResultStream<FaceDetection> results = VideoResultStream.faces(rekClient, startJobId)) {
+            List<VideoMetadata> videoMetaData = results.getVideoMetadata();
+            for (VideoMetadata metaData : videoMetaData) {
+                System.out.println("Format: " + metaData.format());
+                System.out.println("Codec: " + metaData.codec());
+                System.out.println("Duration: " + metaData.durationMillis());
+                System.out.println("FrameRate: " + metaData.frameRate());
+            }
+            System.out.println("Job");
+
+            // Show face information
+            while (results.hasNext()) {
+                FaceDetection face = results.next();
+                String age = face.face().ageRange().toString();
+                String smile = face.face().smile().toString();
+                System.out.println("The detected face is estimated to be"
+                            + age + " years old.");
+                System.out.println("There is a smile : "+smile);
+            }
+
+        } catch(RekognitionException | IllegalStateException e) {
             System.out.println(e.getMessage());
             System.exit(1);
         }
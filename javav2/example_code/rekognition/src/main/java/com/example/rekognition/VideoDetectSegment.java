@@ -21,8 +21,6 @@ import software.amazon.awssdk.services.rekognition.model.StartSegmentDetectionFi
 import software.amazon.awssdk.services.rekognition.model.StartSegmentDetectionRequest;
 import software.amazon.awssdk.services.rekognition.model.StartSegmentDetectionResponse;
 import software.amazon.awssdk.services.rekognition.model.RekognitionException;
-import software.amazon.awssdk.services.rekognition.model.GetSegmentDetectionResponse;
-import software.amazon.awssdk.services.rekognition.model.GetSegmentDetectionRequest;
 import software.amazon.awssdk.services.rekognition.model.VideoMetadata;
 import software.amazon.awssdk.services.rekognition.model.SegmentDetection;
 import software.amazon.awssdk.services.rekognition.model.TechnicalCueSegment;
@@ -136,76 +134,43 @@ public class VideoDetectSegment {
 
     public static void getSegmentResults(RekognitionClient rekClient) {
 
-        try {
-            String paginationToken = null;
-            GetSegmentDetectionResponse segDetectionResponse = null;
-            boolean finished = false;
-            String status;
-            int yy = 0;
-
-            do {
-                if (segDetectionResponse != null)
-                    paginationToken = segDetectionResponse.nextToken();
-
-                GetSegmentDetectionRequest recognitionRequest = GetSegmentDetectionRequest.builder()
-                        .jobId(startJobId)
-                        .nextToken(paginationToken)
-                        .maxResults(10)
-                        .build();
-
-                // Wait until the job succeeds.
-                while (!finished) {
-                    segDetectionResponse = rekClient.getSegmentDetection(recognitionRequest);
-                    status = segDetectionResponse.jobStatusAsString();
-
-                    if (status.compareTo("SUCCEEDED") == 0)
-                        finished = true;
-                    else {
-                        System.out.println(yy + " status is: " + status);
-                        Thread.sleep(1000);
-                    }
-                    yy++;
-                }
-                finished = false;
-
-                // Proceed when the job is done - otherwise VideoMetadata is null.
-                List<VideoMetadata> videoMetaData = segDetectionResponse.videoMetadata();
-                for (VideoMetadata metaData : videoMetaData) {
-                    System.out.println("Format: " + metaData.format());
-                    System.out.println("Codec: " + metaData.codec());
-                    System.out.println("Duration: " + metaData.durationMillis());
-                    System.out.println("FrameRate: " + metaData.frameRate());
-                    System.out.println("Job");
+        // Waits for the job, then streams the segments. The next page is fetched while this one is printed.
+        try (VideoResultStream<SegmentDetection> results = VideoResultStream.segments(rekClient, startJobId)) {
+            List<VideoMetadata> videoMetaData = results.getVideoMetadata();
+            for (VideoMetadata metaData : videoMetaData) {
+                System.out.println("Format: " + metaData.format());
+                System.out.println("Codec: " + metaData.codec());
+                System.out.println("Duration: " + metaData.durationMillis());
+                System.out.println("FrameRate: " + metaData.frameRate());
+            }
+            System.out.println("Job");
+
+            while (results.hasNext()) {
+                SegmentDetection detectedSegment = results.next();
+                String type = detectedSegment.type().toString();
+                if (type.contains(SegmentType.TECHNICAL_CUE.toString())) {
+                    System.out.println("Technical Cue");
+                    TechnicalCueSegment segmentCue = detectedSegment.technicalCueSegment();
+                    System.out.println("\tType: " + segmentCue.type());
+                    System.out.println("\tConfidence: " + segmentCue.confidence().toString());
                 }
 
-                List<SegmentDetection> detectedSegments = segDetectionResponse.segments();
-                for (SegmentDetection detectedSegment : detectedSegments) {
-                    String type = detectedSegment.type().toString();
-                    if (type.contains(SegmentType.TECHNICAL_CUE.toString())) {
-                        System.out.println("Technical Cue");
-                        TechnicalCueSegment segmentCue = detectedSegment.technicalCueSegment();
-                        System.out.println("\tType: " + segmentCue.type());
-                        System.out.println("\tConfidence: " + segmentCue.confidence().toString());
-                    }
-
-                    if (type.contains(SegmentType.SHOT.toString())) {
-                        System.out.println("Shot");
-                        ShotSegment segmentShot = detectedSegment.shotSegment();
-                        System.out.println("\tIndex " + segmentShot.index());
-                        System.out.println("\tConfidence: " + segmentShot.confidence().toString());
-                    }
-
-                    long seconds = detectedSegment.durationMillis();
-                    System.out.println("\tDuration : " + seconds + " milliseconds");
-                    System.out.println("\tStart time code: " + detectedSegment.startTimecodeSMPTE());
-                    System.out.println("\tEnd time code: " + detectedSegment.endTimecodeSMPTE());
-                    System.out.println("\tDuration time code: " + detectedSegment.durationSMPTE());
-                    System.out.println();
+                if (type.contains(SegmentType.SHOT.toString())) {
+                    System.out.println("Shot");
+                    ShotSegment segmentShot = detectedSegment.shotSegment();
+                    System.out.println("\tIndex " + segmentShot.index());
+                    System.out.println("\tConfidence: " + segmentShot.confidence().toString());
                 }
 
-            } while (segDetectionResponse !=null && segDetectionResponse.nextToken() != null);
+                long seconds = detectedSegment.durationMillis();
+                System.out.println("\tDuration : " + seconds + " milliseconds");
+                System.out.println("\tStart time code: " + detectedSegment.startTimecodeSMPTE());
+                System.out.println("\tEnd time code: " + detectedSegment.endTimecodeSMPTE());
+                System.out.println("\tDuration time code: " + detectedSegment.durationSMPTE());
+                System.out.println();
+            }
 
-        } catch(RekognitionException | InterruptedException e) {
+        } catch(RekognitionException | IllegalStateException e) {
             System.out.println(e.getMessage());
             System.exit(1);
         }
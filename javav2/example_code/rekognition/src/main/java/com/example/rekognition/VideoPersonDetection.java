@@ -18,8 +18,6 @@ import software.amazon.awssdk.services.rekognition.model.StartPersonTrackingRequ
 import software.amazon.awssdk.services.rekognition.model.Video;
 import software.amazon.awssdk.services.rekognition.model.StartPersonTrackingResponse;
 import software.amazon.awssdk.services.rekognition.model.RekognitionException;
-import software.amazon.awssdk.services.rekognition.model.GetPersonTrackingResponse;
-import software.amazon.awssdk.services.rekognition.model.GetPersonTrackingRequest;
 import software.amazon.awssdk.services.rekognition.model.VideoMetadata;
 import software.amazon.awssdk.services.rekognition.model.PersonDetection;
 import java.util.List;
@@ -104,61 +102,26 @@ public class VideoPersonDetection {
 
     public static void GetPersonDetectionResults(RekognitionClient rekClient) {
 
-        try {
-            String paginationToken=null;
-            GetPersonTrackingResponse personTrackingResult=null;
-            boolean finished = false;
-            String status;
-            int yy=0 ;
-
-            do{
-                if (personTrackingResult !=null)
-                    paginationToken = personTrackingResult.nextToken();
-
-                GetPersonTrackingRequest recognitionRequest = GetPersonTrackingRequest.builder()
-                        .jobId(startJobId)
-                        .nextToken(paginationToken)
-                        .maxResults(10)
-                        .build();
-
-                // Wait until the job succeeds
-                while (!finished) {
-
-                    personTrackingResult = rekClient.getPersonTracking(recognitionRequest);
-                    status = personTrackingResult.jobStatusAsString();
-
-                    if (status.compareTo("SUCCEEDED") == 0)
-                        finished = true;
-                    else {
-                        System.out.println(yy + " status is: " + status);
-                        Thread.sleep(1000);
-                    }
-                    yy++;
-                }
-
-                finished = false;
-
-                // Proceed when the job is done - otherwise VideoMetadata is null
-                VideoMetadata videoMetaData = personTrackingResult.videoMetadata();
-
-                System.out.println("Format: " + videoMetaData.format());
-                System.out.println("Codec: " + videoMetaData.codec());
-                System.out.println("Duration: " + videoMetaData.durationMillis());
-                System.out.println("FrameRate: " + videoMetaData.frameRate());
-                System.out.println("Job");
-
-                List<PersonDetection> detectedPersons= personTrackingResult.persons();
-                for (PersonDetection detectedPerson: detectedPersons) {
-
-                    long seconds=detectedPerson.timestamp()/1000;
-                    System.out.print("Sec: " + seconds + " ");
-                    System.out.println("Person Identifier: " + detectedPerson.person().index());
-                    System.out.println();
-                }
-
-            } while (personTrackingResult !=null && personTrackingResult.nextToken() != null);
-
-        } catch(RekognitionException | InterruptedException e) {
+        // Waits for the job, then streams the people. The next page is fetched while this one is printed.
+        try (VideoResultStream<PersonDetection> results = VideoResultStream.persons(rekClient, startJobId)) {
+            List<VideoMetadata> videoMetaData = results.getVideoMetadata();
+            for (VideoMetadata metaData : videoMetaData) {
+                System.out.println("Format: " + metaData.format());
+                System.out.println("Codec: " + metaData.codec());
+                System.out.println("Duration: " + metaData.durationMillis());
+                System.out.println("FrameRate: " + metaData.frameRate());
+            }
+            System.out.println("Job");
+
+            while (results.hasNext()) {
+                PersonDetection detectedPerson = results.next();
+                long seconds=detectedPerson.timestamp()/1000;
+                System.out.print("Sec: " + seconds + " ");
+                System.out.println("Person Identifier: " + detectedPerson.person().index());
+                System.out.println();
+            }
+
+        } catch(RekognitionException | IllegalStateException e) {
             System.out.println(e.getMessage());
             System.exit(1);
         }
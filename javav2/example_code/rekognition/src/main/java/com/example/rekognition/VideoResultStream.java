@@ -0,0 +1,238 @@
+// snippet-sourcedescription:[VideoResultStream.java is a helper that streams the results of an Amazon Rekognition Video job page by page, fetching the next page in the background.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.CelebrityRecognition;
+import software.amazon.awssdk.services.rekognition.model.CelebrityRecognitionSortBy;
+import software.amazon.awssdk.services.rekognition.model.FaceDetection;
+import software.amazon.awssdk.services.rekognition.model.GetCelebrityRecognitionRequest;
+import software.amazon.awssdk.services.rekognition.model.GetCelebrityRecognitionResponse;
+import software.amazon.awssdk.services.rekognition.model.GetFaceDetectionRequest;
+import software.amazon.awssdk.services.rekognition.model.GetFaceDetectionResponse;
+import software.amazon.awssdk.services.rekognition.model.GetLabelDetectionRequest;
+import software.amazon.awssdk.services.rekognition.model.GetLabelDetectionResponse;
+import software.amazon.awssdk.services.rekognition.model.GetPersonTrackingRequest;
+import software.amazon.awssdk.services.rekognition.model.GetPersonTrackingResponse;
+import software.amazon.awssdk.services.rekognition.model.GetSegmentDetectionRequest;
+import software.amazon.awssdk.services.rekognition.model.GetSegmentDetectionResponse;
+import software.amazon.awssdk.services.rekognition.model.LabelDetection;
+import software.amazon.awssdk.services.rekognition.model.LabelDetectionSortBy;
+import software.amazon.awssdk.services.rekognition.model.PersonDetection;
+import software.amazon.awssdk.services.rekognition.model.PersonTrackingSortBy;
+import software.amazon.awssdk.services.rekognition.model.SegmentDetection;
+import software.amazon.awssdk.services.rekognition.model.VideoJobStatus;
+import software.amazon.awssdk.services.rekognition.model.VideoMetadata;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Iterates over the detections of an Amazon Rekognition Video job across all result pages.
+ *
+ * Pages are requested with the largest page size the API allows, and the next page is
+ * requested in the background as soon as the current one arrives, so the caller rarely
+ * waits for the network. Only the current page and the next one are held in memory. If
+ * the job is still running when the stream is opened, it waits for the job to finish.
+ */
+public class VideoResultStream<T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * Fetches one page of results.
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        Page<T> fetch(String nextToken, int maxResults);
+    }
+
+    public static class Page<T> {
+        private final String status;
+        private final String statusMessage;
+        private final List<T> items;
+        private final String nextToken;
+        private final List<VideoMetadata> videoMetadata;
+
+        public Page(String status, String statusMessage, List<T> items, String nextToken,
+                    List<VideoMetadata> videoMetadata) {
+            this.status = status;
+            this.statusMessage = statusMessage;
+            this.items = items;
+            this.nextToken = nextToken;
+            this.videoMetadata = videoMetadata;
+        }
+    }
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "video-result-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PageFetcher<T> fetcher;
+    private final List<VideoMetadata> videoMetadata;
+    private Page<T> page;
+    private int position;
+    private CompletableFuture<Page<T>> nextPage;
+
+    private VideoResultStream(PageFetcher<T> fetcher, Page<T> first) {
+        this.fetcher = fetcher;
+        this.videoMetadata = first.videoMetadata;
+        this.page = first;
+        prefetch();
+    }
+
+    /**
+     * Opens a stream over the pages returned by the fetcher, waiting for the job to finish first.
+     *
+     * @throws IllegalStateException if the job failed.
+     * @throws RuntimeException      the error that stopped the job's status from being read, such as
+     *                               an SdkException for an unknown job ID.
+     */
+    public static <T> VideoResultStream<T> open(PageFetcher<T> fetcher) {
+        Page<T> first = fetcher.fetch(null, PAGE_SIZE);
+        if (VideoJobStatus.IN_PROGRESS.toString().equals(first.status)) {
+            // Poll with a one-result page until the job is done.
+            try (AsyncJobTracker tracker = new AsyncJobTracker(null, null, body -> null, jobId -> {
+                    String status = fetcher.fetch(null, 1).status;
+                    return VideoJobStatus.IN_PROGRESS.toString().equals(status) ? null : status;
+                }, 1_000, 30_000)) {
+                tracker.waitFor("job");
+            }
+            first = fetcher.fetch(null, PAGE_SIZE);
+        }
+
+        if (!VideoJobStatus.SUCCEEDED.toString().equals(first.status)) {
+            throw new IllegalStateException("The job status is " + first.status + ": " + first.statusMessage);
+        }
+        return new VideoResultStream<>(fetcher, first);
+    }
+
+    public static VideoResultStream<LabelDetection> labels(RekognitionClient rekClient, String jobId) {
+        return open((nextToken, maxResults) -> {
+            GetLabelDetectionResponse response = rekClient.getLabelDetection(GetLabelDetectionRequest.builder()
+                .jobId(jobId)
+                .sortBy(LabelDetectionSortBy.TIMESTAMP)
+                .maxResults(maxResults)
+                .nextToken(nextToken)
+                .build());
+            return new Page<>(response.jobStatusAsString(), response.statusMessage(), response.labels(),
+                response.nextToken(), Collections.singletonList(response.videoMetadata()));
+        });
+    }
+
+    public static VideoResultStream<FaceDetection> faces(RekognitionClient rekClient, String jobId) {
+        return open((nextToken, maxResults) -> {
+            GetFaceDetectionResponse response = rekClient.getFaceDetection(GetFaceDetectionRequest.builder()
+                .jobId(jobId)
+                .maxResults(maxResults)
+                .nextToken(nextToken)
+                .build());
+            return new Page<>(response.jobStatusAsString(), response.statusMessage(), response.faces(),
+                response.nextToken(), Collections.singletonList(response.videoMetadata()));
+        });
+    }
+
+    public static VideoResultStream<CelebrityRecognition> celebrities(RekognitionClient rekClient, String jobId) {
+        return open((nextToken, maxResults) -> {
+            GetCelebrityRecognitionResponse response = rekClient.getCelebrityRecognition(
+                GetCelebrityRecognitionRequest.builder()
+                    .jobId(jobId)
+                    .sortBy(CelebrityRecognitionSortBy.TIMESTAMP)
+                    .maxResults(maxResults)
+                    .nextToken(nextToken)
+                    .build());
+            return new Page<>(response.jobStatusAsString(), response.statusMessage(), response.celebrities(),
+                response.nextToken(), Collections.singletonList(response.videoMetadata()));
+        });
+    }
+
+    public static VideoResultStream<SegmentDetection> segments(RekognitionClient rekClient, String jobId) {
+        return open((nextToken, maxResults) -> {
+            GetSegmentDetectionResponse response = rekClient.getSegmentDetection(GetSegmentDetectionRequest.builder()
+                .jobId(jobId)
+                .maxResults(maxResults)
+                .nextToken(nextToken)
+                .build());
+            return new Page<>(response.jobStatusAsString(), response.statusMessage(), response.segments(),
+                response.nextToken(), response.videoMetadata());
+        });
+    }
+
+    public static VideoResultStream<PersonDetection> persons(RekognitionClient rekClient, String jobId) {
+        return open((nextToken, maxResults) -> {
+            GetPersonTrackingResponse response = rekClient.getPersonTracking(GetPersonTrackingRequest.builder()
+                .jobId(jobId)
+                .sortBy(PersonTrackingSortBy.TIMESTAMP)
+                .maxResults(maxResults)
+                .nextToken(nextToken)
+                .build());
+            return new Page<>(response.jobStatusAsString(), response.statusMessage(), response.persons(),
+                response.nextToken(), Collections.singletonList(response.videoMetadata()));
+        });
+    }
+
+    /**
+     * Returns the metadata of the analyzed video. Segment detection can return more than one entry.
+     */
+    public List<VideoMetadata> getVideoMetadata() {
+        return videoMetadata;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position >= page.items.size()) {
+            if (nextPage == null) {
+                return false;
+            }
+            try {
+                page = nextPage.join();
+            } catch (CompletionException e) {
+                nextPage = null;
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            position = 0;
+            prefetch();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.items.get(position++);
+    }
+
+    /**
+     * Stops fetching pages.
+     */
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+    }
+
+    private void prefetch() {
+        String nextToken = page.nextToken;
+        nextPage = nextToken == null ? null
+            : CompletableFuture.supplyAsync(() -> fetcher.fetch(nextToken, PAGE_SIZE), PREFETCH);
+    }
+}
@@ -0,0 +1,188 @@
+// snippet-sourcedescription:[VideoTimeIndex.java is a helper that indexes Amazon Rekognition Video detections by time so that the labels in a time range can be found quickly.]
+//snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Rekognition]
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example.rekognition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A compact, read-only index of video detections by time.
+ *
+ * Each detection is stored as a timestamp in one sorted long array and a label ID in a
+ * parallel int array. Label names are stored once and referred to by ID. An index of a
+ * multi-hour video therefore takes about 12 bytes per detection, and the detections
+ * between two times are found with a binary search.
+ */
+public class VideoTimeIndex {
+
+    private final long[] timestamps;
+    private final int[] labelIds;
+    private final List<String> labels;
+    private final Map<String, Integer> labelIdsByName;
+
+    private VideoTimeIndex(long[] timestamps, int[] labelIds, List<String> labels, Map<String, Integer> labelIdsByName) {
+        this.timestamps = timestamps;
+        this.labelIds = labelIds;
+        this.labels = labels;
+        this.labelIdsByName = labelIdsByName;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds an index from a stream of detections, closing the stream when done.
+     *
+     * @param timestamp returns the time of a detection in milliseconds from the start of the video.
+     * @param label     returns the label of a detection.
+     */
+    public static <T> VideoTimeIndex of(Iterator<T> detections, ToLongFunction<T> timestamp,
+                                        Function<T, String> label) {
+        Builder builder = new Builder();
+        while (detections.hasNext()) {
+            T detection = detections.next();
+            builder.add(timestamp.applyAsLong(detection), label.apply(detection));
+        }
+        if (detections instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) detections).close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of detections.
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * Returns the distinct labels, in the order they were first seen.
+     */
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(labels);
+    }
+
+    /**
+     * Returns how many times each label was detected from fromMillis (inclusive) to toMillis
+     * (exclusive), in the order the labels were first seen.
+     */
+    public Map<String, Integer> labelsBetween(long fromMillis, long toMillis) {
+        int[] counts = new int[labels.size()];
+        for (int i = lowerBound(fromMillis), end = lowerBound(toMillis); i < end; i++) {
+            counts[labelIds[i]]++;
+        }
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                result.put(labels.get(id), counts[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the times at which a label was detected from fromMillis (inclusive) to toMillis (exclusive).
+     */
+    public long[] timesOf(String label, long fromMillis, long toMillis) {
+        Integer id = labelIdsByName.get(label);
+        if (id == null) {
+            return new long[0];
+        }
+
+        int start = lowerBound(fromMillis);
+        int end = lowerBound(toMillis);
+        long[] times = new long[end - start];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (labelIds[i] == id) {
+                times[count++] = timestamps[i];
+            }
+        }
+        return Arrays.copyOf(times, count);
+    }
+
+    // Returns the index of the first detection at or after the given time.
+    private int lowerBound(long timeMillis) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public static class Builder {
+        private long[] timestamps = new long[1024];
+        private int[] labelIds = new int[1024];
+        private int size;
+        private boolean sorted = true;
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> labelIdsByName = new HashMap<>();
+
+        public Builder add(long timestampMillis, String label) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                labelIds = Arrays.copyOf(labelIds, size * 2);
+            }
+
+            Integer id = labelIdsByName.get(label);
+            if (id == null) {
+                id = labels.size();
+                labels.add(label);
+                labelIdsByName.put(label, id);
+            }
+
+            if (size > 0 && timestampMillis < timestamps[size - 1]) {
+                sorted = false;
+            }
+            timestamps[size] = timestampMillis;
+            labelIds[size] = id;
+            size++;
+            return this;
+        }
+
+        public VideoTimeIndex build() {
+            long[] sortedTimestamps = Arrays.copyOf(timestamps, size);
+            int[] sortedLabelIds = Arrays.copyOf(labelIds, size);
+            if (!sorted) {
+                // Results sorted by timestamp skip this. Otherwise sort positions by time, keeping ties in order.
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+                for (int i = 0; i < size; i++) {
+                    sortedTimestamps[i] = timestamps[order[i]];
+                    sortedLabelIds[i] = labelIds[order[i]];
+                }
+            }
+            return new VideoTimeIndex(sortedTimestamps, sortedLabelIds, new ArrayList<>(labels),
+                new HashMap<>(labelIdsByName));
+        }
+    }
+}
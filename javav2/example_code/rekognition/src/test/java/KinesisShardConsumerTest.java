@@ -0,0 +1,212 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.rekognition.KinesisShardConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.kinesis.KinesisClient;
+import software.amazon.awssdk.services.kinesis.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.GetRecordsResponse;
+import software.amazon.awssdk.services.kinesis.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.kinesis.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.SequenceNumberRange;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(60)
+public class KinesisShardConsumerTest {
+
+    @Test
+    public void failedReadsAndHandlersDontStopTheShard() throws Exception {
+        StubKinesis kinesis = new StubKinesis();
+        kinesis.addShard(shard("shard-0", null), "a", "b", "bad", "c", "d");
+        kinesis.getRecordsFailures.add(SdkClientException.builder().message("Unable to execute HTTP request").build());
+
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        try (KinesisShardConsumer consumer = new KinesisShardConsumer(kinesis.client, "stream", (shardId, record) -> {
+            String data = record.data().asUtf8String();
+            if (data.equals("bad")) {
+                throw new IllegalArgumentException("Can't parse " + data);
+            }
+            handled.add(data);
+        })) {
+            assertEquals(1, consumer.start());
+            await(() -> handled.size() == 4);
+            assertEquals(1, consumer.getHandlerFailures());
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d"), handled);
+    }
+
+    @Test
+    public void expiredIteratorIsReplacedAfterTheLastRecord() throws Exception {
+        StubKinesis kinesis = new StubKinesis();
+        kinesis.addShard(shard("shard-0", null), "a", "b", "c", "d", "e");
+        // The second read finds the iterator expired, and the first attempt to replace it fails.
+        kinesis.getRecordsFailures.add(StubKinesis.SUCCEED);
+        kinesis.getRecordsFailures.add(ExpiredIteratorException.builder().message("Iterator expired").build());
+        kinesis.getIteratorFailures.add(StubKinesis.SUCCEED);
+        kinesis.getIteratorFailures.add(SdkClientException.builder().message("Unable to execute HTTP request").build());
+
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        try (KinesisShardConsumer consumer = new KinesisShardConsumer(kinesis.client, "stream",
+                (shardId, record) -> handled.add(record.data().asUtf8String()))) {
+            consumer.start();
+            await(() -> handled.size() == 5);
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), handled);
+        assertEquals(Arrays.asList(ShardIteratorType.LATEST, ShardIteratorType.AFTER_SEQUENCE_NUMBER,
+            ShardIteratorType.AFTER_SEQUENCE_NUMBER), kinesis.iteratorTypes);
+    }
+
+    @Test
+    public void childShardsAreReadAfterTheParentCloses() throws Exception {
+        StubKinesis kinesis = new StubKinesis();
+        kinesis.addShard(shard("shard-0", null), "a", "b");
+        kinesis.closeShard("shard-0");
+        kinesis.addShard(shard("shard-1", "shard-0"), "c");
+        kinesis.addShard(shard("shard-2", "shard-0"), "d");
+        // At start, only the parent is listed as open. Listing its children fails once.
+        kinesis.listings.add(Collections.singletonList(shard("shard-0", null)));
+        kinesis.listings.add(SdkClientException.builder().message("Unable to execute HTTP request").build());
+
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        try (KinesisShardConsumer consumer = new KinesisShardConsumer(kinesis.client, "stream",
+                (shardId, record) -> handled.add(shardId + "/" + record.data().asUtf8String()))) {
+            assertEquals(1, consumer.start());
+            await(() -> handled.size() == 4);
+        }
+        assertEquals(Arrays.asList("shard-0/a", "shard-0/b"), handled.subList(0, 2));
+        assertTrue(handled.containsAll(Arrays.asList("shard-1/c", "shard-2/d")));
+    }
+
+    private static Shard shard(String shardId, String parentShardId) {
+        return Shard.builder()
+            .shardId(shardId)
+            .parentShardId(parentShardId)
+            .sequenceNumberRange(SequenceNumberRange.builder().startingSequenceNumber("0").build())
+            .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    // A KinesisClient that serves shards held in memory, two records per read. An iterator is "shardId:position".
+    private static class StubKinesis implements InvocationHandler {
+        // Queued in place of a failure when a call should succeed.
+        private static final RuntimeException SUCCEED = new RuntimeException();
+
+        private final KinesisClient client = (KinesisClient) Proxy.newProxyInstance(
+            KinesisClient.class.getClassLoader(), new Class<?>[]{KinesisClient.class}, this);
+        private final Map<String, List<Record>> records = new HashMap<>();
+        private final List<Shard> shards = new ArrayList<>();
+        private final List<String> closedShards = new ArrayList<>();
+        // Each call takes the next failure, if any, and throws it.
+        private final Queue<RuntimeException> getRecordsFailures = new ConcurrentLinkedQueue<>();
+        private final Queue<RuntimeException> getIteratorFailures = new ConcurrentLinkedQueue<>();
+        // Each ListShards call takes the next listing or failure. When there are none left, every shard is listed.
+        private final Queue<Object> listings = new ConcurrentLinkedQueue<>();
+        // The type of each GetShardIterator call, including the ones that fail.
+        private final List<ShardIteratorType> iteratorTypes = Collections.synchronizedList(new ArrayList<>());
+
+        private void addShard(Shard shard, String... data) {
+            List<Record> shardRecords = new ArrayList<>();
+            for (String item : data) {
+                shardRecords.add(Record.builder()
+                    .sequenceNumber(shard.shardId() + "-" + shardRecords.size())
+                    .partitionKey("key")
+                    .data(SdkBytes.fromUtf8String(item))
+                    .build());
+            }
+            records.put(shard.shardId(), shardRecords);
+            shards.add(shard);
+        }
+
+        private void closeShard(String shardId) {
+            closedShards.add(shardId);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "listShards":
+                    return listShards();
+                case "getShardIterator":
+                    iteratorTypes.add(((GetShardIteratorRequest) args[0]).shardIteratorType());
+                    fail(getIteratorFailures);
+                    return getShardIterator((GetShardIteratorRequest) args[0]);
+                case "getRecords":
+                    fail(getRecordsFailures);
+                    return getRecords((GetRecordsRequest) args[0]);
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private static void fail(Queue<RuntimeException> failures) {
+            RuntimeException failure = failures.poll();
+            if (failure != null && failure != SUCCEED) {
+                throw failure;
+            }
+        }
+
+        private ListShardsResponse listShards() {
+            Object listing = listings.poll();
+            if (listing instanceof RuntimeException) {
+                throw (RuntimeException) listing;
+            }
+            @SuppressWarnings("unchecked")
+            List<Shard> listed = listing == null ? shards : (List<Shard>) listing;
+            return ListShardsResponse.builder().shards(listed).build();
+        }
+
+        private GetShardIteratorResponse getShardIterator(GetShardIteratorRequest request) {
+            int position = 0;
+            if (request.shardIteratorType() == ShardIteratorType.AFTER_SEQUENCE_NUMBER) {
+                String sequenceNumber = request.startingSequenceNumber();
+                position = Integer.parseInt(sequenceNumber.substring(sequenceNumber.lastIndexOf('-') + 1)) + 1;
+            }
+            // LATEST starts at the first record too, because the records are written after the consumer starts.
+            return GetShardIteratorResponse.builder().shardIterator(request.shardId() + ":" + position).build();
+        }
+
+        private GetRecordsResponse getRecords(GetRecordsRequest request) {
+            String shardId = request.shardIterator().substring(0, request.shardIterator().indexOf(':'));
+            int position = Integer.parseInt(request.shardIterator().substring(shardId.length() + 1));
+            List<Record> shardRecords = records.get(shardId);
+            int end = Math.min(position + 2, shardRecords.size());
+            boolean ended = end == shardRecords.size() && closedShards.contains(shardId);
+            return GetRecordsResponse.builder()
+                .records(new ArrayList<>(shardRecords.subList(position, end)))
+                .nextShardIterator(ended ? null : shardId + ":" + end)
+                .build();
+        }
+    }
+}
@@ -3,6 +3,7 @@
    SPDX-License-Identifier: Apache-2.0
 */
 import com.example.rekognition.AddFacesToCollection;
+import com.example.rekognition.BoundingBoxRenderer;
 import com.example.rekognition.CelebrityInfo;
 import com.example.rekognition.CompareFaces;
 import com.example.rekognition.CreateCollection;
@@ -13,14 +14,20 @@ import com.example.rekognition.DetectLabels;
 import com.example.rekognition.DetectModerationLabels;
 import com.example.rekognition.DetectPPE;
 import com.example.rekognition.DetectText;
+import com.example.rekognition.FrameTimeline;
+import com.example.rekognition.ImageBatchAnalyzer;
+import com.example.rekognition.LatencyHistogram;
 import com.example.rekognition.ListCollections;
 import com.example.rekognition.ListFacesInCollection;
 import com.example.rekognition.RecognizeCelebrities;
 import com.example.rekognition.SearchFaceMatchingImageCollection;
+import com.example.rekognition.StreamProcessorHarness;
 import com.example.rekognition.VideoDetectFaces;
 import com.example.rekognition.VideoDetectInappropriate;
 import com.example.rekognition.VideoDetectText;
 import com.example.rekognition.VideoPersonDetection;
+import com.example.rekognition.VideoResultStream;
+import com.example.rekognition.VideoTimeIndex;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -39,7 +46,22 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * To run these integration tests, you must set the required values
@@ -300,6 +322,107 @@ public class RekognitionTest {
         assertDoesNotThrow(() ->DeleteCollection.deleteMyCollection(rekClient, collectionName));
         System.out.println("Test 19 passed");
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(20)
+    public void VideoResultStream() {
+        // Three pages of 1000 detections, one label every 100 ms, served by a fake fetcher.
+        String[] names = {"Person", "Car", "Tree"};
+        VideoResultStream.PageFetcher<long[]> fetcher = (nextToken, maxResults) -> {
+            int page = nextToken == null ? 0 : Integer.parseInt(nextToken);
+            List<long[]> items = new ArrayList<>();
+            for (int i = 0; i < maxResults; i++) {
+                long n = (long) page * maxResults + i;
+                items.add(new long[] {n * 100, n % names.length});
+            }
+            return new VideoResultStream.Page<>("SUCCEEDED", null, items, page < 2 ? Integer.toString(page + 1) : null,
+                Collections.emptyList());
+        };
+
+        VideoTimeIndex index = VideoTimeIndex.of(VideoResultStream.open(fetcher), item -> item[0],
+            item -> names[(int) item[1]]);
+        assertEquals(3000, index.size());
+        assertEquals(Arrays.asList(names), index.getLabels());
+
+        Map<String, Integer> firstSecond = index.labelsBetween(0, 1000);
+        assertEquals(Integer.valueOf(4), firstSecond.get("Person"));
+        assertEquals(Integer.valueOf(3), firstSecond.get("Car"));
+        assertArrayEquals(new long[] {100, 400, 700}, index.timesOf("Car", 0, 1000));
+        System.out.println("Test 20 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(21)
+    public void ImageBatchAnalyzer() throws Exception {
+        // The same image submitted twice is sent to Amazon Rekognition once.
+        try (ImageBatchAnalyzer analyzer = new ImageBatchAnalyzer(rekClient, ImageBatchAnalyzer.Analysis.FACES_AND_LABELS,
+                5, 4, 1920, 100)) {
+            ImageBatchAnalyzer.ImageInput input = ImageBatchAnalyzer.ImageInput.ofFile(Paths.get(facesImage));
+            CompletableFuture<ImageBatchAnalyzer.AnalysisResult> first = analyzer.analyze(input);
+            CompletableFuture<ImageBatchAnalyzer.AnalysisResult> second = analyzer.analyze(input);
+            assertEquals(first.get().getContentHash(), second.get().getContentHash());
+            assertEquals("Images: 2, duplicates: 1, API calls: 2, downscaled: 0", analyzer.getStats());
+        }
+        System.out.println("Test 21 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(22)
+    public void BoundingBoxRenderer() throws Exception {
+        // Renders 50 copies of a synthetic image to thumbnails on four threads.
+        BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", source);
+        List<BoundingBoxRenderer.Annotation> annotations = Collections.singletonList(
+            new BoundingBoxRenderer.Annotation(0.25f, 0.25f, 0.5f, 0.5f, Color.GREEN, "Face"));
+
+        List<BoundingBoxRenderer.RenderTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new BoundingBoxRenderer.RenderTask("image-" + i, source.toByteArray(), annotations));
+        }
+
+        Map<String, byte[]> rendered = new ConcurrentHashMap<>();
+        try (BoundingBoxRenderer renderer = new BoundingBoxRenderer("png", 400, 4)) {
+            int count = renderer.renderAll(tasks.iterator(),
+                (name, format, data, length) -> rendered.put(name, Arrays.copyOf(data, length)));
+            assertEquals(50, count);
+        }
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(rendered.get("image-7")));
+        assertEquals(400, thumbnail.getWidth());
+        assertEquals(300, thumbnail.getHeight());
+        assertEquals(Color.GREEN.getRGB(), thumbnail.getRGB(100, 150));
+        System.out.println("Test 22 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(23)
+    public void StreamProcessorHarness() throws Exception {
+        // Frames every 200 ms in a timeline that remembers the last 8.
+        FrameTimeline timeline = new FrameTimeline(8);
+        for (int i = 0; i < 20; i++) {
+            timeline.record(1_000_000 + i * 200L, i);
+        }
+        assertEquals(19, timeline.sentNanosAt(1_003_800));
+        assertEquals(15, timeline.sentNanosAt(1_003_050));
+        assertEquals(-1, timeline.sentNanosAt(1_000_400));
+
+        String result = "{\"InputInformation\":{\"KinesisVideo\":{\"ProducerTimestamp\":1000.5,"
+            + "\"FrameOffsetInSeconds\":2.25}},\"FaceSearchResponse\":[]}";
+        assertEquals(1_002_750, StreamProcessorHarness.frameTimestampMillis(result));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.recordNanos(millis * 1_000_000L);
+        }
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 * 0.02);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 * 0.02);
+        System.out.println("Test 23 passed");
+    }
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
             .region(Region.US_EAST_1)
@@ -0,0 +1,60 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.rekognition.VideoResultStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.services.rekognition.model.AccessDeniedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Timeout(30)
+public class VideoResultStreamTest {
+
+    @Test
+    public void streamOpensOnceTheJobFinishes() {
+        // The job is still running for the first two requests.
+        AtomicInteger requests = new AtomicInteger();
+        VideoResultStream.PageFetcher<String> fetcher = (nextToken, maxResults) -> {
+            if (requests.incrementAndGet() <= 2) {
+                return new VideoResultStream.Page<>("IN_PROGRESS", null, Collections.emptyList(), null,
+                    Collections.emptyList());
+            }
+            return new VideoResultStream.Page<>("SUCCEEDED", null, Arrays.asList("a", "b"), null,
+                Collections.emptyList());
+        };
+
+        List<String> items = new ArrayList<>();
+        try (VideoResultStream<String> stream = VideoResultStream.open(fetcher)) {
+            stream.forEachRemaining(items::add);
+        }
+        assertEquals(Arrays.asList("a", "b"), items);
+    }
+
+    @Test
+    public void errorReadingTheJobStatusIsThrown() {
+        // The job is running when the stream is opened, and then the role loses access to it.
+        AccessDeniedException error = AccessDeniedException.builder()
+            .message("User is not authorized to perform: rekognition:GetLabelDetection")
+            .statusCode(400)
+            .build();
+        AtomicInteger requests = new AtomicInteger();
+        VideoResultStream.PageFetcher<String> fetcher = (nextToken, maxResults) -> {
+            if (requests.incrementAndGet() == 1) {
+                return new VideoResultStream.Page<>("IN_PROGRESS", null, Collections.emptyList(), null,
+                    Collections.emptyList());
+            }
+            throw error;
+        };
+
+        assertSame(error, assertThrows(AccessDeniedException.class, () -> VideoResultStream.open(fetcher)));
+        assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,359 @@
+//snippet-sourcedescription:[BatchedSqsProducer.java demonstrates how to buffer messages per queue and send them to Amazon Simple Queue Service (Amazon SQS) in batches.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Simple Queue Service]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.sqs;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages to Amazon SQS queues by using SendMessageBatch.
+ *
+ * Messages are buffered per queue and sent when a batch reaches 10 entries or 256 KB,
+ * or when the linger timeout expires. Queue URLs are looked up once and cached.
+ * Entries that fail with a service-side error are retried individually, and the
+ * number of batches in flight is bounded so that callers are slowed down instead of
+ * growing an unbounded backlog. Every returned future completes, either with the
+ * message ID or with the error that stopped the message from being sent.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class BatchedSqsProducer implements AutoCloseable {
+
+    // Service limits for SendMessageBatch.
+    private static final int MAX_BATCH_ENTRIES = 10;
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    private final SqsClient sqsClient;
+    private final long lingerMillis;
+    private final int maxAttempts;
+    private final Semaphore inFlightBatches;
+    private final ExecutorService senderPool;
+    private final ScheduledExecutorService lingerTimer;
+    private final Map<String, String> queueUrls = new ConcurrentHashMap<>();
+    private final Map<String, QueueBuffer> buffers = new ConcurrentHashMap<>();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+
+    public static void main(String[] args) throws InterruptedException {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <queueName> <message> <count>\n\n" +
+            "Where:\n" +
+            "   queueName - The name of an existing queue.\n\n" +
+            "   message - The message to send.\n\n" +
+            "   count - The number of copies of the message to send.\n\n";
+
+        if (args.length != 3) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String queueName = args[0];
+        String message = args[1];
+        int count = Integer.parseInt(args[2]);
+        SqsClient sqsClient = SqsClient.builder()
+            .region(Region.US_WEST_2)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        try (BatchedSqsProducer producer = new BatchedSqsProducer(sqsClient, 20, 8, 3)) {
+            for (int i = 0; i < count; i++) {
+                results.add(producer.send(queueName, message));
+            }
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        System.out.println("Sent " + results.size() + " messages to " + queueName);
+        sqsClient.close();
+    }
+
+    /**
+     * Creates a producer.
+     *
+     * @param sqsClient          the client used for all calls; it is not closed by this producer.
+     * @param lingerMillis       how long a partially filled batch waits for more messages.
+     * @param maxInFlightBatches the maximum number of SendMessageBatch calls running at once.
+     * @param maxAttempts        how many times a single entry is sent before it is reported as failed.
+     */
+    public BatchedSqsProducer(SqsClient sqsClient, long lingerMillis, int maxInFlightBatches, int maxAttempts) {
+        this.sqsClient = sqsClient;
+        this.lingerMillis = lingerMillis;
+        this.maxAttempts = maxAttempts;
+        this.inFlightBatches = new Semaphore(maxInFlightBatches);
+        this.senderPool = Executors.newFixedThreadPool(maxInFlightBatches);
+        this.lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sqs-producer-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Buffers a message for the named queue.
+     *
+     * @return a future that completes with the Amazon SQS message ID once the message is sent.
+     */
+    public CompletableFuture<String> send(String queueName, String messageBody) throws InterruptedException {
+        PendingMessage message = new PendingMessage(messageBody);
+        if (message.size > MAX_BATCH_BYTES) {
+            message.result.completeExceptionally(
+                new IllegalArgumentException("Message exceeds " + MAX_BATCH_BYTES + " bytes"));
+            return message.result;
+        }
+
+        String queueUrl = getQueueUrl(queueName);
+        QueueBuffer buffer = buffers.computeIfAbsent(queueUrl, QueueBuffer::new);
+        for (List<PendingMessage> ready : buffer.add(message)) {
+            dispatch(queueUrl, ready);
+        }
+        return message.result;
+    }
+
+    /**
+     * Sends all buffered messages without waiting for the linger timeout.
+     */
+    public void flush() throws InterruptedException {
+        for (QueueBuffer buffer : buffers.values()) {
+            List<PendingMessage> ready = buffer.drain();
+            if (ready != null) {
+                dispatch(buffer.queueUrl, ready);
+            }
+        }
+    }
+
+    /**
+     * Flushes buffered messages and waits for all batches in flight to finish.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        // Stop the timer first, so that no linger flush hands a batch to the closed sender pool.
+        lingerTimer.shutdownNow();
+        lingerTimer.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+        senderPool.shutdown();
+        senderPool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns the number of SendMessageBatch requests made so far, including retries.
+     */
+    public int getBatchRequests() {
+        return batchRequests.get();
+    }
+
+    private String getQueueUrl(String queueName) {
+        return queueUrls.computeIfAbsent(queueName, name -> sqsClient.getQueueUrl(GetQueueUrlRequest.builder()
+                .queueName(name)
+                .build())
+            .queueUrl());
+    }
+
+    private void dispatch(String queueUrl, List<PendingMessage> batch) throws InterruptedException {
+        inFlightBatches.acquire();
+        try {
+            senderPool.execute(() -> {
+                try {
+                    sendBatch(queueUrl, batch);
+                } finally {
+                    inFlightBatches.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightBatches.release();
+            fail(batch, e);
+            throw e;
+        }
+    }
+
+    // Hands a batch to the sender pool without waiting for an in-flight permit. The pool has one
+    // thread per permit, so the batch still waits its turn there, but the caller isn't blocked.
+    private void dispatchLater(String queueUrl, List<PendingMessage> batch) {
+        try {
+            senderPool.execute(() -> sendBatch(queueUrl, batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void sendBatch(String queueUrl, List<PendingMessage> batch) {
+        try {
+            sendWithRetry(queueUrl, batch);
+        } catch (RuntimeException | Error e) {
+            fail(batch, e);
+            throw e;
+        }
+    }
+
+    // Completes the futures that aren't complete yet; the others keep their results.
+    private static void fail(List<PendingMessage> batch, Throwable cause) {
+        for (PendingMessage message : batch) {
+            message.result.completeExceptionally(cause);
+        }
+    }
+
+    private void sendWithRetry(String queueUrl, List<PendingMessage> batch) {
+        List<PendingMessage> remaining = batch;
+        long backoffMillis = 50;
+        while (!remaining.isEmpty()) {
+            List<PendingMessage> retry = new ArrayList<>();
+            try {
+                List<SendMessageBatchRequestEntry> entries = new ArrayList<>(remaining.size());
+                for (int i = 0; i < remaining.size(); i++) {
+                    remaining.get(i).attempts++;
+                    entries.add(SendMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .messageBody(remaining.get(i).body)
+                        .build());
+                }
+
+                batchRequests.incrementAndGet();
+                SendMessageBatchResponse response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+
+                for (SendMessageBatchResultEntry entry : response.successful()) {
+                    remaining.get(Integer.parseInt(entry.id())).result.complete(entry.messageId());
+                }
+
+                for (BatchResultErrorEntry entry : response.failed()) {
+                    PendingMessage message = remaining.get(Integer.parseInt(entry.id()));
+                    if (entry.senderFault() || message.attempts >= maxAttempts) {
+                        message.result.completeExceptionally(
+                            new IllegalStateException(entry.code() + ": " + entry.message()));
+                    } else {
+                        retry.add(message);
+                    }
+                }
+
+            } catch (SdkException e) {
+                // Service errors and client errors, such as a timeout, are retried as a whole batch.
+                for (PendingMessage message : remaining) {
+                    if (message.attempts >= maxAttempts) {
+                        message.result.completeExceptionally(e);
+                    } else {
+                        retry.add(message);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Any other failure isn't going to go away on a retry.
+                fail(remaining, e);
+                return;
+            }
+
+            remaining = retry;
+            if (!remaining.isEmpty()) {
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(remaining, e);
+                    return;
+                }
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private static class PendingMessage {
+        private final String body;
+        private final int size;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private int attempts;
+
+        private PendingMessage(String body) {
+            this.body = body;
+            this.size = body.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    // Holds the messages waiting to be sent to one queue.
+    private class QueueBuffer {
+        private final String queueUrl;
+        private List<PendingMessage> messages = new ArrayList<>(MAX_BATCH_ENTRIES);
+        private int bytes;
+        private ScheduledFuture<?> lingerTask;
+
+        private QueueBuffer(String queueUrl) {
+            this.queueUrl = queueUrl;
+        }
+
+        // Adds a message and returns the batches that are ready to send.
+        private synchronized List<List<PendingMessage>> add(PendingMessage message) {
+            List<List<PendingMessage>> ready = new ArrayList<>(2);
+            if (bytes + message.size > MAX_BATCH_BYTES) {
+                ready.add(drain());
+            }
+
+            messages.add(message);
+            bytes += message.size;
+            if (messages.size() == MAX_BATCH_ENTRIES) {
+                ready.add(drain());
+            } else if (lingerTask == null) {
+                lingerTask = lingerTimer.schedule(this::onLinger, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+            return ready;
+        }
+
+        private synchronized List<PendingMessage> drain() {
+            if (lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+            if (messages.isEmpty()) {
+                return null;
+            }
+            List<PendingMessage> batch = messages;
+            messages = new ArrayList<>(MAX_BATCH_ENTRIES);
+            bytes = 0;
+            return batch;
+        }
+
+        private void onLinger() {
+            List<PendingMessage> ready;
+            synchronized (this) {
+                // Clear the task first so that drain() does not cancel the running timer.
+                lingerTask = null;
+                ready = drain();
+            }
+            // The timer thread is shared by all queues, so it must not wait for an in-flight permit.
+            if (ready != null) {
+                dispatchLater(queueUrl, ready);
+            }
+        }
+    }
+}
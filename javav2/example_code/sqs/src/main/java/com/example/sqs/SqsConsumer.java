@@ -0,0 +1,398 @@
+//snippet-sourcedescription:[SqsConsumer.java demonstrates how to consume messages from an Amazon Simple Queue Service (Amazon SQS) queue with concurrent long polling and batched deletes.]
+//snippet-keyword:[AWS SDK for Java v2]
+//snippet-service:[Amazon Simple Queue Service]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.sqs;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumes messages from an Amazon SQS queue.
+ *
+ * Several threads long poll the queue for up to 10 messages at a time and hand each
+ * message to a worker pool. Messages that the handler acknowledges are deleted with
+ * DeleteMessageBatch, and messages that are still being processed when their visibility
+ * timeout is about to expire are extended with ChangeMessageVisibilityBatch. The number
+ * of messages in flight is bounded, so polling stops while the workers are saturated.
+ * Messages are tracked by receipt handle, so a message that is redelivered while an
+ * earlier copy is still being processed is deleted and extended on its own.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class SqsConsumer implements AutoCloseable {
+
+    private static final int MAX_MESSAGES = 10;
+    private static final int WAIT_TIME_SECONDS = 20;
+    private static final long ERROR_BACKOFF_MILLIS = 1000;
+
+    /**
+     * Processes one message. Returning normally acknowledges the message so that it is deleted;
+     * throwing leaves it on the queue to be redelivered after its visibility timeout.
+     */
+    public interface MessageHandler {
+        void handle(Message message) throws Exception;
+    }
+
+    private final SqsClient sqsClient;
+    private final String queueUrl;
+    private final MessageHandler handler;
+    private final int visibilityTimeoutSeconds;
+    private final Semaphore capacity;
+    private final ExecutorService pollers;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService housekeeping;
+    private final LinkedBlockingQueue<InFlightMessage> pendingDeletes = new LinkedBlockingQueue<>();
+    // Keyed by receipt handle, which is different for every receive of the same message.
+    private final Map<String, InFlightMessage> inFlight = new ConcurrentHashMap<>();
+    private final int pollerCount;
+    private volatile boolean running;
+
+    // Metrics.
+    private final LongAdder received = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private volatile long startNanos;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        final String usage = "\n" +
+            "Usage: " +
+            "   <queueName> <seconds>\n\n" +
+            "Where:\n" +
+            "   queueName - The name of an existing queue.\n\n" +
+            "   seconds - How long to consume messages.\n\n";
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String queueName = args[0];
+        int seconds = Integer.parseInt(args[1]);
+        SqsClient sqsClient = SqsClient.builder()
+            .region(Region.US_WEST_2)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        try (SqsConsumer consumer = new SqsConsumer(sqsClient, queueName, 4, 32, 30,
+            message -> System.out.println("Received " + message.messageId()))) {
+            consumer.start();
+            Thread.sleep(seconds * 1000L);
+            System.out.println(consumer.getMetrics());
+        }
+        sqsClient.close();
+    }
+
+    /**
+     * Creates a consumer. Call {@link #start()} to begin polling.
+     *
+     * @param sqsClient                the client used for all calls; it is not closed by this consumer.
+     * @param queueName                the name of the queue to consume.
+     * @param pollerCount              the number of concurrent long-poll loops.
+     * @param workerCount              the number of threads that run the handler.
+     * @param visibilityTimeoutSeconds the visibility timeout to request and to extend by.
+     * @param handler                  the message handler.
+     */
+    public SqsConsumer(SqsClient sqsClient, String queueName, int pollerCount, int workerCount,
+                       int visibilityTimeoutSeconds, MessageHandler handler) {
+        this.sqsClient = sqsClient;
+        this.queueUrl = sqsClient.getQueueUrl(GetQueueUrlRequest.builder()
+                .queueName(queueName)
+                .build())
+            .queueUrl();
+        this.handler = handler;
+        this.pollerCount = pollerCount;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+
+        // Leave room for one full receive beyond the workers so that they do not idle between polls.
+        this.capacity = new Semaphore(workerCount + MAX_MESSAGES);
+        this.pollers = Executors.newFixedThreadPool(pollerCount);
+        this.workers = Executors.newFixedThreadPool(workerCount);
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    public void start() {
+        running = true;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < pollerCount; i++) {
+            pollers.execute(this::pollLoop);
+        }
+        housekeeping.scheduleWithFixedDelay(this::flushDeletes, 100, 100, TimeUnit.MILLISECONDS);
+        long extendPeriod = Math.max(1, visibilityTimeoutSeconds / 3);
+        housekeeping.scheduleWithFixedDelay(this::extendVisibility, extendPeriod, extendPeriod, TimeUnit.SECONDS);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public Metrics getMetrics() {
+        long count = processed.sum();
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return new Metrics(received.sum(), count, failed.sum(), inFlight.size(),
+            count == 0 ? 0 : totalLatencyNanos.sum() / count / 1_000_000.0,
+            maxLatencyNanos.get() / 1_000_000.0,
+            elapsedSeconds <= 0 ? 0 : count / elapsedSeconds);
+    }
+
+    /**
+     * Stops polling, waits for the workers to finish, and deletes any remaining acknowledged messages.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        pollers.shutdown();
+        if (!pollers.awaitTermination(WAIT_TIME_SECONDS + 5, TimeUnit.SECONDS)) {
+            pollers.shutdownNow();
+        }
+        workers.shutdown();
+        workers.awaitTermination(visibilityTimeoutSeconds, TimeUnit.SECONDS);
+        housekeeping.shutdown();
+        housekeeping.awaitTermination(10, TimeUnit.SECONDS);
+        flushDeletes();
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                capacity.acquire(MAX_MESSAGES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            List<Message> messages;
+            try {
+                messages = sqsClient.receiveMessage(ReceiveMessageRequest.builder()
+                        .queueUrl(queueUrl)
+                        .maxNumberOfMessages(MAX_MESSAGES)
+                        .waitTimeSeconds(WAIT_TIME_SECONDS)
+                        .visibilityTimeout(visibilityTimeoutSeconds)
+                        .build())
+                    .messages();
+            } catch (RuntimeException e) {
+                // Keep polling after any failure, such as a network error, but not in a tight loop.
+                System.err.println("Receive failed: " + e.getMessage());
+                capacity.release(MAX_MESSAGES);
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+
+            // Give back the permits that this receive didn't use.
+            capacity.release(MAX_MESSAGES - messages.size());
+            received.add(messages.size());
+            for (Message message : messages) {
+                submit(new InFlightMessage(message));
+            }
+        }
+    }
+
+    private void submit(InFlightMessage entry) {
+        inFlight.put(entry.message.receiptHandle(), entry);
+        try {
+            workers.execute(() -> process(entry));
+        } catch (RejectedExecutionException e) {
+            // The consumer is closing; the message becomes visible again after its timeout.
+            inFlight.remove(entry.message.receiptHandle());
+            capacity.release();
+        }
+    }
+
+    private void process(InFlightMessage entry) {
+        try {
+            handler.handle(entry.message);
+            pendingDeletes.add(entry);
+            processed.increment();
+            long latency = System.nanoTime() - entry.receivedNanos;
+            totalLatencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        } catch (Exception e) {
+            // Leave the message on the queue; it becomes visible again after its timeout.
+            inFlight.remove(entry.message.receiptHandle());
+            failed.increment();
+        } finally {
+            capacity.release();
+        }
+    }
+
+    private void flushDeletes() {
+        List<InFlightMessage> acknowledged = new ArrayList<>(MAX_MESSAGES);
+        while (pendingDeletes.drainTo(acknowledged, MAX_MESSAGES) > 0) {
+            // Batch entry IDs only need to be unique within the request, and the same message
+            // can be in it twice if it was redelivered, so the position in the batch is used.
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(acknowledged.size());
+            for (int i = 0; i < acknowledged.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .receiptHandle(acknowledged.get(i).message.receiptHandle())
+                    .build());
+            }
+
+            try {
+                DeleteMessageBatchResponse response = sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+                for (BatchResultErrorEntry result : response.failed()) {
+                    InFlightMessage entry = acknowledged.get(Integer.parseInt(result.id()));
+                    System.err.println("Delete failed for " + entry.message.messageId() + ": " + result.message());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Delete failed: " + e.getMessage());
+            }
+
+            // Failed deletes are redelivered later, so there is no point in extending them.
+            for (InFlightMessage entry : acknowledged) {
+                inFlight.remove(entry.message.receiptHandle(), entry);
+            }
+            acknowledged.clear();
+        }
+    }
+
+    private void extendVisibility() {
+        // Extend anything that has less than half of its visibility window left.
+        long window = TimeUnit.SECONDS.toNanos(visibilityTimeoutSeconds);
+        long now = System.nanoTime();
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(MAX_MESSAGES);
+        for (InFlightMessage entry : inFlight.values()) {
+            if (entry.visibleFromNanos - now < window / 2) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                    .id(Integer.toString(entries.size()))
+                    .receiptHandle(entry.message.receiptHandle())
+                    .visibilityTimeout(visibilityTimeoutSeconds)
+                    .build());
+                entry.visibleFromNanos = now + window;
+                if (entries.size() == MAX_MESSAGES) {
+                    changeVisibility(entries);
+                    entries = new ArrayList<>(MAX_MESSAGES);
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            changeVisibility(entries);
+        }
+    }
+
+    private void changeVisibility(List<ChangeMessageVisibilityBatchRequestEntry> entries) {
+        try {
+            sqsClient.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder()
+                .queueUrl(queueUrl)
+                .entries(entries)
+                .build());
+        } catch (RuntimeException e) {
+            // An uncaught exception would cancel the scheduled task, so report it and try again later.
+            System.err.println("Visibility change failed: " + e.getMessage());
+        }
+    }
+
+    private class InFlightMessage {
+        private final Message message;
+        private final long receivedNanos = System.nanoTime();
+
+        // When the message becomes visible to other consumers again.
+        private volatile long visibleFromNanos = receivedNanos + TimeUnit.SECONDS.toNanos(visibilityTimeoutSeconds);
+
+        private InFlightMessage(Message message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * A snapshot of the consumer counters.
+     */
+    public static class Metrics {
+        private final long received;
+        private final long processed;
+        private final long failed;
+        private final int inFlight;
+        private final double averageLatencyMillis;
+        private final double maxLatencyMillis;
+        private final double messagesPerSecond;
+
+        Metrics(long received, long processed, long failed, int inFlight, double averageLatencyMillis,
+                double maxLatencyMillis, double messagesPerSecond) {
+            this.received = received;
+            this.processed = processed;
+            this.failed = failed;
+            this.inFlight = inFlight;
+            this.averageLatencyMillis = averageLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+            this.messagesPerSecond = messagesPerSecond;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public double getAverageLatencyMillis() {
+            return averageLatencyMillis;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+
+        public double getMessagesPerSecond() {
+            return messagesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("received=%d processed=%d failed=%d inFlight=%d avgLatencyMs=%.1f " +
+                    "maxLatencyMs=%.1f throughput=%.1f msg/s",
+                received, processed, failed, inFlight, averageLatencyMillis, maxLatencyMillis, messagesPerSecond);
+        }
+    }
+}
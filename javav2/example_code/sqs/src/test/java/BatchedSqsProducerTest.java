@@ -0,0 +1,171 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.sqs.BatchedSqsProducer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Timeout(30)
+public class BatchedSqsProducerTest {
+
+    @Test
+    public void fullBatchesAreSentAndTheRestIsFlushedOnClose() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        BatchedSqsProducer producer = new BatchedSqsProducer(sqs.client, 60_000, 4, 3);
+        for (int i = 0; i < 25; i++) {
+            results.add(producer.send("queue", "message-" + i));
+        }
+        producer.close();
+
+        assertEquals(3, producer.getBatchRequests());
+        assertEquals(Arrays.asList(5, 10, 10), sqs.sortedBatchSizes());
+        for (int i = 0; i < 25; i++) {
+            assertEquals("id-message-" + i, results.get(i).get());
+        }
+    }
+
+    @Test
+    public void partialBatchIsSentWhenTheLingerTimeoutExpires() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        try (BatchedSqsProducer producer = new BatchedSqsProducer(sqs.client, 20, 1, 3)) {
+            CompletableFuture<String> first = producer.send("queue", "a");
+            CompletableFuture<String> second = producer.send("queue", "b");
+
+            assertEquals("id-a", first.get(10, TimeUnit.SECONDS));
+            assertEquals("id-b", second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, producer.getBatchRequests());
+        }
+    }
+
+    @Test
+    public void failedEntriesAreRetriedAndSenderFaultsAreNot() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failOnce.add("throttled");
+        sqs.senderFaults.add("bad");
+        BatchedSqsProducer producer = new BatchedSqsProducer(sqs.client, 60_000, 1, 3);
+        CompletableFuture<String> throttled = producer.send("queue", "throttled");
+        CompletableFuture<String> bad = producer.send("queue", "bad");
+        CompletableFuture<String> good = producer.send("queue", "good");
+        producer.close();
+
+        assertEquals(2, producer.getBatchRequests());
+        assertEquals(Arrays.asList(1, 3), sqs.sortedBatchSizes());
+        assertEquals("id-throttled", throttled.get());
+        assertEquals("id-good", good.get());
+        ExecutionException e = assertThrows(ExecutionException.class, bad::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    public void clientErrorsFailEveryEntryAfterTheLastAttempt() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failure = SdkClientException.builder().message("Unable to connect").build();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        BatchedSqsProducer producer = new BatchedSqsProducer(sqs.client, 60_000, 1, 3);
+        for (int i = 0; i < 12; i++) {
+            results.add(producer.send("queue", "message-" + i));
+        }
+        producer.close();
+
+        // The full batch and the flushed batch are each sent three times.
+        assertEquals(6, producer.getBatchRequests());
+        for (CompletableFuture<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(SdkClientException.class, e.getCause());
+        }
+    }
+
+    @Test
+    public void unexpectedErrorsFailEveryEntryWithoutRetrying() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failure = new IllegalArgumentException("Unexpected");
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        try (BatchedSqsProducer producer = new BatchedSqsProducer(sqs.client, 20, 1, 3)) {
+            for (int i = 0; i < 3; i++) {
+                results.add(producer.send("queue", "message-" + i));
+            }
+            for (CompletableFuture<String> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            }
+            assertEquals(1, producer.getBatchRequests());
+        }
+    }
+
+    // An SqsClient that answers every entry with "id-" plus its body, unless told otherwise.
+    private static class RecordingSqs implements InvocationHandler {
+        private final SqsClient client = (SqsClient) Proxy.newProxyInstance(SqsClient.class.getClassLoader(),
+            new Class<?>[]{SqsClient.class}, this);
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> failOnce = Collections.synchronizedSet(new HashSet<>());
+        private final Set<String> senderFaults = new HashSet<>();
+        private volatile RuntimeException failure;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getQueueUrl":
+                    return GetQueueUrlResponse.builder().queueUrl("https://sqs.example/queue").build();
+                case "sendMessageBatch":
+                    return sendMessageBatch((SendMessageBatchRequest) args[0]);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+            batchSizes.add(request.entries().size());
+            if (failure != null) {
+                throw failure;
+            }
+
+            List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            for (SendMessageBatchRequestEntry entry : request.entries()) {
+                String body = entry.messageBody();
+                if (senderFaults.contains(body)) {
+                    failed.add(BatchResultErrorEntry.builder().id(entry.id()).senderFault(true)
+                        .code("InvalidMessageContents").message("Rejected").build());
+                } else if (failOnce.remove(body)) {
+                    failed.add(BatchResultErrorEntry.builder().id(entry.id()).senderFault(false)
+                        .code("ServiceUnavailable").message("Try again").build());
+                } else {
+                    successful.add(SendMessageBatchResultEntry.builder().id(entry.id()).messageId("id-" + body).build());
+                }
+            }
+            return SendMessageBatchResponse.builder().successful(successful).failed(failed).build();
+        }
+
+        // The batches run on several threads, so they are compared without their order.
+        private List<Integer> sortedBatchSizes() {
+            List<Integer> sizes = new ArrayList<>(batchSizes);
+            Collections.sort(sizes);
+            return sizes;
+        }
+    }
+}
@@ -8,8 +8,10 @@ import com.example.sqs.LongPolling;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
@@ -19,6 +21,7 @@ import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import com.example.sqs.*;
 
 /**
@@ -136,9 +139,52 @@ public class SQSIntegrationTest {
     @Test
     @Tag("IntegrationTest")
     @Order(8)
+    public void BatchedSqsProducer() {
+        assertDoesNotThrow(() -> {
+            // The linger timeout is long enough that only the last five messages wait for close().
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            BatchedSqsProducer producer = new BatchedSqsProducer(sqsClient, 60_000, 4, 3);
+            for (int i = 0; i < 25; i++) {
+                results.add(producer.send(queueName, message));
+            }
+            producer.close();
+
+            assertEquals(3, producer.getBatchRequests());
+            Set<String> messageIds = new HashSet<>();
+            for (CompletableFuture<String> result : results) {
+                messageIds.add(result.get());
+            }
+            assertEquals(25, messageIds.size());
+        });
+        System.out.println("Test 8 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(9)
+    public void SqsConsumer() {
+        assertDoesNotThrow(() -> {
+            // The queue still holds the messages that the earlier tests sent.
+            SqsConsumer consumer = new SqsConsumer(sqsClient, queueName, 2, 4, 30, msg -> { });
+            consumer.start();
+            Thread.sleep(5000);
+            consumer.close();
+
+            SqsConsumer.Metrics metrics = consumer.getMetrics();
+            assertTrue(metrics.getReceived() > 0);
+            assertEquals(metrics.getReceived(), metrics.getProcessed());
+            assertEquals(0, metrics.getFailed());
+            assertEquals(0, metrics.getInFlight());
+        });
+        System.out.println("Test 9 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(10)
     public void DeleteQueue() {
         assertDoesNotThrow(() ->DeleteQueue.deleteSQSQueue(sqsClient, queueName));
-        System.out.println("Test 8 passed");
+        System.out.println("Test 10 passed");
     }
 
     private static String getSecretValues() {
@@ -0,0 +1,164 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.sqs.SqsConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(60)
+public class SqsConsumerTest {
+
+    @Test
+    public void acknowledgedMessagesAreDeletedAndFailedOnesAreNot() throws Exception {
+        StubSqs sqs = new StubSqs();
+        Set<String> expectedDeletes = new HashSet<>();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String body = (i % 5 == 0 ? "fail-" : "ok-") + i;
+            messages.add(message("message-" + i, "handle-" + i, body));
+            if (i % 5 != 0) {
+                expectedDeletes.add("handle-" + i);
+            }
+        }
+        sqs.receives.add(messages.subList(0, 10));
+        sqs.receives.add(messages.subList(10, 20));
+        sqs.receives.add(messages.subList(20, 25));
+
+        SqsConsumer consumer = new SqsConsumer(sqs.client, "queue", 2, 4, 30, message -> {
+            if (message.body().startsWith("fail-")) {
+                throw new IllegalStateException("Can't process " + message.body());
+            }
+        });
+        consumer.start();
+        await(() -> consumer.getMetrics().getProcessed() + consumer.getMetrics().getFailed() == 25);
+        consumer.close();
+
+        SqsConsumer.Metrics metrics = consumer.getMetrics();
+        assertEquals(25, metrics.getReceived());
+        assertEquals(20, metrics.getProcessed());
+        assertEquals(5, metrics.getFailed());
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(expectedDeletes, new HashSet<>(sqs.deletedHandles));
+        assertEquals(20, sqs.deletedHandles.size());
+    }
+
+    @Test
+    public void pollingContinuesAfterAReceiveFails() throws Exception {
+        StubSqs sqs = new StubSqs();
+        sqs.receives.add(SdkClientException.builder().message("Unable to connect").build());
+        sqs.receives.add(new IllegalStateException("Unexpected"));
+        sqs.receives.add(Arrays.asList(message("message-1", "handle-1", "body")));
+
+        SqsConsumer consumer = new SqsConsumer(sqs.client, "queue", 1, 1, 30, message -> { });
+        consumer.start();
+        await(() -> consumer.getMetrics().getProcessed() == 1);
+        consumer.close();
+
+        assertEquals(Arrays.asList("handle-1"), sqs.deletedHandles);
+        assertEquals(0, consumer.getInFlightCount());
+    }
+
+    @Test
+    public void redeliveredMessageIsDeletedWithEachReceiptHandle() throws Exception {
+        StubSqs sqs = new StubSqs();
+        // The same message is received twice before the first copy is acknowledged.
+        sqs.receives.add(Arrays.asList(message("message-1", "handle-1", "body"),
+            message("message-1", "handle-2", "body")));
+
+        SqsConsumer consumer = new SqsConsumer(sqs.client, "queue", 1, 2, 30, message -> { });
+        consumer.start();
+        await(() -> consumer.getMetrics().getProcessed() == 2);
+        consumer.close();
+
+        List<String> deleted = new ArrayList<>(sqs.deletedHandles);
+        Collections.sort(deleted);
+        assertEquals(Arrays.asList("handle-1", "handle-2"), deleted);
+        assertEquals(0, consumer.getInFlightCount());
+    }
+
+    private static Message message(String id, String receiptHandle, String body) {
+        return Message.builder().messageId(id).receiptHandle(receiptHandle).body(body).build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    // An SqsClient whose receives are queued up by the test, and that records every delete.
+    private static class StubSqs implements InvocationHandler {
+        private final SqsClient client = (SqsClient) Proxy.newProxyInstance(SqsClient.class.getClassLoader(),
+            new Class<?>[]{SqsClient.class}, this);
+        // Each item is either the messages of one receive or the exception it throws.
+        private final BlockingQueue<Object> receives = new LinkedBlockingQueue<>();
+        private final List<String> deletedHandles = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+            switch (method.getName()) {
+                case "getQueueUrl":
+                    return GetQueueUrlResponse.builder().queueUrl("https://sqs.example/queue").build();
+                case "receiveMessage":
+                    return receiveMessage();
+                case "deleteMessageBatch":
+                    return deleteMessageBatch((DeleteMessageBatchRequest) args[0]);
+                case "changeMessageVisibilityBatch":
+                    return ChangeMessageVisibilityBatchResponse.builder().build();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private ReceiveMessageResponse receiveMessage() throws InterruptedException {
+            // A short wait stands in for long polling an empty queue.
+            Object next = receives.poll(50, TimeUnit.MILLISECONDS);
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            List<Message> messages = next == null ? Collections.emptyList() : (List<Message>) next;
+            return ReceiveMessageResponse.builder().messages(messages).build();
+        }
+
+        private DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+            Set<String> ids = new HashSet<>();
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+                // Amazon SQS rejects the whole batch if two entries have the same ID.
+                assertTrue(ids.add(entry.id()), "Duplicate batch entry ID " + entry.id());
+                deletedHandles.add(entry.receiptHandle());
+                successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+            }
+            return DeleteMessageBatchResponse.builder().successful(successful).failed(Collections.emptyList()).build();
+        }
+    }
+}
@@ -0,0 +1,399 @@
+// snippet-sourcedescription:[BlockIndex.java is a helper that links the blocks returned by Amazon Textract into a compact index, so that tables and key-value pairs can be extracted from very large documents.]
+// snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Textract]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.textract;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
+import software.amazon.awssdk.services.textract.model.SelectionStatus;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A compact, read-only index of the blocks of an analyzed document.
+ *
+ * Each block is identified by an ordinal, the order in which its ID was first seen, and
+ * its properties are stored in arrays indexed by that ordinal. Relationships are stored
+ * as ordinals too, grouped by block, so following a relationship is an array lookup
+ * instead of a search by string ID. The text of all blocks is kept in one shared buffer.
+ * Block objects aren't kept, so results can be added page by page as they are read, and
+ * a document of thousands of pages takes a few tens of bytes per block.
+ */
+public class BlockIndex {
+
+    private static final BlockType[] BLOCK_TYPES = BlockType.values();
+    private static final RelationshipType[] RELATIONSHIP_TYPES = RelationshipType.values();
+
+    private static final byte ENTITY_KEY = 1;
+    private static final byte ENTITY_VALUE = 2;
+
+    private final int size;
+    private final byte[] types;
+    private final int[] pages;
+    private final int[] rows;
+    private final int[] columns;
+    private final byte[] entities;
+    private final boolean[] selected;
+    private final int[] textStarts;
+    private final int[] textLengths;
+    private final String text;
+
+    // Relationships of block i are at positions relationStarts[i] to relationStarts[i + 1].
+    private final int[] relationStarts;
+    private final int[] relationTargets;
+    private final byte[] relationTypes;
+
+    private final int[] tables;
+    private final int[] keys;
+    private final int pageCount;
+
+    private BlockIndex(Builder builder) {
+        size = builder.size;
+        types = Arrays.copyOf(builder.types, size);
+        pages = Arrays.copyOf(builder.pages, size);
+        rows = Arrays.copyOf(builder.rows, size);
+        columns = Arrays.copyOf(builder.columns, size);
+        entities = Arrays.copyOf(builder.entities, size);
+        selected = Arrays.copyOf(builder.selected, size);
+        textStarts = Arrays.copyOf(builder.textStarts, size);
+        textLengths = Arrays.copyOf(builder.textLengths, size);
+        text = builder.text.toString();
+
+        // Group the relationships by source block with a counting sort.
+        relationStarts = new int[size + 1];
+        for (int i = 0; i < builder.relationCount; i++) {
+            relationStarts[builder.relationSources[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            relationStarts[i + 1] += relationStarts[i];
+        }
+        relationTargets = new int[builder.relationCount];
+        relationTypes = new byte[builder.relationCount];
+        int[] next = Arrays.copyOf(relationStarts, size);
+        for (int i = 0; i < builder.relationCount; i++) {
+            int position = next[builder.relationSources[i]]++;
+            relationTargets[position] = builder.relationTargets[i];
+            relationTypes[position] = builder.relationTypes[i];
+        }
+
+        int tableCount = 0;
+        int keyCount = 0;
+        int maxPage = 0;
+        for (int i = 0; i < size; i++) {
+            if (getType(i) == BlockType.TABLE) {
+                tableCount++;
+            } else if (isKey(i)) {
+                keyCount++;
+            }
+            maxPage = Math.max(maxPage, pages[i]);
+        }
+        tables = new int[tableCount];
+        keys = new int[keyCount];
+        for (int i = 0, t = 0, k = 0; i < size; i++) {
+            if (getType(i) == BlockType.TABLE) {
+                tables[t++] = i;
+            } else if (isKey(i)) {
+                keys[k++] = i;
+            }
+        }
+        pageCount = maxPage;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of blocks.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Returns the type of a block, or null if the block was referred to but never added.
+     */
+    public BlockType getType(int ordinal) {
+        return types[ordinal] < 0 ? null : BLOCK_TYPES[types[ordinal]];
+    }
+
+    public int getPage(int ordinal) {
+        return pages[ordinal];
+    }
+
+    /**
+     * Returns the text of a word or line block, or null if the block has no text.
+     */
+    public String getText(int ordinal) {
+        return textStarts[ordinal] < 0 ? null : text.substring(textStarts[ordinal], textStarts[ordinal] + textLengths[ordinal]);
+    }
+
+    /**
+     * Returns the ordinals of the blocks that a block refers to with the given relationship type.
+     */
+    public int[] getRelated(int ordinal, RelationshipType type) {
+        int start = relationStarts[ordinal];
+        int end = relationStarts[ordinal + 1];
+        int[] related = new int[end - start];
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (RELATIONSHIP_TYPES[relationTypes[i]] == type) {
+                related[count++] = relationTargets[i];
+            }
+        }
+        return count == related.length ? related : Arrays.copyOf(related, count);
+    }
+
+    /**
+     * Returns the ordinals of all TABLE blocks, in document order.
+     */
+    public int[] getTables() {
+        return tables.clone();
+    }
+
+    /**
+     * Returns the cell text of a table by row and column.
+     */
+    public String[][] getTable(int tableOrdinal) {
+        int[] cells = getRelated(tableOrdinal, RelationshipType.CHILD);
+        int rowCount = 0;
+        int columnCount = 0;
+        for (int cell : cells) {
+            rowCount = Math.max(rowCount, rows[cell]);
+            columnCount = Math.max(columnCount, columns[cell]);
+        }
+
+        String[][] table = new String[rowCount][columnCount];
+        for (String[] row : table) {
+            Arrays.fill(row, "");
+        }
+        for (int cell : cells) {
+            if (rows[cell] > 0 && columns[cell] > 0) {
+                table[rows[cell] - 1][columns[cell] - 1] = getContent(cell);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Passes the text of each form key and its value to the consumer, in document order.
+     */
+    public void forEachKeyValue(BiConsumer<String, String> consumer) {
+        StringBuilder value = new StringBuilder();
+        for (int key : keys) {
+            value.setLength(0);
+            for (int valueBlock : getRelated(key, RelationshipType.VALUE)) {
+                if (value.length() > 0) {
+                    value.append(' ');
+                }
+                value.append(getContent(valueBlock));
+            }
+            consumer.accept(getContent(key), value.toString());
+        }
+    }
+
+    /**
+     * Returns the text of a block's words, and X for each selected check box, separated by spaces.
+     */
+    public String getContent(int ordinal) {
+        StringBuilder content = new StringBuilder();
+        for (int i = relationStarts[ordinal]; i < relationStarts[ordinal + 1]; i++) {
+            if (RELATIONSHIP_TYPES[relationTypes[i]] != RelationshipType.CHILD) {
+                continue;
+            }
+            int child = relationTargets[i];
+            String part = getType(child) == BlockType.SELECTION_ELEMENT ? (selected[child] ? "X" : null) : getText(child);
+            if (part != null) {
+                if (content.length() > 0) {
+                    content.append(' ');
+                }
+                content.append(part);
+            }
+        }
+        return content.toString();
+    }
+
+    private boolean isKey(int ordinal) {
+        return getType(ordinal) == BlockType.KEY_VALUE_SET && entities[ordinal] == ENTITY_KEY;
+    }
+
+    /**
+     * Builds an index from blocks added in any order, for example one result page at a time.
+     */
+    public static class Builder {
+        private final OrdinalMap ordinals = new OrdinalMap();
+        private int size;
+        private byte[] types = new byte[0];
+        private int[] pages = new int[0];
+        private int[] rows = new int[0];
+        private int[] columns = new int[0];
+        private byte[] entities = new byte[0];
+        private boolean[] selected = new boolean[0];
+        private int[] textStarts = new int[0];
+        private int[] textLengths = new int[0];
+        private final StringBuilder text = new StringBuilder();
+
+        private int relationCount;
+        private int[] relationSources = new int[1024];
+        private int[] relationTargets = new int[1024];
+        private byte[] relationTypes = new byte[1024];
+
+        public Builder addAll(List<Block> blocks) {
+            for (Block block : blocks) {
+                add(block);
+            }
+            return this;
+        }
+
+        public Builder add(Block block) {
+            int ordinal = ordinalOf(block.id());
+            types[ordinal] = (byte) block.blockType().ordinal();
+            pages[ordinal] = block.page() == null ? 0 : block.page();
+            rows[ordinal] = block.rowIndex() == null ? 0 : block.rowIndex();
+            columns[ordinal] = block.columnIndex() == null ? 0 : block.columnIndex();
+            selected[ordinal] = block.selectionStatus() == SelectionStatus.SELECTED;
+            if (block.entityTypes().contains(EntityType.KEY)) {
+                entities[ordinal] = ENTITY_KEY;
+            } else if (block.entityTypes().contains(EntityType.VALUE)) {
+                entities[ordinal] = ENTITY_VALUE;
+            }
+            if (block.text() != null) {
+                textStarts[ordinal] = text.length();
+                textLengths[ordinal] = block.text().length();
+                text.append(block.text());
+            }
+
+            for (Relationship relationship : block.relationships()) {
+                byte type = (byte) relationship.type().ordinal();
+                for (String id : relationship.ids()) {
+                    addRelation(ordinal, ordinalOf(id), type);
+                }
+            }
+            return this;
+        }
+
+        public BlockIndex build() {
+            return new BlockIndex(this);
+        }
+
+        // Returns the ordinal of a block ID, assigning the next one if the ID hasn't been seen.
+        private int ordinalOf(String id) {
+            int ordinal = ordinals.putIfAbsent(toUuid(id), size);
+            if (ordinal != size) {
+                return ordinal;
+            }
+
+            if (size == types.length) {
+                int capacity = Math.max(1024, size * 2);
+                types = Arrays.copyOf(types, capacity);
+                pages = Arrays.copyOf(pages, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                entities = Arrays.copyOf(entities, capacity);
+                selected = Arrays.copyOf(selected, capacity);
+                textStarts = Arrays.copyOf(textStarts, capacity);
+                textLengths = Arrays.copyOf(textLengths, capacity);
+            }
+            // A block that is referred to before it is added has no type until then.
+            types[size] = -1;
+            textStarts[size] = -1;
+            return size++;
+        }
+
+        private void addRelation(int source, int target, byte type) {
+            if (relationCount == relationSources.length) {
+                int capacity = relationCount * 2;
+                relationSources = Arrays.copyOf(relationSources, capacity);
+                relationTargets = Arrays.copyOf(relationTargets, capacity);
+                relationTypes = Arrays.copyOf(relationTypes, capacity);
+            }
+            relationSources[relationCount] = source;
+            relationTargets[relationCount] = target;
+            relationTypes[relationCount] = type;
+            relationCount++;
+        }
+
+        // Block IDs are UUIDs, which are stored as two longs instead of a 36-character string.
+        private static UUID toUuid(String id) {
+            try {
+                return UUID.fromString(id);
+            } catch (IllegalArgumentException e) {
+                return UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    // An open-addressing hash map from UUIDs to ordinals, stored in three arrays.
+    private static class OrdinalMap {
+        private long[] high = new long[2048];
+        private long[] low = new long[2048];
+        private int[] values = newValues(2048);
+        private int count;
+
+        // Returns the existing ordinal for the key, or stores and returns the given one.
+        int putIfAbsent(UUID key, int ordinal) {
+            if (count * 2 >= values.length) {
+                resize();
+            }
+            long h = key.getMostSignificantBits();
+            long l = key.getLeastSignificantBits();
+            int slot = find(h, l);
+            if (values[slot] >= 0) {
+                return values[slot];
+            }
+            high[slot] = h;
+            low[slot] = l;
+            values[slot] = ordinal;
+            count++;
+            return ordinal;
+        }
+
+        private int find(long h, long l) {
+            int mask = values.length - 1;
+            int slot = (int) ((h ^ l) ^ ((h ^ l) >>> 32)) * 0x9E3779B9 & mask;
+            while (values[slot] >= 0 && (high[slot] != h || low[slot] != l)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldHigh = high;
+            long[] oldLow = low;
+            int[] oldValues = values;
+            high = new long[oldValues.length * 2];
+            low = new long[oldValues.length * 2];
+            values = newValues(oldValues.length * 2);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] >= 0) {
+                    int slot = find(oldHigh[i], oldLow[i]);
+                    high[slot] = oldHigh[i];
+                    low[slot] = oldLow[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int[] newValues(int capacity) {
+            int[] values = new int[capacity];
+            Arrays.fill(values, -1);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+// snippet-sourcedescription:[DocumentPipeline.java demonstrates how to analyze many documents in an Amazon S3 bucket concurrently by using Amazon Textract, and how to read the results of large documents page by page.]
+// snippet-keyword:[AWS SDK for Java v2]
+// snippet-service:[Amazon Textract]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.textract;
+
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.DocumentLocation;
+import software.amazon.awssdk.services.textract.model.FeatureType;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.LimitExceededException;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
+import software.amazon.awssdk.services.textract.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.textract.model.S3Object;
+import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.ThrottlingException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Analyzes a queue of documents in Amazon S3 for tables and forms.
+ *
+ * Up to a fixed number of analysis jobs run at once; the next document is started as soon
+ * as a job finishes. Jobs are tracked together by an AsyncJobTracker. The results of each
+ * job are read page by page, with the next page requested while the current one is being
+ * indexed, and each page is added to a BlockIndex and then dropped, so that only the
+ * compact index of a document is kept in memory.
+ *
+ * Before running this Java V2 code example, set up your development environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class DocumentPipeline implements AutoCloseable {
+
+    /**
+     * Receives the index of each document. Exactly one of index and error is null.
+     */
+    @FunctionalInterface
+    public interface DocumentHandler {
+        void handle(S3Object document, BlockIndex index, Throwable error);
+    }
+
+    private static final int MAX_START_ATTEMPTS = 8;
+
+    private final TextractClient textractClient;
+    private final NotificationChannel channel;
+    private final int maxConcurrentJobs;
+    private final Semaphore runningJobs;
+    private final AsyncJobTracker tracker;
+    private final ExecutorService readers;
+    private final ExecutorService prefetchers;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        final String usage = "\n" +
+            "Usage:\n" +
+            "    <bucketName> <docNames> <maxConcurrentJobs> [<queueUrl> <topicArn> <roleArn>]\n\n" +
+            "Where:\n" +
+            "    bucketName - The name of the Amazon S3 bucket that contains the documents. \n\n" +
+            "    docNames - A comma-separated list of documents (for example, filing1.pdf,filing2.pdf). \n\n" +
+            "    maxConcurrentJobs - The maximum number of analysis jobs to run at once (for example, 10). \n\n" +
+            "    queueUrl - The URL of an Amazon SQS queue subscribed to the topic (optional). \n\n" +
+            "    topicArn - The ARN of the Amazon SNS topic that receives the job completions (optional). \n\n" +
+            "    roleArn - The ARN of the IAM role that lets Amazon Textract publish to the topic (optional). \n";
+
+        if (args.length != 3 && args.length != 6) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String bucketName = args[0];
+        int maxConcurrentJobs = Integer.parseInt(args[2]);
+        Region region = Region.US_WEST_2;
+        TextractClient textractClient = TextractClient.builder()
+            .region(region)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+
+        SqsClient sqsClient = null;
+        String queueUrl = null;
+        NotificationChannel channel = null;
+        if (args.length == 6) {
+            sqsClient = SqsClient.builder()
+                .region(region)
+                .credentialsProvider(ProfileCredentialsProvider.create())
+                .build();
+            queueUrl = args[3];
+            channel = NotificationChannel.builder()
+                .snsTopicArn(args[4])
+                .roleArn(args[5])
+                .build();
+        }
+
+        Queue<S3Object> documents = new ConcurrentLinkedQueue<>();
+        for (String docName : args[1].split(",")) {
+            documents.add(S3Object.builder()
+                .bucket(bucketName)
+                .name(docName)
+                .build());
+        }
+
+        try (DocumentPipeline pipeline = new DocumentPipeline(textractClient, sqsClient, queueUrl, channel,
+                maxConcurrentJobs)) {
+            pipeline.process(documents, (document, index, error) -> {
+                if (error != null) {
+                    System.out.println(document.name() + ": " + error.getMessage());
+                    return;
+                }
+                int[] pairs = new int[1];
+                index.forEachKeyValue((key, value) -> pairs[0]++);
+                System.out.println(document.name() + ": " + index.getPageCount() + " pages, " + index.size()
+                    + " blocks, " + index.getTables().length + " tables, " + pairs[0] + " key-value pairs");
+            });
+        }
+
+        if (sqsClient != null) {
+            sqsClient.close();
+        }
+        textractClient.close();
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param sqsClient         the client used to read job notifications, or null to poll the jobs only.
+     * @param queueUrl          the URL of the queue subscribed to the channel's topic.
+     * @param channel           where Amazon Textract publishes job completions, or null.
+     * @param maxConcurrentJobs the maximum number of analysis jobs to run at once.
+     */
+    public DocumentPipeline(TextractClient textractClient, SqsClient sqsClient, String queueUrl,
+                            NotificationChannel channel, int maxConcurrentJobs) {
+        this.textractClient = textractClient;
+        this.channel = channel;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.runningJobs = new Semaphore(maxConcurrentJobs);
+
+        long initialPollDelay = sqsClient == null ? 5_000 : 30_000;
+        this.tracker = new AsyncJobTracker(sqsClient, queueUrl, StartDocumentAnalysis::parseNotification,
+            this::getJobStatus, initialPollDelay, 60_000);
+
+        // Each job reads its results on one thread, with at most one page requested ahead on another.
+        this.readers = Executors.newFixedThreadPool(maxConcurrentJobs);
+        this.prefetchers = Executors.newFixedThreadPool(maxConcurrentJobs);
+    }
+
+    /**
+     * Analyzes documents from the queue until it is empty, and waits until all results are handled.
+     */
+    public void process(Queue<S3Object> documents, DocumentHandler handler) throws InterruptedException {
+        S3Object document;
+        while ((document = documents.poll()) != null) {
+            runningJobs.acquire();
+            S3Object current = document;
+            CompletableFuture<BlockIndex> result;
+            try {
+                String jobId = startAnalysis(current);
+                result = tracker.track(jobId).thenApplyAsync(status -> readResults(jobId, status), readers);
+
+            } catch (RuntimeException e) {
+                // The job couldn't be started or tracked; the document is reported below like any other failure.
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+
+            } catch (InterruptedException e) {
+                runningJobs.release();
+                throw e;
+            }
+
+            // Every path that took a permit ends here, so it's released even if the handler throws.
+            result.whenComplete((index, error) -> {
+                try {
+                    handler.handle(current, index, error instanceof CompletionException ? error.getCause() : error);
+                } finally {
+                    runningJobs.release();
+                }
+            });
+        }
+
+        runningJobs.acquire(maxConcurrentJobs);
+        runningJobs.release(maxConcurrentJobs);
+    }
+
+    @Override
+    public void close() {
+        tracker.close();
+        readers.shutdown();
+        prefetchers.shutdown();
+    }
+
+    // Starts a job, waiting and trying again while the account is at its job or request limit.
+    private String startAnalysis(S3Object document) throws InterruptedException {
+        StartDocumentAnalysisRequest request = StartDocumentAnalysisRequest.builder()
+            .documentLocation(DocumentLocation.builder()
+                .s3Object(document)
+                .build())
+            .featureTypes(FeatureType.TABLES, FeatureType.FORMS)
+            .notificationChannel(channel)
+            .build();
+
+        long delayMillis = 1_000;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return textractClient.startDocumentAnalysis(request).jobId();
+
+            } catch (LimitExceededException | ProvisionedThroughputExceededException | ThrottlingException e) {
+                if (attempt >= MAX_START_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(delayMillis);
+                delayMillis = Math.min(delayMillis * 2, 60_000);
+            }
+        }
+    }
+
+    private BlockIndex readResults(String jobId, String status) {
+        if (!JobStatus.SUCCEEDED.toString().equals(status) && !JobStatus.PARTIAL_SUCCESS.toString().equals(status)) {
+            throw new IllegalStateException("Job " + jobId + " is " + status);
+        }
+
+        BlockIndex.Builder builder = BlockIndex.builder();
+        GetDocumentAnalysisResponse page = getPage(jobId, null);
+        while (true) {
+            String nextToken = page.nextToken();
+            CompletableFuture<GetDocumentAnalysisResponse> nextPage = nextToken == null ? null
+                : CompletableFuture.supplyAsync(() -> getPage(jobId, nextToken), prefetchers);
+
+            builder.addAll(page.blocks());
+            if (nextPage == null) {
+                return builder.build();
+            }
+            page = nextPage.join();
+        }
+    }
+
+    private GetDocumentAnalysisResponse getPage(String jobId, String nextToken) {
+        return textractClient.getDocumentAnalysis(GetDocumentAnalysisRequest.builder()
+            .jobId(jobId)
+            .maxResults(1000)
+            .nextToken(nextToken)
+            .build());
+    }
+
+    // Returns the final status of the job, or null while it is still running.
+    private String getJobStatus(String jobId) {
+        GetDocumentAnalysisResponse response = textractClient.getDocumentAnalysis(GetDocumentAnalysisRequest.builder()
+            .jobId(jobId)
+            .maxResults(1)
+            .build());
+        return response.jobStatus() == JobStatus.IN_PROGRESS ? null : response.jobStatusAsString();
+    }
+}
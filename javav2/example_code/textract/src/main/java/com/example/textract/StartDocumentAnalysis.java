@@ -11,6 +11,7 @@ package com.example.textract;
 
 // snippet-start:[textract.java2._start_doc_analysis.import]
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.textract.model.S3Object;
 import software.amazon.awssdk.services.textract.TextractClient;
@@ -21,6 +22,11 @@ import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisRespo
 import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
 import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
 import software.amazon.awssdk.services.textract.model.FeatureType;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.util.ArrayList;
 import java.util.List;
 // snippet-end:[textract.java2._start_doc_analysis.import]
@@ -38,12 +44,15 @@ public class StartDocumentAnalysis {
 
         final String usage = "\n" +
             "Usage:\n" +
-            "    <bucketName> <docName> \n\n" +
+            "    <bucketName> <docName> [<queueUrl> <topicArn> <roleArn>]\n\n" +
             "Where:\n" +
             "    bucketName - The name of the Amazon S3 bucket that contains the document. \n\n" +
-            "    docName - The document name (must be an image, for example, book.png). \n";
+            "    docName - The document name (must be an image, for example, book.png). \n\n" +
+            "    queueUrl - The URL of an Amazon SQS queue subscribed to the topic (optional). \n\n" +
+            "    topicArn - The ARN of the Amazon SNS topic that receives the job completion (optional). \n\n" +
+            "    roleArn - The ARN of the IAM role that lets Amazon Textract publish to the topic (optional). \n";
 
-        if (args.length != 2) {
+        if (args.length != 2 && args.length != 5) {
             System.out.println(usage);
             System.exit(1);
         }
@@ -56,15 +65,40 @@ public class StartDocumentAnalysis {
             .credentialsProvider(ProfileCredentialsProvider.create())
             .build();
 
-        String jobId = startDocAnalysisS3 (textractClient, bucketName, docName);
-        System.out.println("Getting results for job "+jobId);
-        String status = getJobResults(textractClient, jobId);
-        System.out.println("The job status is "+status);
+        if (args.length == 2) {
+            String jobId = startDocAnalysisS3 (textractClient, bucketName, docName);
+            System.out.println("Getting results for job "+jobId);
+            String status = getJobResults(textractClient, jobId);
+            System.out.println("The job status is "+status);
+
+        } else {
+            SqsClient sqsClient = SqsClient.builder()
+                .region(region)
+                .credentialsProvider(ProfileCredentialsProvider.create())
+                .build();
+
+            NotificationChannel channel = NotificationChannel.builder()
+                .snsTopicArn(args[3])
+                .roleArn(args[4])
+                .build();
+
+            String jobId = startDocAnalysisS3(textractClient, bucketName, docName, channel);
+            System.out.println("Getting results for job "+jobId);
+            String status = getJobResults(textractClient, sqsClient, args[2], jobId);
+            System.out.println("The job status is "+status);
+            sqsClient.close();
+        }
         textractClient.close();
     }
 
     // snippet-start:[textract.java2._start_doc_analysis.main]
     public static String startDocAnalysisS3 (TextractClient textractClient, String bucketName, String docName) {
+        return startDocAnalysisS3(textractClient, bucketName, docName, null);
+    }
+
+    // Starts the analysis. When the channel isn't null, Amazon Textract publishes the job completion to its topic.
+    public static String startDocAnalysisS3(TextractClient textractClient, String bucketName, String docName,
+                                            NotificationChannel channel) {
 
         try {
             List<FeatureType> myList = new ArrayList<>();
@@ -83,6 +117,7 @@ public class StartDocumentAnalysis {
             StartDocumentAnalysisRequest documentAnalysisRequest = StartDocumentAnalysisRequest.builder()
                 .documentLocation(location)
                 .featureTypes(myList)
+                .notificationChannel(channel)
                 .build();
 
             StartDocumentAnalysisResponse response = textractClient.startDocumentAnalysis(documentAnalysisRequest);
@@ -99,37 +134,54 @@ public class StartDocumentAnalysis {
     }
 
     private static String getJobResults(TextractClient textractClient, String jobId) {
+        return getJobResults(textractClient, null, null, jobId);
+    }
+
+    /**
+     * Waits for the job to finish. If sqsClient isn't null, the job's Amazon SNS notification is read
+     * from the queue, and the job is polled only as a fallback. Otherwise the job is polled at a
+     * growing interval.
+     */
+    public static String getJobResults(TextractClient textractClient, SqsClient sqsClient, String queueUrl,
+                                       String jobId) {
+
+        long initialPollDelay = sqsClient == null ? 1_000 : 30_000;
+        try (AsyncJobTracker tracker = new AsyncJobTracker(sqsClient, queueUrl, StartDocumentAnalysis::parseNotification,
+                id -> getJobStatus(textractClient, id), initialPollDelay, 60_000)) {
+
+            return tracker.waitFor(jobId);
+
+        } catch (SdkException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        return "";
+    }
+
+    // Gets the status and job ID from an Amazon SNS notification delivered by Amazon SQS.
+    public static AsyncJobTracker.JobNotification parseNotification(String notification) {
+        JsonObject envelope = JsonParser.parseString(notification).getAsJsonObject();
+        if (!envelope.has("Message")) {
+            return null;
+        }
+
+        JsonObject message = JsonParser.parseString(envelope.get("Message").getAsString()).getAsJsonObject();
+        if (!message.has("JobId") || !message.has("Status")) {
+            return null;
+        }
+        return new AsyncJobTracker.JobNotification(message.get("JobId").getAsString(),
+            message.get("Status").getAsString());
+    }
+
+    // Returns the final status of the job, or null while it is still running.
+    private static String getJobStatus(TextractClient textractClient, String jobId) {
+        GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
+            .jobId(jobId)
+            .maxResults(1)
+            .build();
 
-        boolean finished = false;
-        int index = 0 ;
-        String status = "" ;
-
-       try {
-           while (!finished) {
-               GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
-                   .jobId(jobId)
-                   .maxResults(1000)
-                   .build();
-
-               GetDocumentAnalysisResponse response = textractClient.getDocumentAnalysis(analysisRequest);
-               status = response.jobStatus().toString();
-
-               if (status.compareTo("SUCCEEDED") == 0)
-                   finished = true;
-               else {
-                   System.out.println(index + " status is: " + status);
-                   Thread.sleep(1000);
-               }
-               index++ ;
-           }
-
-           return status;
-
-       } catch( InterruptedException e) {
-           System.out.println(e.getMessage());
-           System.exit(1);
-       }
-       return "";
+        GetDocumentAnalysisResponse response = textractClient.getDocumentAnalysis(analysisRequest);
+        return response.jobStatus() == JobStatus.IN_PROGRESS ? null : response.jobStatusAsString();
     }
     // snippet-end:[textract.java2._start_doc_analysis.main]
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.textract.AsyncJobTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.textract.model.InvalidJobIdException;
+import software.amazon.awssdk.services.textract.model.TextractException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Timeout(30)
+public class AsyncJobTrackerTest {
+
+    @Test
+    public void permanentErrorFailsTheJobAtOnce() {
+        InvalidJobIdException error = InvalidJobIdException.builder()
+            .message("Request has invalid Job Id")
+            .statusCode(400)
+            .build();
+        AtomicInteger polls = new AtomicInteger();
+
+        try (AsyncJobTracker tracker = new AsyncJobTracker(null, null, body -> null, jobId -> {
+            polls.incrementAndGet();
+            throw error;
+        }, 1, 8)) {
+            assertSame(error, assertThrows(InvalidJobIdException.class, () -> tracker.waitFor("job")));
+            assertEquals(1, polls.get());
+            assertEquals(0, tracker.getPendingJobs());
+        }
+    }
+
+    @Test
+    public void retryableErrorsAreTriedAgainUntilTheLimit() {
+        TextractException error = TextractException.builder()
+            .message("Internal server error")
+            .statusCode(500)
+            .build();
+        AtomicInteger polls = new AtomicInteger();
+
+        try (AsyncJobTracker tracker = new AsyncJobTracker(null, null, body -> null, jobId -> {
+            polls.incrementAndGet();
+            throw error;
+        }, 1, 8)) {
+            assertSame(error, assertThrows(TextractException.class, () -> tracker.waitFor("job")));
+            assertEquals(10, polls.get());
+            assertEquals(0, tracker.getPendingJobs());
+        }
+    }
+
+    @Test
+    public void jobIsPolledAgainAfterClientErrors() {
+        // The first two polls time out, and the job has finished by the third.
+        AtomicInteger polls = new AtomicInteger();
+        try (AsyncJobTracker tracker = new AsyncJobTracker(null, null, body -> null, jobId -> {
+            if (polls.incrementAndGet() < 3) {
+                throw SdkClientException.builder().message("Unable to execute HTTP request").build();
+            }
+            return "SUCCEEDED";
+        }, 1, 8)) {
+            assertEquals("SUCCEEDED", tracker.waitFor("job"));
+            assertEquals(3, polls.get());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.textract.DocumentPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.AccessDeniedException;
+import software.amazon.awssdk.services.textract.model.S3Object;
+import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@Timeout(30)
+public class DocumentPipelineTest {
+
+    @Test
+    public void documentsThatCantBeStartedAreReportedAndFreeTheirSlot() throws Exception {
+        // Every start fails with a client error, and the handler throws for one of the documents.
+        FailingTextract textract = new FailingTextract();
+        Queue<S3Object> documents = new ConcurrentLinkedQueue<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            names.add("doc-" + i + ".pdf");
+            documents.add(S3Object.builder().bucket("bucket").name("doc-" + i + ".pdf").build());
+        }
+
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        try (DocumentPipeline pipeline = new DocumentPipeline(textract.client, null, null, null, 2)) {
+            pipeline.process(documents, (document, index, error) -> {
+                assertNull(index);
+                handled.add(document.name());
+                errors.add(error);
+                if (document.name().equals("doc-1.pdf")) {
+                    throw new IllegalStateException("The handler failed");
+                }
+            });
+        }
+
+        assertEquals(names, handled);
+        assertEquals(5, textract.starts.get());
+        for (Throwable error : errors) {
+            assertInstanceOf(SdkClientException.class, error);
+        }
+    }
+
+    @Test
+    public void jobsWhoseStatusCantBeReadAreReportedAsFailed() throws Exception {
+        // Every job starts, but the role isn't allowed to get its results.
+        Queue<S3Object> documents = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < 3; i++) {
+            documents.add(S3Object.builder().bucket("bucket").name("doc-" + i + ".pdf").build());
+        }
+
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        try (DocumentPipeline pipeline = new DocumentPipeline(new DeniedTextract().client, null, null, null, 2)) {
+            pipeline.process(documents, (document, index, error) -> {
+                assertNull(index);
+                errors.add(error);
+            });
+        }
+
+        assertEquals(3, errors.size());
+        for (Throwable error : errors) {
+            assertInstanceOf(AccessDeniedException.class, error);
+        }
+    }
+
+    // A TextractClient that can't connect.
+    private static class FailingTextract implements InvocationHandler {
+        private final TextractClient client = (TextractClient) Proxy.newProxyInstance(
+            TextractClient.class.getClassLoader(), new Class<?>[]{TextractClient.class}, this);
+        private final AtomicInteger starts = new AtomicInteger();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("startDocumentAnalysis")) {
+                starts.incrementAndGet();
+            }
+            throw SdkClientException.builder().message("Unable to execute HTTP request").build();
+        }
+    }
+
+    // A TextractClient that starts jobs but denies access to their status and results.
+    private static class DeniedTextract implements InvocationHandler {
+        private final TextractClient client = (TextractClient) Proxy.newProxyInstance(
+            TextractClient.class.getClassLoader(), new Class<?>[]{TextractClient.class}, this);
+        private final AtomicInteger starts = new AtomicInteger();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("startDocumentAnalysis")) {
+                return StartDocumentAnalysisResponse.builder().jobId("job-" + starts.incrementAndGet()).build();
+            }
+            throw AccessDeniedException.builder()
+                .message("User is not authorized to perform: textract:GetDocumentAnalysis")
+                .statusCode(400)
+                .build();
+        }
+    }
+}
@@ -4,6 +4,8 @@
 */
 
 import com.example.textract.AnalyzeDocument;
+import com.example.textract.AsyncJobTracker;
+import com.example.textract.BlockIndex;
 import com.example.textract.DetectDocumentText;
 import com.example.textract.DetectDocumentTextS3;
 import com.example.textract.StartDocumentAnalysis;
@@ -15,8 +17,23 @@ import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.EntityType;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import software.amazon.awssdk.services.textract.model.RelationshipType;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -101,6 +118,118 @@ public class TextractTest {
         assertDoesNotThrow(() ->StartDocumentAnalysis.startDocAnalysisS3(textractClient, bucketName, docName));
         System.out.println("Test 4 passed");
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(5)
+    public void AsyncJobTracker() {
+        // Each simulated job reports SUCCEEDED on its third poll.
+        Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+        AsyncJobTracker.StatusPoller poller = jobId ->
+            polls.computeIfAbsent(jobId, id -> new AtomicInteger()).incrementAndGet() >= 3 ? "SUCCEEDED" : null;
+
+        try (AsyncJobTracker tracker = new AsyncJobTracker(null, null, body -> null, poller, 1, 8)) {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                results.add(tracker.track("job-" + i));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+            for (CompletableFuture<String> result : results) {
+                assertEquals("SUCCEEDED", result.join());
+            }
+            assertEquals(0, tracker.getPendingJobs());
+        }
+
+        AsyncJobTracker.JobNotification notification = StartDocumentAnalysis.parseNotification(
+            "{\"Type\":\"Notification\",\"Message\":\"{\\\"JobId\\\":\\\"abc\\\",\\\"Status\\\":\\\"SUCCEEDED\\\"}\"}");
+        assertEquals("abc", notification.getJobId());
+        assertEquals("SUCCEEDED", notification.getStatus());
+        System.out.println("Test 5 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(6)
+    public void BlockIndex() {
+        // A 2 x 2 table and a key-value pair, with blocks added before the blocks that refer to them.
+        BlockIndex.Builder builder = BlockIndex.builder();
+        String[] words = {"Name", "Total", "Widget", "42", "Invoice:", "1001"};
+        for (int i = 0; i < words.length; i++) {
+            builder.add(Block.builder().id("word-" + i).blockType(BlockType.WORD).page(1).text(words[i]).build());
+        }
+        List<String> cellIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cellIds.add("cell-" + i);
+            builder.add(Block.builder().id("cell-" + i).blockType(BlockType.CELL).page(1)
+                .rowIndex(i / 2 + 1).columnIndex(i % 2 + 1)
+                .relationships(child("word-" + i))
+                .build());
+        }
+        builder.add(Block.builder().id("table").blockType(BlockType.TABLE).page(1)
+            .relationships(Relationship.builder().type(RelationshipType.CHILD).ids(cellIds).build())
+            .build());
+        builder.add(Block.builder().id("key").blockType(BlockType.KEY_VALUE_SET).entityTypes(EntityType.KEY).page(2)
+            .relationships(child("word-4"), Relationship.builder().type(RelationshipType.VALUE).ids("value").build())
+            .build());
+        builder.add(Block.builder().id("value").blockType(BlockType.KEY_VALUE_SET).entityTypes(EntityType.VALUE).page(2)
+            .relationships(child("word-5"))
+            .build());
+
+        BlockIndex index = builder.build();
+        assertEquals(13, index.size());
+        assertEquals(2, index.getPageCount());
+        int[] tables = index.getTables();
+        assertEquals(1, tables.length);
+        String[][] table = index.getTable(tables[0]);
+        assertEquals("Name", table[0][0]);
+        assertEquals("42", table[1][1]);
+
+        Map<String, String> pairs = new HashMap<>();
+        index.forEachKeyValue(pairs::put);
+        assertEquals("1001", pairs.get("Invoice:"));
+        System.out.println("Test 6 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(7)
+    public void BlockIndexMemory() {
+        // 3,000 pages of 1,000 blocks (a page, 333 lines and 666 words), added one page at a time
+        // the way DocumentPipeline reads them. The index of all 3M blocks must fit in 600 MB.
+        BlockIndex.Builder builder = BlockIndex.builder();
+        for (int pageNumber = 1; pageNumber <= 3000; pageNumber++) {
+            List<Block> page = new ArrayList<>(1000);
+            List<String> lineIds = new ArrayList<>(333);
+            for (int i = 0; i < 333; i++) {
+                String first = UUID.randomUUID().toString();
+                String second = UUID.randomUUID().toString();
+                String line = UUID.randomUUID().toString();
+                lineIds.add(line);
+                page.add(Block.builder().id(first).blockType(BlockType.WORD).page(pageNumber).text("word" + i).build());
+                page.add(Block.builder().id(second).blockType(BlockType.WORD).page(pageNumber).text("text" + i).build());
+                page.add(Block.builder().id(line).blockType(BlockType.LINE).page(pageNumber).text("word" + i + " text" + i)
+                    .relationships(Relationship.builder().type(RelationshipType.CHILD).ids(first, second).build())
+                    .build());
+            }
+            page.add(Block.builder().id(UUID.randomUUID().toString()).blockType(BlockType.PAGE).page(pageNumber)
+                .relationships(Relationship.builder().type(RelationshipType.CHILD).ids(lineIds).build())
+                .build());
+            builder.addAll(page);
+        }
+        BlockIndex index = builder.build();
+
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        assertEquals(3_000_000, index.size());
+        assertEquals(3000, index.getPageCount());
+        assertTrue(usedMb < 600, "The index uses " + usedMb + " MB");
+        System.out.println("Test 7 passed");
+    }
+
+    private static Relationship child(String id) {
+        return Relationship.builder().type(RelationshipType.CHILD).ids(id).build();
+    }
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
             .region(Region.US_EAST_1)
@@ -17,10 +17,12 @@ package com.amazonaws.transcribe;
 //snippet-start:[transcribe.java2.bidir_streaming_audiopublisher.import]
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -28,93 +30,151 @@ import org.reactivestreams.Subscription;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.transcribestreaming.model.AudioEvent;
 import software.amazon.awssdk.services.transcribestreaming.model.AudioStream;
-import software.amazon.awssdk.services.transcribestreaming.model.TranscribeStreamingException;
 //snippet-end:[transcribe.java2.bidir_streaming_audiopublisher.import]
 
 //snippet-start:[transcribe.java2.bidir_streaming_audiopublisher.class]
 
+/**
+ * Publishes audio from an input stream as AudioEvents of a fixed duration.
+ *
+ * All publishers read on one small shared thread pool, so thousands of concurrent
+ * streams don't need thousands of threads. Each chunk is read straight into the array
+ * that its AudioEvent wraps, so the audio isn't copied on its way to the SDK. Demand
+ * from concurrent request() calls is added atomically and only one task emits events
+ * for a subscription at a time. cancel() stops reading at the next chunk.
+ *
+ * A source that blocks on read, such as a microphone line, holds a pool thread while it
+ * waits for audio, so live sources should use a chunk duration that keeps reads short.
+ */
 public class AudioStreamPublisher implements Publisher<AudioStream> {
+
+    // 16 kHz, 16-bit mono PCM.
+    private static final int DEFAULT_BYTES_PER_SECOND = 32_000;
+    private static final Duration DEFAULT_CHUNK_DURATION = Duration.ofMillis(100);
+
+    private static final ExecutorService READERS = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "audio-stream-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final InputStream inputStream;
+    private final int chunkSizeInBytes;
 
     public AudioStreamPublisher(InputStream inputStream) {
+        this(inputStream, DEFAULT_BYTES_PER_SECOND, DEFAULT_CHUNK_DURATION);
+    }
+
+    /**
+     * @param inputStream    the audio source.
+     * @param bytesPerSecond the audio byte rate (for 16-bit mono PCM, twice the sample rate).
+     * @param chunkDuration  how much audio to send in each AudioEvent.
+     */
+    public AudioStreamPublisher(InputStream inputStream, int bytesPerSecond, Duration chunkDuration) {
         this.inputStream = inputStream;
+        int size = (int) (bytesPerSecond * chunkDuration.toMillis() / 1000);
+        // Keep whole 16-bit samples in each chunk.
+        this.chunkSizeInBytes = Math.max(2, size & ~1);
     }
 
     @Override
     public void subscribe(Subscriber<? super AudioStream> s) {
-        s.onSubscribe(new SubscriptionImpl(s, inputStream));
+        s.onSubscribe(new SubscriptionImpl(s, inputStream, chunkSizeInBytes));
     }
 
-    private class SubscriptionImpl implements Subscription {
-        private static final int CHUNK_SIZE_IN_BYTES = 1024 * 1;
-        private ExecutorService executor = Executors.newFixedThreadPool(1);
-        private AtomicLong demand = new AtomicLong(0);
-
+    private static class SubscriptionImpl implements Subscription, Runnable {
         private final Subscriber<? super AudioStream> subscriber;
         private final InputStream inputStream;
+        private final int chunkSizeInBytes;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
 
-        private SubscriptionImpl(Subscriber<? super AudioStream> s, InputStream inputStream) {
+        private SubscriptionImpl(Subscriber<? super AudioStream> s, InputStream inputStream, int chunkSizeInBytes) {
             this.subscriber = s;
             this.inputStream = inputStream;
+            this.chunkSizeInBytes = chunkSizeInBytes;
         }
 
         @Override
         public void request(long n) {
             if (n <= 0) {
-                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                if (done.compareAndSet(false, true)) {
+                    subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                }
+                return;
             }
 
-            demand.getAndAdd(n);
-
-            executor.submit(() -> {
-                try {
-                    do {
-                        ByteBuffer audioBuffer = getNextEvent();
-                        if (audioBuffer.remaining() > 0) {
-                            AudioEvent audioEvent = audioEventFromBuffer(audioBuffer);
-                            subscriber.onNext(audioEvent);
-                        } else {
-                            subscriber.onComplete();
-                            break;
-                        }
-                    } while (demand.decrementAndGet() > 0);
-                } catch (TranscribeStreamingException e) {
-                    subscriber.onError(e);
-                }
-            });
+            // Add to the demand without overflowing; Long.MAX_VALUE means unbounded.
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
         }
 
         @Override
         public void cancel() {
-
+            done.set(true);
         }
 
-        private ByteBuffer getNextEvent() {
-            ByteBuffer audioBuffer;
-            byte[] audioBytes = new byte[CHUNK_SIZE_IN_BYTES];
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                READERS.execute(this);
+            }
+        }
 
-            int len = 0;
-            try {
-                len = inputStream.read(audioBytes);
+        // Emits as many chunks as there is demand for. Only one thread runs this at a time.
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                while (!done.get() && demand.get() > 0) {
+                    AudioEvent audioEvent;
+                    try {
+                        audioEvent = nextEvent();
+                    } catch (IOException e) {
+                        if (done.compareAndSet(false, true)) {
+                            subscriber.onError(e);
+                        }
+                        return;
+                    }
 
-                if (len <= 0) {
-                    audioBuffer = ByteBuffer.allocate(0);
-                } else {
-                    audioBuffer = ByteBuffer.wrap(audioBytes, 0, len);
+                    if (audioEvent == null) {
+                        if (done.compareAndSet(false, true)) {
+                            subscriber.onComplete();
+                        }
+                        return;
+                    }
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(audioEvent);
                 }
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-
-            return audioBuffer;
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
         }
 
-        private AudioEvent audioEventFromBuffer(ByteBuffer bb) {
+        // Reads one chunk, or returns null at the end of the stream.
+        private AudioEvent nextEvent() throws IOException {
+            byte[] chunk = new byte[chunkSizeInBytes];
+            int length = 0;
+            while (length < chunk.length) {
+                int n = inputStream.read(chunk, length, chunk.length - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+            if (length == 0) {
+                return null;
+            }
+            // The SDK keeps the event after onNext returns, so each event gets a new array that
+            // nothing else writes to, and it's wrapped without a copy. Only a short last chunk is trimmed.
+            byte[] audio = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
             return AudioEvent.builder()
-                    .audioChunk(SdkBytes.fromByteBuffer(bb))
+                    .audioChunk(SdkBytes.fromByteArrayUnsafe(audio))
                     .build();
         }
     }
 }
 //snippet-end:[transcribe.java2.bidir_streaming_audiopublisher.class]
-//snippet-end:[transcribe.java2.bidir_streaming_audiopublisher.complete]
\ No newline at end of file
+//snippet-end:[transcribe.java2.bidir_streaming_audiopublisher.complete]
@@ -0,0 +1,292 @@
+// snippet-sourcedescription:[ReplayableAudioPublisher.java wraps an audio publisher so that audio not yet covered by a final transcript can be sent again after a reconnect.]
+// snippet-keyword:[AWS SDK for Java v2]
+//snippet-keyword:[Amazon Transcribe]
+
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.amazonaws.transcribestreaming;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioEvent;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps an audio publisher that can only be subscribed to once, such as a microphone or
+ * an open file, so that the retry client can subscribe to it again after a failure.
+ *
+ * The upstream publisher is subscribed to once. Audio events are kept until a final
+ * (non-partial) transcript result covers them, and a new subscription starts from the
+ * oldest audio that has not been covered. The number of retained bytes is bounded; when
+ * the bound is reached the oldest audio is dropped, so a long outage loses only the
+ * audio that exceeds the window.
+ */
+public class ReplayableAudioPublisher implements Publisher<AudioStream> {
+
+    // Number of events to read ahead of the current subscriber's demand.
+    private static final int PREFETCH = 4;
+
+    private final Publisher<AudioStream> upstream;
+    private final int bytesPerSecond;
+    private final long maxRetainedBytes;
+    private final AtomicInteger wip = new AtomicInteger();
+
+    // Guarded by this. Chunk n (by sequence number) is at chunks.get(head + n - firstSequence).
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int head;
+    private long firstSequence;
+    private long retainedBytes;
+    private long receivedBytes;
+    private Subscription upstreamSubscription;
+    private long upstreamRequested;
+    private boolean upstreamDone;
+    private Throwable upstreamError;
+    private Session session;
+
+    /**
+     * @param upstream         the audio source; it is subscribed to once.
+     * @param bytesPerSecond   the audio byte rate, used to map transcript times to audio offsets
+     *                         (for 16-bit mono PCM, twice the sample rate).
+     * @param maxRetainedBytes the most audio to keep for replay.
+     */
+    public ReplayableAudioPublisher(Publisher<AudioStream> upstream, int bytesPerSecond, long maxRetainedBytes) {
+        this.upstream = upstream;
+        this.bytesPerSecond = bytesPerSecond;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super AudioStream> subscriber) {
+        boolean first;
+        Session next;
+        synchronized (this) {
+            first = session == null;
+            if (!first) {
+                session.cancelled = true;
+            }
+            // Start where the oldest unacknowledged audio begins.
+            long startSequence = firstSequence;
+            long startByte = retainedCount() == 0 ? receivedBytes : chunks.get(head).startByte;
+            next = new Session(subscriber, startSequence, startByte);
+            session = next;
+        }
+
+        subscriber.onSubscribe(next);
+        if (first) {
+            upstream.subscribe(new UpstreamSubscriber());
+        }
+        drain();
+    }
+
+    /**
+     * Releases audio that is covered by a final transcript result of the current session.
+     *
+     * @param endTimeSeconds the result's end time, relative to the start of the session.
+     */
+    public synchronized void acknowledge(double endTimeSeconds) {
+        if (session == null) {
+            return;
+        }
+        long ackedByte = session.startByte + (long) (endTimeSeconds * bytesPerSecond);
+        while (retainedCount() > 0 && chunks.get(head).startByte + chunks.get(head).length <= ackedByte
+            && firstSequence < session.nextSequence) {
+            removeFirstChunk();
+        }
+    }
+
+    /**
+     * Stops reading from the upstream publisher.
+     */
+    public void close() {
+        Subscription subscription;
+        synchronized (this) {
+            subscription = upstreamSubscription;
+            upstreamDone = true;
+            chunks.clear();
+            head = 0;
+            retainedBytes = 0;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    // Delivers events to the current session. Only one thread delivers at a time.
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                Session current;
+                AudioStream event = null;
+                boolean complete = false;
+                Throwable error = null;
+                long toRequest = 0;
+                Subscription subscription;
+                synchronized (this) {
+                    current = session;
+                    subscription = upstreamSubscription;
+                    if (current == null || current.cancelled || current.terminated) {
+                        break;
+                    }
+                    long index = current.nextSequence - firstSequence;
+                    if (index < 0) {
+                        // Audio was dropped from the window; skip ahead to what is still retained.
+                        current.nextSequence = firstSequence;
+                        index = 0;
+                    }
+                    if (index < retainedCount() && current.demand > 0) {
+                        event = chunks.get(head + (int) index).event;
+                        current.nextSequence++;
+                        current.demand--;
+                    } else if (index >= retainedCount() && upstreamDone) {
+                        current.terminated = true;
+                        complete = upstreamError == null;
+                        error = upstreamError;
+                    }
+
+                    long buffered = retainedCount() - (current.nextSequence - firstSequence);
+                    if (!upstreamDone && subscription != null && buffered + upstreamRequested < PREFETCH) {
+                        toRequest = PREFETCH - buffered - upstreamRequested;
+                        upstreamRequested += toRequest;
+                    }
+                }
+
+                if (toRequest > 0) {
+                    subscription.request(toRequest);
+                }
+                if (event != null) {
+                    current.subscriber.onNext(event);
+                } else if (complete) {
+                    current.subscriber.onComplete();
+                    break;
+                } else if (error != null) {
+                    current.subscriber.onError(error);
+                    break;
+                } else {
+                    break;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private int retainedCount() {
+        return chunks.size() - head;
+    }
+
+    private void removeFirstChunk() {
+        Chunk removed = chunks.set(head++, null);
+        retainedBytes -= removed.length;
+        firstSequence++;
+        // Shift the list down only once the dead prefix is large, so removal stays cheap.
+        if (head >= 1024 && head >= retainedCount()) {
+            chunks.subList(0, head).clear();
+            head = 0;
+        }
+    }
+
+    private class UpstreamSubscriber implements Subscriber<AudioStream> {
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            synchronized (ReplayableAudioPublisher.this) {
+                upstreamSubscription = subscription;
+            }
+            drain();
+        }
+
+        @Override
+        public void onNext(AudioStream event) {
+            int length = event instanceof AudioEvent ? ((AudioEvent) event).audioChunk().asByteArrayUnsafe().length : 0;
+            synchronized (ReplayableAudioPublisher.this) {
+                upstreamRequested--;
+                chunks.add(new Chunk(event, receivedBytes, length));
+                receivedBytes += length;
+                retainedBytes += length;
+                while (retainedBytes > maxRetainedBytes && retainedCount() > 1) {
+                    removeFirstChunk();
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (ReplayableAudioPublisher.this) {
+                upstreamDone = true;
+                upstreamError = t;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (ReplayableAudioPublisher.this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+    }
+
+    private class Session implements Subscription {
+        private final Subscriber<? super AudioStream> subscriber;
+        private final long startByte;
+        private long nextSequence;
+        private long demand;
+        private boolean cancelled;
+        private boolean terminated;
+
+        private Session(Subscriber<? super AudioStream> subscriber, long startSequence, long startByte) {
+            this.subscriber = subscriber;
+            this.nextSequence = startSequence;
+            this.startByte = startByte;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (ReplayableAudioPublisher.this) {
+                    if (terminated) {
+                        return;
+                    }
+                    terminated = true;
+                }
+                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+            synchronized (ReplayableAudioPublisher.this) {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            // The upstream keeps running so that a retry can resubscribe.
+            synchronized (ReplayableAudioPublisher.this) {
+                cancelled = true;
+            }
+        }
+    }
+
+    private static class Chunk {
+        private final AudioStream event;
+        private final long startByte;
+        private final int length;
+
+        private Chunk(AudioStream event, long startByte, int length) {
+            this.event = event;
+            this.startByte = startByte;
+            this.length = length;
+        }
+    }
+}
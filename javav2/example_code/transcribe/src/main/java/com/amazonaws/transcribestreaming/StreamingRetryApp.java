@@ -63,9 +63,11 @@ public class StreamingRetryApp {
                  * Provide an input audio stream.
                  * For input from a microphone, use getStreamFromMic().
                  * For input from a file, use getStreamFromFile().
+                 * The replayable wrapper keeps up to 30 seconds of 16-bit audio that has no final
+                 * transcript yet, so a retry can send it again.
                  */
-                new AudioStreamPublisher(
-                        new FileInputStream(new File("FileName"))),
+                new ReplayableAudioPublisher(new AudioStreamPublisher(
+                        new FileInputStream(new File("FileName"))), sample_rate * 2, sample_rate * 2 * 30L),
                 /**
                  * Object that defines the behavior on how to handle the stream
                  */
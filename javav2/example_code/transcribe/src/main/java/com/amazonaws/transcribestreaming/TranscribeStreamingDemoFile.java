@@ -14,21 +14,15 @@
 package com.amazonaws.transcribestreaming;
 
 // snippet-start:[transcribe.java-streaming-demo-file.import]
-import org.reactivestreams.Publisher;
-import org.reactivestreams.Subscriber;
-import org.reactivestreams.Subscription;
-import software.amazon.awssdk.core.SdkBytes;
+import com.amazonaws.transcribe.AudioStreamPublisher;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.transcribestreaming.TranscribeStreamingAsyncClient;
 import software.amazon.awssdk.services.transcribestreaming.model.*;
 import java.io.*;
-import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicLong;
 // snippet-end:[transcribe.java-streaming-demo-file.import]
 
 // snippet-start:[transcribe.java-streaming-demo-file.main]
@@ -63,7 +57,7 @@ public class TranscribeStreamingDemoFile {
                 .build();
 
         CompletableFuture<Void> result = client.startStreamTranscription(getRequest(16_000),
-                new AudioStreamPublisher(getStreamFromFile(file)),
+                new AudioStreamPublisher(getStreamFromFile(file), 32_000, Duration.ofMillis(100)),
                 getResponseHandler());
 
         result.get();
@@ -114,97 +108,5 @@ public class TranscribeStreamingDemoFile {
                 })
                 .build();
     }
-
-    private static class AudioStreamPublisher implements Publisher<AudioStream> {
-        private final InputStream inputStream;
-        private static Subscription currentSubscription;
-
-
-        private AudioStreamPublisher(InputStream inputStream) {
-            this.inputStream = inputStream;
-        }
-
-        @Override
-        public void subscribe(Subscriber<? super AudioStream> s) {
-
-            if (this.currentSubscription == null) {
-                this.currentSubscription = new SubscriptionImpl(s, inputStream);
-            } else {
-                this.currentSubscription.cancel();
-                this.currentSubscription = new SubscriptionImpl(s, inputStream);
-            }
-            s.onSubscribe(currentSubscription);
-        }
-    }
-
-    public static class SubscriptionImpl implements Subscription {
-        private static final int CHUNK_SIZE_IN_BYTES = 1024 * 1;
-        private final Subscriber<? super AudioStream> subscriber;
-        private final InputStream inputStream;
-        private ExecutorService executor = Executors.newFixedThreadPool(1);
-        private AtomicLong demand = new AtomicLong(0);
-
-        SubscriptionImpl(Subscriber<? super AudioStream> s, InputStream inputStream) {
-            this.subscriber = s;
-            this.inputStream = inputStream;
-        }
-
-        @Override
-        public void request(long n) {
-            if (n <= 0) {
-                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
-            }
-
-            demand.getAndAdd(n);
-
-            executor.submit(() -> {
-                try {
-                    do {
-                        ByteBuffer audioBuffer = getNextEvent();
-                        if (audioBuffer.remaining() > 0) {
-                            AudioEvent audioEvent = audioEventFromBuffer(audioBuffer);
-                            subscriber.onNext(audioEvent);
-                        } else {
-                            subscriber.onComplete();
-                            break;
-                        }
-                    } while (demand.decrementAndGet() > 0);
-                } catch (Exception e) {
-                    subscriber.onError(e);
-                }
-            });
-        }
-
-        @Override
-        public void cancel() {
-            executor.shutdown();
-        }
-
-        private ByteBuffer getNextEvent() {
-            ByteBuffer audioBuffer = null;
-            byte[] audioBytes = new byte[CHUNK_SIZE_IN_BYTES];
-
-            int len = 0;
-            try {
-                len = inputStream.read(audioBytes);
-
-                if (len <= 0) {
-                    audioBuffer = ByteBuffer.allocate(0);
-                } else {
-                    audioBuffer = ByteBuffer.wrap(audioBytes, 0, len);
-                }
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-
-            return audioBuffer;
-        }
-
-        private AudioEvent audioEventFromBuffer(ByteBuffer bb) {
-            return AudioEvent.builder()
-                    .audioChunk(SdkBytes.fromByteBuffer(bb))
-                    .build();
-        }
-    }
 }
 // snippet-end:[transcribe.java-streaming-demo-file.main]
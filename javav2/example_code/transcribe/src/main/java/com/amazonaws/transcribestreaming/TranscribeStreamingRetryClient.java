@@ -22,26 +22,44 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.transcribestreaming.TranscribeStreamingAsyncClient;
 import software.amazon.awssdk.services.transcribestreaming.model.AudioStream;
 import software.amazon.awssdk.services.transcribestreaming.model.BadRequestException;
+import software.amazon.awssdk.services.transcribestreaming.model.Result;
 import software.amazon.awssdk.services.transcribestreaming.model.StartStreamTranscriptionRequest;
 import software.amazon.awssdk.services.transcribestreaming.model.StartStreamTranscriptionResponseHandler;
+import software.amazon.awssdk.services.transcribestreaming.model.TranscriptEvent;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Build a client wrapper around the Amazon Transcribe client to retry
  * on an exception that can be retried.
+ *
+ * Retries are scheduled on a timer instead of sleeping, so the SDK thread that reported
+ * the failure is released right away, and one client can serve many concurrent streams.
+ * Wrap the audio in a {@link ReplayableAudioPublisher} so that a retry resumes from the
+ * last final transcript result instead of losing the audio that was already sent.
  */
 // snippet-start:[transcribe.java-streaming-retry-client]
 public class TranscribeStreamingRetryClient {
 
     private static final int DEFAULT_MAX_RETRIES = 10;
     private static final int DEFAULT_MAX_SLEEP_TIME_MILLS = 100;
+    private static final int MAX_BACKOFF_MILLIS = 10_000;
     private static final Logger log = LoggerFactory.getLogger(TranscribeStreamingRetryClient.class);
     private final TranscribeStreamingAsyncClient client;
+    private final ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "transcribe-retry-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
     List<Class<?>> nonRetriableExceptions = Arrays.asList(BadRequestException.class);
     private int maxRetries = DEFAULT_MAX_RETRIES;
     private int sleepTime = DEFAULT_MAX_SLEEP_TIME_MILLS;
@@ -92,7 +110,8 @@ public class TranscribeStreamingRetryClient {
     }
 
     /**
-     * Set sleep time between retries
+     * Set the base sleep time between retries. Each retry waits a random time up to
+     * twice as long as the previous one.
      */
     public void setSleepTime(int sleepTime) {
         this.sleepTime = sleepTime;
@@ -123,22 +142,18 @@ public class TranscribeStreamingRetryClient {
                                       final CompletableFuture<Void> finalFuture,
                                       final int retryAttempt) {
         CompletableFuture<Void> result = client.startStreamTranscription(request, publisher,
-                getResponseHandler(responseHandler));
+                getResponseHandler(responseHandler, publisher));
         result.whenComplete((r, e) -> {
             if (e != null) {
                 log.debug("Error occured:", e);
 
                 if (retryAttempt <= maxRetries && isExceptionRetriable(e)) {
-                    log.debug("Retriable error occurred and will be retried.");
-                    log.debug("Sleeping for sometime before retrying...");
-                    try {
-                        Thread.sleep(sleepTime);
-                    } catch (InterruptedException e1) {
-                        log.debug("Unable to sleep. Failed with exception: ", e);
-                        e1.printStackTrace();
-                    }
-                    log.debug("Making retry attempt: " + (retryAttempt + 1));
-                    recursiveStartStream(request, publisher, responseHandler, finalFuture, retryAttempt + 1);
+                    long delay = backoffMillis(retryAttempt);
+                    log.debug("Retriable error occurred. Making retry attempt " + (retryAttempt + 1)
+                            + " in " + delay + " ms.");
+                    // Don't block the SDK thread that completed this future; schedule the retry instead.
+                    retryTimer.schedule(() -> recursiveStartStream(request, publisher, responseHandler,
+                            finalFuture, retryAttempt + 1), delay, TimeUnit.MILLISECONDS);
                 } else {
                     log.error("Encountered unretriable exception or ran out of retries. ");
                     responseHandler.onError(e);
@@ -165,7 +180,7 @@ public class TranscribeStreamingRetryClient {
      * Output is printed to standard output
      */
     private StartStreamTranscriptionResponseHandler getResponseHandler(
-            StreamTranscriptionBehavior transcriptionBehavior) {
+            StreamTranscriptionBehavior transcriptionBehavior, Publisher<AudioStream> publisher) {
         final StartStreamTranscriptionResponseHandler build = StartStreamTranscriptionResponseHandler.builder()
                 .onResponse(r -> {
                     transcriptionBehavior.onResponse(r);
@@ -177,22 +192,46 @@ public class TranscribeStreamingRetryClient {
                     //Do nothing here. Don't close any streams that shouldn't be cleaned up yet.
                 })
 
-                .subscriber(event -> transcriptionBehavior.onStream(event))
+                .subscriber(event -> {
+                    if (publisher instanceof ReplayableAudioPublisher && event instanceof TranscriptEvent) {
+                        acknowledgeFinalResults((ReplayableAudioPublisher) publisher, (TranscriptEvent) event);
+                    }
+                    transcriptionBehavior.onStream(event);
+                })
                 .build();
         return build;
     }
 
+    /**
+     * Release the audio that final results have covered, so it isn't sent again on a retry.
+     */
+    private void acknowledgeFinalResults(ReplayableAudioPublisher publisher, TranscriptEvent event) {
+        for (Result result : event.transcript().results()) {
+            if (Boolean.FALSE.equals(result.isPartial())) {
+                publisher.acknowledge(result.endTime());
+            }
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter, capped at MAX_BACKOFF_MILLIS.
+     */
+    private long backoffMillis(int retryAttempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, (long) sleepTime << Math.min(retryAttempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
     /**
      * Check if the exception can be retried.
      *
      */
     private boolean isExceptionRetriable(Throwable e) {
-        e.printStackTrace();
-
-        return nonRetriableExceptions.contains(e.getClass());
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return !nonRetriableExceptions.contains(cause.getClass());
     }
 
     public void close() {
+        this.retryTimer.shutdownNow();
         this.client.close();
     }
 
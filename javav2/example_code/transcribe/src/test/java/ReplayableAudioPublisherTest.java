@@ -0,0 +1,146 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.amazonaws.transcribestreaming.ReplayableAudioPublisher;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioEvent;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplayableAudioPublisherTest {
+
+    // Each chunk is 100 bytes, which is 0.1 seconds of audio at this rate.
+    private static final int BYTES_PER_SECOND = 1000;
+    private static final int CHUNK_SIZE = 100;
+
+    @Test
+    public void retryReplaysTheUnacknowledgedChunksInOrder() {
+        ReplayableAudioPublisher publisher = new ReplayableAudioPublisher(new ChunkPublisher(10), BYTES_PER_SECOND,
+            10 * CHUNK_SIZE);
+
+        // The first subscription receives five chunks, and the first two are covered by a final result.
+        RecordingSubscriber first = new RecordingSubscriber();
+        publisher.subscribe(first);
+        first.subscription.request(5);
+        publisher.acknowledge(0.2);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), first.chunks);
+
+        // Then it fails, and the retry client cancels it and subscribes again.
+        first.subscription.cancel();
+        RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        second.subscription.request(3);
+        assertEquals(Arrays.asList(2, 3, 4), second.chunks);
+
+        // Transcript times restart with each session, so 0.1 s now covers chunk 2 only.
+        publisher.acknowledge(0.1);
+        second.subscription.cancel();
+        RecordingSubscriber third = new RecordingSubscriber();
+        publisher.subscribe(third);
+        third.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(3, 4, 5, 6, 7, 8, 9), third.chunks);
+        assertTrue(third.completed);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), first.chunks);
+        assertFalse(first.completed);
+        assertFalse(second.completed);
+    }
+
+    @Test
+    public void oldestChunksAreDroppedWhenTheWindowIsFull() {
+        // Only three chunks are retained. The publisher reads ahead of its subscriber, so by the time
+        // the first subscription fails all eight chunks have been read and only the last three are kept.
+        ReplayableAudioPublisher publisher = new ReplayableAudioPublisher(new ChunkPublisher(8), BYTES_PER_SECOND,
+            3 * CHUNK_SIZE);
+        RecordingSubscriber first = new RecordingSubscriber();
+        publisher.subscribe(first);
+        first.subscription.request(6);
+        first.subscription.cancel();
+
+        RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        second.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(5, 6, 7), second.chunks);
+        assertTrue(second.completed);
+    }
+
+    // Publishes the given number of audio chunks on request, each filled with its own index.
+    private static class ChunkPublisher implements Publisher<AudioStream> {
+        private final int count;
+
+        private ChunkPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super AudioStream> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < count) {
+                        demand--;
+                        byte[] chunk = new byte[CHUNK_SIZE];
+                        Arrays.fill(chunk, (byte) next++);
+                        subscriber.onNext(AudioEvent.builder().audioChunk(SdkBytes.fromByteArrayUnsafe(chunk)).build());
+                    }
+                    if (next == count) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel() {
+                    next = count + 1;
+                }
+            });
+        }
+    }
+
+    // Records the index of each chunk it receives. Demand is requested by the test.
+    private static class RecordingSubscriber implements Subscriber<AudioStream> {
+        private final List<Integer> chunks = new ArrayList<>();
+        private Subscription subscription;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(AudioStream event) {
+            chunks.add((int) ((AudioEvent) event).audioChunk().asByteArrayUnsafe()[0]);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            throw new AssertionError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -1,10 +1,25 @@
+import com.amazonaws.transcribe.AudioStreamPublisher;
 import com.amazonaws.transcribe.BidirectionalStreaming;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioEvent;
+import software.amazon.awssdk.services.transcribestreaming.model.AudioStream;
 import software.amazon.awssdk.services.transcribestreaming.TranscribeStreamingAsyncClient;
 import software.amazon.awssdk.regions.Region;
 import org.junit.jupiter.api.*;
 import java.io.*;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -36,4 +51,101 @@ public class TranscribeTest {
     public void BidirectionalStreaming() throws Exception {
         BidirectionalStreaming.convertAudio(client);
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(3)
+    public void AudioStreamPublisherConcurrentStreams() throws Exception {
+        // Push 1,000 file-backed streams through a stub subscriber that requests from several threads.
+        // At most 100 files are open at once, so the test stays well under the open-file limit.
+        int streamCount = 1000;
+        Semaphore openFiles = new Semaphore(100);
+        Path audioFile = Files.createTempFile("audio", ".pcm");
+        byte[] audio = new byte[32_000 * 3 + 123];
+        new Random().nextBytes(audio);
+        Files.write(audioFile, audio);
+
+        ExecutorService requesters = Executors.newFixedThreadPool(4);
+        List<StubSubscriber> subscribers = new ArrayList<>();
+        try {
+            for (int i = 0; i < streamCount; i++) {
+                assertTrue(openFiles.tryAcquire(60, TimeUnit.SECONDS));
+                InputStream in = new FileInputStream(audioFile.toFile());
+                StubSubscriber subscriber = new StubSubscriber(requesters, in, openFiles);
+                new AudioStreamPublisher(in, 32_000, Duration.ofMillis(100)).subscribe(subscriber);
+                subscribers.add(subscriber);
+            }
+
+            for (StubSubscriber subscriber : subscribers) {
+                assertTrue(subscriber.completed.await(60, TimeUnit.SECONDS));
+                assertNull(subscriber.error);
+                assertEquals(audio.length, subscriber.bytes.get());
+                assertFalse(subscriber.overlapped.get());
+            }
+        } finally {
+            requesters.shutdown();
+            Files.delete(audioFile);
+        }
+        System.out.println("Test 3 passed");
+    }
+
+    /**
+     * Stands in for the SDK: requests one event at a time from another thread and checks
+     * that onNext is never called concurrently. The audio file is closed when the stream ends.
+     */
+    private static class StubSubscriber implements Subscriber<AudioStream> {
+        private final ExecutorService requesters;
+        private final InputStream in;
+        private final Semaphore openFiles;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean inOnNext = new AtomicBoolean();
+        private final AtomicBoolean overlapped = new AtomicBoolean();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        private StubSubscriber(ExecutorService requesters, InputStream in, Semaphore openFiles) {
+            this.requesters = requesters;
+            this.in = in;
+            this.openFiles = openFiles;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            requesters.execute(() -> s.request(1));
+            requesters.execute(() -> s.request(2));
+        }
+
+        @Override
+        public void onNext(AudioStream event) {
+            if (!inOnNext.compareAndSet(false, true)) {
+                overlapped.set(true);
+            }
+            bytes.addAndGet(((AudioEvent) event).audioChunk().asByteArrayUnsafe().length);
+            inOnNext.set(false);
+            requesters.execute(() -> subscription.request(1));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            finish();
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+        }
+
+        private void finish() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                error = e;
+            }
+            openFiles.release();
+            completed.countDown();
+        }
+    }
  }
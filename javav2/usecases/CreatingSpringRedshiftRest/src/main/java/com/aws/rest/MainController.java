@@ -20,8 +20,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
 
 @ComponentScan(basePackages = {"com.aws.rest"})
 @CrossOrigin(origins = "*")
@@ -37,18 +36,15 @@ public class MainController {
         this.repository = repository;
     }
 
+    // The request thread is released while the query runs, and the response is written when it finishes.
     @GetMapping("" )
-    public List<WorkItem> getItems(@RequestParam(required=false) String archived) {
-        Iterable<WorkItem> result;
+    public CompletableFuture<List<WorkItem>> getItems(@RequestParam(required=false) String archived) {
         if (archived != null && archived.compareTo("false")==0)
-           result = repository.getData("0");
+           return repository.getDataAsync("0");
         else if (archived != null && archived.compareTo("true")==0)
-            result = repository.getData("1");
+            return repository.getDataAsync("1");
         else
-            result = repository.getData("");
-
-        return StreamSupport.stream(result.spliterator(), false)
-            .collect(Collectors.toUnmodifiableList());
+            return repository.getDataAsync("");
     }
 
 
@@ -0,0 +1,252 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.aws.rest;
+
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataAsyncClient;
+import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.redshiftdata.model.Field;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultRequest;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+import software.amazon.awssdk.services.redshiftdata.model.RedshiftDataException;
+import software.amazon.awssdk.services.redshiftdata.model.StatusString;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs SQL statements with the Amazon Redshift Data API without holding a thread while they run.
+ *
+ * ExecuteStatement returns as soon as a statement is queued. Instead of each request polling
+ * DescribeStatement in a loop, one scheduler thread checks every pending statement, and waits
+ * longer between checks the longer a statement runs. Callers get a CompletableFuture that
+ * completes when the statement finishes. Results are read one GetStatementResult page at a
+ * time by using nextToken, either into a ColumnarResult or as a stream of records.
+ */
+@Component
+public class RedshiftDataExecutor implements AutoCloseable {
+    private static final long FIRST_POLL_MILLIS = 100;
+    private static final long MAX_POLL_MILLIS = 2_000;
+
+    private final RedshiftDataAsyncClient client;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redshift-statement-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public RedshiftDataExecutor() {
+        this(RedshiftDataAsyncClient.builder()
+            .region(Region.US_WEST_2)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build());
+    }
+
+    public RedshiftDataExecutor(RedshiftDataAsyncClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Queues a statement and returns its identifier without waiting for it to run.
+     */
+    public CompletableFuture<String> submit(ExecuteStatementRequest request) {
+        return client.executeStatement(request).thenApply(ExecuteStatementResponse::id);
+    }
+
+    /**
+     * Queues a statement and returns its identifier once it has finished. The future fails with
+     * a RedshiftDataException if the statement fails or is aborted.
+     */
+    public CompletableFuture<String> execute(ExecuteStatementRequest request) {
+        return submit(request).thenCompose(this::whenFinished);
+    }
+
+    /**
+     * Returns the identifier of a statement once it has finished.
+     */
+    public CompletableFuture<String> whenFinished(String statementId) {
+        CompletableFuture<String> finished = new CompletableFuture<>();
+        pending.incrementAndGet();
+        finished.whenComplete((id, e) -> pending.decrementAndGet());
+        poll(statementId, FIRST_POLL_MILLIS, finished);
+        return finished;
+    }
+
+    /**
+     * Returns the number of statements that are being waited for.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Reads every page of the result of a finished statement into memory.
+     */
+    public CompletableFuture<ColumnarResult> fetchAll(String statementId) {
+        return fetchPages(statementId, null, new ColumnarResult());
+    }
+
+    /**
+     * Returns the records of a finished statement, one page at a time. The next page is requested
+     * while the caller reads the current one, and hasNext waits only if it hasn't arrived yet.
+     */
+    public Iterator<List<Field>> records(String statementId) {
+        return new Iterator<List<Field>>() {
+            private Iterator<List<Field>> page = Collections.emptyIterator();
+            private CompletableFuture<GetStatementResultResponse> nextPage = getPage(statementId, null);
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && nextPage != null) {
+                    GetStatementResultResponse response = nextPage.join();
+                    String nextToken = response.nextToken();
+                    nextPage = nextToken == null ? null : getPage(statementId, nextToken);
+                    page = response.records().iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public List<Field> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        client.close();
+    }
+
+    private void poll(String statementId, long delayMillis, CompletableFuture<String> finished) {
+        DescribeStatementRequest request = DescribeStatementRequest.builder()
+            .id(statementId)
+            .build();
+
+        try {
+            scheduler.schedule(() -> client.describeStatement(request).whenComplete((response, e) -> {
+                if (e != null) {
+                    finished.completeExceptionally(e);
+                } else if (response.status() == StatusString.FINISHED) {
+                    finished.complete(statementId);
+                } else if (response.status() == StatusString.FAILED || response.status() == StatusString.ABORTED) {
+                    finished.completeExceptionally(failure(response));
+                } else {
+                    poll(statementId, Math.min(delayMillis * 2, MAX_POLL_MILLIS), finished);
+                }
+            }), delayMillis, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException e) {
+            // The executor has been closed.
+            finished.completeExceptionally(e);
+        }
+    }
+
+    private static RedshiftDataException failure(DescribeStatementResponse response) {
+        return (RedshiftDataException) RedshiftDataException.builder()
+            .message("Statement " + response.id() + " " + response.statusAsString() + ": " + response.error())
+            .build();
+    }
+
+    private CompletableFuture<GetStatementResultResponse> getPage(String statementId, String nextToken) {
+        return client.getStatementResult(GetStatementResultRequest.builder()
+            .id(statementId)
+            .nextToken(nextToken)
+            .build());
+    }
+
+    private CompletableFuture<ColumnarResult> fetchPages(String statementId, String nextToken, ColumnarResult result) {
+        return getPage(statementId, nextToken).thenCompose(response -> {
+            result.add(response);
+            if (response.nextToken() == null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return fetchPages(statementId, response.nextToken(), result);
+        });
+    }
+
+    /**
+     * The result of a statement, stored by column.
+     */
+    public static class ColumnarResult {
+        private final List<String> columnNames = new ArrayList<>();
+        private final List<List<Field>> columns = new ArrayList<>();
+        private int rowCount;
+
+        void add(GetStatementResultResponse page) {
+            if (columns.isEmpty() && page.hasColumnMetadata()) {
+                for (ColumnMetadata column : page.columnMetadata()) {
+                    columnNames.add(column.name());
+                    columns.add(new ArrayList<>());
+                }
+            }
+            for (List<Field> record : page.records()) {
+                for (int i = 0; i < record.size(); i++) {
+                    if (i == columns.size()) {
+                        columnNames.add("column" + (i + 1));
+                        columns.add(new ArrayList<>());
+                    }
+                    columns.get(i).add(record.get(i));
+                }
+                rowCount++;
+            }
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public List<String> getColumnNames() {
+            return Collections.unmodifiableList(columnNames);
+        }
+
+        public List<Field> getColumn(String name) {
+            int index = columnNames.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("No column named " + name);
+            }
+            return Collections.unmodifiableList(columns.get(index));
+        }
+
+        // Returns a view of one row, in the order of the columns in the query.
+        public List<Field> getRow(int row) {
+            if (row < 0 || row >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+            }
+            return new AbstractList<Field>() {
+                @Override
+                public Field get(int column) {
+                    return columns.get(column).get(row);
+                }
+
+                @Override
+                public int size() {
+                    return columns.size();
+                }
+            };
+        }
+    }
+}
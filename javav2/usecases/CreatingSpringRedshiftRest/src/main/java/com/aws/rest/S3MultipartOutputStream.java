@@ -0,0 +1,175 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.aws.rest;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output stream that writes an Amazon S3 object of any size while holding only one
+ * part in memory.
+ *
+ * Bytes are collected into a part buffer, and each full part is sent with UploadPart.
+ * Closing the stream sends the last part and completes the upload; an object smaller
+ * than one part is sent with a single PutObject instead. If a request fails, the upload
+ * is aborted so that S3 doesn't keep the parts already sent.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+    // S3 requires every part except the last to be at least 5 MiB.
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucketName;
+    private final String key;
+    private final String contentType;
+    private final byte[] buffer;
+    private final List<CompletedPart> parts = new ArrayList<>();
+    private int position;
+    private String uploadId;
+    private boolean closed;
+
+    public S3MultipartOutputStream(S3Client s3, String bucketName, String key, String contentType) {
+        this(s3, bucketName, key, contentType, DEFAULT_PART_SIZE);
+    }
+
+    public S3MultipartOutputStream(S3Client s3, String bucketName, String key, String contentType, int partSize) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.contentType = contentType;
+        this.buffer = new byte[Math.max(MIN_PART_SIZE, partSize)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            uploadPart();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == buffer.length) {
+                uploadPart();
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (uploadId == null) {
+                s3.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build(),
+                    bufferedPart());
+                return;
+            }
+            if (position > 0) {
+                uploadPart();
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("Writing s3://" + bucketName + "/" + key + " failed", e);
+        }
+    }
+
+    /**
+     * Stops the upload without creating the object, for example when writing the report fails.
+     */
+    public void abort() {
+        closed = true;
+        if (uploadId != null) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            } catch (SdkException e) {
+                // A lifecycle rule for incomplete multipart uploads removes the parts later.
+                System.err.println("Aborting the upload of " + key + " failed: " + e.getMessage());
+            }
+            uploadId = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                    .uploadId();
+            }
+            int partNumber = parts.size() + 1;
+            String eTag = s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .build(),
+                    bufferedPart())
+                .eTag();
+            parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            position = 0;
+
+        } catch (SdkException e) {
+            abort();
+            throw new IOException("Uploading part " + (parts.size() + 1) + " of " + key + " failed", e);
+        }
+    }
+
+    // Sends the buffered bytes without copying them. RequestBody.fromBytes and fromByteBuffer
+    // both copy the array, and the request finishes before the buffer is reused.
+    private RequestBody bufferedPart() {
+        return RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, position), position);
+    }
+}
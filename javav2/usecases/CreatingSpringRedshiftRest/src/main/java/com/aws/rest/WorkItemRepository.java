@@ -5,26 +5,23 @@
 
 package com.aws.rest;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementRequest;
-import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementResponse;
-import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultRequest;
-import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
-import software.amazon.awssdk.services.redshiftdata.model.RedshiftDataException;
+import software.amazon.awssdk.services.redshiftdata.model.Field;
 import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class WorkItemRepository {
@@ -36,127 +33,81 @@ public class WorkItemRepository {
     private static final String dbUser ="awsuser";
     private static final String clusterId = "redshift-cluster-1";
 
-    RedshiftDataClient getClient() {
-        Region region = Region.US_WEST_2;
-        return RedshiftDataClient.builder()
-            .region(region)
-            .credentialsProvider(ProfileCredentialsProvider.create())
-            .build();
+    private final RedshiftDataExecutor executor;
+
+    @Autowired
+    WorkItemRepository(RedshiftDataExecutor executor) {
+        this.executor = executor;
     }
 
     // Return items from the work table.
     public List<WorkItem> getData(String arch) {
-        String sqlStatement;
-        List<SqlParameter> parameters;
+        return getDataAsync(arch).join();
+    }
+
+    // Return items from the work table without holding the calling thread while the query runs.
+    public CompletableFuture<List<WorkItem>> getDataAsync(String arch) {
+        return executor.execute(queryRequest(arch))
+            .thenCompose(executor::fetchAll)
+            .thenApply(result -> {
+                List<WorkItem> items = new ArrayList<>(result.getRowCount());
+                for (int row = 0; row < result.getRowCount(); row++) {
+                    items.add(WorkItem.from(result.getRow(row)));
+                }
+                return Collections.unmodifiableList(items);
+            });
+    }
+
+    // Return items from the work table one result page at a time, so that a large report isn't held in memory.
+    public Iterator<WorkItem> getDataIterator(String arch) {
+        Iterator<List<Field>> records = executor.records(executor.execute(queryRequest(arch)).join());
+        return new Iterator<WorkItem>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
 
+            @Override
+            public WorkItem next() {
+                return WorkItem.from(records.next());
+            }
+        };
+    }
+
+    // Build the query for the given archive state, or for all records.
+    ExecuteStatementRequest queryRequest(String arch) {
         // Get all records from the Amazon Redshift table.
         if (arch.compareTo("") == 0) {
-            sqlStatement = "SELECT idwork, date, description, guide, status, username, archive FROM work";
-            ExecuteStatementResponse response = executeAll(sqlStatement);
-            String id = response.id();
-            System.out.println("The identifier of the statement is "+id);
-            checkStatement(id);
-            return getResults(id);
-        } else {
-            sqlStatement = "SELECT idwork, date, description, guide, status, username, archive " +
-                "FROM work WHERE username = :username and archive = :arch ;";
-
-            parameters = List.of(
-                param("username", username),
-                param("arch", arch)
-            );
-            ExecuteStatementResponse response = execute(sqlStatement,parameters);
-            String id = response.id();
-            System.out.println("The identifier of the statement is "+id);
-            checkStatement(id);
-            return getResults(id);
+            return statement("SELECT idwork, date, description, guide, status, username, archive FROM work", null);
         }
-    }
 
-    List<WorkItem> getResults(String statementId) {
-        try {
-            GetStatementResultRequest resultRequest = GetStatementResultRequest.builder()
-                .id(statementId)
-                .build();
-
-            GetStatementResultResponse response = getClient().getStatementResult(resultRequest);
-            return response
-                .records()
-                .stream()
-                .map(WorkItem::from)
-                .collect(Collectors.toUnmodifiableList());
-
-        } catch (RedshiftDataException e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
-        }
-        return null;
+        String sqlStatement = "SELECT idwork, date, description, guide, status, username, archive " +
+            "FROM work WHERE username = :username and archive = :arch ;";
+        List<SqlParameter> parameters = List.of(
+            param("username", username),
+            param("arch", arch)
+        );
+        return statement(sqlStatement, parameters);
     }
 
     // Update the work table.
     void flipItemArchive(String sqlStatement, List<SqlParameter> parameters ) {
         try {
-            ExecuteStatementRequest statementRequest = ExecuteStatementRequest.builder()
-                .clusterIdentifier(clusterId)
-                .database(database)
-                .dbUser(dbUser)
-                .sql(sqlStatement)
-                .parameters(parameters)
-                .build();
-
-            getClient().executeStatement(statementRequest);
-
-        } catch (RedshiftDataException e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
-        }
-    }
-
-    void checkStatement(String sqlId ) {
-        try {
-            DescribeStatementRequest statementRequest = DescribeStatementRequest.builder()
-                .id(sqlId)
-                .build() ;
-
-            // Wait until the sql statement processing is finished.
-            String status;
-            while (true) {
-                DescribeStatementResponse response = getClient().describeStatement(statementRequest);
-                status = response.statusAsString();
-                System.out.println("..."+status);
-
-                if (status.compareTo("FINISHED") == 0) {
-                    break;
-                }
-                Thread.sleep(500);
-            }
-            System.out.println("The statement is finished!");
+            executor.submit(statement(sqlStatement, parameters)).join();
 
-        } catch (RedshiftDataException | InterruptedException e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
+        } catch (CompletionException e) {
+            System.err.println(e.getCause().getMessage());
         }
     }
 
-    ExecuteStatementResponse execute(String sqlStatement, List<SqlParameter> parameters) {
-        ExecuteStatementRequest sqlRequest = ExecuteStatementRequest.builder()
+    ExecuteStatementRequest statement(String sqlStatement, List<SqlParameter> parameters) {
+        return ExecuteStatementRequest.builder()
             .clusterIdentifier(clusterId)
             .database(database)
             .dbUser(dbUser)
             .sql(sqlStatement)
             .parameters(parameters)
             .build();
-        return getClient().executeStatement(sqlRequest);
-    }
-
-    ExecuteStatementResponse executeAll(String sqlStatement) {
-        ExecuteStatementRequest sqlRequest = ExecuteStatementRequest.builder()
-            .clusterIdentifier(clusterId)
-            .database(database)
-            .dbUser(dbUser)
-            .sql(sqlStatement)
-            .build();
-        return getClient().executeStatement(sqlRequest);
     }
 
     SqlParameter param(String name, String value) {
@@ -203,8 +154,8 @@ public class WorkItemRepository {
                 param("archive", archived)
             );
 
-            ExecuteStatementResponse result = execute(sql, paremeters);
-            System.out.println(result.toString());
+            String statementId = executor.submit(statement(sql, paremeters)).join();
+            System.out.println("The identifier of the statement is " + statementId);
             return workId;
         } catch (ParseException e) {
             e.printStackTrace();
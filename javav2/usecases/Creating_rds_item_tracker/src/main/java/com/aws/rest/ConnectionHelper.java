@@ -5,32 +5,129 @@
 
 package com.aws.rest;
 
+import com.google.gson.Gson;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.Function;
 
-public class ConnectionHelper {
+/**
+ * Hands out pooled connections to the item tracker database.
+ *
+ * The pool keeps up to a fixed number of MySQL connections open, so requests don't pay
+ * for a new connection and TLS handshake each time, and the driver caches server-side
+ * prepared statements on each connection. The database credentials come from a
+ * SecretCache. When the secret is rotated, new connections use the new credentials and
+ * the old ones are retired as they are returned, without closing the pool.
+ */
+@Component
+public class ConnectionHelper implements AutoCloseable {
 
-    public static Connection getConnection(String host, String user, String password) throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            String url2 = "jdbc:mysql://"+host+":3306/mydb?useSSL=false";
-            return DriverManager.getConnection(url2, user, password);
+    private static final String SECRET_NAME = "itemtracker/mysql";
+    private static final int MAX_POOL_SIZE = 10;
+    private static final String AUTHENTICATION_FAILED = "28000";
 
-        } catch (SQLException | ClassNotFoundException e) {
-            e.getStackTrace();
-        }
-        return null;
+    private final SecretCache secretCache;
+    private final HikariDataSource dataSource;
+    private final Gson gson = new Gson();
+
+    @Autowired
+    public ConnectionHelper() {
+        this(SecretCache.forSecret(getSecretClient(), SECRET_NAME, Duration.ofMinutes(15), Duration.ofMinutes(10)),
+            ConnectionHelper::mysqlUrl, MAX_POOL_SIZE);
     }
 
-    public static void close(Connection connection) {
+    /**
+     * @param secretCache     holds the JSON secret with the host, username, and password.
+     * @param jdbcUrlForHost  returns the JDBC URL for the host in the secret.
+     * @param maxPoolSize     the most connections to keep open.
+     */
+    public ConnectionHelper(SecretCache secretCache, Function<String, String> jdbcUrlForHost, int maxPoolSize) {
+        this.secretCache = secretCache;
+        User user = gson.fromJson(secretCache.get(), User.class);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("item-tracker");
+        config.setJdbcUrl(jdbcUrlForHost.apply(user.getHost()));
+        config.setUsername(user.getUsername());
+        config.setPassword(user.getPassword());
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setConnectionTimeout(Duration.ofSeconds(5).toMillis());
+        this.dataSource = new HikariDataSource(config);
+
+        secretCache.addListener(this::useCredentials);
+    }
+
+    /**
+     * Returns a connection from the pool. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        // Reading the secret is what starts a refresh before the cached value expires.
+        secretCache.get();
+        long secretVersion = secretCache.version();
         try {
-            if (connection != null) {
-                connection.close();
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            if (!isAuthenticationFailure(e)) {
+                throw e;
             }
+            // The password was rotated before the cached copy was refreshed. Only the first
+            // request that fails fetches the secret again.
+            secretCache.refreshIfUnchanged(secretVersion);
+            return dataSource.getConnection();
+        }
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Returns the number of open connections, both idle and in use.
+     */
+    public int getOpenConnections() {
+        return dataSource.getHikariPoolMXBean().getTotalConnections();
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+        secretCache.close();
+    }
+
+    static String mysqlUrl(String host) {
+        return "jdbc:mysql://" + host + ":3306/mydb?useSSL=false"
+            + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64&prepStmtCacheSqlLimit=1024"
+            + "&useCursorFetch=true";
+    }
+
+    private void useCredentials(String secret) {
+        User user = gson.fromJson(secret, User.class);
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        config.setUsername(user.getUsername());
+        config.setPassword(user.getPassword());
+        // Idle connections are replaced now and busy ones when they are returned.
+        dataSource.getHikariPoolMXBean().softEvictConnections();
+    }
+
+    private static boolean isAuthenticationFailure(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && AUTHENTICATION_FAILED.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private static SecretsManagerClient getSecretClient() {
+        Region region = Region.US_WEST_2;
+        return SecretsManagerClient.builder()
+            .region(region)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
     }
-}
\ No newline at end of file
+}
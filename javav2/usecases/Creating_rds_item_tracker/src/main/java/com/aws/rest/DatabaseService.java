@@ -5,113 +5,55 @@
 
 package com.aws.rest;
 
-import com.google.gson.Gson;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
-import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
-import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
 @Component
 public class DatabaseService {
+    // The number of items read with each connection when a report is written.
+    private static final int PAGE_SIZE = 500;
 
-    private SecretsManagerClient getSecretClient() {
-        Region region = Region.US_WEST_2;
-        return SecretsManagerClient.builder()
-            .region(region)
-            .credentialsProvider(ProfileCredentialsProvider.create())
-            .build();
-    }
-
-    private String getSecretValues() {
-        // Get the Amazon RDS creds from Secrets Manager.
-        SecretsManagerClient secretClient = getSecretClient();
-        String secretName = "itemtracker/mysql";
+    private final ConnectionHelper connectionHelper;
 
-        GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
-            .secretId(secretName)
-            .build();
-
-        GetSecretValueResponse valueResponse = secretClient.getSecretValue(valueRequest);
-        return valueResponse.secretString();
+    @Autowired
+    DatabaseService(ConnectionHelper connectionHelper) {
+        this.connectionHelper = connectionHelper;
     }
 
-    // Set the specified item to archive.
-    public void flipItemArchive(String id) {
-        Connection c = null;
-        String query;
-        // Get the Amazon RDS credentials from AWS Secrets Manager.
-        Gson gson = new Gson();
-        User user = gson.fromJson(String.valueOf(getSecretValues()), User.class);
-        try {
-            c = ConnectionHelper.getConnection(user.getHost(), user.getUsername(), user.getPassword());
-            query = "update work set archive = ? where idwork ='" +id + "' ";
-            assert c != null;
-            PreparedStatement updateForm = c.prepareStatement(query);
+    // Set the specified item to archive. Returns false if the item couldn't be updated.
+    public boolean flipItemArchive(String id) {
+        String query = "update work set archive = ? where idwork = ?";
+        try (Connection c = connectionHelper.getConnection();
+             PreparedStatement updateForm = c.prepareStatement(query)) {
             updateForm.setBoolean(1, true);
-            updateForm.execute();
+            updateForm.setString(2, id);
+            return updateForm.executeUpdate() == 1;
 
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            ConnectionHelper.close(c);
         }
+        return false;
     }
 
     // Get Items data from MySQL.
     public List<WorkItem> getItemsDataSQLReport(int flag) {
-        Connection c = null;
         List<WorkItem> itemList = new ArrayList<>();
-        String query;
-        String username = "user";
         WorkItem item;
 
-        // Get the Amazon RDS credentials from AWS Secrets Manager.
-        Gson gson = new Gson();
-        User user = gson.fromJson(String.valueOf(getSecretValues()), User.class);
-        try {
-            c = ConnectionHelper.getConnection(user.getHost(), user.getUsername(), user.getPassword());
-            ResultSet rs = null;
-            PreparedStatement pstmt = null;
-            if (flag == 0) {
-                // Retrieves active data from the MySQL database
-                int arch = 0;
-                query = "Select idwork,username,date,description,guide,status,archive FROM work where username=? and archive=?;";
-                assert c != null;
-                pstmt = c.prepareStatement(query);
-                pstmt.setString(1, username);
-                pstmt.setInt(2, arch);
-                rs = pstmt.executeQuery();
-            }else if (flag == 1)  {
-                // Retrieves archive data from the MySQL database
-                int arch = 1;
-                query = "Select idwork,username,date,description,guide,status,archive  FROM work where username=? and archive=?;";
-                assert c != null;
-                pstmt = c.prepareStatement(query);
-                pstmt.setString(1, username);
-                pstmt.setInt(2, arch);
-                rs = pstmt.executeQuery();
-            } else {
-                // Retrieves all data from the MySQL database
-                query = "Select idwork,username,date,description,guide,status, archive FROM work";
-                assert c != null;
-                pstmt = c.prepareStatement(query);
-                rs = pstmt.executeQuery();
-            }
-
+        try (Connection c = connectionHelper.getConnection();
+             PreparedStatement pstmt = prepareItemsQuery(c, flag);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
                 item = new WorkItem();
                 item.setId(rs.getString(1));
@@ -129,56 +71,119 @@ public class DatabaseService {
 
         } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            ConnectionHelper.close(c);
         }
         return null;
     }
 
-    // Inject a new submission.
-    public void injestNewSubmission(WorkItem item) {
-        Connection c = null;
-        // Get the Amazon RDS credentials from AWS Secrets Manager.
-        Gson gson = new Gson();
-        User user = gson.fromJson(String.valueOf(getSecretValues()), User.class);
-        try {
-            c = ConnectionHelper.getConnection(user.getHost(), user.getUsername(), user.getPassword());
-            PreparedStatement ps;
-
-            // Convert rev to int.
-            String name = item.getName();
-            String guide = item.getGuide();
-            String description = item.getDescription();
-            String status = item.getStatus();
+    /**
+     * Returns the items one page at a time, in the order of their IDs. Each page is read with its
+     * own pooled connection, which is returned before the caller gets the rows. A report that is
+     * written to a slow client therefore doesn't hold a connection for the whole download.
+     */
+    public Iterator<WorkItem> iterateItems(int flag) {
+        return new Iterator<WorkItem>() {
+            private Iterator<WorkItem> page = Collections.emptyIterator();
+            private String lastId = "";
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !lastPage) {
+                    List<WorkItem> items = readPage(flag, lastId);
+                    lastPage = items.size() < PAGE_SIZE;
+                    if (!items.isEmpty()) {
+                        lastId = items.get(items.size() - 1).getId();
+                    }
+                    page = items.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public WorkItem next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    // Reads the items whose IDs come after the given one.
+    private List<WorkItem> readPage(int flag, String afterId) {
+        String query = "Select idwork,username,date,description,guide,status,archive FROM work where idwork > ?"
+            + (flag == 0 || flag == 1 ? " and username=? and archive=?" : "")
+            + " order by idwork limit " + PAGE_SIZE;
+        try (Connection c = connectionHelper.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(query)) {
+            pstmt.setString(1, afterId);
+            if (flag == 0 || flag == 1) {
+                pstmt.setString(2, "user");
+                pstmt.setInt(3, flag);
+            }
+            List<WorkItem> items = new ArrayList<>(PAGE_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(toWorkItem(rs));
+                }
+            }
+            return items;
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Reading the work items failed", e);
+        }
+    }
+
+    private static WorkItem toWorkItem(ResultSet rs) throws SQLException {
+        WorkItem item = new WorkItem();
+        item.setId(rs.getString(1));
+        item.setName(rs.getString(2));
+        item.setDate(rs.getDate(3).toString().trim());
+        item.setDescription(rs.getString(4));
+        item.setGuide(rs.getString(5));
+        item.setStatus(rs.getString(6));
+        item.setArchived(rs.getBoolean(7));
+        return item;
+    }
+
+    private PreparedStatement prepareItemsQuery(Connection c, int flag) throws SQLException {
+        String username = "user";
+        if (flag == 0 || flag == 1) {
+            // Retrieves active (0) or archived (1) data from the MySQL database.
+            PreparedStatement pstmt = c.prepareStatement(
+                "Select idwork,username,date,description,guide,status,archive FROM work where username=? and archive=?;");
+            pstmt.setString(1, username);
+            pstmt.setInt(2, flag);
+            return pstmt;
+        }
+        // Retrieves all data from the MySQL database
+        return c.prepareStatement("Select idwork,username,date,description,guide,status,archive FROM work");
+    }
+
+    // Inject a new submission. Returns false if the item couldn't be added.
+    public boolean injestNewSubmission(WorkItem item) {
+        // Inject an item into the system.
+        String insert = "INSERT INTO work (idwork, username,date,description, guide, status, archive) VALUES(?,?, ?,?,?,?,?);";
+        try (Connection c = connectionHelper.getConnection();
+             PreparedStatement ps = c.prepareStatement(insert)) {
 
             // Generate the work item ID.
-            UUID uuid = UUID.randomUUID();
-            String workId = uuid.toString();
-
-            // Date conversion.
-            DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
-            LocalDateTime now = LocalDateTime.now();
-            String sDate1 = dtf.format(now);
-            Date date1 = new SimpleDateFormat("yyyy/MM/dd").parse(sDate1);
-            java.sql.Date sqlDate = new java.sql.Date( date1.getTime());
-
-            // Inject an item into the system.
-            String insert = "INSERT INTO work (idwork, username,date,description, guide, status, archive) VALUES(?,?, ?,?,?,?,?);";
-            assert c != null;
-            ps = c.prepareStatement(insert);
+            String workId = UUID.randomUUID().toString();
+            java.sql.Date sqlDate = java.sql.Date.valueOf(LocalDate.now());
+
             ps.setString(1, workId);
-            ps.setString(2, name);
+            ps.setString(2, item.getName());
             ps.setDate(3, sqlDate);
-            ps.setString(4, description);
-            ps.setString(5, guide );
-            ps.setString(6, status );
+            ps.setString(4, item.getDescription());
+            ps.setString(5, item.getGuide());
+            ps.setString(6, item.getStatus());
             ps.setBoolean(7, false);
             ps.execute();
+            return true;
 
-        } catch (SQLException | ParseException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
-        } finally {
-            ConnectionHelper.close(c);
         }
+        return false;
     }
 }
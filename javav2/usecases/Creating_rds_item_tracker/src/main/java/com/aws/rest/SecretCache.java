@@ -0,0 +1,145 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.aws.rest;
+
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Caches the value of one secret so that requests don't call AWS Secrets Manager.
+ *
+ * A cached value is returned for up to the time to live. Once it is older than the
+ * refresh-ahead age, the next read still returns it but starts one background fetch, so
+ * requests only wait for Secrets Manager when the value has fully expired or is read for
+ * the first time. Listeners are told when a fetch returns a different value, which is how
+ * a rotated password reaches the connection pool.
+ */
+public class SecretCache implements AutoCloseable {
+
+    private final Supplier<String> fetcher;
+    private final long timeToLiveNanos;
+    private final long refreshAheadNanos;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "secret-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String value;
+    private volatile long fetchedAt;
+    private volatile long version;
+
+    /**
+     * @param fetcher       reads the current secret value.
+     * @param timeToLive    how long a value may be used.
+     * @param refreshAhead  the age at which a value is refreshed in the background; less than timeToLive.
+     */
+    public SecretCache(Supplier<String> fetcher, Duration timeToLive, Duration refreshAhead) {
+        this.fetcher = fetcher;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), timeToLiveNanos);
+    }
+
+    /**
+     * Creates a cache for a secret in Secrets Manager. The client is shared by every fetch.
+     */
+    public static SecretCache forSecret(SecretsManagerClient secretClient, String secretName,
+                                        Duration timeToLive, Duration refreshAhead) {
+        GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
+            .secretId(secretName)
+            .build();
+        return new SecretCache(() -> secretClient.getSecretValue(valueRequest).secretString(), timeToLive, refreshAhead);
+    }
+
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the secret value, fetching it only if there is no unexpired value.
+     */
+    public String get() {
+        String current = value;
+        long age = System.nanoTime() - fetchedAt;
+        if (current != null && age < timeToLiveNanos) {
+            if (age >= refreshAheadNanos && refreshing.compareAndSet(false, true)) {
+                refresher.execute(() -> {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // The current value stays in use; the next read after it expires fetches again.
+                        e.printStackTrace();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            }
+            return current;
+        }
+        return fetchIfExpired();
+    }
+
+    /**
+     * Returns a number that changes each time the secret is fetched. Pass it to
+     * {@link #refreshIfUnchanged(long)} after the value that was current at the time fails.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Fetches the secret now, for example after the database rejects the cached password.
+     */
+    public synchronized String refresh() {
+        String fetched = fetcher.get();
+        String previous = value;
+        value = fetched;
+        fetchedAt = System.nanoTime();
+        version++;
+        if (previous != null && !Objects.equals(previous, fetched)) {
+            for (Consumer<String> listener : listeners) {
+                listener.accept(fetched);
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * Fetches the secret now, unless it has been fetched since the caller read the version.
+     * When many requests are rejected with the same old password, only the first one waits
+     * for Secrets Manager; the others wait for it and then use its result.
+     */
+    public synchronized String refreshIfUnchanged(long seenVersion) {
+        if (version != seenVersion) {
+            return value;
+        }
+        return refresh();
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    // Only one thread fetches an expired value; the others wait and use its result.
+    private synchronized String fetchIfExpired() {
+        if (value != null && System.nanoTime() - fetchedAt < timeToLiveNanos) {
+            return value;
+        }
+        return refresh();
+    }
+}
@@ -5,16 +5,6 @@
 
 package com.aws.rest;
 
-import jxl.CellView;
-import jxl.Workbook;
-import jxl.WorkbookSettings;
-import jxl.format.UnderlineStyle;
-import jxl.write.Label;
-import jxl.write.WritableCellFormat;
-import jxl.write.WritableFont;
-import jxl.write.WritableSheet;
-import jxl.write.WritableWorkbook;
-import jxl.write.WriteException;
 import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.core.SdkBytes;
@@ -37,83 +27,64 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Locale;
+import java.util.Iterator;
 import java.util.Properties;
 
 @Component
 public class WriteExcel {
-    static WritableCellFormat times ;
-    static WritableCellFormat timesBoldUnderline;
-
-    static {
-        try {
-            WritableFont times10pt = new WritableFont(WritableFont.TIMES, 10);
-            times = new WritableCellFormat(times10pt);
-            times.setWrap(true);
-
-            WritableFont times10ptBoldUnderline = new WritableFont(WritableFont.TIMES, 10, WritableFont.BOLD, false, UnderlineStyle.SINGLE);
-            timesBoldUnderline = new WritableCellFormat(times10ptBoldUnderline);
-            timesBoldUnderline.setWrap(true);
-        } catch (WriteException e) {
-            e.printStackTrace();
-        }
+    // Amazon SES accepts messages up to 10 MB, and an attachment grows by a third when it is encoded.
+    private static final int MAX_ATTACHMENT_BYTES = 7 * 1024 * 1024;
+    private static final String SHEET_NAME = "Work Item Report";
+    private static final String[] HEADINGS = {"Writer", "Date", "Guide", "Description", "Status"};
+
+    // Returns the report as a workbook that is small enough to send as an email attachment.
+    // Reading stops with ReportTooLargeException as soon as the workbook grows past that size.
+    public InputStream write(Iterator<WorkItem> items) throws IOException {
+        AttachmentBuffer buffer = new AttachmentBuffer();
+        write(items, ReportWriter.Format.XLSX, buffer);
+        return new ByteArrayInputStream(buffer.toByteArray());
     }
 
-    public InputStream write(Iterable<WorkItem> items) throws IOException, WriteException {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        WorkbookSettings wbSettings = new WorkbookSettings();
-        wbSettings.setLocale(new Locale("en", "US"));
-
-        WritableWorkbook workbook = Workbook.createWorkbook(os, wbSettings);
-        workbook.createSheet("Work Item Report", 0);
-        WritableSheet excelSheet = workbook.getSheet(0);
-
-        addLabels(excelSheet);
-        fillContent(excelSheet, items);
-
-        workbook.write();
-        workbook.close();
-
-        return new ByteArrayInputStream(os.toByteArray());
+    // Writes the report to the stream as the items are read, and then closes the stream.
+    public void write(Iterator<WorkItem> items, ReportWriter.Format format, OutputStream out) throws IOException {
+        // The writer is closed only on success, so a failed report is never completed, such as in Amazon S3.
+        ReportWriter writer = ReportWriter.open(format, out);
+        writer.startSheet(SHEET_NAME, HEADINGS);
+        while (items.hasNext()) {
+            WorkItem item = items.next();
+            writer.writeRow(item.getName(), item.getDate(), item.getGuide(), item.getDescription(), item.getStatus());
+        }
+        writer.close();
     }
 
-    private void addLabels(WritableSheet sheet) throws WriteException {
-        CellView cv = new CellView();
-        cv.setFormat(timesBoldUnderline);
-        cv.setAutosize(true);
+    // Collects an attachment and fails once it is too large to send.
+    private static class AttachmentBuffer extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
 
-        addCaption(sheet, 0, 0, "Writer");
-        addCaption(sheet, 1, 0, "Date");
-        addCaption(sheet, 2, 0, "Guide");
-        addCaption(sheet, 3, 0, "Description");
-        addCaption(sheet, 4, 0, "Status");
-    }
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
 
-    private void addCaption(WritableSheet sheet, int column, int row, String s) throws WriteException {
-        Label label = new Label(column, row, s, timesBoldUnderline);
-        int cc = s.length();
-        sheet.setColumnView(column, cc);
-        sheet.addCell(label);
-    }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (bytes.size() + len > MAX_ATTACHMENT_BYTES) {
+                throw new ReportTooLargeException();
+            }
+            bytes.write(b, off, len);
+        }
 
-    private void addField(WritableSheet sheet, int column, int row, String s) throws WriteException {
-        Label label = new Label(column, row, s, timesBoldUnderline);
-        int cc = s.length();
-        cc = cc > 200 ? 150 : cc + 6;
-        sheet.setColumnView(column, cc);
-        sheet.addCell(label);
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
     }
 
-    private void fillContent(WritableSheet sheet, Iterable<WorkItem> items) throws WriteException {
-        int row = 2;
-        for (WorkItem item : items) {
-            addField(sheet, 0, row, item.getName());
-            addField(sheet, 1, row, item.getDate());
-            addField(sheet, 2, row, item.getGuide());
-            addField(sheet, 3, row, item.getDescription());
-            addField(sheet, 4, row, item.getStatus());
-            row += 1;
+    // Thrown when a report is too large to be sent as an email attachment.
+    public static class ReportTooLargeException extends IOException {
+        ReportTooLargeException() {
+            super("The report is too large to send by email. Download it or write it to Amazon S3 instead.");
         }
     }
 
@@ -123,7 +94,7 @@ public class WriteExcel {
         private static String subject = "Weekly AWS Status Report";
         private static String bodyText = "Hello,\r\n\r\nPlease see the attached file for a weekly update.";
         private static String bodyHTML = "<!DOCTYPE html><html lang=\"en-US\"><body><h1>Hello!</h1><p>Please see the attached file for a weekly update.</p></body></html>";
-        private static String attachmentName = "WorkReport.xls";
+        private static String attachmentName = "WorkReport.xlsx";
 
         public void sendReport(InputStream is, String emailAddress) throws IOException {
             byte[] fileContent = IOUtils.toByteArray(is);
@@ -179,7 +150,7 @@ public class WriteExcel {
             msg.addBodyPart(wrap);
 
             MimeBodyPart att = new MimeBodyPart();
-            DataSource fds = new ByteArrayDataSource(attachment, "application/vnc.openxmlformats-officedocument.spreadsheetml.sheet");
+            DataSource fds = new ByteArrayDataSource(attachment, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
             att.setDataHandler(new DataHandler(fds));
             att.setFileName(attachmentName);
 
@@ -188,4 +159,4 @@ public class WriteExcel {
             return message;
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.aws.rest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Drives DatabaseService at a fixed request rate against an embedded H2 database in
+ * MySQL mode, and reports latency percentiles, Secrets Manager calls, and open connections.
+ *
+ * The secret is served by a stand-in that waits 50 ms per call, like a round trip to
+ * Secrets Manager. Halfway through the run the database password is rotated, and the
+ * stand-in returns the new one, so the run also shows the pool picking up new
+ * credentials without failing requests. Latency is measured from the time each request
+ * was scheduled to start, so a slow request also counts against the ones queued behind it.
+ */
+public class DatabaseLoadTest {
+    private static final String DATABASE = "itemtracker";
+    private static final String ADMIN_URL = "jdbc:h2:mem:" + DATABASE + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        final String usage = "\n" +
+            "Usage:\n" +
+            "    <requestsPerSecond> <seconds>\n\n" +
+            "Where:\n" +
+            "    requestsPerSecond - The number of requests to start each second (for example, 200).\n" +
+            "    seconds - How long to run.\n";
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        int requestsPerSecond = Integer.parseInt(args[0]);
+        int seconds = Integer.parseInt(args[1]);
+        int total = requestsPerSecond * seconds;
+
+        try (Connection admin = DriverManager.getConnection(ADMIN_URL, "sa", "")) {
+            createDatabase(admin, "tracker-1", 500);
+
+            AtomicInteger secretFetches = new AtomicInteger();
+            String[] password = {"tracker-1"};
+            Supplier<String> secretStandIn = () -> {
+                secretFetches.incrementAndGet();
+                sleep(50);
+                synchronized (password) {
+                    return "{\"host\":\"" + DATABASE + "\",\"username\":\"tracker\",\"password\":\"" + password[0] + "\"}";
+                }
+            };
+            SecretCache secretCache = new SecretCache(secretStandIn, Duration.ofSeconds(20), Duration.ofSeconds(15));
+
+            try (ConnectionHelper connectionHelper = new ConnectionHelper(secretCache,
+                host -> "jdbc:h2:mem:" + host + ";MODE=MySQL;DB_CLOSE_DELAY=-1", 10)) {
+                DatabaseService dbService = new DatabaseService(connectionHelper);
+                List<WorkItem> items = dbService.getItemsDataSQLReport(0);
+
+                long[] latencies = new long[total];
+                AtomicLong failures = new AtomicLong();
+                ExecutorService workers = Executors.newFixedThreadPool(64);
+                ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+                AtomicInteger next = new AtomicInteger();
+                long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+                long start = System.nanoTime();
+
+                scheduler.scheduleAtFixedRate(() -> {
+                    int i = next.getAndIncrement();
+                    if (i >= total) {
+                        return;
+                    }
+                    if (i == total / 2) {
+                        rotatePassword(admin, password, "tracker-2");
+                    }
+                    long scheduledAt = start + i * intervalNanos;
+                    workers.execute(() -> {
+                        if (!request(dbService, items, i)) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - scheduledAt;
+                    });
+                }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+                while (next.get() < total) {
+                    Thread.sleep(100);
+                }
+                scheduler.shutdown();
+                workers.shutdown();
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+                double elapsed = (System.nanoTime() - start) / 1e9;
+
+                Arrays.sort(latencies);
+                System.out.printf("Requests: %d in %.1f s (%.0f/s), failed: %d%n", total, elapsed, total / elapsed, failures.get());
+                System.out.printf("Latency ms: p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    percentile(latencies, 0.999), latencies[total - 1] / 1e6);
+                System.out.printf("Secrets Manager calls: %d, open connections: %d%n",
+                    secretFetches.get(), connectionHelper.getOpenConnections());
+            }
+        }
+    }
+
+    // Eight in ten requests list the active items, one adds an item, and one archives an item.
+    private static boolean request(DatabaseService dbService, List<WorkItem> items, int i) {
+        switch (i % 10) {
+            case 3:
+                WorkItem item = new WorkItem();
+                item.setName("user");
+                item.setGuide("Java");
+                item.setDescription("Load test item " + i);
+                item.setStatus("Open");
+                return dbService.injestNewSubmission(item);
+            case 7:
+                return dbService.flipItemArchive(items.get(i % items.size()).getId());
+            default:
+                return dbService.getItemsDataSQLReport(0) != null;
+        }
+    }
+
+    private static void createDatabase(Connection admin, String password, int rows) throws SQLException {
+        try (Statement statement = admin.createStatement()) {
+            statement.execute("CREATE USER tracker PASSWORD '" + password + "'");
+            statement.execute("CREATE TABLE work (idwork VARCHAR(45) PRIMARY KEY, username VARCHAR(45), date DATE, "
+                + "description VARCHAR(400), guide VARCHAR(45), status VARCHAR(400), archive BOOLEAN)");
+            statement.execute("CREATE INDEX work_user_archive ON work (username, archive)");
+            statement.execute("GRANT SELECT, INSERT, UPDATE ON work TO tracker");
+        }
+        try (PreparedStatement insert = admin.prepareStatement("INSERT INTO work VALUES (?, 'user', ?, ?, 'Java', 'Open', false)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, "item-" + i);
+                insert.setDate(2, java.sql.Date.valueOf(LocalDate.now()));
+                insert.setString(3, "Seeded item " + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void rotatePassword(Connection admin, String[] password, String newPassword) {
+        // Like a single-user rotation: the database changes first, then the secret.
+        try (Statement statement = admin.createStatement()) {
+            statement.execute("ALTER USER tracker SET PASSWORD '" + newPassword + "'");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        synchronized (password) {
+            password[0] = newPassword;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example;
+
+/**
+ * A single byte range from an HTTP Range header, such as bytes=0-, bytes=100-199, or bytes=-500.
+ *
+ * Browsers ask for one range at a time when they play or seek in a video, so a header that
+ * lists several ranges is answered with the first one.
+ */
+public class ByteRange {
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+    private final long suffixLength;
+
+    private ByteRange(long start, long end, long suffixLength) {
+        this.start = start;
+        this.end = end;
+        this.suffixLength = suffixLength;
+    }
+
+    /**
+     * Returns the range in the header, or null if there is no header.
+     *
+     * @throws IllegalArgumentException if the header isn't a valid byte range.
+     */
+    public static ByteRange parse(String header) {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        if (!header.startsWith(BYTES_UNIT)) {
+            throw new IllegalArgumentException("Unsupported range unit: " + header);
+        }
+        String spec = header.substring(BYTES_UNIT.length());
+        int comma = spec.indexOf(',');
+        if (comma >= 0) {
+            spec = spec.substring(0, comma);
+        }
+        spec = spec.trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Invalid range: " + header);
+        }
+
+        try {
+            if (dash == 0) {
+                long suffixLength = Long.parseLong(spec.substring(1));
+                if (suffixLength <= 0) {
+                    throw new IllegalArgumentException("Invalid range: " + header);
+                }
+                return new ByteRange(-1, -1, suffixLength);
+            }
+            long start = Long.parseLong(spec.substring(0, dash));
+            long end = dash == spec.length() - 1 ? -1 : Long.parseLong(spec.substring(dash + 1));
+            if (start < 0 || (end >= 0 && end < start)) {
+                throw new IllegalArgumentException("Invalid range: " + header);
+            }
+            return new ByteRange(start, end, -1);
+
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range: " + header, e);
+        }
+    }
+
+    // True for a range that asks for the last bytes of the object, such as bytes=-500.
+    public boolean isSuffix() {
+        return suffixLength > 0;
+    }
+
+    // True if the range gives its last byte, and false for an open range such as bytes=100-.
+    public boolean hasEnd() {
+        return end >= 0;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getSuffixLength() {
+        return suffixLength;
+    }
+
+    @Override
+    public String toString() {
+        if (isSuffix()) {
+            return BYTES_UNIT + "-" + suffixLength;
+        }
+        return BYTES_UNIT + start + "-" + (hasEnd() ? String.valueOf(end) : "");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.Tag;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the tags of every video in a bucket in memory, so that the video menu doesn't call
+ * GetObjectTagging for each video.
+ *
+ * A refresh lists every page of the bucket, and fetches tags only for objects that are new or
+ * whose ETag or last modified time has changed since the last refresh. Those requests run on a
+ * fixed number of threads. Between refreshes, the menu is served from memory. Tags that are
+ * changed with PutObjectTagging don't change the ETag, so they show up when the object is
+ * uploaded again or the index is invalidated. If the tags of a video can't be read, the video
+ * keeps the entry it had, or is listed by its key, and they are read again at the next refresh.
+ */
+public class VideoMetadataIndex {
+    private final S3Client s3;
+    private final ExecutorService taggingPool;
+    private final long refreshIntervalNanos;
+    private final Map<String, BucketIndex> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param s3                     the client used to list the bucket and read tags.
+     * @param maxConcurrentRequests  the most GetObjectTagging requests to run at the same time.
+     * @param refreshIntervalMillis  how long the index is used before the bucket is listed again.
+     */
+    public VideoMetadataIndex(S3Client s3, int maxConcurrentRequests, long refreshIntervalMillis) {
+        this.s3 = s3;
+        this.refreshIntervalNanos = refreshIntervalMillis * 1_000_000;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.taggingPool = Executors.newFixedThreadPool(maxConcurrentRequests, r -> {
+            Thread thread = new Thread(r, "video-tagging-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the name and description of each video in the bucket, in key order.
+     */
+    public List<Tags> getTags(String bucketName) {
+        BucketIndex index = buckets.computeIfAbsent(bucketName, BucketIndex::new);
+        synchronized (index) {
+            if (index.refreshedAt == 0 || System.nanoTime() - index.refreshedAt > refreshIntervalNanos) {
+                refresh(index);
+            }
+            return index.tags;
+        }
+    }
+
+    /**
+     * Makes the next call to getTags list the bucket again, for example after a video is uploaded.
+     */
+    public void invalidate(String bucketName) {
+        BucketIndex index = buckets.get(bucketName);
+        if (index != null) {
+            synchronized (index) {
+                index.refreshedAt = 0;
+            }
+        }
+    }
+
+    private void refresh(BucketIndex index) {
+        ListObjectsV2Request listObjects = ListObjectsV2Request.builder()
+            .bucket(index.bucketName)
+            .build();
+
+        Map<String, VideoEntry> entries = new HashMap<>();
+        List<CompletableFuture<VideoEntry>> changed = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (S3Object object : s3.listObjectsV2Paginator(listObjects).contents()) {
+            keys.add(object.key());
+            VideoEntry entry = index.entries.get(object.key());
+            if (entry != null && entry.isCurrent(object)) {
+                entries.put(object.key(), entry);
+            } else {
+                changed.add(CompletableFuture.supplyAsync(() -> fetchEntry(index.bucketName, object, entry), taggingPool));
+            }
+        }
+
+        try {
+            for (CompletableFuture<VideoEntry> future : changed) {
+                VideoEntry entry = future.join();
+                entries.put(entry.key, entry);
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        List<Tags> tags = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            tags.add(entries.get(key).toTags());
+        }
+        index.entries = entries;
+        index.tags = Collections.unmodifiableList(tags);
+        index.refreshedAt = System.nanoTime();
+    }
+
+    // Reads the tags of an object that is new or has changed. The previous entry, if there is one,
+    // is kept when the tags can't be read.
+    private VideoEntry fetchEntry(String bucketName, S3Object object, VideoEntry previous) {
+        GetObjectTaggingRequest getTaggingRequest = GetObjectTaggingRequest.builder()
+            .key(object.key())
+            .bucket(bucketName)
+            .build();
+
+        Map<String, String> tagMap = new HashMap<>();
+        try {
+            for (Tag tag : s3.getObjectTagging(getTaggingRequest).tagSet()) {
+                tagMap.put(tag.key(), tag.value());
+            }
+        } catch (SdkException e) {
+            System.err.println("Reading the tags of " + object.key() + " failed: " + e.getMessage());
+            return previous != null ? previous : VideoEntry.untagged(object.key());
+        }
+        return new VideoEntry(object, tagMap.get("name"), tagMap.get("description"));
+    }
+
+    private static class BucketIndex {
+        private final String bucketName;
+        private Map<String, VideoEntry> entries = new HashMap<>();
+        private List<Tags> tags = new ArrayList<>();
+        private long refreshedAt;
+
+        BucketIndex(String bucketName) {
+            this.bucketName = bucketName;
+        }
+    }
+
+    private static class VideoEntry {
+        private final String key;
+        private final String eTag;
+        private final Instant lastModified;
+        private final String name;
+        private final String description;
+
+        VideoEntry(S3Object object, String name, String description) {
+            this(object.key(), object.eTag(), object.lastModified(), name, description);
+        }
+
+        private VideoEntry(String key, String eTag, Instant lastModified, String name, String description) {
+            this.key = key;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            // A video that was uploaded without tags is listed by its key.
+            this.name = name != null ? name : key;
+            this.description = description != null ? description : "";
+        }
+
+        // An entry for a video whose tags couldn't be read. It has no ETag, so it is never current.
+        static VideoEntry untagged(String key) {
+            return new VideoEntry(key, null, null, null, null);
+        }
+
+        boolean isCurrent(S3Object object) {
+            return eTag != null && eTag.equals(object.eTag()) && Objects.equals(lastModified, object.lastModified());
+        }
+
+        Tags toTags() {
+            Tags tags = new Tags();
+            tags.setName(name);
+            tags.setDesc(description);
+            return tags;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the first bytes of popular videos in memory.
+ *
+ * Every viewer of a video starts at the beginning, so the leading segment is the part that is
+ * read most often. A segment is only kept for a video that has been viewed before, which
+ * stops a single view of many videos from pushing out the ones that are watched the most. The
+ * least recently used segments are removed once the cache is full, and a segment expires after
+ * its time to live in case the object was replaced by another instance of the application.
+ */
+public class VideoSegmentCache {
+    // The number of videos whose request counts are remembered.
+    private static final int MAX_TRACKED_VIDEOS = 1024;
+
+    private final int segmentSize;
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+    private final Map<String, Segment> segments = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> requests = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_TRACKED_VIDEOS;
+        }
+    };
+    private long cachedBytes;
+
+    /**
+     * @param segmentSize  the number of leading bytes to keep for each video.
+     * @param maxBytes     the most bytes to keep for all videos.
+     * @param timeToLiveMillis  how long a segment is used after it is cached.
+     */
+    public VideoSegmentCache(int segmentSize, long maxBytes, long timeToLiveMillis) {
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLiveMillis * 1_000_000;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Counts a view of a video, and returns true if its leading segment should be cached. Call it
+     * once per view, not for every range that the player reads.
+     */
+    public synchronized boolean recordRequest(String key) {
+        Integer count = requests.get(key);
+        int newCount = count == null ? 1 : count + 1;
+        requests.put(key, newCount);
+        return newCount > 1;
+    }
+
+    // Returns the cached segment of the video, or null if there isn't an unexpired one.
+    public synchronized Segment get(String key) {
+        Segment segment = segments.get(key);
+        if (segment != null && System.nanoTime() - segment.cachedAt > timeToLiveNanos) {
+            remove(key);
+            return null;
+        }
+        return segment;
+    }
+
+    public synchronized void put(String key, Segment segment) {
+        if (segment.bytes.length > maxBytes) {
+            return;
+        }
+        remove(key);
+        Iterator<Segment> eldest = segments.values().iterator();
+        while (cachedBytes + segment.bytes.length > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().bytes.length;
+            eldest.remove();
+        }
+        segments.put(key, segment);
+        cachedBytes += segment.bytes.length;
+    }
+
+    // Removes the segment of a video, for example when a new version is uploaded.
+    public synchronized void remove(String key) {
+        Segment removed = segments.remove(key);
+        if (removed != null) {
+            cachedBytes -= removed.bytes.length;
+        }
+    }
+
+    /**
+     * The leading bytes of a video, along with what is needed to answer a range request from them.
+     */
+    public static class Segment {
+        private final byte[] bytes;
+        private final long objectSize;
+        private final String contentType;
+        private final String eTag;
+        private final long cachedAt = System.nanoTime();
+
+        public Segment(byte[] bytes, long objectSize, String contentType, String eTag) {
+            this.bytes = bytes;
+            this.objectSize = objectSize;
+            this.contentType = contentType;
+            this.eTag = eTag;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public long getObjectSize() {
+            return objectSize;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
@@ -6,6 +6,7 @@
 package com.example;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -13,14 +14,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.view.RedirectView;
-import reactor.core.publisher.Mono;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 
 @Controller
 public class VideoStreamController {
@@ -55,12 +58,11 @@ public class VideoStreamController {
     @RequestMapping(value = "/fileupload", method = RequestMethod.POST)
     @ResponseBody
     public ModelAndView singleFileUpload(@RequestParam("file") MultipartFile file, @RequestParam String description) {
-        try {
-            byte[] bytes = file.getBytes();
+        try (InputStream video = file.getInputStream()) {
             String name = file.getOriginalFilename() ;
 
             // Put the MP4 file into an Amazon S3 bucket.
-            vid.putVideo(bytes, bucket, name, description);
+            vid.putVideo(video, file.getContentType(), bucket, name, description);
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -76,10 +78,12 @@ public class VideoStreamController {
         return xml;
     }
 
-    // Returns the video in the bucket specified by the ID value.
+    // Returns the video in the bucket specified by the ID value. The browser asks for one byte range
+    // at a time, and only that range is read from the bucket.
     @RequestMapping(value = "/{id}/stream", method = RequestMethod.GET)
-    public Mono<ResponseEntity<byte[]>> streamVideo(@PathVariable String id) {
+    public ResponseEntity<StreamingResponseBody> streamVideo(@PathVariable String id,
+                                                             @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
         String fileName = id;
-        return Mono.just(vid.getObjectBytes(bucket, fileName));
+        return vid.getVideo(bucket, fileName, range);
     }
 }
@@ -5,24 +5,22 @@
 
 package com.example;
 
+import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
-import software.amazon.awssdk.services.s3.model.S3Object;
-import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.Tag;
 import org.w3c.dom.Document;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -35,9 +33,14 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collections;
 import java.util.List;
-import java.util.ArrayList;
 
 @Service
 public class VideoStreamService {
@@ -46,124 +49,212 @@ public class VideoStreamService {
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String VIDEO_CONTENT = "video/";
 
-    private S3Client getClient() {
+    // Ranges are read from Amazon S3 in whole chunks. A request for an open range, such as
+    // bytes=0-, is answered with the chunks up to a chunk boundary instead of the rest of the
+    // video, and the browser asks for the next range as it plays.
+    static final int CHUNK_SIZE = 1024 * 1024;
+    static final int READ_AHEAD_CHUNKS = 4;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
-        return S3Client.builder()
+    private final S3Client s3;
+
+    // The tags of the videos, fetched on up to 16 threads and listed again after 30 seconds.
+    private final VideoMetadataIndex metadataIndex;
+
+    // The first 2 MiB of up to 32 popular videos.
+    private final VideoSegmentCache segmentCache = new VideoSegmentCache(2 * CHUNK_SIZE, 64L * 1024 * 1024, 10 * 60 * 1000);
+
+    public VideoStreamService() {
+        this(S3Client.builder()
                 .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
                 .region(Region.US_WEST_2)
-                .build();
+                .build());
     }
 
-    // Places a new video into an Amazon S3 bucket.
-    public void putVideo(byte[] bytes, String bucketName, String fileName, String description) {
-        S3Client s3 = getClient();
-        try {
-            // Set the tags to apply to the object.
-            String theTags = "name="+fileName+"&description="+description;
+    // Uses the given client for all calls, for example a stub in a test.
+    VideoStreamService(S3Client s3) {
+        this.s3 = s3;
+        this.metadataIndex = new VideoMetadataIndex(s3, 16, 30 * 1000);
+    }
 
-            PutObjectRequest putOb = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(fileName)
-                    .tagging(theTags)
-                    .build();
+    // Places a new video into an Amazon S3 bucket. The video is read from the stream and uploaded in parts.
+    public void putVideo(InputStream video, String contentType, String bucketName, String fileName, String description) throws IOException {
+        // Set the tags to apply to the object.
+        String theTags = "name=" + encode(fileName) + "&description=" + encode(description);
 
-            s3.putObject(putOb, RequestBody.fromBytes(bytes));
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3, bucketName, fileName, contentType, theTags);
+        try {
+            IOUtils.copy(video, out, COPY_BUFFER_SIZE);
+            out.close();
 
-        } catch (S3Exception e) {
-            System.err.println(e.awsErrorDetails().errorMessage());
-            System.exit(1);
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
         }
+        segmentCache.remove(bucketName + "/" + fileName);
+        metadataIndex.invalidate(bucketName);
     }
 
-    // Returns a schema that describes all tags for all videos in the given bucket.
+    // Returns a schema that describes all tags for all videos in the given bucket. If the bucket
+    // can't be listed, the menu is empty and the next request lists it again.
     public String getTags(String bucketName){
-        S3Client s3 = getClient();
+        List<Tags> tagList;
+        try {
+            tagList = metadataIndex.getTags(bucketName);
+        } catch (SdkException e) {
+            System.err.println("Listing the videos in " + bucketName + " failed: " + e.getMessage());
+            tagList = Collections.emptyList();
+        }
+        return convertToString(toXml(tagList));
+    }
 
+    // Streams the requested range of a video in a bucket. Without a range, the whole video is streamed.
+    public ResponseEntity<StreamingResponseBody> getVideo(String bucketName, String keyName, String rangeHeader) {
+        ByteRange range;
         try {
-            ListObjectsRequest listObjects = ListObjectsRequest.builder()
-                .bucket(bucketName)
-                .build();
+            range = ByteRange.parse(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // A Range header that can't be parsed is ignored.
+            range = null;
+        }
+
+        // A player reads a video in many ranges, so only the request that starts a view is counted.
+        // Otherwise a single view of a long video would make it look popular.
+        String cacheKey = bucketName + "/" + keyName;
+        boolean startsView = range == null || (!range.isSuffix() && range.getStart() == 0);
+        boolean popular = startsView && segmentCache.recordRequest(cacheKey);
+        VideoSegmentCache.Segment segment = segmentCache.get(cacheKey);
+        if (segment != null && range != null && !range.isSuffix()) {
+            if (range.getStart() >= segment.getObjectSize()) {
+                return notSatisfiable(segment.getObjectSize());
+            }
+            long end = range.hasEnd() ? range.getEnd() : Math.min(chunkEnd(range.getStart()), segment.getBytes().length - 1);
+            end = Math.min(end, segment.getObjectSize() - 1);
+            if (end < segment.getBytes().length) {
+                return fromSegment(segment, range.getStart(), end);
+            }
+        }
+
+        GetObjectRequest.Builder objectRequest = GetObjectRequest.builder()
+                .key(keyName)
+                .bucket(bucketName);
+        if (range != null) {
+            objectRequest.range(range.isSuffix() || range.hasEnd()
+                    ? range.toString()
+                    : "bytes=" + range.getStart() + "-" + chunkEnd(range.getStart()));
+        }
+
+        ResponseInputStream<GetObjectResponse> object;
+        try {
+            object = s3.getObject(objectRequest.build());
+        } catch (NoSuchKeyException e) {
+            return ResponseEntity.notFound().build();
+        } catch (S3Exception e) {
+            if (e.statusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                return notSatisfiable(getObjectSize(bucketName, keyName));
+            }
+            throw e;
+        }
+
+        GetObjectResponse response = object.response();
+        long start = 0;
+        long objectSize = response.contentLength();
+        HttpStatus status = HttpStatus.OK;
+        HttpHeaders headers = new HttpHeaders();
+        if (response.contentRange() != null) {
+            // For example, bytes 0-4194303/52428800.
+            String contentRange = response.contentRange();
+            start = Long.parseLong(contentRange.substring(contentRange.indexOf(' ') + 1, contentRange.indexOf('-')));
+            objectSize = Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, contentRange);
+        }
+        String contentType = videoContentType(response.contentType());
+        headers.set(CONTENT_TYPE, contentType);
+        headers.set(CONTENT_LENGTH, String.valueOf(response.contentLength()));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(response.eTag());
+
+        // Keep the leading segment of a popular video as it is streamed to the viewer.
+        byte[] leadingBytes = popular && start == 0 && segment == null
+                ? new byte[(int) Math.min(segmentCache.getSegmentSize(), objectSize)]
+                : null;
+        long size = objectSize;
+        StreamingResponseBody body = out -> {
+            long copied = copy(object, out, leadingBytes);
+            if (leadingBytes != null && copied >= leadingBytes.length) {
+                segmentCache.put(cacheKey, new VideoSegmentCache.Segment(leadingBytes, size, contentType, response.eTag()));
+            }
+        };
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    // Copies the object to the response, and fills leadingBytes, if there are any, with the first bytes copied.
+    private static long copy(ResponseInputStream<GetObjectResponse> object, OutputStream out, byte[] leadingBytes) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long copied = 0;
+        try {
+            int count;
+            while ((count = object.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+                if (leadingBytes != null && copied < leadingBytes.length) {
+                    System.arraycopy(buffer, 0, leadingBytes, (int) copied, (int) Math.min(count, leadingBytes.length - copied));
+                }
+                copied += count;
+            }
+        } catch (IOException e) {
+            // The viewer stopped or moved to another part of the video. Close the connection
+            // instead of reading the rest of the range from Amazon S3.
+            object.abort();
+            throw e;
+        } finally {
+            object.close();
+        }
+        return copied;
+    }
 
-          ListObjectsResponse res = s3.listObjects(listObjects);
-          List<S3Object> objects = res.contents();
-          List<String> keys = new ArrayList<>();
-          for (S3Object myValue: objects) {
-              String key = myValue.key(); // We need the key to get the tags.
-              GetObjectTaggingRequest getTaggingRequest = GetObjectTaggingRequest.builder()
-                  .key(key)
-                  .bucket(bucketName)
-                  .build();
-
-              GetObjectTaggingResponse tags = s3.getObjectTagging(getTaggingRequest);
-              List<Tag> tagSet= tags.tagSet();
-              for (Tag tag : tagSet) {
-                  keys.add(tag.value());
-              }
-          }
-
-          List<Tags> tagList = modList(keys);
-          return convertToString(toXml(tagList));
-
-    } catch (S3Exception e) {
-        System.err.println(e.awsErrorDetails().errorMessage());
-        System.exit(1);
+    private static ResponseEntity<StreamingResponseBody> fromSegment(VideoSegmentCache.Segment segment, long start, long end) {
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header(CONTENT_TYPE, segment.getContentType())
+                .header(CONTENT_LENGTH, String.valueOf(end - start + 1))
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + segment.getObjectSize())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(segment.getETag())
+                .body(out -> out.write(segment.getBytes(), (int) start, (int) (end - start + 1)));
     }
-        return "";
+
+    private static ResponseEntity<StreamingResponseBody> notSatisfiable(long objectSize) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + objectSize)
+                .build();
     }
 
-    // Return a List where each element is a Tags object.
-    private List<Tags> modList(List<String> myList){
-        // Get the elements from the collection.
-        int count = myList.size();
-        List<Tags> allTags = new ArrayList<>();
-        Tags myTag ;
-        ArrayList<String> keys = new ArrayList<>();
-        ArrayList<String> values = new ArrayList<>();
-
-        for ( int index=0; index < count; index++) {
-            if (index % 2 == 0)
-                keys.add(myList.get(index));
-            else
-                values.add(myList.get(index));
-           }
-
-           // Create a list where each element is a Tags object.
-           for (int r=0; r<keys.size(); r++){
-               myTag = new Tags();
-               myTag.setName(keys.get(r));
-               myTag.setDesc(values.get(r));
-               allTags.add(myTag);
-           }
-        return allTags;
+    private long getObjectSize(String bucketName, String keyName) {
+        return s3.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyName)
+                .build())
+            .contentLength();
     }
 
+    // Returns the last byte of the read-ahead window that starts with the chunk holding the given byte.
+    static long chunkEnd(long start) {
+        return (start / CHUNK_SIZE + READ_AHEAD_CHUNKS) * (long) CHUNK_SIZE - 1;
+    }
 
-    // Reads a video from a bucket and returns a ResponseEntity.
-    public ResponseEntity<byte[]> getObjectBytes (String bucketName, String keyName) {
-        S3Client s3 = getClient();
-        try {
-            // create a GetObjectRequest instance.
-            GetObjectRequest objectRequest = GetObjectRequest
-                    .builder()
-                    .key(keyName)
-                    .bucket(bucketName)
-                    .build();
-
-            // get the byte[] from this AWS S3 object and return a ResponseEntity.
-            ResponseBytes<GetObjectResponse> objectBytes = s3.getObjectAsBytes(objectRequest);
-            return ResponseEntity.status(HttpStatus.OK)
-                    .header(CONTENT_TYPE, VIDEO_CONTENT + "mp4")
-                    .header(CONTENT_LENGTH, String.valueOf(objectBytes.asByteArray().length))
-                    .body(objectBytes.asByteArray());
+    // Videos that were uploaded without a content type are served as MP4.
+    private static String videoContentType(String contentType) {
+        return contentType != null && contentType.startsWith(VIDEO_CONTENT) ? contentType : VIDEO_CONTENT + "mp4";
+    }
 
-        } catch (S3Exception e) {
-            System.err.println(e.awsErrorDetails().errorMessage());
-            System.exit(1);
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
         }
-        return null;
     }
 
-
     // Convert a LIST to XML data.
      private Document toXml(List<Tags> itemList) {
         try {
@@ -0,0 +1,61 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.ByteRange;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteRangeTest {
+
+    @Test
+    public void missingHeaderIsNoRange() {
+        assertNull(ByteRange.parse(null));
+        assertNull(ByteRange.parse(""));
+    }
+
+    @Test
+    public void openRangeHasNoEnd() {
+        ByteRange range = ByteRange.parse("bytes=100-");
+        assertEquals(100, range.getStart());
+        assertFalse(range.hasEnd());
+        assertFalse(range.isSuffix());
+        assertEquals("bytes=100-", range.toString());
+    }
+
+    @Test
+    public void closedRangeHasStartAndEnd() {
+        ByteRange range = ByteRange.parse("bytes=0-499");
+        assertEquals(0, range.getStart());
+        assertTrue(range.hasEnd());
+        assertEquals(499, range.getEnd());
+        assertEquals("bytes=0-499", range.toString());
+    }
+
+    @Test
+    public void suffixRangeHasLengthOnly() {
+        ByteRange range = ByteRange.parse("bytes=-500");
+        assertTrue(range.isSuffix());
+        assertEquals(500, range.getSuffixLength());
+        assertEquals("bytes=-500", range.toString());
+    }
+
+    @Test
+    public void onlyTheFirstOfSeveralRangesIsUsed() {
+        ByteRange range = ByteRange.parse("bytes= 200-299, 500-");
+        assertEquals(200, range.getStart());
+        assertEquals(299, range.getEnd());
+    }
+
+    @Test
+    public void invalidRangesAreRejected() {
+        for (String header : new String[]{"items=0-1", "bytes=", "bytes=5", "bytes=9-5", "bytes=-0", "bytes=a-",
+            "bytes=0-b", "bytes=--5"}) {
+            assertThrows(IllegalArgumentException.class, () -> ByteRange.parse(header), header);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class VideoMetadataIndexTest {
+
+    @Test
+    public void videoWhoseTagsCantBeReadKeepsItsEntry() {
+        StubS3 s3 = new StubS3();
+        s3.put("a.mp4", "etag-a", "First");
+        s3.put("b.mp4", "etag-b", "Second");
+        VideoMetadataIndex index = new VideoMetadataIndex(s3.client, 2, 60 * 1000);
+        assertEquals(Arrays.asList("First", "Second"), names(index.getTags("bucket")));
+
+        // b.mp4 is uploaded again, and reading its new tags fails.
+        s3.put("b.mp4", "etag-b2", "Second, edited");
+        s3.failingKeys.add("b.mp4");
+        index.invalidate("bucket");
+        assertEquals(Arrays.asList("First", "Second"), names(index.getTags("bucket")));
+
+        // Its tags are read again at the next refresh, and those of a.mp4, which didn't change, aren't.
+        s3.failingKeys.clear();
+        s3.taggingRequests.clear();
+        index.invalidate("bucket");
+        assertEquals(Arrays.asList("First", "Second, edited"), names(index.getTags("bucket")));
+        assertEquals(Arrays.asList("b.mp4"), s3.taggingRequests);
+    }
+
+    @Test
+    public void newVideoWhoseTagsCantBeReadIsListedByKey() {
+        StubS3 s3 = new StubS3();
+        s3.put("a.mp4", "etag-a", "First");
+        s3.put("b.mp4", "etag-b", "Second");
+        s3.failingKeys.add("b.mp4");
+        VideoMetadataIndex index = new VideoMetadataIndex(s3.client, 2, 60 * 1000);
+        assertEquals(Arrays.asList("First", "b.mp4"), names(index.getTags("bucket")));
+
+        s3.failingKeys.clear();
+        index.invalidate("bucket");
+        assertEquals(Arrays.asList("First", "Second"), names(index.getTags("bucket")));
+    }
+
+    private static List<String> names(List<Tags> tags) {
+        List<String> names = new ArrayList<>();
+        for (Tags tag : tags) {
+            names.add(tag.getName());
+        }
+        return names;
+    }
+
+    // An S3Client that lists one page of objects and returns the name tag of each. Reading the tags
+    // of a key in failingKeys fails the way a request that times out does.
+    private static class StubS3 implements InvocationHandler {
+        private final S3Client client = (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+            new Class<?>[]{S3Client.class}, this);
+        private final Map<String, S3Object> objects = new ConcurrentHashMap<>();
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        private final Set<String> failingKeys = ConcurrentHashMap.newKeySet();
+        private final List<String> taggingRequests = Collections.synchronizedList(new ArrayList<>());
+
+        private void put(String key, String eTag, String name) {
+            objects.put(key, S3Object.builder().key(key).eTag(eTag).lastModified(Instant.EPOCH).build());
+            names.put(key, name);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "listObjectsV2Paginator":
+                    return new ListObjectsV2Iterable(client, (ListObjectsV2Request) args[0]);
+                case "listObjectsV2":
+                    List<S3Object> contents = new ArrayList<>(objects.values());
+                    contents.sort((x, y) -> x.key().compareTo(y.key()));
+                    return ListObjectsV2Response.builder().contents(contents).isTruncated(false).build();
+                case "getObjectTagging":
+                    String key = ((GetObjectTaggingRequest) args[0]).key();
+                    taggingRequests.add(key);
+                    if (failingKeys.contains(key)) {
+                        throw SdkClientException.builder().message("Unable to execute HTTP request: Read timed out").build();
+                    }
+                    return GetObjectTaggingResponse.builder()
+                        .tagSet(Tag.builder().key("name").value(names.get(key)).build())
+                        .build();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VideoStreamServiceTest {
+    private static final int VIDEO_SIZE = 1000;
+
+    @Test
+    public void requestWithoutRangeIsStreamedWhole() throws IOException {
+        StubS3 s3 = new StubS3();
+        ResponseEntity<StreamingResponseBody> response = new VideoStreamService(s3.client).getVideo("bucket", "video.mp4", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(String.valueOf(VIDEO_SIZE), response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(s3.video, body(response));
+        assertEquals(Arrays.asList((String) null), s3.ranges);
+    }
+
+    @Test
+    public void closedRangeIsPartialContent() throws IOException {
+        StubS3 s3 = new StubS3();
+        ResponseEntity<StreamingResponseBody> response =
+            new VideoStreamService(s3.client).getVideo("bucket", "video.mp4", "bytes=100-199");
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-199/" + VIDEO_SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("100", response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(Arrays.copyOfRange(s3.video, 100, 200), body(response));
+        assertEquals(Arrays.asList("bytes=100-199"), s3.ranges);
+    }
+
+    @Test
+    public void openRangeIsReadUpToTheReadAheadWindow() throws IOException {
+        StubS3 s3 = new StubS3();
+        ResponseEntity<StreamingResponseBody> response =
+            new VideoStreamService(s3.client).getVideo("bucket", "video.mp4", "bytes=500-");
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 500-999/" + VIDEO_SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(s3.video, 500, VIDEO_SIZE), body(response));
+        assertEquals(Arrays.asList("bytes=500-" + VideoStreamService.chunkEnd(500)), s3.ranges);
+    }
+
+    @Test
+    public void rangePastTheEndIsNotSatisfiable() {
+        StubS3 s3 = new StubS3();
+        ResponseEntity<StreamingResponseBody> response =
+            new VideoStreamService(s3.client).getVideo("bucket", "video.mp4", "bytes=" + VIDEO_SIZE + "-");
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */" + VIDEO_SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void secondViewIsCachedAndServesRangesFromMemory() throws IOException {
+        StubS3 s3 = new StubS3();
+        VideoStreamService service = new VideoStreamService(s3.client);
+        body(service.getVideo("bucket", "video.mp4", "bytes=0-"));
+        body(service.getVideo("bucket", "video.mp4", "bytes=0-"));
+        assertEquals(2, s3.ranges.size());
+
+        ResponseEntity<StreamingResponseBody> partial = service.getVideo("bucket", "video.mp4", "bytes=10-19");
+        assertEquals(HttpStatus.PARTIAL_CONTENT, partial.getStatusCode());
+        assertEquals("bytes 10-19/" + VIDEO_SIZE, partial.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(s3.video, 10, 20), body(partial));
+
+        ResponseEntity<StreamingResponseBody> pastEnd = service.getVideo("bucket", "video.mp4", "bytes=2000-");
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, pastEnd.getStatusCode());
+        assertEquals("bytes */" + VIDEO_SIZE, pastEnd.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+
+        // Both were answered from the cached segment.
+        assertEquals(2, s3.ranges.size());
+    }
+
+    @Test
+    public void rangesAfterTheStartDontCountAsViews() throws IOException {
+        StubS3 s3 = new StubS3();
+        VideoStreamService service = new VideoStreamService(s3.client);
+        // One viewer reads a few ranges in the middle of the video and then goes back to the start.
+        body(service.getVideo("bucket", "video.mp4", "bytes=300-"));
+        body(service.getVideo("bucket", "video.mp4", "bytes=600-"));
+        body(service.getVideo("bucket", "video.mp4", "bytes=0-"));
+
+        // The segment isn't cached until the second view, so this range is read from Amazon S3.
+        body(service.getVideo("bucket", "video.mp4", "bytes=10-19"));
+        assertEquals(4, s3.ranges.size());
+    }
+
+    @Test
+    public void menuIsEmptyWhenTheBucketCantBeListed() {
+        StubS3 s3 = new StubS3();
+        String xml = new VideoStreamService(s3.client).getTags("bucket");
+
+        assertTrue(xml.endsWith("<Tags/>"), xml);
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    // An S3Client that holds one video and answers range reads of it the way Amazon S3 does.
+    // The bucket can't be listed.
+    private static class StubS3 implements InvocationHandler {
+        private final S3Client client = (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+            new Class<?>[]{S3Client.class}, this);
+        private final byte[] video = new byte[VIDEO_SIZE];
+        // The Range of each GetObject call, or null for a call without one.
+        private final List<String> ranges = new ArrayList<>();
+
+        private StubS3() {
+            for (int i = 0; i < video.length; i++) {
+                video[i] = (byte) i;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getObject":
+                    return getObject((GetObjectRequest) args[0]);
+                case "headObject":
+                    return HeadObjectResponse.builder().contentLength((long) VIDEO_SIZE).build();
+                case "listObjectsV2Paginator":
+                    throw (S3Exception) S3Exception.builder().statusCode(403).message("Access Denied").build();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+            ranges.add(request.range());
+            GetObjectResponse.Builder response = GetObjectResponse.builder()
+                .contentType("video/mp4")
+                .eTag("\"etag\"");
+            int start = 0;
+            int end = video.length - 1;
+            if (request.range() != null) {
+                String[] bounds = request.range().substring("bytes=".length()).split("-");
+                start = Integer.parseInt(bounds[0]);
+                if (start >= video.length) {
+                    throw (S3Exception) S3Exception.builder().statusCode(416).message("InvalidRange").build();
+                }
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+                response.contentRange("bytes " + start + "-" + end + "/" + video.length);
+            }
+            response.contentLength((long) (end - start + 1));
+            return new ResponseInputStream<>(response.build(),
+                AbortableInputStream.create(new ByteArrayInputStream(video, start, end - start + 1)));
+        }
+    }
+}
@@ -98,60 +98,72 @@ public class DynamoDBService {
 
     // Get Open items from the DynamoDB table.
     public List<WorkItem> getOpenItems() {
+        try{
+            ArrayList<WorkItem> itemList = new ArrayList<>();
+            getOpenItemsIterator().forEachRemaining(itemList::add);
+            return itemList;
+
+        } catch (DynamoDbException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        return null;
+    }
+
+    // Get Open items from the DynamoDB table as the scan reads them, one page at a time,
+    // so that a large report isn't held in memory.
+    public Iterator<WorkItem> getOpenItemsIterator() {
         DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
             .dynamoDbClient(getClient())
             .build();
 
-        try{
-            DynamoDbTable<Work> table = enhancedClient.table("Work", TableSchema.fromBean(Work.class));
-            AttributeValue attr = AttributeValue.builder()
-                .n("0")
-                .build();
-
-            Map<String, AttributeValue> myMap = new HashMap<>();
-            myMap.put(":val1",attr);
+        DynamoDbTable<Work> table = enhancedClient.table("Work", TableSchema.fromBean(Work.class));
+        AttributeValue attr = AttributeValue.builder()
+            .n("0")
+            .build();
 
-            Map<String, String> myExMap = new HashMap<>();
-            myExMap.put("#archive", "archive");
+        Map<String, AttributeValue> myMap = new HashMap<>();
+        myMap.put(":val1",attr);
 
-            // Set the Expression so only active items are queried from the Work table.
-            Expression expression = Expression.builder()
-                .expressionValues(myMap)
-                .expressionNames(myExMap)
-                .expression("#archive = :val1")
-                .build();
+        Map<String, String> myExMap = new HashMap<>();
+        myExMap.put("#archive", "archive");
 
-            ScanEnhancedRequest enhancedRequest = ScanEnhancedRequest.builder()
-                .filterExpression(expression)
-                .limit(15)
-                .build();
+        // Set the Expression so only active items are queried from the Work table.
+        Expression expression = Expression.builder()
+            .expressionValues(myMap)
+            .expressionNames(myExMap)
+            .expression("#archive = :val1")
+            .build();
 
-            // Scan items.
-            Iterator<Work> results = table.scan(enhancedRequest).items().iterator();
-            WorkItem workItem ;
-            ArrayList<WorkItem> itemList = new ArrayList<>();
+        // Each scan request reads up to 1 MB of items; the next one is sent when the page has been read.
+        ScanEnhancedRequest enhancedRequest = ScanEnhancedRequest.builder()
+            .filterExpression(expression)
+            .build();
 
-            while (results.hasNext()) {
-                workItem = new WorkItem();
-                Work work = results.next();
-                workItem.setName(work.getName());
-                workItem.setGuide(work.getGuide());
-                workItem.setDescription(work.getDescription());
-                workItem.setStatus(work.getStatus());
-                workItem.setDate(work.getDate());
-                workItem.setId(work.getId());
-                workItem.setArchived(work.getArchive());
+        Iterator<Work> results = table.scan(enhancedRequest).items().iterator();
+        return new Iterator<WorkItem>() {
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
 
-                // Push the workItem to the list.
-                itemList.add(workItem);
+            @Override
+            public WorkItem next() {
+                return toWorkItem(results.next());
             }
-            return itemList;
+        };
+    }
 
-        } catch (DynamoDbException e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
-        }
-        return null;
+    private static WorkItem toWorkItem(Work work) {
+        WorkItem workItem = new WorkItem();
+        workItem.setName(work.getName());
+        workItem.setGuide(work.getGuide());
+        workItem.setDescription(work.getDescription());
+        workItem.setStatus(work.getStatus());
+        workItem.setDate(work.getDate());
+        workItem.setId(work.getId());
+        workItem.setArchived(work.getArchive());
+        return workItem;
     }
 
     // Get Closed Items from the DynamoDB table.
@@ -5,16 +5,25 @@
 
 package com.aws.rest;
 
-import jxl.write.WriteException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.UUID;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -24,28 +33,80 @@ public class ReportController {
     private final DynamoDBService dynamoDBService;
     private final WriteExcel writeExcel;
     private final WriteExcel.SendMessages sm;
+    private final S3Client s3;
+    private final String reportBucket;
 
+    /**
+     * @param reportBucket  the bucket that reports are written to, from the report.bucket property
+     *                      or the REPORT_BUCKET environment variable. Reports can't be written to
+     *                      Amazon S3 if it isn't set.
+     */
     @Autowired()
     ReportController(
         DynamoDBService dynamoDBService,
         WriteExcel writeExcel,
-        WriteExcel.SendMessages sm
+        WriteExcel.SendMessages sm,
+        @Value("${report.bucket:}") String reportBucket
     ) {
         this.dynamoDBService = dynamoDBService;
         this.writeExcel = writeExcel;
         this.sm = sm;
+        this.reportBucket = reportBucket;
+        this.s3 = S3Client.builder()
+            .region(Region.US_EAST_1)
+            .build();
     }
 
+    // Emails the report, or writes it to the report bucket when the body's destination is s3.
+    // The bucket and key come from the server, so a request can't choose where the report is written.
     @PostMapping("")
     public String sendReport(@RequestBody Map<String, String> body) {
-        var list = dynamoDBService.getOpenItems();
-       try {
-            InputStream is = writeExcel.write(list);
+        try {
+            if ("s3".equals(body.get("destination"))) {
+                if (reportBucket.isEmpty()) {
+                    return "Failed to write report: report.bucket isn't set";
+                }
+                ReportWriter.Format format = ReportWriter.Format.fromName(body.get("format"));
+                String key = "reports/WorkReport-" + UUID.randomUUID() + "." + format.getExtension();
+                writeToS3(format, reportBucket, key);
+                return "Report written to s3://" + reportBucket + "/" + key;
+            }
+
+            InputStream is = writeExcel.write(dynamoDBService.getOpenItemsIterator());
             sm.sendReport(is, body.get("email"));
             return "Report generated & sent";
-        } catch (IOException | WriteException e) {
+        } catch (WriteExcel.ReportTooLargeException e) {
+            return "Failed to send report: " + e.getMessage();
+        } catch (IOException e) {
             e.printStackTrace();
         }
         return "Failed to generate report";
     }
-}
\ No newline at end of file
+
+    // Streams the report of active items to the client as the items are read.
+    @GetMapping("")
+    public ResponseEntity<StreamingResponseBody> downloadReport(@RequestParam(required = false) String format) {
+        ReportWriter.Format reportFormat;
+        try {
+            reportFormat = ReportWriter.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> writeExcel.write(dynamoDBService.getOpenItemsIterator(), reportFormat, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(reportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=WorkReport." + reportFormat.getExtension())
+            .body(body);
+    }
+
+    private void writeToS3(ReportWriter.Format format, String bucketName, String key) throws IOException {
+        S3MultipartOutputStream out = new S3MultipartOutputStream(s3, bucketName, key, format.getContentType());
+        try {
+            writeExcel.write(dynamoDBService.getOpenItemsIterator(), format, out);
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+    }
+}
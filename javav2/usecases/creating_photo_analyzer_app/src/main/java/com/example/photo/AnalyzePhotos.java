@@ -19,13 +19,15 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class AnalyzePhotos {
+
+    // One client is shared by every request.
+    private final RekognitionClient rekClient = RekognitionClient.builder()
+        .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+        .region(Region.US_EAST_2)
+        .build();
+
     public ArrayList<WorkItem> DetectLabels(byte[] bytes, String key) {
         try {
-            RekognitionClient rekClient = RekognitionClient.builder()
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .region(Region.US_EAST_2)
-                .build();
-
             SdkBytes sourceBytes = SdkBytes.fromByteArray(bytes);
             Image souImage = Image.builder()
                     .bytes(sourceBytes)
@@ -21,6 +21,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @Controller
@@ -95,6 +96,39 @@ public class PhotoController {
         return "The photos have been analyzed and the report is sent";
     }
 
+    // Streams a report of the photos in the given bucket to the client. Each photo is analyzed just before
+    // its worksheet is written, so the report doesn't have to fit in memory.
+    @RequestMapping(value = "/report/download", method = RequestMethod.GET)
+    void downloadReport(HttpServletRequest request, HttpServletResponse response) {
+        try {
+            ReportWriter.Format format = ReportWriter.Format.fromName(request.getParameter("format"));
+            Iterator<String> myKeys = s3Service.ListBucketObjects(bucketName).iterator();
+            Iterator<List<WorkItem>> myList = new Iterator<List<WorkItem>>() {
+                @Override
+                public boolean hasNext() {
+                    return myKeys.hasNext();
+                }
+
+                @Override
+                public List<WorkItem> next() {
+                    String myKey = myKeys.next();
+                    byte[] keyData = s3Service.getObjectBytes(bucketName, myKey);
+                    return photos.DetectLabels(keyData, myKey);
+                }
+            };
+
+            response.setContentType(format.getContentType());
+            response.setHeader("Content-disposition", "attachment; filename=PhotoReport." + format.getExtension());
+            excel.write(myList, format, response.getOutputStream());
+            response.flushBuffer();
+
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     // Upload a video to analyze.
     @RequestMapping(value = "/upload", method = RequestMethod.POST)
     @ResponseBody
@@ -0,0 +1,345 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.photo;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a report one row at a time, as CSV or as an Excel workbook (.xlsx), straight to
+ * an output stream such as an HTTP response or an S3MultipartOutputStream.
+ *
+ * Rows are written as they arrive and nothing is kept per row, so memory stays the same
+ * however long the report is. A workbook is a zip file whose worksheets are XML; each
+ * worksheet is written as one compressed zip entry with its text inline, and the small
+ * parts that list the worksheets are added when the writer is closed. A ReportWriter is
+ * used by one thread, but any number of reports can be written at the same time.
+ */
+public abstract class ReportWriter implements Closeable {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // Returns the format with the given name, such as csv, or XLSX if the name is missing.
+        public static Format fromName(String name) {
+            return name == null || name.isEmpty() ? XLSX : valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Opens a writer for the format. Closing the writer finishes the report and closes the stream.
+    public static ReportWriter open(Format format, OutputStream out) {
+        return format == Format.CSV ? new CsvWriter(out) : new XlsxWriter(out);
+    }
+
+    /**
+     * Starts a new worksheet with a row of column headings. A CSV report has no worksheets,
+     * so only the headings of the first one are written.
+     */
+    public abstract void startSheet(String name, String... headings) throws IOException;
+
+    public abstract void writeRow(String... cells) throws IOException;
+
+    private static class CsvWriter extends ReportWriter {
+        private final Writer writer;
+        private boolean headingsWritten;
+
+        CsvWriter(OutputStream out) {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void startSheet(String name, String... headings) throws IOException {
+            if (!headingsWritten) {
+                writeRow(headings);
+                headingsWritten = true;
+            }
+        }
+
+        @Override
+        public void writeRow(String... cells) throws IOException {
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(cells[i] == null ? "" : cells[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        // Quotes a field that holds a comma, quote, or line break, as RFC 4180 describes.
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static class XlsxWriter extends ReportWriter {
+        private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+        private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+        private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+        // Excel's limits on rows per worksheet and characters per cell.
+        private static final int MAX_ROWS = 1_048_576;
+        private static final int MAX_CELL_LENGTH = 32_767;
+        // Cell styles defined in styles.xml: bold underlined headings and wrapped text.
+        private static final int HEADING_STYLE = 1;
+        private static final int TEXT_STYLE = 2;
+
+        private final ZipOutputStream zip;
+        private final Writer writer;
+        private final List<String> sheetNames = new ArrayList<>();
+        private final Set<String> usedNames = new HashSet<>();
+        private String sheetName;
+        private String[] headings;
+        private int part;
+        private int rowNumber;
+        private boolean inSheet;
+
+        XlsxWriter(OutputStream out) {
+            zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8);
+            // Most of the time goes to compression, and report text compresses well even at the fastest level.
+            zip.setLevel(Deflater.BEST_SPEED);
+            writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void startSheet(String name, String... headings) throws IOException {
+            this.sheetName = name;
+            this.headings = headings.clone();
+            this.part = 1;
+            beginSheet(name);
+        }
+
+        @Override
+        public void writeRow(String... cells) throws IOException {
+            if (!inSheet) {
+                startSheet("Sheet1");
+            } else if (rowNumber == MAX_ROWS) {
+                // Continue on a new worksheet, with the same headings, once this one is full.
+                endSheet();
+                part++;
+                beginSheet(sheetName + " (" + part + ")");
+            }
+            writeCells(cells, TEXT_STYLE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!inSheet && sheetNames.isEmpty()) {
+                startSheet("Sheet1");
+            }
+            endSheet();
+            writeParts();
+            writer.close();
+        }
+
+        private void beginSheet(String name) throws IOException {
+            endSheet();
+            String uniqueName = uniqueSheetName(name);
+            sheetNames.add(uniqueName);
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+            writer.write(XML_DECLARATION);
+            writer.write("<worksheet xmlns=\"" + MAIN_NS + "\">");
+            if (headings.length > 0) {
+                // Rows are written before their widths could be measured, so size columns by their headings.
+                writer.write("<cols>");
+                for (int i = 0; i < headings.length; i++) {
+                    int width = Math.max(15, headings[i].length() + 6);
+                    writer.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + width + "\" customWidth=\"1\"/>");
+                }
+                writer.write("</cols>");
+            }
+            writer.write("<sheetData>");
+            inSheet = true;
+            rowNumber = 0;
+            if (headings.length > 0) {
+                writeCells(headings, HEADING_STYLE);
+            }
+        }
+
+        private void endSheet() throws IOException {
+            if (inSheet) {
+                writer.write("</sheetData></worksheet>");
+                writer.flush();
+                zip.closeEntry();
+                inSheet = false;
+            }
+        }
+
+        private void writeCells(String[] cells, int style) throws IOException {
+            rowNumber++;
+            writer.write("<row r=\"");
+            writer.write(Integer.toString(rowNumber));
+            writer.write("\">");
+            for (int i = 0; i < cells.length; i++) {
+                String value = cells[i];
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                writer.write("<c r=\"");
+                writer.write(columnName(i));
+                writer.write(Integer.toString(rowNumber));
+                writer.write("\" s=\"" + style + "\" t=\"inlineStr\"><is><t");
+                if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+                    writer.write(" xml:space=\"preserve\"");
+                }
+                writer.write('>');
+                writeEscaped(value.length() > MAX_CELL_LENGTH ? value.substring(0, MAX_CELL_LENGTH) : value);
+                writer.write("</t></is></c>");
+            }
+            writer.write("</row>");
+        }
+
+        private void writeEscaped(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&':
+                        writer.write("&amp;");
+                        break;
+                    case '<':
+                        writer.write("&lt;");
+                        break;
+                    case '>':
+                        writer.write("&gt;");
+                        break;
+                    default:
+                        // Control characters other than tab and line breaks are not allowed in XML.
+                        if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                            writer.write(c);
+                        }
+                }
+            }
+        }
+
+        // Writes the parts that describe the workbook, now that every worksheet is known.
+        private void writeParts() throws IOException {
+            StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+            StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>");
+            StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+
+            for (int i = 1; i <= sheetNames.size(); i++) {
+                contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+                workbook.append("<sheet name=\"").append(escapeAttribute(sheetNames.get(i - 1)))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+                workbookRels.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+            }
+            contentTypes.append("</Types>");
+            workbook.append("</sheets></workbook>");
+            workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 1)
+                .append("\" Type=\"" + REL_NS + "/styles\" Target=\"styles.xml\"/></Relationships>");
+
+            writeEntry("[Content_Types].xml", contentTypes.toString());
+            writeEntry("_rels/.rels", XML_DECLARATION
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+            writeEntry("xl/workbook.xml", workbook.toString());
+            writeEntry("xl/_rels/workbook.xml.rels", workbookRels.toString());
+            writeEntry("xl/styles.xml", XML_DECLARATION
+                + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<fonts count=\"2\"><font><sz val=\"10\"/><name val=\"Times New Roman\"/></font>"
+                + "<font><b/><u/><sz val=\"10\"/><name val=\"Times New Roman\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyAlignment=\"1\"><alignment wrapText=\"1\"/></xf>"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyAlignment=\"1\"><alignment wrapText=\"1\"/></xf></cellXfs>"
+                + "</styleSheet>");
+        }
+
+        private void writeEntry(String name, String content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            writer.write(content);
+            writer.flush();
+            zip.closeEntry();
+        }
+
+        // Worksheet names are at most 31 characters, can't contain []:*?/\, and must be unique.
+        private String uniqueSheetName(String name) {
+            String base = name.replaceAll("[\\[\\]:*?/\\\\]", "_");
+            if (base.isEmpty()) {
+                base = "Sheet";
+            }
+            String candidate = base.length() > 31 ? base.substring(0, 31) : base;
+            for (int i = 2; !usedNames.add(candidate.toLowerCase(Locale.ROOT)); i++) {
+                String suffix = " " + i;
+                candidate = (base.length() + suffix.length() > 31 ? base.substring(0, 31 - suffix.length()) : base) + suffix;
+            }
+            return candidate;
+        }
+
+        private static String escapeAttribute(String value) {
+            return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+        }
+
+        // Returns the column letters for a zero-based index: A, B, ..., Z, AA, AB, ...
+        private static String columnName(int index) {
+            StringBuilder name = new StringBuilder();
+            for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+                name.insert(0, (char) ('A' + (n - 1) % 26));
+            }
+            return name.toString();
+        }
+    }
+}
@@ -31,7 +31,8 @@ import java.util.List;
 @Component
 public class S3Service {
 
-    S3Client s3 ;
+    // One client is shared by every request.
+    private final S3Client s3 = getClient();
 
     // Create the S3Client object.
     private S3Client getClient() {
@@ -43,7 +44,6 @@ public class S3Service {
 
     // Get the byte[] from this Amazon S3 object.
     public byte[] getObjectBytes (String bucketName, String keyName) {
-        s3 = getClient();
         try {
             GetObjectRequest objectRequest = GetObjectRequest
                     .builder()
@@ -63,7 +63,6 @@ public class S3Service {
 
     // Returns the names of all images and data within an XML document.
     public String ListAllObjects(String bucketName) {
-        s3 = getClient();
         long sizeLg;
         Instant DateIn;
         BucketItem myItem ;
@@ -102,7 +101,6 @@ public class S3Service {
 
     // Returns the names of all images in the given bucket.
     public ArrayList<String> ListBucketObjects(String bucketName) {
-        s3 = getClient();
         String keyName ;
         ArrayList<String> keys = new ArrayList<String>();
         try {
@@ -129,7 +127,6 @@ public class S3Service {
 
     // Places an image into a S3 bucket.
     public void putObject(byte[] data, String bucketName, String objectKey) {
-        s3 = getClient();
         try {
             s3.putObject(PutObjectRequest.builder()
                 .bucket(bucketName)
@@ -91,7 +91,7 @@ public class SendMessages {
         MimeBodyPart att = new MimeBodyPart();
         DataSource fds = new ByteArrayDataSource(attachment, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         att.setDataHandler(new DataHandler(fds));
-        String reportName = "PhotoReport.xls";
+        String reportName = "PhotoReport.xlsx";
         att.setFileName(reportName);
 
         // Add the attachment to the message.
@@ -0,0 +1,121 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.photo.ReportWriter;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportWriterTest {
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    @Test
+    public void csvQuotesFieldsAndWritesHeadingsOnce() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.open(ReportWriter.Format.CSV, out)) {
+            writer.startSheet("Items", "Name", "Note");
+            writer.writeRow("plain", "has, comma");
+            writer.writeRow("say \"hi\"", null);
+            writer.startSheet("More", "Ignored");
+            writer.writeRow("two\nlines", "x");
+        }
+
+        assertEquals("Name,Note\r\n"
+                + "plain,\"has, comma\"\r\n"
+                + "\"say \"\"hi\"\"\",\r\n"
+                + "\"two\nlines\",x\r\n",
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void xlsxWritesEscapedCellsAndUniqueSheetNames() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.open(ReportWriter.Format.XLSX, out)) {
+            writer.startSheet("Items: 1/2", "Name", "Note");
+            writer.writeRow("a & b", "<tag>");
+            writer.writeRow("", "second");
+            writer.startSheet("Items: 1/2", "Other");
+            writer.writeRow("third");
+        }
+
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        for (String name : Arrays.asList("[Content_Types].xml", "_rels/.rels", "xl/workbook.xml",
+            "xl/_rels/workbook.xml.rels", "xl/styles.xml", "xl/worksheets/sheet1.xml", "xl/worksheets/sheet2.xml")) {
+            assertTrue(entries.containsKey(name), "Missing " + name);
+        }
+
+        Document sheet1 = parse(entries.get("xl/worksheets/sheet1.xml"));
+        assertEquals(Arrays.asList("Name", "Note", "a & b", "<tag>", "second"), texts(sheet1, "t"));
+        // The empty cell is left out, but the row is still counted.
+        assertEquals(Arrays.asList("A1", "B1", "A2", "B2", "B3"), attributes(sheet1, "c", "r"));
+        assertEquals(Arrays.asList("Other", "third"), texts(parse(entries.get("xl/worksheets/sheet2.xml")), "t"));
+
+        Document workbook = parse(entries.get("xl/workbook.xml"));
+        assertEquals(Arrays.asList("Items_ 1_2", "Items_ 1_2 2"), attributes(workbook, "sheet", "name"));
+    }
+
+    @Test
+    public void xlsxWithoutRowsIsStillAWorkbook() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportWriter.open(ReportWriter.Format.XLSX, out).close();
+
+        Map<String, byte[]> entries = unzip(out.toByteArray());
+        assertTrue(entries.containsKey("xl/worksheets/sheet1.xml"));
+        assertEquals(Arrays.asList("Sheet1"), attributes(parse(entries.get("xl/workbook.xml")), "sheet", "name"));
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            byte[] buffer = new byte[8192];
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+                    bytes.write(buffer, 0, n);
+                }
+                entries.put(entry.getName(), bytes.toByteArray());
+            }
+        }
+        return entries;
+    }
+
+    private static Document parse(byte[] xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    private static List<String> texts(Document document, String tag) {
+        List<String> values = new ArrayList<>();
+        NodeList nodes = document.getElementsByTagNameNS(MAIN_NS, tag);
+        for (int i = 0; i < nodes.getLength(); i++) {
+            values.add(nodes.item(i).getTextContent());
+        }
+        return values;
+    }
+
+    private static List<String> attributes(Document document, String tag, String attribute) {
+        List<String> values = new ArrayList<>();
+        NodeList nodes = document.getElementsByTagNameNS(MAIN_NS, tag);
+        for (int i = 0; i < nodes.getLength(); i++) {
+            values.add(((Element) nodes.item(i)).getAttribute(attribute));
+        }
+        return values;
+    }
+}
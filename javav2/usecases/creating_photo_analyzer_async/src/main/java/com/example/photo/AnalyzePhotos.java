@@ -7,75 +7,70 @@ package com.example.photo;
 
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.retry.RetryMode;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletionException;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
-import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 import software.amazon.awssdk.services.rekognition.model.Label;
-import software.amazon.awssdk.services.rekognition.model.RekognitionException;
 
 @Component
-public class AnalyzePhotos {
+public class AnalyzePhotos implements AutoCloseable {
+
+    // One client is shared by every request. Adaptive retries slow the requests down when
+    // Amazon Rekognition throttles them, instead of failing the photos.
+    private final RekognitionAsyncClient rekAsyncClient = RekognitionAsyncClient.builder()
+            .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+            .region(Region.US_EAST_2)
+            .overrideConfiguration(o -> o.retryPolicy(RetryMode.ADAPTIVE))
+            .build();
+
     public ArrayList<WorkItem> DetectLabels(byte[] bytes, String key) {
-        RekognitionAsyncClient rekAsyncClient = RekognitionAsyncClient.builder()
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .region(Region.US_EAST_2)
-                .build();
         try {
-            final AtomicReference<ArrayList<WorkItem>> reference = new AtomicReference<>();
-            SdkBytes sourceBytes = SdkBytes.fromByteArray(bytes);
+            return detectLabelsAsync(bytes, key).join();
 
-            // Create an Image object for the source image.
-            Image souImage = Image.builder()
-                    .bytes(sourceBytes)
-                    .build();
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
+        }
+        return null ;
+    }
 
-            DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder()
-                    .image(souImage)
-                    .maxLabels(10)
-                    .build();
+    // Returns the labels of the photo without waiting for Amazon Rekognition to answer.
+    public CompletableFuture<ArrayList<WorkItem>> detectLabelsAsync(byte[] bytes, String key) {
+        SdkBytes sourceBytes = SdkBytes.fromByteArray(bytes);
 
-            CompletableFuture<DetectLabelsResponse> futureGet = rekAsyncClient.detectLabels(detectLabelsRequest);
-            futureGet.whenComplete((resp, err) -> {
-             try {
-                if (resp != null) {
-                    List<Label> labels =  resp.labels();
-                    System.out.println("Detected labels for the given photo");
-                    ArrayList<WorkItem> list = new ArrayList<>();
-                    WorkItem item ;
-                    for (Label label: labels) {
-                        item = new WorkItem();
-                        item.setKey(key); // identifies the photo.
-                        item.setConfidence(label.confidence().toString());
-                        item.setName(label.name());
-                        list.add(item);
-                    }
-                    reference.set(list);
+        // Create an Image object for the source image.
+        Image souImage = Image.builder()
+                .bytes(sourceBytes)
+                .build();
 
-                } else {
-                    err.printStackTrace();
-                }
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder()
+                .image(souImage)
+                .maxLabels(10)
+                .build();
 
-            } finally {
-                // Only close the client when you are completely done with it.
-                rekAsyncClient.close();
+        return rekAsyncClient.detectLabels(detectLabelsRequest).thenApply(resp -> {
+            List<Label> labels =  resp.labels();
+            ArrayList<WorkItem> list = new ArrayList<>();
+            WorkItem item ;
+            for (Label label: labels) {
+                item = new WorkItem();
+                item.setKey(key); // identifies the photo.
+                item.setConfidence(label.confidence().toString());
+                item.setName(label.name());
+                list.add(item);
             }
-          });
-          futureGet.join();
-
-          // Use the AtomicReference object to return the ArrayList<WorkItem> collection.
-          return reference.get();
+            return list;
+        });
+    }
 
-        } catch (RekognitionException e) {
-            System.out.println(e.getMessage());
-            System.exit(1);
-        }
-        return null ;
+    @Override
+    public void close() {
+        rekAsyncClient.close();
     }
 }
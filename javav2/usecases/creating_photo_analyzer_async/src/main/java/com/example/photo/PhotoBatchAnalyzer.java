@@ -0,0 +1,182 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.photo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Analyzes every photo in a bucket, with many photos in progress at the same time.
+ *
+ * The bucket is listed one page at a time, and the next page is requested while the photos
+ * on the current one are started. Each photo is downloaded and sent to Amazon Rekognition
+ * with the asynchronous clients, so no thread waits for a photo. A semaphore limits the
+ * photos in progress, which bounds both memory and the request rate. The labels are counted
+ * as each photo finishes, and the time spent in each stage is recorded.
+ */
+@Component
+public class PhotoBatchAnalyzer {
+
+    // The number of photos that are downloaded or analyzed at the same time. Amazon Rekognition
+    // limits DetectLabels transactions per second for each account, so raise this value together
+    // with that quota.
+    static final int MAX_IN_FLIGHT = 32;
+
+    private final S3Service s3Service;
+    private final AnalyzePhotos photos;
+    private final int maxInFlight;
+
+    private final StageMetrics listing = new StageMetrics("list");
+    private final StageMetrics download = new StageMetrics("download");
+    private final StageMetrics detectLabels = new StageMetrics("detectLabels");
+    private final StageMetrics photo = new StageMetrics("photo");
+
+    @Autowired
+    PhotoBatchAnalyzer(S3Service s3Service, AnalyzePhotos photos) {
+        this(s3Service, photos, MAX_IN_FLIGHT);
+    }
+
+    PhotoBatchAnalyzer(S3Service s3Service, AnalyzePhotos photos, int maxInFlight) {
+        this.s3Service = s3Service;
+        this.photos = photos;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Analyzes every photo in the bucket and returns once they have all finished.
+     *
+     * @param onPhoto  called with the labels of each photo as soon as they are returned. It is
+     *                 called from several threads at the same time.
+     */
+    public BatchResult analyzeBucket(String bucketName, Consumer<List<WorkItem>> onPhoto) throws InterruptedException {
+        BatchResult result = new BatchResult();
+        Semaphore permits = new Semaphore(maxInFlight);
+
+        CompletableFuture<ListObjectsV2Response> nextPage = listPage(bucketName, null);
+        while (nextPage != null) {
+            ListObjectsV2Response page = nextPage.join();
+            nextPage = page.nextContinuationToken() == null ? null : listPage(bucketName, page.nextContinuationToken());
+
+            for (S3Object object : page.contents()) {
+                // Skip folders.
+                if (object.key().endsWith("/")) {
+                    continue;
+                }
+                permits.acquire();
+                analyze(bucketName, object.key(), onPhoto, result)
+                    .whenComplete((ignored, e) -> permits.release());
+            }
+        }
+
+        // Wait for the photos that are still in progress.
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+        result.finish();
+        return result;
+    }
+
+    // Returns the latency of each stage, for every bucket analyzed since the application started.
+    public List<StageMetrics> getMetrics() {
+        return Arrays.asList(listing, download, detectLabels, photo);
+    }
+
+    private CompletableFuture<ListObjectsV2Response> listPage(String bucketName, String continuationToken) {
+        long start = System.nanoTime();
+        return s3Service.listObjectsPage(bucketName, continuationToken)
+            .whenComplete((page, e) -> listing.record(start, e == null));
+    }
+
+    private CompletableFuture<Void> analyze(String bucketName, String key, Consumer<List<WorkItem>> onPhoto,
+                                            BatchResult result) {
+        long start = System.nanoTime();
+        return s3Service.getObjectBytesAsync(bucketName, key)
+            .whenComplete((bytes, e) -> download.record(start, e == null))
+            .thenCompose(bytes -> {
+                long detectStart = System.nanoTime();
+                return photos.detectLabelsAsync(bytes, key)
+                    .whenComplete((labels, e) -> detectLabels.record(detectStart, e == null));
+            })
+            .handle((labels, e) -> {
+                photo.record(start, e == null);
+                if (e != null) {
+                    result.failed(key, e);
+                } else {
+                    result.add(labels);
+                    onPhoto.accept(labels);
+                }
+                return null;
+            });
+    }
+
+    /**
+     * The number of photos analyzed and how often each label was found.
+     */
+    public static class BatchResult {
+        private final long startNanos = System.nanoTime();
+        private final LongAdder photoCount = new LongAdder();
+        private final Queue<String> failedKeys = new ConcurrentLinkedQueue<>();
+        private final Map<String, LongAdder> labelCounts = new ConcurrentHashMap<>();
+        private volatile long elapsedNanos;
+
+        void add(List<WorkItem> labels) {
+            photoCount.increment();
+            for (WorkItem label : labels) {
+                labelCounts.computeIfAbsent(label.getName(), name -> new LongAdder()).increment();
+            }
+        }
+
+        void failed(String key, Throwable e) {
+            failedKeys.add(key);
+            System.err.println("Analyzing " + key + " failed: " + e.getMessage());
+        }
+
+        void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        public long getPhotoCount() {
+            return photoCount.sum();
+        }
+
+        public List<String> getFailedKeys() {
+            return new ArrayList<>(failedKeys);
+        }
+
+        // Returns the number of photos that each label was found in, most common first.
+        public Map<String, Long> getLabelCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            labelCounts.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> counts.put(entry.getKey(), entry.getValue().sum()));
+            return counts;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = getElapsedSeconds();
+            return String.format("Analyzed %d photos (%d failed) in %.1f s, %.1f photos/s",
+                getPhotoCount(), failedKeys.size(), seconds, seconds == 0 ? 0 : getPhotoCount() / seconds);
+        }
+    }
+}
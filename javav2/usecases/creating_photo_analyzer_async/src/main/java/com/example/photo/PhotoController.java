@@ -25,7 +25,7 @@ public class PhotoController {
     private final String bucketName = "<Enter your S3 bucket name>";
 
     private final S3Service s3Service;
-    private final AnalyzePhotos photos;
+    private final PhotoBatchAnalyzer batchAnalyzer;
 
     private final  WriteExcel excel;
 
@@ -34,12 +34,12 @@ public class PhotoController {
     @Autowired
     PhotoController(
         S3Service s3Service,
-        AnalyzePhotos photos,
+        PhotoBatchAnalyzer batchAnalyzer,
         WriteExcel excel,
         SendMessages sendMessage
     ) {
         this.s3Service = s3Service;
-        this.photos = photos;
+        this.batchAnalyzer = batchAnalyzer;
         this.excel = excel;
         this.sendMessage = sendMessage;
     }
@@ -63,16 +63,21 @@ public class PhotoController {
     @RequestMapping(value = "/report", method = RequestMethod.POST)
     @ResponseBody
     String report (HttpServletRequest request, HttpServletResponse response) {
-        // Get a list of key names in the given bucket.
+        // Analyze every photo in the given bucket, many at a time.
         String email = request.getParameter("email");
-        ArrayList<String> myKeys = (ArrayList<String>) s3Service.ListBucketObjects(bucketName);
-        ArrayList<List<WorkItem>> myList = new ArrayList<>();
-        for (String myKey : myKeys) {
-            byte[] keyData = s3Service.getObjectBytes(bucketName, myKey);
-            ArrayList<WorkItem> item = photos.DetectLabels(keyData, myKey);
-            myList.add(item);
+        List<List<WorkItem>> myList = Collections.synchronizedList(new ArrayList<>());
+        try {
+            PhotoBatchAnalyzer.BatchResult result = batchAnalyzer.analyzeBucket(bucketName, myList::add);
+            System.out.println(result);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "The analysis was interrupted";
         }
 
+        // Photos finish in any order, so sort the worksheets by photo.
+        myList.sort(Comparator.comparing(labels -> labels.isEmpty() ? "" : labels.get(0).getKey()));
+
         // Now we have a list of WorkItems describing the photos in the S3 bucket.
         InputStream excelData = excel.exportExcel(myList);
         try {
@@ -85,6 +90,17 @@ public class PhotoController {
         return "The photos have been analyzed and the report is sent";
     }
 
+    // Returns the latency of each stage of the photo analysis.
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = "text/plain")
+    @ResponseBody
+    String metrics() {
+        StringBuilder metrics = new StringBuilder();
+        for (StageMetrics stage : batchAnalyzer.getMetrics()) {
+            metrics.append(stage).append('\n');
+        }
+        return metrics.toString();
+    }
+
     // Upload an image to an Amazon S3 bucket.
     @RequestMapping(value = "/upload", method = RequestMethod.POST)
     @ResponseBody
@@ -18,9 +18,10 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
-import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -37,104 +38,71 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletionException;
 
 @Component
-public class S3Service {
-    S3AsyncClient s3AsyncClient;
-    private S3AsyncClient getClient() {
-        return S3AsyncClient.builder()
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .region(Region.US_WEST_2)
-                .build();
-    }
+public class S3Service implements AutoCloseable {
+
+    // One client is shared by every request, and closed when the application stops.
+    private final S3AsyncClient s3AsyncClient = S3AsyncClient.builder()
+            .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+            .region(Region.US_WEST_2)
+            .build();
 
     public byte[] getObjectBytes (String bucketName, String keyName) {
-        s3AsyncClient = getClient();
-        final AtomicReference<byte[]> reference = new AtomicReference<>();
         try {
-            GetObjectRequest objectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(keyName)
-                    .build();
+            return getObjectBytesAsync(bucketName, keyName).join();
 
-            // Get the Object from the Amazon S3 bucket using the Amazon S3 Async Client.
-            final CompletableFuture<ResponseBytes<GetObjectResponse>>[] futureGet = new CompletableFuture[]{s3AsyncClient.getObject(objectRequest,
-                    AsyncResponseTransformer.toBytes())};
-
-            futureGet[0].whenComplete((resp, err) -> {
-                try {
-                    if (resp != null) {
-                        //  Set the AtomicReference object.
-                         reference.set(resp.asByteArray());
-
-                    } else {
-                        err.printStackTrace();
-                    }
-                } finally {
-                    // Only close the client when you are completely done with it.
-                    s3AsyncClient.close();
-                }
-            });
-            futureGet[0].join();
-
-            // Read the AtomicReference object and return the byte[] value.
-            return reference.get();
-
-        } catch (S3Exception e) {
-            System.err.println(e.awsErrorDetails().errorMessage());
-            System.exit(1);
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
         }
         return null;
     }
 
+    // Get the Object from the Amazon S3 bucket using the Amazon S3 Async Client.
+    public CompletableFuture<byte[]> getObjectBytesAsync(String bucketName, String keyName) {
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyName)
+                .build();
+
+        return s3AsyncClient.getObject(objectRequest, AsyncResponseTransformer.toBytes())
+                .thenApply(ResponseBytes::asByteArray);
+    }
+
+    // Returns one page of up to 1,000 objects in the given bucket. Pass null to get the first page.
+    public CompletableFuture<ListObjectsV2Response> listObjectsPage(String bucketName, String continuationToken) {
+        ListObjectsV2Request listObjects = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .continuationToken(continuationToken)
+                .build();
+
+        return s3AsyncClient.listObjectsV2(listObjects);
+    }
+
     // Returns the names of all images in the given bucket.
     public List<String> ListBucketObjects(String bucketName) {
-        s3AsyncClient = getClient();
-        final AtomicReference<List<String>> reference = new AtomicReference<>();
         try {
             ListObjectsRequest listObjects = ListObjectsRequest
                     .builder()
                     .bucket(bucketName)
                     .build();
 
-            CompletableFuture<ListObjectsResponse> futureGet  = s3AsyncClient.listObjects(listObjects);
-            futureGet.whenComplete((resp, err) -> {
-                try {
-                    List<String> keys = new ArrayList<>();
-                    String keyName ;
-                    if (resp != null) {
-                        List<S3Object> objects = resp.contents();
-                        for (S3Object myValue : objects) {
-                            keyName = myValue.key();
-                            keys.add(keyName);
-                        }
-
-                        //  Set the AtomicReference object.
-                        reference.set(keys) ;
-                    } else {
-                        err.printStackTrace();
-                    }
-                } finally {
-                    // Only close the client when you are completely done with it.
-                    s3AsyncClient.close();
-                }
-            });
-            futureGet.join();
-
-            // Read the AtomicReference object.
-            return reference.get();
-
-        } catch (S3Exception e) {
-            System.err.println(e.awsErrorDetails().errorMessage());
-            System.exit(1);
+            ListObjectsResponse resp = s3AsyncClient.listObjects(listObjects).join();
+            List<String> keys = new ArrayList<>();
+            for (S3Object myValue : resp.contents()) {
+                keys.add(myValue.key());
+            }
+            return keys;
+
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
         }
         return null ;
     }
 
     // Places an image into a S3 bucket.
     public void putObject(byte[] data, String bucketName, String objectKey) {
-        s3AsyncClient = getClient();
         try {
             PutObjectRequest objectRequest =  PutObjectRequest.builder()
                     .bucket(bucketName)
@@ -142,33 +110,16 @@ public class S3Service {
                     .build();
 
             // Put the object into the bucket.
-            CompletableFuture<PutObjectResponse> future = s3AsyncClient.putObject(objectRequest,
-                    AsyncRequestBody.fromBytes(data));
-            future.whenComplete((resp, err) -> {
-                try {
-                    if (resp != null) {
-                        System.out.println("Object uploaded. Details: " + resp);
-                    } else {
-                        // Handle error
-                        err.printStackTrace();
-                    }
-                } finally {
-                    // Only close the client when you are completely done with it
-                    s3AsyncClient.close();
-                }
-            });
-            future.join();
-
-        } catch (S3Exception e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
+            PutObjectResponse resp = s3AsyncClient.putObject(objectRequest, AsyncRequestBody.fromBytes(data)).join();
+            System.out.println("Object uploaded. Details: " + resp);
+
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
         }
     }
 
     // Returns the names of all images and data within XML.
     public String ListAllObjects(String bucketName) {
-        s3AsyncClient = getClient();
-        final AtomicReference<List<BucketItem>> reference = new AtomicReference<>();
         List<BucketItem> bucketItems = new ArrayList<>();
         try {
             ListObjectsRequest listObjects = ListObjectsRequest
@@ -176,46 +127,35 @@ public class S3Service {
                     .bucket(bucketName)
                     .build();
 
-            CompletableFuture<ListObjectsResponse> future = s3AsyncClient.listObjects(listObjects);
-            future.whenComplete((resp, err) -> {
-                try {
-                    if (resp != null) {
-                        BucketItem myItem ;
-                        long sizeLg;
-                        Instant DateIn;
-                        List<S3Object> objects = resp.contents();
-                        for (S3Object myValue: objects) {
-                            myItem = new BucketItem();
-                            myItem.setKey(myValue.key());
-                            myItem.setOwner(myValue.owner().displayName());
-                            sizeLg = myValue.size() / 1024 ;
-                            myItem.setSize(String.valueOf(sizeLg));
-                            DateIn = myValue.lastModified();
-                            myItem.setDate(String.valueOf(DateIn));
-
-                            // Push the items to the list.
-                            bucketItems.add(myItem);
-                        }
-                        reference.set(bucketItems) ;
-
-                    } else {
-                        err.printStackTrace();
-                    }
-                } finally {
-                    // Only close the client when you are completely done with it.
-                    s3AsyncClient.close();
-                }
-            });
-            future.join();
-            return convertToString(toXml(reference.get()));
-
-        } catch (S3Exception e) {
-            System.err.println(e.awsErrorDetails().errorMessage());
-            System.exit(1);
+            ListObjectsResponse resp = s3AsyncClient.listObjects(listObjects).join();
+            BucketItem myItem ;
+            long sizeLg;
+            Instant DateIn;
+            for (S3Object myValue: resp.contents()) {
+                myItem = new BucketItem();
+                myItem.setKey(myValue.key());
+                myItem.setOwner(myValue.owner().displayName());
+                sizeLg = myValue.size() / 1024 ;
+                myItem.setSize(String.valueOf(sizeLg));
+                DateIn = myValue.lastModified();
+                myItem.setDate(String.valueOf(DateIn));
+
+                // Push the items to the list.
+                bucketItems.add(myItem);
+            }
+            return convertToString(toXml(bucketItems));
+
+        } catch (CompletionException e) {
+            e.getCause().printStackTrace();
         }
         return null ;
     }
 
+    @Override
+    public void close() {
+        s3AsyncClient.close();
+    }
+
     // Convert items into XML to pass back to the view.
     private Document toXml(List<BucketItem> itemList) {
         try {
@@ -0,0 +1,95 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.photo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls to one stage of the photo analysis, such as downloading a photo, and
+ * records how long they take.
+ *
+ * Latencies are counted in buckets that double in size from 1 ms, so percentiles are
+ * reported as the upper bound of the bucket they fall in. Recording is safe from any
+ * thread and doesn't lock.
+ */
+public class StageMetrics {
+    // Bucket i counts latencies below 2^i ms; the last bucket counts everything slower.
+    private static final int BUCKETS = 18;
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    // Records a call that started at the given System.nanoTime value and has just finished.
+    public void record(long startNanos, boolean succeeded) {
+        long nanos = System.nanoTime() - startNanos;
+        count.increment();
+        if (!succeeded) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        histogram.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getAverageMillis() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / 1e6 / calls;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    // Returns the latency that the given fraction of calls, such as 0.99, finished within.
+    public long getPercentileMillis(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %d failed, avg %.1f ms, p50 < %d ms, p99 < %d ms, max %.1f ms",
+            name, getCount(), getFailures(), getAverageMillis(), getPercentileMillis(0.5),
+            getPercentileMillis(0.99), getMaxMillis());
+    }
+}
@@ -7,16 +7,39 @@ package com.example.photo.endpoints;
 
 import com.example.photo.PhotoApplicationResources;
 import com.example.photo.services.DynamoDBService;
+import com.example.photo.services.ImageArchiver;
+import com.example.photo.services.S3MultipartOutputStream;
 import com.example.photo.services.S3Service;
 import com.example.photo.services.SnsService;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DownloadEndpoint {
+    // The most label lookups and image downloads that run at the same time for one archive.
+    private static final int MAX_CONCURRENT_REQUESTS = 16;
+
+    // The most bytes of downloaded images that are held in memory at a time for one archive.
+    private static final int MAX_BYTES_IN_FLIGHT = 64 * 1024 * 1024;
+
+    // The most archives that are created at the same time. Each one has its own request threads
+    // and byte budget, so later jobs wait in the queue rather than multiply them.
+    private static final int MAX_CONCURRENT_JOBS = 4;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Runs the archive jobs, so the caller doesn't wait for the images to be downloaded.
+    private static final ExecutorService JOBS = Executors.newFixedThreadPool(MAX_CONCURRENT_JOBS,
+        r -> daemon(r, "download-job-"));
+
     final DynamoDBService dbService;
     final S3Service s3Service;
     final SnsService snsService;
@@ -27,34 +50,92 @@ public class DownloadEndpoint {
         this.snsService = snsService;
     }
 
+    // Creates the archive and returns its presigned URL, or null if it couldn't be created. In
+    // both cases, the result is also sent with Amazon SNS.
     public String download(List<String> labels) {
         try {
-            // Now that there's an image list, place the images into a ZIP and presign it.
-            Set<String> images = labels.stream().parallel().flatMap(
-                (label) -> this.dbService.getImagesByLabel(label).stream())
-                .collect(Collectors.toSet());
-            Map<String, byte[]> imageMap = new HashMap<>();
-
-            for (String imageName : images) {
-                byte[] imageBytes = this.s3Service.getObjectBytes(PhotoApplicationResources.STORAGE_BUCKET, imageName);
-                imageMap.put(imageName, imageBytes);
-                System.out.println("Add " + imageName + " to the map.");
-            }
+            return downloadAsync(labels).join();
+        } catch (CompletionException e) {
+            System.err.println("Archiving the images failed: " + e.getCause().getMessage());
+            return null;
+        }
+    }
 
-            // Now ZIP the images.
-            byte[] zipFile = this.s3Service.listBytesToZip(imageMap);
+    /**
+     * Starts a job that puts the images with the given labels into a ZIP file in the working
+     * bucket, and returns right away. The returned future completes with the presigned URL of
+     * the ZIP file, after the URL has been sent with Amazon SNS. If the job fails, a message
+     * that says so is sent instead.
+     *
+     * The labels are looked up at the same time, and the images are downloaded at the same time
+     * and written into the ZIP file as they arrive. The ZIP file is uploaded in parts while it is
+     * written, so neither the images nor the archive are held in memory as a whole.
+     */
+    public CompletableFuture<String> downloadAsync(List<String> labels) {
+        return CompletableFuture.supplyAsync(() -> archive(labels), JOBS)
+            .whenComplete((presignedURL, e) -> {
+                if (e == null) {
+                    this.snsService.pubTopic("Your Archived images can be located here " + presignedURL);
+                } else {
+                    this.snsService.pubTopic("Your images couldn't be archived. Please try again.");
+                }
+            });
+    }
+
+    private String archive(List<String> labels) {
+        ExecutorService requests = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS,
+            r -> daemon(r, "download-request-"));
+        try {
+            Set<String> images = findImages(labels, requests);
             String uuid = java.util.UUID.randomUUID().toString();
             String zipName = uuid + ".zip";
 
-            // Place the ZIP file into the working bucket and get back a presigned URL.
-            s3Service.putObject(zipFile, PhotoApplicationResources.WORKING_BUCKET, zipName);
-            String presignedURL = s3Service.signObjectToDownload(PhotoApplicationResources.WORKING_BUCKET, zipName);
-            String message = "Your Archived images can be located here " + presignedURL;
-            this.snsService.pubTopic(message);
-            return presignedURL;
+            // Write the ZIP file into the working bucket while the images are downloaded.
+            ImageArchiver archiver = new ImageArchiver(s3Service, requests, MAX_BYTES_IN_FLIGHT);
+            S3MultipartOutputStream zipFile = s3Service.openUpload(PhotoApplicationResources.WORKING_BUCKET,
+                zipName, "application/zip");
+            try {
+                int count = archiver.archive(PhotoApplicationResources.STORAGE_BUCKET, images, zipFile);
+                zipFile.close();
+                System.out.println("Added " + count + " images to " + zipName);
+            } catch (Throwable e) {
+                // Whatever went wrong, the parts that were uploaded so far are removed.
+                try {
+                    zipFile.abort();
+                } catch (RuntimeException abortFailure) {
+                    e.addSuppressed(abortFailure);
+                }
+                throw e;
+            }
+
+            // Get back a presigned URL for the ZIP file.
+            return s3Service.signObjectToDownload(PhotoApplicationResources.WORKING_BUCKET, zipName);
+
         } catch (IOException e) {
-            e.getMessage();
+            throw new UncheckedIOException(e);
+        } finally {
+            // Stops any downloads that are still running if the archive failed.
+            requests.shutdownNow();
+        }
+    }
+
+    // Looks up the images of every label at the same time, and returns each image once.
+    private Set<String> findImages(List<String> labels, ExecutorService requests) {
+        List<CompletableFuture<List<String>>> lookups = new ArrayList<>();
+        for (String label : labels) {
+            lookups.add(CompletableFuture.supplyAsync(() -> this.dbService.getImagesByLabel(label), requests));
+        }
+
+        Set<String> images = new LinkedHashSet<>();
+        for (CompletableFuture<List<String>> lookup : lookups) {
+            images.addAll(lookup.join());
         }
-        return null;
+        return images;
+    }
+
+    private static Thread daemon(Runnable r, String prefix) {
+        Thread thread = new Thread(r, prefix + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
     }
 }
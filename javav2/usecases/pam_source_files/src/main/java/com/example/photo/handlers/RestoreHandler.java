@@ -34,6 +34,7 @@ public class RestoreHandler implements RequestHandler<Map<String, Object>, Strin
             context.getLogger().log("Restoring labels " + toJson(labels));
 
             DownloadEndpoint downloadEndpoint = new DownloadEndpoint(new DynamoDBService(), new S3Service(), new SnsService());
+            // Wait for the archive job, because Lambda freezes the function once the handler returns.
             String url = downloadEndpoint.download(labels);
             context.getLogger().log("Labels archived to URL " + url);
 
@@ -8,100 +8,48 @@ import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
-import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class DynamoDBService {
-    private DynamoDbClient getClient() {
-        return DynamoDbClient.builder()
-            .region(PhotoApplicationResources.REGION)
-            .build();
-    }
-
-    // Insert label data into an Amazon DynamoDB table.
-    public void putRecord(List<LabelCount> list) {
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
-            .dynamoDbClient(getClient())
-            .build();
-
-        DynamoDbTable<com.example.photo.Label> table = enhancedClient.table(PhotoApplicationResources.LABELS_TABLE,
-            TableSchema.fromBean(Label.class));
-
-        for (LabelCount count : list) {
-            addSingleRecord(table, count.getName(), count.getKey());
-        }
-    }
+    // The most labels that are written to the table at the same time.
+    private static final int MAX_CONCURRENT_UPDATES = 8;
 
-    private void addSingleRecord(DynamoDbTable<Label> table, String label, String key) {
-        // Check to see if the label exists in the Amazon DynamoDB table.
-        // The count item uses an @DynamoDbAtomicCounter which means it is
-        // updated automatically. No need to manually set this value when the record is
-        // created or updated.
-        if (!checkLabelExists(table, label)) {
-            Label photoRec = new Label();
-            photoRec.setId(label);
-            List<String> keyList = new ArrayList<>();
-            keyList.add(key);
-            photoRec.setImages(keyList);
-            table.putItem(photoRec);
-        } else {
-            // The label exists in the table.
-            Key myKey = Key.builder()
-                .partitionValue(label)
-                .build();
+    // The client is created once and shared, so a warm AWS Lambda container reuses its connections.
+    private static final DynamoDbClient CLIENT = DynamoDbClient.builder()
+        .region(PhotoApplicationResources.REGION)
+        .build();
 
-            // Add the file name to the list.
-            Label myPhoto = table.getItem(myKey);
-            Label updatedPhoto = new Label();
-            List<String> imageList = myPhoto.getImages();
-            imageList.add(key);
-            updatedPhoto.setId(label);
-            updatedPhoto.setImages(imageList);
-            table.updateItem(updatedPhoto);
-        }
-    }
+    private static final DynamoDbTable<Label> TABLE = DynamoDbEnhancedClient.builder()
+        .dynamoDbClient(CLIENT)
+        .build()
+        .table(PhotoApplicationResources.LABELS_TABLE, TableSchema.fromBean(Label.class));
 
-    private Boolean checkLabelExists(DynamoDbTable<Label> table, String label) {
-        QueryConditional queryConditional = QueryConditional.keyEqualTo(Key.builder()
-            .partitionValue(label)
-            .build());
+    private static final LabelIndexWriter INDEX_WRITER =
+        new LabelIndexWriter(CLIENT, PhotoApplicationResources.LABELS_TABLE, MAX_CONCURRENT_UPDATES);
 
-        Iterator<Label> results = table.query(queryConditional).items().iterator();
-        return results.hasNext();
+    // Insert label data into an Amazon DynamoDB table. The list can hold the labels of
+    // several images, and each label is written once for all of them.
+    public void putRecord(List<LabelCount> list) {
+        INDEX_WRITER.write(list);
     }
 
     public List<String> getImagesByLabel(String label) {
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
-            .dynamoDbClient(getClient())
-            .build();
-
-        DynamoDbTable<com.example.photo.Label> table = enhancedClient.table(PhotoApplicationResources.LABELS_TABLE,
-            TableSchema.fromBean(Label.class));
         Key key = Key.builder()
             .partitionValue(label)
             .build();
 
         // Get the item by using the key.
-        Label result = table.getItem(r -> r.key(key));
+        Label result = TABLE.getItem(r -> r.key(key));
         return (result == null) ? List.of() : result.getImages();
     }
 
     // Scan the table and send data back to the client.
     public Map<String, WorkCount> scanPhotoTable() {
         Map<String, WorkCount> myMap = new HashMap<>();
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
-            .dynamoDbClient(getClient())
-            .build();
-
-        DynamoDbTable<Label> table = enhancedClient.table(PhotoApplicationResources.LABELS_TABLE,
-            TableSchema.fromBean(Label.class));
-
-        for (Label photo : table.scan().items()) {
+        for (Label photo : TABLE.scan().items()) {
             WorkCount wc = new WorkCount();
             wc.setCount(photo.getCount());
             myMap.put(photo.getId(), wc);
@@ -109,4 +57,4 @@ public class DynamoDBService {
 
         return myMap;
     }
-}
\ No newline at end of file
+}
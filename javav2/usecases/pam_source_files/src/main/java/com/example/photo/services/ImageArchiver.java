@@ -0,0 +1,133 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.photo.services;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes images from an Amazon S3 bucket into a zip archive while they are downloaded.
+ *
+ * The images are downloaded at the same time on the given executor, and each one is added to the
+ * archive as soon as it arrives, in the order they arrive. A download waits before reading its
+ * image until the image fits in a budget of bytes, and the bytes are returned to the budget once
+ * the image is in the archive. So no more than the budget is held in memory at a time, however
+ * many images there are. The images are stored without compression, because JPEG images don't
+ * get any smaller.
+ */
+public class ImageArchiver {
+    private final S3Service s3Service;
+    private final Executor executor;
+    private final int maxBytesInFlight;
+
+    /**
+     * @param s3Service         the service used to download the images.
+     * @param executor          runs the downloads. Its number of threads is the most downloads
+     *                          at the same time.
+     * @param maxBytesInFlight  the most bytes of downloaded images to hold at a time.
+     */
+    public ImageArchiver(S3Service s3Service, Executor executor, int maxBytesInFlight) {
+        this.s3Service = s3Service;
+        this.executor = executor;
+        this.maxBytesInFlight = maxBytesInFlight;
+    }
+
+    /**
+     * Writes a zip archive of the images to the stream, and returns the number of images. The
+     * stream isn't closed. If an image can't be downloaded, an IOException is thrown and the
+     * archive is incomplete, so the caller should discard it.
+     */
+    public int archive(String bucketName, Collection<String> keys, OutputStream out) throws IOException {
+        Semaphore budget = new Semaphore(maxBytesInFlight);
+        BlockingQueue<DownloadedImage> downloaded = new LinkedBlockingQueue<>();
+        for (String key : keys) {
+            executor.execute(() -> downloaded.add(download(bucketName, key, budget)));
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (int i = 0; i < keys.size(); i++) {
+            DownloadedImage image = take(downloaded);
+            try {
+                image.writeTo(zip);
+            } finally {
+                budget.release(image.permits);
+            }
+        }
+        zip.finish();
+        return keys.size();
+    }
+
+    // Never throws: the archive waits for one result per key, so any failure has to be queued
+    // as a result too, with the bytes that it took from the budget given back.
+    private DownloadedImage download(String bucketName, String key, Semaphore budget) {
+        int permits = 0;
+        try (ResponseInputStream<GetObjectResponse> in = s3Service.getObjectStream(bucketName, key)) {
+            // An image that is larger than the whole budget waits until no other image is held.
+            int size = (int) Math.min(in.response().contentLength(), maxBytesInFlight);
+            budget.acquire(size);
+            permits = size;
+            return new DownloadedImage(key, in.readAllBytes(), permits, null);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new DownloadedImage(key, null, 0, e);
+        } catch (Throwable e) {
+            budget.release(permits);
+            return new DownloadedImage(key, null, 0, e);
+        }
+    }
+
+    private static DownloadedImage take(BlockingQueue<DownloadedImage> downloaded) throws IOException {
+        try {
+            return downloaded.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an image");
+        }
+    }
+
+    private static class DownloadedImage {
+        private final String key;
+        private final byte[] bytes;
+        private final int permits;
+        private final Throwable failure;
+
+        DownloadedImage(String key, byte[] bytes, int permits, Throwable failure) {
+            this.key = key;
+            this.bytes = bytes;
+            this.permits = permits;
+            this.failure = failure;
+        }
+
+        void writeTo(ZipOutputStream zip) throws IOException {
+            if (failure != null) {
+                throw new IOException("Downloading " + key + " failed", failure);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            ZipEntry entry = new ZipEntry(key);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCompressedSize(bytes.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(bytes);
+            zip.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+
+package com.example.photo.services;
+
+import com.example.photo.LabelCount;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds images to the label index in the Amazon DynamoDB labels table.
+ *
+ * The labels of a batch of images are grouped in memory first, so each label is written once
+ * per batch no matter how many of the images it was found in. Each write is a single UpdateItem
+ * that appends the image keys with list_append and adds their number to the count with ADD.
+ * DynamoDB applies the whole expression atomically, so requests that index the same label at the
+ * same time don't overwrite each other's images, and a label that isn't in the table yet is
+ * created by the same request. The labels of a batch are written on a fixed number of threads.
+ *
+ * Appending to a list and adding to a number aren't idempotent, so each write is conditional on
+ * none of its images being in the list yet. A request that the SDK retries after it was applied,
+ * or an image that is analyzed twice, then fails the condition instead of adding the image again.
+ * The images of a write that fails the condition are added one at a time, so the ones that aren't
+ * indexed yet are still added.
+ */
+public class LabelIndexWriter {
+    // The images attribute stays a list, rather than a string set, so that it is still read by
+    // the images property of the Label class.
+    private static final String UPDATE_EXPRESSION =
+        "SET images = list_append(if_not_exists(images, :empty), :keys) ADD #count :added";
+
+    // Keeps the condition, which has a clause for each image, well under the expression size limit.
+    private static final int MAX_KEYS_PER_UPDATE = 25;
+
+    private final DynamoDbClient client;
+    private final String tableName;
+    private final ExecutorService updatePool;
+
+    /**
+     * @param client                the client used to update the table.
+     * @param tableName             the name of the labels table.
+     * @param maxConcurrentUpdates  the most UpdateItem requests to run at the same time.
+     */
+    public LabelIndexWriter(DynamoDbClient client, String tableName, int maxConcurrentUpdates) {
+        this.client = client;
+        this.tableName = tableName;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.updatePool = Executors.newFixedThreadPool(maxConcurrentUpdates, r -> {
+            Thread thread = new Thread(r, "label-index-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds each image to the labels that were found in it, and returns once every label has been
+     * written. If a write fails, the labels that were already written keep their new images, and
+     * writing the same images again only adds the ones that are missing.
+     */
+    public void write(Collection<LabelCount> labels) {
+        List<CompletableFuture<Void>> updates = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : groupByLabel(labels).entrySet()) {
+            updates.add(CompletableFuture.runAsync(() -> update(entry.getKey(), entry.getValue()), updatePool));
+        }
+
+        try {
+            CompletableFuture.allOf(updates.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Returns the keys of the images for each label, without repeating an image for a label.
+    static Map<String, Set<String>> groupByLabel(Collection<LabelCount> labels) {
+        Map<String, Set<String>> imagesByLabel = new LinkedHashMap<>();
+        for (LabelCount label : labels) {
+            imagesByLabel.computeIfAbsent(label.getName(), name -> new LinkedHashSet<>()).add(label.getKey());
+        }
+        return imagesByLabel;
+    }
+
+    private void update(String label, Set<String> keys) {
+        List<String> allKeys = new ArrayList<>(keys);
+        for (int start = 0; start < allKeys.size(); start += MAX_KEYS_PER_UPDATE) {
+            List<String> group = allKeys.subList(start, Math.min(allKeys.size(), start + MAX_KEYS_PER_UPDATE));
+            if (!append(label, group) && group.size() > 1) {
+                // Some of the images are indexed already. Add the others on their own.
+                for (String key : group) {
+                    append(label, List.of(key));
+                }
+            }
+        }
+    }
+
+    // Appends the keys to the label and adds their number to its count, unless any of them is in
+    // the list already. Returns false if the condition failed and nothing was written.
+    private boolean append(String label, List<String> keys) {
+        List<AttributeValue> keyValues = new ArrayList<>(keys.size());
+        List<String> absent = new ArrayList<>(keys.size());
+        Map<String, AttributeValue> values = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            AttributeValue key = AttributeValue.builder().s(keys.get(i)).build();
+            keyValues.add(key);
+            absent.add("NOT contains(images, :key" + i + ")");
+            values.put(":key" + i, key);
+        }
+        values.put(":empty", AttributeValue.builder().l(List.of()).build());
+        values.put(":keys", AttributeValue.builder().l(keyValues).build());
+        values.put(":added", AttributeValue.builder().n(String.valueOf(keys.size())).build());
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(Map.of("Label", AttributeValue.builder().s(label).build()))
+            .updateExpression(UPDATE_EXPRESSION)
+            // Also true for a label that isn't in the table yet.
+            .conditionExpression(String.join(" AND ", absent))
+            // COUNT is a reserved word in DynamoDB expressions.
+            .expressionAttributeNames(Map.of("#count", "count"))
+            .expressionAttributeValues(values)
+            .build();
+
+        try {
+            client.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+}
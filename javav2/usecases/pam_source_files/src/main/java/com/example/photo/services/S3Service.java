@@ -8,6 +8,7 @@ package com.example.photo.services;
 import com.example.photo.PhotoApplicationResources;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
@@ -24,21 +25,19 @@ import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignReques
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 public class S3Service {
-    // Create the S3Client object.
+    // The client is created once and shared, so a warm AWS Lambda container reuses its connections.
+    private static final S3Client CLIENT = S3Client.builder()
+        .region(PhotoApplicationResources.REGION)
+        .build();
+
+    // Return the shared S3Client object.
     private S3Client getClient() {
-        return S3Client.builder()
-            .region(PhotoApplicationResources.REGION)
-            .build();
+        return CLIENT;
     }
 
     public byte[] getObjectBytes(String bucketName, String keyName) {
@@ -59,6 +58,23 @@ public class S3Service {
         }
     }
 
+    // Returns the object as a stream, so that its bytes are read as they arrive. The size of the
+    // object is available from the response before the stream is read.
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName, String keyName) {
+        GetObjectRequest objectRequest = GetObjectRequest
+            .builder()
+            .key(keyName)
+            .bucket(bucketName)
+            .build();
+
+        return getClient().getObject(objectRequest);
+    }
+
+    // Returns a stream that writes an object in parts, for an object too large to hold in memory.
+    public S3MultipartOutputStream openUpload(String bucketName, String objectKey, String contentType) {
+        return new S3MultipartOutputStream(getClient(), bucketName, objectKey, contentType);
+    }
+
     // Returns the names of all images in the given Amazon Simple Storage Service (Amazon S3) bucket.
     public List<String> listBucketObjects(String bucketName) {
         S3Client s3 = getClient();
@@ -101,21 +117,6 @@ public class S3Service {
         }
     }
 
-    // Pass a map and get back a byte[] that represents a ZIP of all images.
-    public byte[] listBytesToZip(Map<String, byte[]> mapReport) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ZipOutputStream zos = new ZipOutputStream(baos);
-        for (Map.Entry<String, byte[]> report : mapReport.entrySet()) {
-            ZipEntry entry = new ZipEntry(report.getKey());
-            entry.setSize(report.getValue().length);
-            zos.putNextEntry(entry);
-            zos.write(report.getValue());
-        }
-        zos.closeEntry();
-        zos.close();
-        return baos.toByteArray();
-    }
-
     // Returns true if object exists.
     public boolean checkS3ObjectDoesNotExist(String keyName) {
         S3Client s3 = getClient();
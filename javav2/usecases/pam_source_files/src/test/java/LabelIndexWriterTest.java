@@ -0,0 +1,127 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.photo.LabelCount;
+import com.example.photo.services.LabelIndexWriter;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LabelIndexWriterTest {
+
+    @Test
+    public void eachLabelIsWrittenOnceWithAllOfItsImages() {
+        LabelTable table = new LabelTable();
+        new LabelIndexWriter(table.client, "Labels", 4).write(Arrays.asList(
+            label("a.jpg", "Cat"), label("a.jpg", "Pet"), label("b.jpg", "Cat"), label("c.jpg", "Dog")));
+
+        assertEquals(3, table.updates.get());
+        assertEquals(Arrays.asList("a.jpg", "b.jpg"), table.images.get("Cat"));
+        assertEquals(2, (int) table.counts.get("Cat"));
+        assertEquals(Arrays.asList("a.jpg"), table.images.get("Pet"));
+        assertEquals(Arrays.asList("c.jpg"), table.images.get("Dog"));
+    }
+
+    @Test
+    public void retriedRequestIsNotAppliedTwice() {
+        LabelTable table = new LabelTable();
+        // The first request is applied, but its response is lost and the SDK sends it again.
+        table.applyNextRequestTwice = true;
+        new LabelIndexWriter(table.client, "Labels", 1).write(Arrays.asList(label("a.jpg", "Cat"), label("b.jpg", "Cat")));
+
+        assertEquals(Arrays.asList("a.jpg", "b.jpg"), table.images.get("Cat"));
+        assertEquals(2, (int) table.counts.get("Cat"));
+    }
+
+    @Test
+    public void onlyImagesThatArentIndexedAreAdded() {
+        LabelTable table = new LabelTable();
+        LabelIndexWriter writer = new LabelIndexWriter(table.client, "Labels", 1);
+        writer.write(Arrays.asList(label("a.jpg", "Cat"), label("b.jpg", "Cat")));
+        writer.write(Arrays.asList(label("b.jpg", "Cat"), label("c.jpg", "Cat")));
+        writer.write(Arrays.asList(label("c.jpg", "Cat")));
+
+        assertEquals(Arrays.asList("a.jpg", "b.jpg", "c.jpg"), table.images.get("Cat"));
+        assertEquals(3, (int) table.counts.get("Cat"));
+    }
+
+    @Test
+    public void manyImagesAreWrittenInGroups() {
+        LabelTable table = new LabelTable();
+        List<LabelCount> labels = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            labels.add(label(i + ".jpg", "Cat"));
+            keys.add(i + ".jpg");
+        }
+        new LabelIndexWriter(table.client, "Labels", 1).write(labels);
+
+        assertEquals(3, table.updates.get());
+        assertEquals(keys, table.images.get("Cat"));
+        assertEquals(60, (int) table.counts.get("Cat"));
+    }
+
+    private static LabelCount label(String key, String name) {
+        LabelCount label = new LabelCount();
+        label.setKey(key);
+        label.setName(name);
+        return label;
+    }
+
+    // A DynamoDbClient that applies the writer's UpdateItem requests to labels held in memory.
+    private static class LabelTable implements InvocationHandler {
+        private final DynamoDbClient client = (DynamoDbClient) Proxy.newProxyInstance(
+            DynamoDbClient.class.getClassLoader(), new Class<?>[]{DynamoDbClient.class}, this);
+        private final Map<String, List<String>> images = new HashMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private final AtomicInteger updates = new AtomicInteger();
+        private boolean applyNextRequestTwice;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!method.getName().equals("updateItem")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            UpdateItemRequest request = (UpdateItemRequest) args[0];
+            updates.incrementAndGet();
+            synchronized (this) {
+                if (applyNextRequestTwice) {
+                    applyNextRequestTwice = false;
+                    apply(request);
+                }
+                apply(request);
+            }
+            return UpdateItemResponse.builder().build();
+        }
+
+        // Checks that none of the :keyN values are in the list yet, then appends :keys and adds :added.
+        private void apply(UpdateItemRequest request) {
+            String label = request.key().get("Label").s();
+            List<String> current = images.computeIfAbsent(label, name -> new ArrayList<>());
+            for (Map.Entry<String, AttributeValue> value : request.expressionAttributeValues().entrySet()) {
+                if (value.getKey().startsWith(":key") && current.contains(value.getValue().s())) {
+                    throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+                }
+            }
+            for (AttributeValue key : request.expressionAttributeValues().get(":keys").l()) {
+                current.add(key.s());
+            }
+            int added = Integer.parseInt(request.expressionAttributeValues().get(":added").n());
+            counts.merge(label, added, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+   Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+   SPDX-License-Identifier: Apache-2.0
+*/
+import com.example.photo.services.S3MultipartOutputStream;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class S3MultipartOutputStreamTest {
+    // The smallest part size that S3 accepts.
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @Test
+    public void smallObjectIsSentWithOnePut() throws IOException {
+        RecordingS3 s3 = new RecordingS3();
+        try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client, "bucket", "key", "application/zip", PART_SIZE)) {
+            out.write("hello".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(Arrays.asList("putObject"), s3.calls);
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), s3.bodies.get(0));
+    }
+
+    @Test
+    public void largeObjectIsUploadedInOrderedParts() throws IOException {
+        RecordingS3 s3 = new RecordingS3();
+        byte[] data = new byte[2 * PART_SIZE + 100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+
+        try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client, "bucket", "key", "application/zip", PART_SIZE)) {
+            out.write(data[0]);
+            for (int offset = 1; offset < data.length; offset += 100_000) {
+                out.write(data, offset, Math.min(100_000, data.length - offset));
+            }
+        }
+
+        assertEquals(Arrays.asList("createMultipartUpload", "uploadPart", "uploadPart", "uploadPart",
+            "completeMultipartUpload"), s3.calls);
+        assertEquals(PART_SIZE, s3.bodies.get(0).length);
+        assertEquals(PART_SIZE, s3.bodies.get(1).length);
+        assertArrayEquals(data, concat(s3.bodies));
+
+        List<String> eTags = new ArrayList<>();
+        for (CompletedPart part : s3.completed.multipartUpload().parts()) {
+            eTags.add(part.partNumber() + ":" + part.eTag());
+        }
+        assertEquals(Arrays.asList("1:etag-1", "2:etag-2", "3:etag-3"), eTags);
+    }
+
+    @Test
+    public void failedPartAbortsTheUpload() {
+        RecordingS3 s3 = new RecordingS3();
+        s3.failingCall = "uploadPart";
+
+        assertThrows(IOException.class, () -> {
+            try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client, "bucket", "key", "application/zip", PART_SIZE)) {
+                out.write(new byte[PART_SIZE + 1]);
+            }
+        });
+        assertEquals(Arrays.asList("createMultipartUpload", "uploadPart", "abortMultipartUpload"), s3.calls);
+    }
+
+    @Test
+    public void connectionFailureAbortsTheUpload() {
+        // The request never reaches S3, so the SDK throws a client exception rather than an S3Exception.
+        RecordingS3 s3 = new RecordingS3();
+        s3.failingCall = "completeMultipartUpload";
+        s3.failure = SdkClientException.builder().message("Unable to execute HTTP request").build();
+
+        assertThrows(IOException.class, () -> {
+            try (S3MultipartOutputStream out = new S3MultipartOutputStream(s3.client, "bucket", "key", "application/zip", PART_SIZE)) {
+                out.write(new byte[PART_SIZE + 1]);
+            }
+        });
+        assertEquals(Arrays.asList("createMultipartUpload", "uploadPart", "uploadPart", "completeMultipartUpload",
+            "abortMultipartUpload"), s3.calls);
+    }
+
+    private static byte[] concat(List<byte[]> parts) {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            all.write(part, 0, part.length);
+        }
+        return all.toByteArray();
+    }
+
+    // An S3Client that records each call and keeps a copy of every body when it is sent.
+    private static class RecordingS3 implements InvocationHandler {
+        private final List<String> calls = new ArrayList<>();
+        private final List<byte[]> bodies = new ArrayList<>();
+        private final S3Client client = (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+            new Class<?>[]{S3Client.class}, this);
+        private CompleteMultipartUploadRequest completed;
+        private String failingCall;
+        private RuntimeException failure;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+            String name = method.getName();
+            calls.add(name);
+            if (name.equals(failingCall)) {
+                if (failure != null) {
+                    throw failure;
+                }
+                throw (S3Exception) S3Exception.builder().message(name + " failed").build();
+            }
+            switch (name) {
+                case "putObject":
+                    bodies.add(read((RequestBody) args[1]));
+                    return PutObjectResponse.builder().build();
+                case "createMultipartUpload":
+                    return CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+                case "uploadPart":
+                    bodies.add(read((RequestBody) args[1]));
+                    return UploadPartResponse.builder().eTag("etag-" + ((UploadPartRequest) args[0]).partNumber()).build();
+                case "completeMultipartUpload":
+                    completed = (CompleteMultipartUploadRequest) args[0];
+                    return CompleteMultipartUploadResponse.builder().build();
+                case "abortMultipartUpload":
+                    return AbortMultipartUploadResponse.builder().build();
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        }
+
+        // The stream reuses its buffer for the next part, so the body is read before the call returns.
+        private static byte[] read(RequestBody body) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                byte[] buffer = new byte[8192];
+                for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+                    bytes.write(buffer, 0, n);
+                }
+            }
+            return bytes.toByteArray();
+        }
+    }
+}